@@ -0,0 +1,393 @@
+package com.mailfinch.benchmarks;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import com.mailfinch.Address;
+import com.mailfinch.Configuration;
+import com.mailfinch.Letter;
+import com.mailfinch.MailFinch;
+import com.mailfinch.MailFinchException;
+import com.mailfinch.emulator.MailFinchEmulator;
+import com.mailfinch.metrics.HistogramSnapshot;
+import com.mailfinch.metrics.LatencyHistogram;
+
+/**
+ * Drives the whole client, from {@link MailFinch} down to the socket, against a {@link MailFinchEmulator}
+ * at a chosen concurrency and request rate, and reports its throughput, latency percentiles
+ * and the bytes it allocates per operation.
+ * <p>
+ * When a request rate is given, operations are scheduled on a fixed timetable (an open loop),
+ * and each one's latency is measured from when it was due to start rather than from when a worker got
+ * round to it. A stall therefore counts against every operation that queued up behind it, as it would
+ * for real callers, instead of hiding them: this is the correction for coordinated omission.
+ * The uncorrected service time is reported alongside for comparison. Without a rate, the workers
+ * run flat out in a closed loop and the two measures are the same.
+ * <p>
+ * Allocation is measured on the worker threads only, so it covers the client but not the emulator.
+ * Purchases each need a freshly saved letter; saving it is left out of the timings, but not out of the
+ * allocation, nor the worker's time, so a purchase benchmark needs more workers to keep up with a given rate.
+ * @author Richard Taylor <contact@rtaylor.me.uk>
+ */
+public class ClientBenchmark {
+
+	/** The operations that can be benchmarked. */
+	public enum Operation {
+
+		/** Creating a letter with {@link Letter#save()}. */
+		SAVE,
+
+		/** Purchasing a saved letter with {@link Letter#purchase()}. */
+		PURCHASE,
+
+		/** Looking up a letter with {@link MailFinch#getLetter(int)}. */
+		GET,
+
+		/** Listing every letter with {@link MailFinch#getAllLetters()}. */
+		LIST
+
+	}
+
+	/** The operation to benchmark. */
+	private Operation operation = Operation.GET;
+
+	/** The number of worker threads. */
+	private int concurrency = 16;
+
+	/** The number of operations to start per second, or zero to run flat out. */
+	private double rate;
+
+	/** The number of seconds to warm up for before measuring. */
+	private int warmup = 10;
+
+	/** The number of seconds to measure for. */
+	private int duration = 30;
+
+	/** The number of letters to create before starting, for lookups and listings. */
+	private int letters = 100;
+
+	/** The minimum latency of the emulator, in milliseconds. */
+	private long minimumLatency;
+
+	/** The maximum latency of the emulator, in milliseconds. */
+	private long maximumLatency;
+
+	/** The base URL of an external server to use instead of an in-process emulator, or null. */
+	private String baseURL;
+
+	/**
+	 * Runs a benchmark from the command line.
+	 * @param args Options of the form <c>--name=value</c>: <c>operation</c> (save, purchase, get or list),
+	 * <c>concurrency</c>, <c>rate</c> (operations per second, or 0 to run flat out), <c>warmup</c> and
+	 * <c>duration</c> (seconds), <c>letters</c> (created beforehand), <c>latency</c> (the emulator's
+	 * latency in milliseconds, as <c>min,max</c>) and <c>url</c> (an external server to use instead).
+	 * @throws Exception If the benchmark could not be run.
+	 */
+	public static void main(String[] args) throws Exception {
+		ClientBenchmark benchmark = new ClientBenchmark();
+		for (String arg : args) {
+			int equals = arg.indexOf('=');
+			if (!arg.startsWith("--") || equals < 0) {
+				throw new IllegalArgumentException("Expected --name=value, not " + arg);
+			}
+			String value = arg.substring(equals + 1);
+			switch (arg.substring(2, equals)) {
+				case "operation":
+					benchmark.operation = Operation.valueOf(value.toUpperCase(Locale.ROOT));
+					break;
+				case "concurrency":
+					benchmark.concurrency = Integer.parseInt(value);
+					break;
+				case "rate":
+					benchmark.rate = Double.parseDouble(value);
+					break;
+				case "warmup":
+					benchmark.warmup = Integer.parseInt(value);
+					break;
+				case "duration":
+					benchmark.duration = Integer.parseInt(value);
+					break;
+				case "letters":
+					benchmark.letters = Integer.parseInt(value);
+					break;
+				case "latency":
+					String[] range = value.split(",");
+					benchmark.minimumLatency = Long.parseLong(range[0]);
+					benchmark.maximumLatency = Long.parseLong(range[range.length - 1]);
+					break;
+				case "url":
+					benchmark.baseURL = value;
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown option: " + arg);
+			}
+		}
+		benchmark.run();
+	}
+
+	/**
+	 * Runs the benchmark and prints a report.
+	 * @throws Exception If the benchmark could not be run.
+	 */
+	public void run() throws Exception {
+		MailFinchEmulator emulator = null;
+		Configuration config = new Configuration("benchmark");
+		if (baseURL != null) {
+			config.setBaseURL(baseURL);
+		} else {
+			MailFinchEmulator.enableNoDelay();
+			emulator = new MailFinchEmulator().start();
+			emulator.configure(config);
+		}
+		try {
+			MailFinch mail = new MailFinch(config);
+			List<Integer> ids = new ArrayList<Integer>();
+			for (int i = 0; i < letters; i++) {
+				Letter letter = newLetter(mail);
+				letter.save();
+				ids.add(letter.getID());
+			}
+			if (emulator != null) {
+				emulator.setLatency(minimumLatency, maximumLatency);
+			}
+
+			System.out.printf(Locale.ROOT, "%s: %d workers, %s, %ds warm-up, %ds measured, %d letters%n",
+				operation, concurrency, (rate > 0) ? rate + " ops/s scheduled" : "unthrottled",
+				warmup, duration, letters);
+			Phase warm = runPhase(mail, ids, warmup);
+			System.out.printf(Locale.ROOT, "Warm-up: %d operations, %d errors%n", warm.operations.get(), warm.errors.get());
+			Phase measured = runPhase(mail, ids, duration);
+			report(measured);
+		} finally {
+			if (emulator != null) {
+				emulator.stop();
+			}
+		}
+	}
+
+	/**
+	 * Runs the workers for a fixed time.
+	 * @param mail The {@link MailFinch} client to drive.
+	 * @param ids The IDs of the letters created beforehand.
+	 * @param seconds The number of seconds to run for.
+	 * @return The {@link Phase} recording what happened.
+	 * @throws InterruptedException If the thread is interrupted while waiting for the workers.
+	 */
+	private Phase runPhase(final MailFinch mail, final List<Integer> ids, int seconds) throws InterruptedException {
+		final Phase phase = new Phase(System.nanoTime(), TimeUnit.SECONDS.toNanos(seconds));
+		final long interval = (rate > 0) ? (long) (1e9 / rate) : 0;
+		final CountDownLatch done = new CountDownLatch(concurrency);
+		for (int w = 0; w < concurrency; w++) {
+			Thread worker = new Thread(() -> {
+				try {
+					work(mail, ids, phase, interval);
+				} finally {
+					done.countDown();
+				}
+			}, "benchmark-worker-" + w);
+			worker.setDaemon(true);
+			worker.start();
+		}
+		done.await();
+		phase.elapsed = System.nanoTime() - phase.start;
+		return phase;
+	}
+
+	/**
+	 * Runs operations on one worker thread until the phase ends.
+	 * @param mail The {@link MailFinch} client to drive.
+	 * @param ids The IDs of the letters created beforehand.
+	 * @param phase The {@link Phase} to record into.
+	 * @param interval The number of nanoseconds between scheduled operations, or zero to run flat out.
+	 */
+	private void work(MailFinch mail, List<Integer> ids, Phase phase, long interval) {
+		long allocated = 0;
+		long end = phase.start + phase.length;
+		while (System.nanoTime() < end) {
+			// A letter can only be purchased once, so save a fresh one before each purchase, outside the timing.
+			Letter unpurchased = null;
+			if (operation == Operation.PURCHASE) {
+				unpurchased = newLetter(mail);
+				try {
+					unpurchased.save();
+				} catch (MailFinchException e) {
+					phase.errors.incrementAndGet();
+					continue;
+				}
+			}
+
+			long intended;
+			if (interval > 0) {
+				// Take the next slot in the timetable, and wait for it if we are early.
+				intended = phase.start + phase.tickets.getAndIncrement() * interval;
+				if (intended >= end) {
+					break;
+				}
+				long wait;
+				while ((wait = intended - System.nanoTime()) > 0) {
+					LockSupport.parkNanos(wait);
+				}
+			} else {
+				intended = System.nanoTime();
+				if (intended >= end) {
+					break;
+				}
+			}
+
+			// Only the timed operation counts towards allocation, not the setup before a purchase.
+			long allocatedBefore = allocatedBytes();
+			long started = System.nanoTime();
+			try {
+				switch (operation) {
+					case SAVE:
+						newLetter(mail).save();
+						break;
+					case PURCHASE:
+						unpurchased.purchase();
+						break;
+					case GET:
+						mail.getLetter(ids.get(ThreadLocalRandom.current().nextInt(ids.size())));
+						break;
+					case LIST:
+						mail.getAllLetters();
+						break;
+				}
+			} catch (MailFinchException e) {
+				phase.errors.incrementAndGet();
+			}
+			long finished = System.nanoTime();
+			long allocatedAfter = allocatedBytes();
+			if (allocated >= 0 && allocatedBefore >= 0 && allocatedAfter >= 0) {
+				allocated += allocatedAfter - allocatedBefore;
+			} else {
+				allocated = -1;
+			}
+			phase.corrected.record(finished - intended);
+			phase.service.record(finished - started);
+			phase.operations.incrementAndGet();
+		}
+		if (allocated >= 0) {
+			phase.allocated.addAndGet(allocated);
+		} else {
+			phase.allocated.set(-1);
+		}
+	}
+
+	/**
+	 * Prints the results of a phase.
+	 * @param phase The {@link Phase} to report.
+	 */
+	private void report(Phase phase) {
+		long operations = phase.operations.get();
+		double seconds = phase.elapsed / 1e9;
+		System.out.printf(Locale.ROOT, "Measured: %d operations in %.1fs, %d errors%n", operations, seconds, phase.errors.get());
+		System.out.printf(Locale.ROOT, "Throughput: %.1f ops/s%n", operations / seconds);
+		HistogramSnapshot corrected = phase.corrected.snapshot();
+		HistogramSnapshot service = phase.service.snapshot();
+		System.out.println("Latency (ms)       p50       p90       p99     p99.9       max");
+		printLatencies("  corrected", corrected);
+		printLatencies("  service  ", service);
+		long allocated = phase.allocated.get();
+		if (allocated >= 0 && operations > 0) {
+			System.out.printf(Locale.ROOT, "Allocated: %d bytes/op%n", allocated / operations);
+		} else {
+			System.out.println("Allocated: not supported by this JVM");
+		}
+	}
+
+	/**
+	 * Prints a row of latency percentiles.
+	 * @param label The label of the row.
+	 * @param histogram The {@link HistogramSnapshot} to print.
+	 */
+	private static void printLatencies(String label, HistogramSnapshot histogram) {
+		System.out.printf(Locale.ROOT, "%s %9.2f %9.2f %9.2f %9.2f %9.2f%n", label,
+			histogram.getValueAtPercentile(50) / 1e6, histogram.getValueAtPercentile(90) / 1e6,
+			histogram.getValueAtPercentile(99) / 1e6, histogram.getValueAtPercentile(99.9) / 1e6,
+			histogram.getMax() / 1e6);
+	}
+
+	/**
+	 * Creates a new, complete letter ready to be saved.
+	 * @param mail The {@link MailFinch} client to create it with.
+	 * @return The new {@link Letter}.
+	 */
+	private static Letter newLetter(MailFinch mail) {
+		Address address = new Address();
+		address.setName("Benchmark Addressee");
+		address.setStreet1("1 Example Street");
+		address.setCity("Springfield");
+		address.setState("CA");
+		address.setZip("90210");
+		address.setCountry("US");
+		Letter letter = mail.newLetter();
+		letter.setDocumentURL("https://documents.example.com/benchmark.pdf");
+		letter.setEmail("benchmark@example.com");
+		letter.setSender(address);
+		letter.setRecipient(address);
+		letter.setMailingDate(new Date());
+		return letter;
+	}
+
+	/**
+	 * Gets the number of bytes the current thread has allocated, where the JVM can say.
+	 * @return The number of bytes allocated, or -1 if it is not known.
+	 */
+	private static long allocatedBytes() {
+		java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (threads instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean sun = (com.sun.management.ThreadMXBean) threads;
+			if (sun.isThreadAllocatedMemorySupported() && sun.isThreadAllocatedMemoryEnabled()) {
+				return sun.getThreadAllocatedBytes(Thread.currentThread().getId());
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * The results of running the workers for a fixed time.
+	 */
+	private static class Phase {
+
+		/** The time the phase started, from {@link System#nanoTime()}. */
+		final long start;
+
+		/** The length of the phase, in nanoseconds. */
+		final long length;
+
+		/** The next slot in the timetable, when operations are scheduled. */
+		final AtomicLong tickets = new AtomicLong();
+
+		/** The number of operations completed. */
+		final AtomicLong operations = new AtomicLong();
+
+		/** The number of operations that failed. */
+		final AtomicLong errors = new AtomicLong();
+
+		/** The bytes allocated by the workers, or -1 if not known. */
+		final AtomicLong allocated = new AtomicLong();
+
+		/** The latencies measured from when each operation was due to start. */
+		final LatencyHistogram corrected = new LatencyHistogram();
+
+		/** The latencies measured from when each operation actually started. */
+		final LatencyHistogram service = new LatencyHistogram();
+
+		/** The time the phase actually took, in nanoseconds. */
+		long elapsed;
+
+		Phase(long start, long length) {
+			this.start = start;
+			this.length = length;
+		}
+
+	}
+
+}
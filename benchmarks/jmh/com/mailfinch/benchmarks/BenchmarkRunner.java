@@ -0,0 +1,29 @@
+package com.mailfinch.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JSON benchmarks with the GC profiler, so that every result reports
+ * the bytes allocated per operation (<c>gc.alloc.rate.norm</c>) as well as the throughput.
+ * @author Richard Taylor <contact@rtaylor.me.uk>
+ */
+public class BenchmarkRunner {
+
+	/**
+	 * Runs the benchmarks.
+	 * @param args An optional regular expression selecting the benchmarks to run.
+	 * @throws RunnerException If the benchmarks could not be run.
+	 */
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+			.include((args.length > 0) ? args[0] : "com\\.mailfinch\\.benchmarks\\.JSON.*")
+			.addProfiler(GCProfiler.class)
+			.build();
+		new Runner(options).run();
+	}
+
+}
@@ -0,0 +1,61 @@
+package com.mailfinch.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import com.mailfinch.Configuration;
+import com.mailfinch.Letter;
+import com.mailfinch.LetterIterator;
+import com.mailfinch.MailFinchException;
+
+/**
+ * Measures binding the listing of letters straight from the stream with a {@link LetterIterator},
+ * as MailFinch.letters() does, without building a tree of the listing first.
+ * @author Richard Taylor <contact@rtaylor.me.uk>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class JSONBindingBenchmark {
+
+	/** The configuration that bound letters belong to. */
+	private Configuration config;
+
+	/** The listing payload as UTF-8 encoded bytes, as it arrives from the network. */
+	private byte[] bytes;
+
+	@Setup
+	public void setUp() {
+		config = new Configuration("benchmark");
+		bytes = Payloads.getBytes(Payloads.LISTING);
+	}
+
+	/**
+	 * Binds every letter in the listing as it is read from the stream.
+	 */
+	@Benchmark
+	public List<Letter> bindListing() throws MailFinchException {
+		List<Letter> letters = new ArrayList<Letter>(Payloads.LISTING_SIZE);
+		try (LetterIterator iterator = new LetterIterator(config, new ByteArrayInputStream(bytes))) {
+			while (iterator.hasNext()) {
+				letters.add(iterator.next());
+			}
+		}
+		return letters;
+	}
+
+}
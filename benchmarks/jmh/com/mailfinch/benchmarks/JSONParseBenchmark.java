@@ -0,0 +1,117 @@
+package com.mailfinch.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONProjection;
+import org.json.JSONTokener;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import com.mailfinch.MailFinchException;
+import com.mailfinch.api.MailFinchConnection;
+
+/**
+ * Measures how quickly the bundled org.json parser reads each representative payload,
+ * both directly and as the client does when it receives a response.
+ * The projected parses select the fields that a letter's state is read from, as Letter does,
+ * which is one letter in the letter payload, every letter in the listing, and almost nothing in the others.
+ * Run with the GC profiler (<c>-prof gc</c>) to see the allocation rate alongside the throughput.
+ * @author Richard Taylor <contact@rtaylor.me.uk>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class JSONParseBenchmark {
+
+	/** The name of the payload to parse. */
+	@Param({ Payloads.LETTER, Payloads.LISTING, Payloads.NESTED, Payloads.ESCAPED })
+	public String payload;
+
+	/** The payload as a string. */
+	private String text;
+
+	/** The payload as UTF-8 encoded bytes, as it arrives from the network. */
+	private byte[] bytes;
+
+	/** The projection selecting the fields of a letter's state. */
+	private JSONProjection projection;
+
+	@Setup
+	public void setUp() {
+		text = Payloads.get(payload);
+		bytes = Payloads.getBytes(payload);
+		projection = MailFinchConnection.Response.projection(
+			"letter.id", "letter.status_field", "letter.sent_at", "letter.purchased_at");
+	}
+
+	/**
+	 * Parses the payload from a string, as most callers of org.json do.
+	 */
+	@Benchmark
+	public JSONObject parseString() throws JSONException {
+		return new JSONObject(text);
+	}
+
+	/**
+	 * Parses the payload through a tokener over a reader, as streamed responses are.
+	 */
+	@Benchmark
+	public JSONObject parseReader() throws JSONException {
+		return new JSONObject(new JSONTokener(new StringReader(text)));
+	}
+
+	/**
+	 * Decodes and parses the payload as the client does with every response body.
+	 */
+	@Benchmark
+	public MailFinchConnection.Response parseResponse() throws MailFinchException {
+		return new MailFinchConnection.Response(bytes);
+	}
+
+	/**
+	 * Parses the payload straight from its UTF-8 bytes, without decoding it to characters first.
+	 */
+	@Benchmark
+	public JSONObject parseBytes() throws JSONException {
+		return JSONObject.parse(bytes);
+	}
+
+	/**
+	 * Parses the payload straight from a stream of UTF-8 bytes.
+	 */
+	@Benchmark
+	public JSONObject parseStream() throws JSONException {
+		return JSONObject.parse(new ByteArrayInputStream(bytes));
+	}
+
+	/**
+	 * Parses only the projected fields of the payload from its UTF-8 bytes, skipping the rest.
+	 */
+	@Benchmark
+	public JSONObject parseProjected() throws JSONException {
+		return JSONObject.parse(bytes, projection);
+	}
+
+	/**
+	 * Parses a response body as Letter does when it only needs the letter's state.
+	 */
+	@Benchmark
+	public MailFinchConnection.Response parseResponseProjected() throws MailFinchException {
+		return new MailFinchConnection.Response(bytes, projection);
+	}
+
+}
@@ -0,0 +1,124 @@
+package com.mailfinch.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+import org.json.JSONException;
+import org.json.JSONReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures how quickly the pull-style {@link JSONReader} reads each representative payload.
+ * Walking the payload reads every name, which goes through the reader's symbol table,
+ * and every value; skipping it reads nothing but the structure.
+ * @author Richard Taylor <contact@rtaylor.me.uk>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class JSONReaderBenchmark {
+
+	/** The name of the payload to read. */
+	@Param({ Payloads.LETTER, Payloads.LISTING, Payloads.NESTED, Payloads.ESCAPED })
+	public String payload;
+
+	/** The payload as a string. */
+	private String text;
+
+	/** The payload as UTF-8 encoded bytes, as it arrives from the network. */
+	private byte[] bytes;
+
+	@Setup
+	public void setUp() {
+		text = Payloads.get(payload);
+		bytes = Payloads.getBytes(payload);
+	}
+
+	/**
+	 * Reads every name and value of the payload from a stream of UTF-8 bytes, as streamed responses are.
+	 */
+	@Benchmark
+	public void walkStream(Blackhole blackhole) throws JSONException {
+		walk(new JSONReader(new ByteArrayInputStream(bytes)), blackhole);
+	}
+
+	/**
+	 * Reads every name and value of the payload through a reader.
+	 */
+	@Benchmark
+	public void walkReader(Blackhole blackhole) throws JSONException {
+		walk(new JSONReader(new StringReader(text)), blackhole);
+	}
+
+	/**
+	 * Skips over the payload as a single value, without reading any names or values.
+	 */
+	@Benchmark
+	public void skipStream() throws JSONException {
+		new JSONReader(new ByteArrayInputStream(bytes)).skipValue();
+	}
+
+	/**
+	 * Builds the payload as a tree of JSON objects and arrays through the reader.
+	 */
+	@Benchmark
+	public Object readTree() throws JSONException {
+		return new JSONReader(new ByteArrayInputStream(bytes)).nextValue();
+	}
+
+	/**
+	 * Reads one value, and everything within it, token by token.
+	 * @param reader The {@link JSONReader} to read from.
+	 * @param blackhole The {@link Blackhole} that consumes each name and value.
+	 * @throws JSONException If the payload is not valid JSON.
+	 */
+	private static void walk(JSONReader reader, Blackhole blackhole) throws JSONException {
+		JSONReader.Token token = reader.peek();
+		switch (token) {
+			case BEGIN_OBJECT:
+				reader.beginObject();
+				while (reader.hasNext()) {
+					blackhole.consume(reader.nextName());
+					walk(reader, blackhole);
+				}
+				reader.endObject();
+				break;
+			case BEGIN_ARRAY:
+				reader.beginArray();
+				while (reader.hasNext()) {
+					walk(reader, blackhole);
+				}
+				reader.endArray();
+				break;
+			case STRING:
+				blackhole.consume(reader.nextString());
+				break;
+			case NUMBER:
+				blackhole.consume(reader.nextDouble());
+				break;
+			case BOOLEAN:
+				blackhole.consume(reader.nextBoolean());
+				break;
+			case NULL:
+				reader.nextNull();
+				break;
+			default:
+				throw reader.syntaxError("Unexpected " + token);
+		}
+	}
+
+}
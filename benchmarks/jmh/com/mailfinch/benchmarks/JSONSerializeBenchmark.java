@@ -0,0 +1,77 @@
+package com.mailfinch.benchmarks;
+
+import java.io.StringWriter;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import com.mailfinch.api.JSONRequestBody;
+
+/**
+ * Measures how quickly each representative payload is written out as JSON, both by the bundled
+ * org.json classes and by the {@link JSONRequestBody} encoder that the client sends requests with.
+ * Run with the GC profiler (<c>-prof gc</c>) to see the allocation rate alongside the throughput.
+ * @author Richard Taylor <contact@rtaylor.me.uk>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class JSONSerializeBenchmark {
+
+	/** The name of the payload to serialise. */
+	@Param({ Payloads.LETTER, Payloads.LISTING, Payloads.NESTED, Payloads.ESCAPED })
+	public String payload;
+
+	/** The payload, parsed into a {@link JSONObject}. */
+	private JSONObject object;
+
+	/** The payload as maps and lists, as request parameters are built. */
+	private Map<String, Object> structure;
+
+	@Setup
+	public void setUp() throws JSONException {
+		object = new JSONObject(Payloads.get(payload));
+		structure = Payloads.getStructure(payload);
+	}
+
+	/**
+	 * Serialises a {@link JSONObject} to a string.
+	 */
+	@Benchmark
+	public String objectToString() {
+		return object.toString();
+	}
+
+	/**
+	 * Serialises a {@link JSONObject} onto a writer.
+	 */
+	@Benchmark
+	public StringWriter objectWrite() throws JSONException {
+		StringWriter writer = new StringWriter();
+		object.write(writer);
+		return writer;
+	}
+
+	/**
+	 * Encodes the payload's maps and lists as a request body.
+	 */
+	@Benchmark
+	public byte[] requestBody() {
+		return new JSONRequestBody(structure).toByteArray();
+	}
+
+}
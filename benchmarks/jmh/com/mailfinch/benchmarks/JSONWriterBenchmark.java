@@ -0,0 +1,77 @@
+package com.mailfinch.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.json.JSONException;
+import org.json.JSONStringer;
+import org.json.JSONWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how quickly the streaming {@link JSONWriter} writes letters, one at a time or as a full listing.
+ * The writer cannot nest more than 20 levels deep, so it is measured on letters alone.
+ * @author Richard Taylor <contact@rtaylor.me.uk>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class JSONWriterBenchmark {
+
+	/** The number of letters to write. */
+	@Param({ "1", "10000" })
+	public int letters;
+
+	/**
+	 * Writes a listing of letters in the server's envelope.
+	 */
+	@Benchmark
+	public String writeLetters() throws JSONException {
+		JSONWriter writer = new JSONStringer()
+			.object().key("response").object()
+				.key("errors").value(null)
+				.key("code").value(200)
+				.key("message").value("OK")
+				.key("object").array();
+		for (int i = 1; i <= letters; i++) {
+			writer.object().key("letter").object()
+				.key("id").value(i)
+				.key("status_field").value("draft")
+				.key("pdf_remote_url").value("https://documents.example.com/" + i + ".pdf")
+				.key("email").value("sender@example.com")
+				.key("mailing_date").value("2016-01-01T00:00:00Z")
+				.key("sent_at").value(null)
+				.key("purchased_at").value(null);
+			address(writer.key("sender"));
+			address(writer.key("recipient"));
+			writer.endObject().endObject();
+		}
+		return writer.endArray().endObject().endObject().toString();
+	}
+
+	/**
+	 * Writes an address.
+	 */
+	private static void address(JSONWriter writer) throws JSONException {
+		writer.object()
+			.key("name").value("Addressee")
+			.key("street1").value("1 Example Street")
+			.key("street2").value(null)
+			.key("city").value("Springfield")
+			.key("state").value("CA")
+			.key("zip").value("90210")
+			.key("country").value("US")
+			.endObject();
+	}
+
+}
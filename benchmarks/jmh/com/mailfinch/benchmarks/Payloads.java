@@ -0,0 +1,163 @@
+package com.mailfinch.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import com.mailfinch.api.JSONRequestBody;
+
+/**
+ * Builds the representative JSON payloads that the benchmarks parse and serialise.
+ * Every payload is generated from a fixed seed, so runs on different machines
+ * and different versions of the parser measure exactly the same input.
+ * @author Richard Taylor <contact@rtaylor.me.uk>
+ */
+public final class Payloads {
+
+	/** The names of the payloads, for use as a JMH parameter. */
+	public static final String LETTER = "letter", LISTING = "listing", NESTED = "nested", ESCAPED = "escaped";
+
+	/** The number of letters in the listing payload. */
+	public static final int LISTING_SIZE = 10000;
+
+	/** The depth of the nested payload. */
+	public static final int NESTING_DEPTH = 200;
+
+	/** The seed of the random numbers used to build payloads. */
+	private static final long SEED = 20160101L;
+
+	/**
+	 * Gets a payload by name.
+	 * @param name The name of the payload: {@link #LETTER}, {@link #LISTING}, {@link #NESTED} or {@link #ESCAPED}.
+	 * @return The payload as a string of JSON data.
+	 */
+	public static String get(String name) {
+		return new String(getBytes(name), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Gets a payload by name.
+	 * @param name The name of the payload: {@link #LETTER}, {@link #LISTING}, {@link #NESTED} or {@link #ESCAPED}.
+	 * @return The payload as UTF-8 encoded JSON data.
+	 */
+	public static byte[] getBytes(String name) {
+		return new JSONRequestBody(getStructure(name)).toByteArray();
+	}
+
+	/**
+	 * Gets a payload by name, as the maps and lists that it is encoded from.
+	 * @param name The name of the payload: {@link #LETTER}, {@link #LISTING}, {@link #NESTED} or {@link #ESCAPED}.
+	 * @return The payload as a structure of maps, lists, strings, numbers and nulls.
+	 */
+	public static Map<String, Object> getStructure(String name) {
+		switch (name) {
+			case LETTER:
+				return envelope(letter(new Random(SEED), 1));
+			case LISTING:
+				Random random = new Random(SEED);
+				List<Object> letters = new ArrayList<Object>(LISTING_SIZE);
+				for (int i = 1; i <= LISTING_SIZE; i++) {
+					letters.add(letter(random, i));
+				}
+				return envelope(letters);
+			case NESTED:
+				return envelope(nested(NESTING_DEPTH));
+			case ESCAPED:
+				return envelope(escaped(new Random(SEED)));
+			default:
+				throw new IllegalArgumentException("Unknown payload: " + name);
+		}
+	}
+
+	/**
+	 * Wraps an object in the envelope that the MailFinch server sends.
+	 */
+	private static Map<String, Object> envelope(Object object) {
+		Map<String, Object> response = new LinkedHashMap<String, Object>();
+		response.put("errors", null);
+		response.put("code", 200);
+		response.put("message", "OK");
+		response.put("object", object);
+		Map<String, Object> envelope = new LinkedHashMap<String, Object>();
+		envelope.put("response", response);
+		return envelope;
+	}
+
+	/**
+	 * Builds a letter as the server sends it, wrapped under the "letter" key.
+	 */
+	private static Map<String, Object> letter(Random random, int id) {
+		Map<String, Object> letter = new LinkedHashMap<String, Object>();
+		letter.put("id", id);
+		letter.put("status_field", random.nextBoolean() ? "purchased" : "draft");
+		letter.put("pdf_remote_url", "https://documents.example.com/" + Long.toHexString(random.nextLong()) + ".pdf");
+		letter.put("email", "sender" + random.nextInt(1000) + "@example.com");
+		letter.put("mailing_date", "2016-0" + (1 + random.nextInt(9)) + "-1" + random.nextInt(10) + "T00:00:00Z");
+		letter.put("sent_at", null);
+		letter.put("purchased_at", random.nextBoolean() ? "2016-01-02T03:04:05Z" : null);
+		letter.put("sender", address(random));
+		letter.put("recipient", address(random));
+		Map<String, Object> wrapper = new LinkedHashMap<String, Object>();
+		wrapper.put("letter", letter);
+		return wrapper;
+	}
+
+	/**
+	 * Builds an address.
+	 */
+	private static Map<String, Object> address(Random random) {
+		Map<String, Object> address = new LinkedHashMap<String, Object>();
+		address.put("name", "Addressee " + random.nextInt(100000));
+		address.put("street1", (1 + random.nextInt(999)) + " Example Street");
+		address.put("street2", random.nextBoolean() ? "Suite " + random.nextInt(100) : null);
+		address.put("city", "Springfield");
+		address.put("state", "CA");
+		address.put("zip", String.valueOf(90000 + random.nextInt(10000)));
+		address.put("country", "US");
+		return address;
+	}
+
+	/**
+	 * Builds objects and arrays nested to the given depth, alternating between the two.
+	 */
+	private static Object nested(int depth) {
+		Object value = "leaf";
+		for (int i = 0; i < depth; i++) {
+			if (i % 2 == 0) {
+				Map<String, Object> object = new LinkedHashMap<String, Object>();
+				object.put("depth", depth - i);
+				object.put("child", value);
+				value = object;
+			} else {
+				List<Object> array = new ArrayList<Object>();
+				array.add(i);
+				array.add(value);
+				value = array;
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * Builds an object whose strings are dense with characters that must be escaped or encoded.
+	 */
+	private static Map<String, Object> escaped(Random random) {
+		String[] pieces = { "\"quoted\"", "back\\slash", "line\nbreak", "tab\there", "</script>", "café",
+			"日本語", "emoji 📨", "\u0001control\u001f", "plain text " };
+		Map<String, Object> object = new LinkedHashMap<String, Object>();
+		for (int i = 0; i < 200; i++) {
+			StringBuilder text = new StringBuilder();
+			for (int j = 0; j < 20; j++) {
+				text.append(pieces[random.nextInt(pieces.length)]);
+			}
+			object.put("field" + i, text.toString());
+		}
+		return object;
+	}
+
+	private Payloads() {
+	}
+
+}
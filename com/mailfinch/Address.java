@@ -4,6 +4,7 @@ import java.util.HashMap;
 import java.util.Map;
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.json.JSONReader;
 
 /**
  * Represents a mailing address within the MailFinch API.
@@ -39,6 +40,22 @@ public class Address {
 		// Do nothing.
 	}
 
+	/**
+	 * Creates a copy of this address.
+	 * @return A new {@link Address} with the same fields as this one.
+	 */
+	Address copy() {
+		Address address = new Address();
+		address.name = name;
+		address.street1 = street1;
+		address.street2 = street2;
+		address.city = city;
+		address.state = state;
+		address.zip = zip;
+		address.country = country;
+		return address;
+	}
+
 	/**
 	 * Gets a {@link Map} representing this address for use in the API.
 	 * @return A {@link Map} representing this address for use in the API.
@@ -107,6 +124,59 @@ public class Address {
 		}
 	}
 	
+	/**
+	 * Generates a new {@link Address} from JSON data as it is read,
+	 * without building a {@link JSONObject} for it first.
+	 * @param reader The {@link JSONReader} positioned at the start of the JSON object representing the address.
+	 * It is left positioned just after the end of the object.
+	 * @return The generated {@link Address} corresponding to the JSON data.
+	 * @throws MailFinchException If invalid JSON data has been read.
+	 */
+	public static Address fromJSON(JSONReader reader) throws MailFinchException {
+		try {
+			// Fill in each field as it is read. Nulls and unknown fields are skipped.
+			Address address = new Address();
+			reader.beginObject();
+			while (reader.hasNext()) {
+				String name = reader.nextName();
+				if (reader.peek() == JSONReader.Token.NULL) {
+					reader.nextNull();
+					continue;
+				}
+				switch (name) {
+					case "name":
+						address.name = reader.nextString();
+						break;
+					case "street1":
+						address.street1 = reader.nextString();
+						break;
+					case "street2":
+						address.street2 = reader.nextString();
+						break;
+					case "city":
+						address.city = reader.nextString();
+						break;
+					case "state":
+						address.state = reader.nextString();
+						break;
+					case "zip":
+						address.zip = reader.nextString();
+						break;
+					case "country":
+						address.country = reader.nextString();
+						break;
+					default:
+						reader.skipValue();
+				}
+			}
+			reader.endObject();
+			return address;
+			
+		} catch (JSONException e) {
+			throw new MailFinchException(Resources.INVALID_JSON, e);
+		}
+	}
+	
 	/**
 	 * Checks whether or not all required fields have been entered.
 	 * @return <c>true</c> if all required fields have been entered;
@@ -0,0 +1,77 @@
+package com.mailfinch;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import com.mailfinch.util.ExecutorFactory;
+
+/**
+ * Applies an operation to a collection of letters, with a bounded number of requests in flight.
+ * @author Richard Taylor <contact@rtaylor.me.uk>
+ */
+abstract class BulkOperation {
+
+	/**
+	 * Applies the operation to a single letter.
+	 * @param letter The letter to apply the operation to.
+	 * @throws MailFinchException If the operation failed for the letter.
+	 */
+	protected abstract void apply(Letter letter) throws MailFinchException;
+
+	/**
+	 * Applies the operation to every letter in a collection.
+	 * A failure for one letter is recorded in the result and does not stop the others.
+	 * @param letters The letters to apply the operation to.
+	 * @param concurrency The maximum number of letters to process at once.
+	 * @return A {@link BulkResult} containing the outcome for each letter.
+	 */
+	public BulkResult run(Collection<Letter> letters, int concurrency) {
+		if (concurrency < 1) {
+			throw new IllegalArgumentException(Resources.INVALID_CONCURRENCY);
+		}
+		final List<Letter> list = new ArrayList<Letter>(letters);
+		final MailFinchException[] errors = new MailFinchException[list.size()];
+		final Semaphore permits = new Semaphore(concurrency);
+		ExecutorService executor = ExecutorFactory.newTaskExecutor(concurrency);
+		int submitted = 0;
+		try {
+			for (; submitted < list.size(); submitted++) {
+				final int index = submitted;
+				permits.acquire();
+				executor.execute(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							apply(list.get(index));
+						} catch (MailFinchException e) {
+							errors[index] = e;
+						} catch (RuntimeException e) {
+							errors[index] = new MailFinchException(e);
+						} finally {
+							permits.release();
+						}
+					}
+				});
+			}
+		} catch (InterruptedException e) {
+			// Leave the remaining letters untouched, but report them as failed.
+			for (int i = submitted; i < list.size(); i++) {
+				errors[i] = new MailFinchException(Resources.BULK_INTERRUPTED, e);
+			}
+			Thread.currentThread().interrupt();
+		} finally {
+			// Wait for the letters already in flight, so that their outcomes are known.
+			permits.acquireUninterruptibly(concurrency);
+			executor.shutdown();
+		}
+
+		List<BulkResult.Outcome> outcomes = new ArrayList<BulkResult.Outcome>(list.size());
+		for (int i = 0; i < list.size(); i++) {
+			outcomes.add(new BulkResult.Outcome(list.get(i), errors[i]));
+		}
+		return new BulkResult(outcomes);
+	}
+
+}
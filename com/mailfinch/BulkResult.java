@@ -0,0 +1,141 @@
+package com.mailfinch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reports the outcome of a bulk operation on a number of letters,
+ * such as {@link MailFinch#saveAll} or {@link MailFinch#purchaseAll}.
+ * A failure for one letter does not stop the others from being processed,
+ * so each letter has its own {@link Outcome}.
+ * @author Richard Taylor <contact@rtaylor.me.uk>
+ */
+public class BulkResult {
+
+	/**
+	 * Represents the outcome of a bulk operation for a single letter.
+	 * @author Richard Taylor <contact@rtaylor.me.uk>
+	 */
+	public static class Outcome {
+
+		/** The letter that the operation was applied to. */
+		private final Letter letter;
+
+		/** The exception thrown for the letter, or null if the operation succeeded. */
+		private final MailFinchException exception;
+
+		/**
+		 * Initialises a new instance of the {@link Outcome} class.
+		 * @param letter The letter that the operation was applied to.
+		 * @param exception The exception thrown for the letter, or null if the operation succeeded.
+		 */
+		public Outcome(Letter letter, MailFinchException exception) {
+			this.letter = letter;
+			this.exception = exception;
+		}
+
+		/**
+		 * Gets the letter that the operation was applied to.
+		 * @return The letter that the operation was applied to.
+		 */
+		public Letter getLetter() {
+			return letter;
+		}
+
+		/**
+		 * Determines whether or not the operation succeeded for this letter.
+		 * @return <c>true</c> if the operation succeeded; otherwise, <c>false</c>.
+		 */
+		public boolean isSuccessful() {
+			return (exception == null);
+		}
+
+		/**
+		 * Gets the exception thrown for this letter.
+		 * @return The {@link MailFinchException} thrown for this letter, or null if the operation succeeded.
+		 */
+		public MailFinchException getException() {
+			return exception;
+		}
+
+	}
+
+	/** The outcome for each letter, in the order the letters were given. */
+	private final List<Outcome> outcomes;
+
+	/**
+	 * Initialises a new instance of the {@link BulkResult} class.
+	 * @param outcomes The outcome for each letter, in the order the letters were given.
+	 */
+	public BulkResult(List<Outcome> outcomes) {
+		this.outcomes = Collections.unmodifiableList(new ArrayList<Outcome>(outcomes));
+	}
+
+	/**
+	 * Gets the outcome for each letter, in the order the letters were given.
+	 * @return A {@link List} containing the outcome for each letter.
+	 */
+	public List<Outcome> getOutcomes() {
+		return outcomes;
+	}
+
+	/**
+	 * Gets the letters for which the operation succeeded.
+	 * @return A {@link List} containing the letters for which the operation succeeded.
+	 */
+	public List<Letter> getSucceeded() {
+		List<Letter> letters = new ArrayList<Letter>();
+		for (Outcome outcome : outcomes) {
+			if (outcome.isSuccessful()) {
+				letters.add(outcome.getLetter());
+			}
+		}
+		return letters;
+	}
+
+	/**
+	 * Gets the outcomes of the letters for which the operation failed.
+	 * @return A {@link List} containing the outcomes of the failed letters.
+	 */
+	public List<Outcome> getFailed() {
+		List<Outcome> failed = new ArrayList<Outcome>();
+		for (Outcome outcome : outcomes) {
+			if (!outcome.isSuccessful()) {
+				failed.add(outcome);
+			}
+		}
+		return failed;
+	}
+
+	/**
+	 * Gets the number of letters for which the operation succeeded.
+	 * @return The number of letters for which the operation succeeded.
+	 */
+	public int getSuccessCount() {
+		return outcomes.size() - getFailureCount();
+	}
+
+	/**
+	 * Gets the number of letters for which the operation failed.
+	 * @return The number of letters for which the operation failed.
+	 */
+	public int getFailureCount() {
+		int count = 0;
+		for (Outcome outcome : outcomes) {
+			if (!outcome.isSuccessful()) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Determines whether or not the operation succeeded for every letter.
+	 * @return <c>true</c> if the operation succeeded for every letter; otherwise, <c>false</c>.
+	 */
+	public boolean isSuccessful() {
+		return (getFailureCount() == 0);
+	}
+
+}
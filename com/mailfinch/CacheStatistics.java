@@ -0,0 +1,95 @@
+package com.mailfinch;
+
+/**
+ * An immutable snapshot of the counters of a {@link LetterCache}.
+ * @author Richard Taylor <contact@rtaylor.me.uk>
+ */
+public class CacheStatistics {
+
+	/** The number of letters held in the cache. */
+	private final int size;
+
+	/** The number of lookups that found a letter in the cache. */
+	private final long hitCount;
+
+	/** The number of lookups that did not find a letter in the cache. */
+	private final long missCount;
+
+	/** The number of letters removed to keep the cache within its maximum size. */
+	private final long evictionCount;
+
+	/** The number of letters removed because their time to live had passed. */
+	private final long expirationCount;
+
+	/**
+	 * Initialises a new instance of the {@link CacheStatistics} class.
+	 * @param size The number of letters held in the cache.
+	 * @param hitCount The number of lookups that found a letter in the cache.
+	 * @param missCount The number of lookups that did not find a letter in the cache.
+	 * @param evictionCount The number of letters removed to keep the cache within its maximum size.
+	 * @param expirationCount The number of letters removed because their time to live had passed.
+	 */
+	public CacheStatistics(int size, long hitCount, long missCount, long evictionCount, long expirationCount) {
+		this.size = size;
+		this.hitCount = hitCount;
+		this.missCount = missCount;
+		this.evictionCount = evictionCount;
+		this.expirationCount = expirationCount;
+	}
+
+	/**
+	 * Gets the number of letters held in the cache.
+	 * @return The number of letters held in the cache.
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Gets the number of lookups that found a letter in the cache.
+	 * @return The number of cache hits.
+	 */
+	public long getHitCount() {
+		return hitCount;
+	}
+
+	/**
+	 * Gets the number of lookups that did not find a letter in the cache.
+	 * @return The number of cache misses.
+	 */
+	public long getMissCount() {
+		return missCount;
+	}
+
+	/**
+	 * Gets the proportion of lookups that found a letter in the cache.
+	 * @return The hit rate between 0 and 1, or 0 if there have been no lookups.
+	 */
+	public double getHitRate() {
+		long lookups = hitCount + missCount;
+		return (lookups == 0) ? 0 : (double) hitCount / lookups;
+	}
+
+	/**
+	 * Gets the number of letters removed to keep the cache within its maximum size.
+	 * @return The number of evictions.
+	 */
+	public long getEvictionCount() {
+		return evictionCount;
+	}
+
+	/**
+	 * Gets the number of letters removed because their time to live had passed.
+	 * @return The number of expirations.
+	 */
+	public long getExpirationCount() {
+		return expirationCount;
+	}
+
+	@Override
+	public String toString() {
+		return "CacheStatistics[size=" + size + ", hits=" + hitCount + ", misses=" + missCount
+				+ ", evictions=" + evictionCount + ", expirations=" + expirationCount + "]";
+	}
+
+}
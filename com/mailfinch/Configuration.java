@@ -1,7 +1,16 @@
 package com.mailfinch;
 
+import java.util.Arrays;
+import com.mailfinch.api.AsyncJSONConnection;
+import com.mailfinch.api.AsyncMailFinchConnection;
+import com.mailfinch.api.CircuitBreaker;
+import com.mailfinch.api.Interceptor;
 import com.mailfinch.api.JSONConnection;
 import com.mailfinch.api.MailFinchConnection;
+import com.mailfinch.api.RateLimiter;
+import com.mailfinch.api.RetryPolicy;
+import com.mailfinch.http.ConnectionPool;
+import com.mailfinch.metrics.MetricsRegistry;
 
 /**
  * This class encapsulates a MailFinch configuration,
@@ -10,11 +19,59 @@ import com.mailfinch.api.MailFinchConnection;
  */
 public class Configuration {
 	
+	/** The default maximum number of requests in flight during bulk operations. */
+	public static final int DEFAULT_BULK_CONCURRENCY = 16;
+	
+	/** The default number of milliseconds to wait for a connection to the MailFinch server. */
+	public static final int DEFAULT_CONNECT_TIMEOUT = 10000;
+	
+	/** The default number of milliseconds to wait for data from the MailFinch server. */
+	public static final int DEFAULT_READ_TIMEOUT = 30000;
+	
 	/** The unique API key to use for all MailFinch requests. */
 	private final String key;
 	
+	/** The base URL of the MailFinch service, ending with a slash. */
+	private volatile String baseURL = Resources.BASE_URL;
+	
 	/** The {@link MailFinchConnection} object to execute requests with. */
 	private MailFinchConnection connection;
+	
+	/** The {@link AsyncMailFinchConnection} object to execute asynchronous requests with. */
+	private AsyncMailFinchConnection asyncConnection;
+	
+	/** The {@link ConnectionPool} shared by all requests made with this configuration. */
+	private ConnectionPool connectionPool;
+	
+	/** The maximum number of requests in flight during bulk operations. */
+	private int bulkConcurrency = DEFAULT_BULK_CONCURRENCY;
+	
+	/** The number of milliseconds to wait for a connection to the MailFinch server, or zero to wait indefinitely. */
+	private volatile int connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+	
+	/** The number of milliseconds to wait for data from the MailFinch server, or zero to wait indefinitely. */
+	private volatile int readTimeout = DEFAULT_READ_TIMEOUT;
+	
+	/** The {@link LetterCache} used to answer repeated letter lookups, or null if caching is disabled. */
+	private volatile LetterCache letterCache;
+	
+	/** The {@link RateLimiter} that paces requests, or null if requests are not paced. */
+	private volatile RateLimiter rateLimiter;
+	
+	/** The {@link CircuitBreaker} that stops requests while the server is failing, or null if there is none. */
+	private volatile CircuitBreaker circuitBreaker;
+	
+	/** The {@link RetryPolicy} that decides which failed requests are retried, or null if none are. */
+	private volatile RetryPolicy retryPolicy = new RetryPolicy();
+	
+	/** The {@link IdempotencyLedger} that records the outcome of letter creations and purchases. */
+	private IdempotencyLedger idempotencyLedger;
+	
+	/** The {@link Interceptor} chain that every request passes through, outermost first. Replaced, never modified, when it changes. */
+	private volatile Interceptor[] interceptors = new Interceptor[0];
+	
+	/** The {@link MetricsRegistry} that records every call to the API, or null if calls are not recorded. */
+	private volatile MetricsRegistry metricsRegistry;
 
 	/**
 	 * Initialises a new instance of the {@link Configuration} class.
@@ -39,7 +96,19 @@ public class Configuration {
 	 * @return The base URL used to connect to the MailFinch service.
 	 */
 	public String getBaseURL() {
-		return Resources.BASE_URL;
+		return baseURL;
+	}
+	
+	/**
+	 * Sets the base URL used to connect to the MailFinch service, such as that of a
+	 * {@link com.mailfinch.emulator.MailFinchEmulator} for testing. The real service is used by default.
+	 * @param url The base URL of the MailFinch service. A trailing slash is added if it is missing.
+	 */
+	public void setBaseURL(String url) {
+		if (url == null || url.isEmpty()) {
+			throw new IllegalArgumentException(Resources.INVALID_BASE_URL);
+		}
+		this.baseURL = url.endsWith("/") ? url : url + "/";
 	}
 	
 	/**
@@ -69,5 +138,252 @@ public class Configuration {
 	public void setRequest(MailFinchConnection connection) {
 		this.connection = connection;
 	}
+	
+	/**
+	 * Gets the current {@link AsyncMailFinchConnection} object.
+	 * If one does not exist, a new default object will be created.
+	 * @return The {@link AsyncMailFinchConnection} object to execute asynchronous requests with.
+	 */
+	public synchronized AsyncMailFinchConnection getAsyncConnection() {
+		if (asyncConnection == null) {
+			asyncConnection = new AsyncJSONConnection(this);
+		}
+		return asyncConnection;
+	}
+	
+	/**
+	 * Sets the {@link AsyncMailFinchConnection} object to use for all future asynchronous requests.
+	 * @param connection The {@link AsyncMailFinchConnection} object to execute asynchronous requests with.
+	 */
+	public synchronized void setAsyncConnection(AsyncMailFinchConnection connection) {
+		this.asyncConnection = connection;
+	}
+	
+	/**
+	 * Gets the {@link ConnectionPool} shared by all requests made with this configuration.
+	 * If one does not exist, a new pool with the default limits will be created.
+	 * @return The {@link ConnectionPool} to send requests over.
+	 */
+	public synchronized ConnectionPool getConnectionPool() {
+		if (connectionPool == null) {
+			connectionPool = new ConnectionPool();
+		}
+		return connectionPool;
+	}
+	
+	/**
+	 * Sets the {@link ConnectionPool} to send all future requests over.
+	 * @param pool The {@link ConnectionPool} to send requests over.
+	 */
+	public synchronized void setConnectionPool(ConnectionPool pool) {
+		this.connectionPool = pool;
+	}
+	
+	/**
+	 * Gets the maximum number of requests in flight during bulk operations,
+	 * such as {@link MailFinch#saveAll} and {@link MailFinch#purchaseAll}.
+	 * @return The maximum number of requests in flight during bulk operations.
+	 */
+	public int getBulkConcurrency() {
+		return bulkConcurrency;
+	}
+	
+	/**
+	 * Sets the maximum number of requests in flight during bulk operations.
+	 * This should not exceed the per-host limit of the {@link ConnectionPool}.
+	 * @param concurrency The maximum number of requests in flight during bulk operations.
+	 */
+	public void setBulkConcurrency(int concurrency) {
+		if (concurrency < 1) {
+			throw new IllegalArgumentException(Resources.INVALID_CONCURRENCY);
+		}
+		this.bulkConcurrency = concurrency;
+	}
+	
+	/**
+	 * Gets the {@link LetterCache} used to answer repeated letter lookups.
+	 * @return The {@link LetterCache} in use, or null if caching is disabled.
+	 */
+	public LetterCache getLetterCache() {
+		return letterCache;
+	}
+	
+	/**
+	 * Sets the {@link LetterCache} used to answer repeated letter lookups.
+	 * Caching is disabled by default.
+	 * @param cache The {@link LetterCache} to use, or null to disable caching.
+	 */
+	public void setLetterCache(LetterCache cache) {
+		this.letterCache = cache;
+	}
+	
+	/**
+	 * Gets the {@link RateLimiter} that paces requests made with this configuration.
+	 * @return The {@link RateLimiter} in use, or null if requests are not paced.
+	 */
+	public RateLimiter getRateLimiter() {
+		return rateLimiter;
+	}
+	
+	/**
+	 * Sets the {@link RateLimiter} that paces requests made with this configuration,
+	 * such as a {@link com.mailfinch.api.TokenBucketRateLimiter}. Requests are not paced by default.
+	 * @param limiter The {@link RateLimiter} to use, or null to stop pacing requests.
+	 */
+	public void setRateLimiter(RateLimiter limiter) {
+		this.rateLimiter = limiter;
+	}
+	
+	/**
+	 * Gets the {@link CircuitBreaker} that stops requests made with this configuration while the server is failing.
+	 * @return The {@link CircuitBreaker} in use, or null if requests are always sent.
+	 */
+	public CircuitBreaker getCircuitBreaker() {
+		return circuitBreaker;
+	}
+	
+	/**
+	 * Sets the {@link CircuitBreaker} that stops requests made with this configuration while the server is failing.
+	 * It judges every attempt made by the default blocking and asynchronous connections. There is none by default.
+	 * @param breaker The {@link CircuitBreaker} to use, or null to always send requests.
+	 */
+	public void setCircuitBreaker(CircuitBreaker breaker) {
+		this.circuitBreaker = breaker;
+	}
+	
+	/**
+	 * Gets the {@link RetryPolicy} that decides which failed requests are retried.
+	 * A policy with the default settings is used unless another is set.
+	 * @return The {@link RetryPolicy} in use, or null if failed requests are never retried.
+	 */
+	public RetryPolicy getRetryPolicy() {
+		return retryPolicy;
+	}
+	
+	/**
+	 * Sets the {@link RetryPolicy} that decides which failed requests are retried.
+	 * @param policy The {@link RetryPolicy} to use, or null to never retry failed requests.
+	 */
+	public void setRetryPolicy(RetryPolicy policy) {
+		this.retryPolicy = policy;
+	}
+	
+	/**
+	 * Gets the {@link IdempotencyLedger} that records the outcome of letter creations and purchases.
+	 * If one does not exist, a new ledger with the default capacity will be created.
+	 * @return The {@link IdempotencyLedger} in use.
+	 */
+	public synchronized IdempotencyLedger getIdempotencyLedger() {
+		if (idempotencyLedger == null) {
+			idempotencyLedger = new IdempotencyLedger();
+		}
+		return idempotencyLedger;
+	}
+	
+	/**
+	 * Sets the {@link IdempotencyLedger} that records the outcome of letter creations and purchases.
+	 * @param ledger The {@link IdempotencyLedger} to use.
+	 */
+	public synchronized void setIdempotencyLedger(IdempotencyLedger ledger) {
+		this.idempotencyLedger = ledger;
+	}
+	
+	/**
+	 * Gets the number of milliseconds to wait for a connection to the MailFinch server,
+	 * including waiting for a free connection in the {@link ConnectionPool}.
+	 * @return The connect timeout in milliseconds, or zero to wait indefinitely.
+	 */
+	public int getConnectTimeout() {
+		return connectTimeout;
+	}
+	
+	/**
+	 * Sets the number of milliseconds to wait for a connection to the MailFinch server.
+	 * @param timeout The connect timeout in milliseconds, or zero to wait indefinitely.
+	 */
+	public void setConnectTimeout(int timeout) {
+		if (timeout < 0) {
+			throw new IllegalArgumentException(Resources.INVALID_TIMEOUT);
+		}
+		this.connectTimeout = timeout;
+	}
+	
+	/**
+	 * Gets the number of milliseconds to wait for data from the MailFinch server
+	 * before a request is abandoned.
+	 * @return The read timeout in milliseconds, or zero to wait indefinitely.
+	 */
+	public int getReadTimeout() {
+		return readTimeout;
+	}
+	
+	/**
+	 * Sets the number of milliseconds to wait for data from the MailFinch server.
+	 * @param timeout The read timeout in milliseconds, or zero to wait indefinitely.
+	 */
+	public void setReadTimeout(int timeout) {
+		if (timeout < 0) {
+			throw new IllegalArgumentException(Resources.INVALID_TIMEOUT);
+		}
+		this.readTimeout = timeout;
+	}
+	
+	/**
+	 * Adds an {@link Interceptor} to the end of the chain that every request passes through.
+	 * Interceptors see each attempt at a request in the order they were added,
+	 * so the first one added is the outermost. When none are added, requests are sent directly.
+	 * @param interceptor The {@link Interceptor} to add.
+	 */
+	public synchronized void addInterceptor(Interceptor interceptor) {
+		if (interceptor == null) {
+			throw new IllegalArgumentException(Resources.INVALID_INTERCEPTOR);
+		}
+		Interceptor[] chain = Arrays.copyOf(interceptors, interceptors.length + 1);
+		chain[interceptors.length] = interceptor;
+		interceptors = chain;
+	}
+	
+	/**
+	 * Removes an {@link Interceptor} from the chain that every request passes through.
+	 * @param interceptor The {@link Interceptor} to remove.
+	 * @return <c>true</c> if the interceptor was in the chain; otherwise, <c>false</c>.
+	 */
+	public synchronized boolean removeInterceptor(Interceptor interceptor) {
+		for (int i = 0; i < interceptors.length; i++) {
+			if (interceptors[i] == interceptor) {
+				Interceptor[] chain = new Interceptor[interceptors.length - 1];
+				System.arraycopy(interceptors, 0, chain, 0, i);
+				System.arraycopy(interceptors, i + 1, chain, i, chain.length - i);
+				interceptors = chain;
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Gets the {@link Interceptor} chain that every request passes through.
+	 * @return The interceptors in the order they are applied, outermost first. The array must not be modified.
+	 */
+	public Interceptor[] getInterceptors() {
+		return interceptors;
+	}
+	
+	/**
+	 * Gets the {@link MetricsRegistry} that records the latency and outcome of every call made with this configuration.
+	 * @return The {@link MetricsRegistry} in use, or null if calls are not recorded.
+	 */
+	public MetricsRegistry getMetricsRegistry() {
+		return metricsRegistry;
+	}
+	
+	/**
+	 * Sets the {@link MetricsRegistry} that records the latency and outcome of every call made with this configuration.
+	 * Calls are not recorded by default.
+	 * @param registry The {@link MetricsRegistry} to use, or null to stop recording calls.
+	 */
+	public void setMetricsRegistry(MetricsRegistry registry) {
+		this.metricsRegistry = registry;
+	}
 
 }
@@ -0,0 +1,213 @@
+package com.mailfinch;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A local record of the letter operations that have been attempted with each idempotency key,
+ * and of what became of them. When an attempt fails without a clear answer from the server,
+ * the ledger lets the next attempt find out whether the first one took effect before sending
+ * it again, so that retries never create or purchase a letter twice.
+ * The ledger remembers a bounded number of keys, forgetting the least recently used first.
+ * @author Richard Taylor <contact@rtaylor.me.uk>
+ */
+public class IdempotencyLedger {
+
+	/** The default maximum number of keys remembered by the ledger. */
+	public static final int DEFAULT_CAPACITY = 10000;
+
+	/**
+	 * The states that an operation recorded in the ledger can be in.
+	 */
+	public enum State {
+
+		/** The operation has been sent, and no answer has been received yet. */
+		PENDING,
+
+		/** The operation failed in a way that leaves it unclear whether the server acted on it. */
+		AMBIGUOUS,
+
+		/** The server is known to have acted on the operation. */
+		COMMITTED
+
+	}
+
+	/** The maximum number of keys remembered by the ledger. */
+	private final int capacity;
+
+	/** The recorded operations keyed by idempotency key, in order of least to most recently used. */
+	private final LinkedHashMap<String, Record> records;
+
+	/** The keys of committed letter creations, keyed by the ID of the letter that each one created. */
+	private final Map<Integer, String> creators = new HashMap<Integer, String>();
+
+	/**
+	 * Initialises a new instance of the {@link IdempotencyLedger} class with the default capacity.
+	 */
+	public IdempotencyLedger() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Initialises a new instance of the {@link IdempotencyLedger} class.
+	 * @param capacity The maximum number of keys remembered by the ledger.
+	 */
+	public IdempotencyLedger(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException(Resources.INVALID_LEDGER_CAPACITY);
+		}
+		this.capacity = capacity;
+		this.records = new LinkedHashMap<String, Record>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Record> eldest) {
+				if (size() > IdempotencyLedger.this.capacity) {
+					forgetCreator(eldest.getKey(), eldest.getValue());
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Records that an operation is about to be sent to the server.
+	 * An operation already known to be ambiguous stays ambiguous until it is resolved.
+	 * @param key The idempotency key of the operation.
+	 * @param creation <c>true</c> if the operation creates a letter; otherwise, <c>false</c>.
+	 */
+	public synchronized void begin(String key, boolean creation) {
+		Record record = records.get(key);
+		if (record == null) {
+			records.put(key, new Record(creation));
+		}
+	}
+
+	/**
+	 * Records that the server has acted on an operation.
+	 * @param key The idempotency key of the operation.
+	 * @param letterID The ID of the letter that the operation applied to.
+	 */
+	public synchronized void commit(String key, int letterID) {
+		Record record = records.get(key);
+		if (record == null) {
+			record = new Record(false);
+			records.put(key, record);
+		}
+		record.state = State.COMMITTED;
+		record.letterID = letterID;
+		if (record.creation) {
+			creators.put(letterID, key);
+		}
+	}
+
+	/**
+	 * Records that an ambiguous letter creation is now known to have created the given letter,
+	 * unless that letter has already been claimed by another creation.
+	 * @param key The idempotency key of the creation.
+	 * @param letterID The ID of the letter that the creation may have made.
+	 * @return <c>true</c> if the letter was claimed for this creation; otherwise, <c>false</c>.
+	 */
+	public synchronized boolean claim(String key, int letterID) {
+		String creator = creators.get(letterID);
+		if (creator != null) {
+			return creator.equals(key);
+		}
+		Record record = records.get(key);
+		if (record == null) {
+			record = new Record(true);
+			records.put(key, record);
+		}
+		record.state = State.COMMITTED;
+		record.letterID = letterID;
+		creators.put(letterID, key);
+		return true;
+	}
+
+	/**
+	 * Records that an operation failed without a clear answer from the server.
+	 * @param key The idempotency key of the operation.
+	 */
+	public synchronized void markAmbiguous(String key) {
+		Record record = records.get(key);
+		if (record != null && record.state != State.COMMITTED) {
+			record.state = State.AMBIGUOUS;
+		}
+	}
+
+	/**
+	 * Forgets an operation that is known not to have been acted on by the server,
+	 * so that it can be sent again as if for the first time.
+	 * @param key The idempotency key of the operation.
+	 */
+	public synchronized void forget(String key) {
+		Record record = records.remove(key);
+		if (record != null) {
+			forgetCreator(key, record);
+		}
+	}
+
+	/**
+	 * Gets the state of an operation.
+	 * @param key The idempotency key of the operation.
+	 * @return The {@link State} of the operation, or null if the ledger does not know of it.
+	 */
+	public synchronized State getState(String key) {
+		Record record = records.get(key);
+		return (record != null) ? record.state : null;
+	}
+
+	/**
+	 * Gets the ID of the letter that a committed operation applied to.
+	 * @param key The idempotency key of the operation.
+	 * @return The ID of the letter, or 0 if the operation has not been committed.
+	 */
+	public synchronized int getLetterID(String key) {
+		Record record = records.get(key);
+		return (record != null && record.state == State.COMMITTED) ? record.letterID : 0;
+	}
+
+	/**
+	 * Determines whether or not a letter is already known to have been created by a recorded operation,
+	 * in which case it cannot be the result of any other ambiguous creation.
+	 * @param letterID The ID of the letter.
+	 * @return <c>true</c> if the letter was created by a recorded operation; otherwise, <c>false</c>.
+	 */
+	public synchronized boolean isClaimed(int letterID) {
+		return creators.containsKey(letterID);
+	}
+
+	/**
+	 * Removes the link between a forgotten creation and the letter it created.
+	 * @param key The idempotency key of the operation.
+	 * @param record The recorded operation.
+	 */
+	private void forgetCreator(String key, Record record) {
+		if (record.creation && record.state == State.COMMITTED) {
+			creators.remove(record.letterID, key);
+		}
+	}
+
+	/**
+	 * An operation recorded in the ledger.
+	 */
+	private static class Record {
+
+		/** Whether or not the operation creates a letter. */
+		final boolean creation;
+
+		/** The current state of the operation. */
+		State state = State.PENDING;
+
+		/** The ID of the letter that the operation applied to, once committed. */
+		int letterID;
+
+		Record(boolean creation) {
+			this.creation = creation;
+		}
+
+	}
+
+}
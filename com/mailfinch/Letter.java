@@ -3,9 +3,21 @@ package com.mailfinch;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import com.mailfinch.api.AsyncMailFinchConnection;
+import com.mailfinch.api.Deadline;
+import com.mailfinch.api.Endpoint;
+import com.mailfinch.api.MailFinchConnection;
+import com.mailfinch.api.RequestOptions;
+import com.mailfinch.api.RetryPolicy;
+import com.mailfinch.metrics.LetterMappingEvent;
 import com.mailfinch.util.DateConverter;
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.json.JSONProjection;
+import org.json.JSONReader;
 
 /**
  * Represents a letter within the MailFinch API.
@@ -13,6 +25,10 @@ import org.json.JSONObject;
  */
 public class Letter {
 	
+	/** The parts of a response that synchronising a letter reads; the addresses and the rest are skipped. */
+	private static final JSONProjection STATE_FIELDS = MailFinchConnection.Response.projection(
+			"letter.id", "letter.status_field", "letter.sent_at", "letter.purchased_at");
+	
 	/** The {@link Configuration} object to get settings from. */
 	private Configuration configuration;
 	
@@ -42,6 +58,15 @@ public class Letter {
 	
 	/** The email address of the sender. */
 	private String emailAddress;
+	
+	/** The idempotency key of the creation or purchase in progress, or null if there is none. */
+	private volatile String idempotencyKey;
+	
+	/** Whether a creation or purchase of this letter is being attempted, guarded by this letter's lock. */
+	private boolean operationInProgress;
+	
+	/** The idempotency key that the server reports this letter was created with, or null if it reports none. */
+	private String creationKey;
 
 	/**
 	 * Initialises a new instance of the {@link Letter} class.
@@ -187,6 +212,26 @@ public class Letter {
 		emailAddress = email;
 	}
 	
+	/**
+	 * Gets the idempotency key of the creation or purchase of this letter that is in progress.
+	 * A key remains set after an attempt fails without a clear answer from the server,
+	 * so that the next attempt can check whether the first took effect rather than repeating it.
+	 * @return The idempotency key, or null if no creation or purchase is in progress.
+	 */
+	public String getIdempotencyKey() {
+		return idempotencyKey;
+	}
+	
+	/**
+	 * Sets the idempotency key of the creation or purchase of this letter that is in progress.
+	 * This allows an operation interrupted in an earlier session, whose key was stored,
+	 * to be resumed without the risk of it taking effect twice.
+	 * @param key The idempotency key, or null to start afresh.
+	 */
+	public void setIdempotencyKey(String key) {
+		idempotencyKey = key;
+	}
+	
 	/**
 	 * Gets the time and date at which this letter was sent.
 	 * @return The time and date at which this letter was sent.
@@ -235,6 +280,30 @@ public class Letter {
 		return (getDatePurchased() != null);
 	}
 	
+	/**
+	 * Creates a copy of this letter, including copies of its addresses.
+	 * @return A new {@link Letter} with the same fields as this one.
+	 */
+	Letter copy() {
+		Letter letter = new Letter(configuration, id, copy(timeSent), status, copy(timePurchased));
+		letter.documentURL = documentURL;
+		letter.mailingDate = copy(mailingDate);
+		letter.senderAddress = (senderAddress != null) ? senderAddress.copy() : null;
+		letter.recipientAddress = (recipientAddress != null) ? recipientAddress.copy() : null;
+		letter.emailAddress = emailAddress;
+		letter.creationKey = creationKey;
+		return letter;
+	}
+	
+	/**
+	 * Creates a copy of a date, since {@link Date} objects are mutable.
+	 * @param date The date to copy, or null.
+	 * @return A copy of the date, or null if none was given.
+	 */
+	private static Date copy(Date date) {
+		return (date != null) ? new Date(date.getTime()) : null;
+	}
+	
 	/**
 	 * Generates a new {@link Letter} corresponding to the given JSON data.
 	 * @param config The {@link Configuration} object to get settings from.
@@ -243,6 +312,8 @@ public class Letter {
 	 * @throws MailFinchException If invalid JSON data has been passed to this method.
 	 */
 	public static Letter fromJSON(Configuration config, JSONObject json) throws MailFinchException {
+		LetterMappingEvent event = new LetterMappingEvent();
+		event.begin();
 		try {
 			// Create a new letter.
 			Letter letter = new Letter(config);
@@ -292,7 +363,89 @@ public class Letter {
 				letter.timePurchased = DateConverter.parse(json.getString("purchased_at"));
 			}
 			
-			// Return the generated letter.
+			// Get the idempotency key the letter was created with, if the server reports it.
+			if (!json.isNull("idempotency_key")) {
+				letter.creationKey = json.getString("idempotency_key");
+			}
+			
+			// Report the mapping to any flight recording, then return the generated letter.
+			if (event.shouldCommit()) {
+				event.letterID = letter.id;
+				event.status = letter.status;
+				event.commit();
+			}
+			return letter;
+			
+		} catch (JSONException e) {
+			throw new MailFinchException(Resources.INVALID_JSON, e);
+		}
+	}
+	
+	/**
+	 * Generates a new {@link Letter} from JSON data as it is read,
+	 * without building a {@link JSONObject} for it first.
+	 * @param config The {@link Configuration} object to get settings from.
+	 * @param reader The {@link JSONReader} positioned at the start of the JSON object representing the letter.
+	 * It is left positioned just after the end of the object.
+	 * @return The generated {@link Letter} corresponding to the JSON data.
+	 * @throws MailFinchException If invalid JSON data has been read.
+	 */
+	public static Letter fromJSON(Configuration config, JSONReader reader) throws MailFinchException {
+		LetterMappingEvent event = new LetterMappingEvent();
+		event.begin();
+		try {
+			// Create a new letter, and fill in each field as it is read. Nulls and unknown fields are skipped.
+			Letter letter = new Letter(config);
+			reader.beginObject();
+			while (reader.hasNext()) {
+				String name = reader.nextName();
+				if (reader.peek() == JSONReader.Token.NULL) {
+					reader.nextNull();
+					continue;
+				}
+				switch (name) {
+					case "id":
+						letter.id = reader.nextInt();
+						break;
+					case "status_field":
+						letter.status = reader.nextString();
+						break;
+					case "pdf_remote_url":
+						letter.documentURL = reader.nextString();
+						break;
+					case "sender":
+						letter.senderAddress = Address.fromJSON(reader);
+						break;
+					case "recipient":
+						letter.recipientAddress = Address.fromJSON(reader);
+						break;
+					case "email":
+						letter.emailAddress = reader.nextString();
+						break;
+					case "mailing_date":
+						letter.mailingDate = DateConverter.parse(reader.nextString());
+						break;
+					case "sent_at":
+						letter.timeSent = DateConverter.parse(reader.nextString());
+						break;
+					case "purchased_at":
+						letter.timePurchased = DateConverter.parse(reader.nextString());
+						break;
+					case "idempotency_key":
+						letter.creationKey = reader.nextString();
+						break;
+					default:
+						reader.skipValue();
+				}
+			}
+			reader.endObject();
+			
+			// Report the mapping to any flight recording, then return the generated letter.
+			if (event.shouldCommit()) {
+				event.letterID = letter.id;
+				event.status = letter.status;
+				event.commit();
+			}
 			return letter;
 			
 		} catch (JSONException e) {
@@ -343,13 +496,85 @@ public class Letter {
 	 * @throws MailFinchException If invalid JSON data has been received from the server.
 	 */
 	protected void syncWithServer(String url, String method) throws MailFinchException {
+		syncWithServer(url, method, null);
+	}
+	
+	/**
+	 * Synchronises this letter with the version on the MailFinch server, using the given request options.
+	 * @throws MailFinchException If invalid JSON data has been received from the server.
+	 */
+	protected void syncWithServer(String url, String method, RequestOptions options) throws MailFinchException {
+		options = withStateProjection(options);
 		try {
 			JSONObject json;
 			if (method == "GET") {
-				json = configuration.getConnection().execute(url, method).getObject();
+				json = configuration.getConnection().execute(url, method, new HashMap<String, Object>(), options).getObject();
 			} else {
-				json = configuration.getConnection().execute(url, method, getData()).getObject();
+				json = configuration.getConnection().execute(url, method, getData(), options).getObject();
 			}
+			update(json);
+		} catch (JSONException e) {
+			throw new MailFinchException(Resources.INVALID_JSON, e);
+		}
+	}
+	
+	/**
+	 * Asynchronously synchronises this letter with the version on the MailFinch server, using the default request options.
+	 * @param url The MailFinch API method to call.
+	 * @param method The request method to call it with.
+	 * @return A {@link CompletableFuture} which completes with this letter once it has been synchronised.
+	 */
+	protected CompletableFuture<Letter> syncWithServerAsync(String url, String method) {
+		return syncWithServerAsync(url, method, null);
+	}
+	
+	/**
+	 * Asynchronously synchronises this letter with the version on the MailFinch server, using the given request options.
+	 * @param url The MailFinch API method to call.
+	 * @param method The request method to call it with.
+	 * @param options The {@link RequestOptions} for the request, or null to use the defaults.
+	 * @return A {@link CompletableFuture} which completes with this letter once it has been synchronised.
+	 */
+	protected CompletableFuture<Letter> syncWithServerAsync(String url, String method, RequestOptions options) {
+		AsyncMailFinchConnection connection = configuration.getAsyncConnection();
+		CompletableFuture<MailFinchConnection.Response> future;
+		options = withStateProjection(options);
+		if (method == "GET") {
+			future = connection.executeAsync(url, method, new HashMap<String, Object>(), options);
+		} else {
+			future = connection.executeAsync(url, method, getData(), options);
+		}
+		return future.thenApply(response -> {
+			try {
+				update(response.getObject());
+				return this;
+			} catch (JSONException e) {
+				throw new CompletionException(new MailFinchException(Resources.INVALID_JSON, e));
+			} catch (MailFinchException e) {
+				throw new CompletionException(e);
+			}
+		});
+	}
+	
+	/**
+	 * Copies a set of request options, adding the projection that parses only the state read by {@link #update}.
+	 * The caller's options are left as they are, since they may be reused for requests that need whole letters.
+	 * @param options The {@link RequestOptions} to copy, or null to use the defaults.
+	 * @return The {@link RequestOptions} to synchronise this letter with.
+	 */
+	private static RequestOptions withStateProjection(RequestOptions options) {
+		RequestOptions projected = (options != null) ? new RequestOptions(options) : new RequestOptions();
+		projected.setProjection(STATE_FIELDS);
+		return projected;
+	}
+	
+	/**
+	 * Updates this letter with the server state contained in a response object.
+	 * @param json The response object containing the letter.
+	 * @throws MailFinchException If invalid JSON data has been received from the server.
+	 */
+	private void update(JSONObject json) throws MailFinchException {
+		try {
 			JSONObject letter = json.getJSONObject("letter");
 			id = letter.getInt("id");
 			status = letter.getString("status_field");
@@ -358,6 +583,300 @@ public class Letter {
 		} catch (JSONException e) {
 			throw new MailFinchException(Resources.INVALID_JSON, e);
 		}
+		
+		// Keep any cached copy of this letter in step with the server.
+		LetterCache cache = configuration.getLetterCache();
+		if (cache != null) {
+			cache.put(this);
+		}
+	}
+	
+	/**
+	 * Updates this letter with the server state of another copy of it.
+	 * @param letter The {@link Letter} read from the server.
+	 */
+	private void adopt(Letter letter) {
+		id = letter.id;
+		status = letter.status;
+		timeSent = letter.timeSent;
+		timePurchased = letter.timePurchased;
+		
+		// Keep any cached copy of this letter in step with the server.
+		LetterCache cache = configuration.getLetterCache();
+		if (cache != null) {
+			cache.put(this);
+		}
+	}
+	
+	/**
+	 * Creates or purchases this letter on the MailFinch server, making sure that the operation
+	 * never takes effect twice however many times it has to be attempted.
+	 * Every attempt carries the same idempotency key. When an attempt fails without a clear answer,
+	 * the server is checked to see whether it took effect before the operation is sent again,
+	 * which makes it safe to retry according to the configured {@link RetryPolicy}.
+	 * @param url The MailFinch API method to call.
+	 * @param method The request method to call it with.
+	 * @param creation <c>true</c> if the operation creates this letter; <c>false</c> if it purchases it.
+	 * @param deadline The {@link Deadline} by which the operation must finish, or null if there is none.
+	 * @throws MailFinchException If the operation failed. If the failure was ambiguous,
+	 * the idempotency key is kept so that the next attempt can resolve it.
+	 * @throws MailFinchNotSentException If another creation or purchase of this letter is in progress.
+	 */
+	private void syncWithServerOnce(String url, String method, boolean creation, Deadline deadline) throws MailFinchException {
+		beginOperation();
+		try {
+			attemptOnce(url, method, creation, deadline);
+		} finally {
+			endOperation();
+		}
+	}
+	
+	/**
+	 * Makes the attempts of a creation or purchase of this letter for {@link #syncWithServerOnce}.
+	 * @param url The MailFinch API method to call.
+	 * @param method The request method to call it with.
+	 * @param creation <c>true</c> if the operation creates this letter; <c>false</c> if it purchases it.
+	 * @param deadline The {@link Deadline} by which the operation must finish, or null if there is none.
+	 * @throws MailFinchException If the operation failed.
+	 */
+	private void attemptOnce(String url, String method, boolean creation, Deadline deadline) throws MailFinchException {
+		IdempotencyLedger ledger = configuration.getIdempotencyLedger();
+		boolean resumed = (idempotencyKey != null);
+		if (!resumed) {
+			idempotencyKey = UUID.randomUUID().toString();
+		}
+		String key = idempotencyKey;
+		RequestOptions options = new RequestOptions();
+		options.setIdempotencyKey(key);
+		options.setDeadline(deadline);
+		RequestOptions lookupOptions = new RequestOptions();
+		lookupOptions.setDeadline(deadline);
+		Endpoint endpoint = Endpoint.of(url, method);
+		RetryPolicy policy = configuration.getRetryPolicy();
+		long waited = 0;
+		
+		for (int retries = 0; ; retries++) {
+			// If an earlier attempt is known to have taken effect, only fetch the result.
+			IdempotencyLedger.State state = ledger.getState(key);
+			if (state == IdempotencyLedger.State.COMMITTED) {
+				id = ledger.getLetterID(key);
+				syncWithServer("letters/" + getID(), "GET", lookupOptions);
+				idempotencyKey = null;
+				return;
+			}
+			
+			// If an earlier attempt may have taken effect, or was never resolved, find out before trying again.
+			if (state == IdempotencyLedger.State.AMBIGUOUS || state == IdempotencyLedger.State.PENDING
+					|| (state == null && resumed)) {
+				if (creation ? reconcileCreation(ledger, key, lookupOptions) : reconcilePurchase(lookupOptions)) {
+					ledger.commit(key, getID());
+					idempotencyKey = null;
+					return;
+				}
+			}
+			
+			ledger.begin(key, creation);
+			try {
+				syncWithServer(url, method, options);
+				ledger.commit(key, getID());
+				idempotencyKey = null;
+				return;
+			} catch (MailFinchException e) {
+				if (isDefiniteFailure(e)) {
+					// The server turned the request down, or it was never sent, so nothing has happened.
+					ledger.forget(key);
+					idempotencyKey = null;
+					throw e;
+				}
+				ledger.markAmbiguous(key);
+				long delay = (policy != null && RetryPolicy.isAmbiguous(e))
+						? policy.getRetryDelay(endpoint, e, retries, waited, true) : -1;
+				if (delay < 0 || (deadline != null && delay >= deadline.getRemainingMillis())) {
+					throw e;
+				}
+				try {
+					Thread.sleep(delay);
+				} catch (InterruptedException interrupted) {
+					Thread.currentThread().interrupt();
+					throw e;
+				}
+				waited += delay;
+			}
+		}
+	}
+	
+	/**
+	 * Asynchronously creates or purchases this letter, sending an idempotency key so that
+	 * the server can recognise repeated attempts. Failures are recorded in the {@link IdempotencyLedger}
+	 * in the same way as by {@link #syncWithServerOnce}, but ambiguous ones are not reconciled here.
+	 * If an earlier attempt is known to have taken effect, only its result is fetched; if it may have,
+	 * the operation fails without being sent, and a blocking {@link #save()} or {@link #purchase()}
+	 * must resolve it first.
+	 * @param url The MailFinch API method to call.
+	 * @param method The request method to call it with.
+	 * @param creation <c>true</c> if the operation creates this letter; <c>false</c> if it purchases it.
+	 * @return A {@link CompletableFuture} which completes with this letter once the operation has succeeded,
+	 * or completes exceptionally with a {@link MailFinchNotSentException} if another creation or purchase
+	 * of this letter is in progress or an earlier one must be resolved first.
+	 */
+	private CompletableFuture<Letter> syncWithServerOnceAsync(String url, String method, boolean creation) {
+		try {
+			beginOperation();
+		} catch (MailFinchNotSentException e) {
+			return CompletableFuture.failedFuture(e);
+		}
+		CompletableFuture<Letter> future;
+		try {
+			future = attemptOnceAsync(url, method, creation);
+		} catch (RuntimeException e) {
+			endOperation();
+			throw e;
+		}
+		// The operation ends before anything chained to it runs, so that it can go on to the next one.
+		return future.whenComplete((letter, error) -> endOperation());
+	}
+	
+	/**
+	 * Makes the attempt of a creation or purchase of this letter for {@link #syncWithServerOnceAsync}.
+	 * @param url The MailFinch API method to call.
+	 * @param method The request method to call it with.
+	 * @param creation <c>true</c> if the operation creates this letter; <c>false</c> if it purchases it.
+	 * @return A {@link CompletableFuture} which completes with this letter once the operation has succeeded.
+	 */
+	private CompletableFuture<Letter> attemptOnceAsync(String url, String method, boolean creation) {
+		final IdempotencyLedger ledger = configuration.getIdempotencyLedger();
+		final String resumedKey = idempotencyKey;
+		if (resumedKey != null) {
+			if (ledger.getState(resumedKey) != IdempotencyLedger.State.COMMITTED) {
+				// An earlier attempt may have taken effect; sending another could repeat it.
+				return CompletableFuture.failedFuture(new MailFinchNotSentException(Resources.OPERATION_UNRESOLVED));
+			}
+			// An earlier attempt is known to have taken effect, so only fetch the result.
+			id = ledger.getLetterID(resumedKey);
+			return syncWithServerAsync("letters/" + getID(), "GET").thenApply(letter -> {
+				idempotencyKey = null;
+				return letter;
+			});
+		}
+		
+		final String key = UUID.randomUUID().toString();
+		idempotencyKey = key;
+		RequestOptions options = new RequestOptions();
+		options.setIdempotencyKey(key);
+		ledger.begin(key, creation);
+		return syncWithServerAsync(url, method, options).whenComplete((letter, error) -> {
+			if (error == null) {
+				ledger.commit(key, getID());
+				idempotencyKey = null;
+			} else if (isDefiniteFailure(error)) {
+				// The server turned the request down, or it was never sent, so nothing has happened.
+				ledger.forget(key);
+				idempotencyKey = null;
+			} else {
+				ledger.markAmbiguous(key);
+			}
+		});
+	}
+	
+	/**
+	 * Marks a creation or purchase of this letter as in progress.
+	 * @throws MailFinchNotSentException If another creation or purchase of this letter is already in progress.
+	 */
+	private synchronized void beginOperation() throws MailFinchNotSentException {
+		if (operationInProgress) {
+			throw new MailFinchNotSentException(Resources.OPERATION_IN_PROGRESS);
+		}
+		operationInProgress = true;
+	}
+	
+	/**
+	 * Marks the creation or purchase of this letter in progress as finished.
+	 */
+	private synchronized void endOperation() {
+		operationInProgress = false;
+	}
+	
+	/**
+	 * Checks whether an ambiguous creation of this letter took effect, by looking through the letters
+	 * on the server for one that the server reports was created with the same idempotency key.
+	 * If one is found, this letter takes on its state. If the server does not report the keys of letters,
+	 * nothing is found, and the creation is sent again with the same key for the server to recognise.
+	 * @param ledger The {@link IdempotencyLedger} recording which letters have been claimed.
+	 * @param key The idempotency key of the creation.
+	 * @param options The {@link RequestOptions} to look the letter up with.
+	 * @return <c>true</c> if the creation took effect; otherwise, <c>false</c>.
+	 * @throws MailFinchException If the server could not be checked.
+	 */
+	private boolean reconcileCreation(IdempotencyLedger ledger, String key, RequestOptions options) throws MailFinchException {
+		if (options.getDeadline() != null) {
+			options.getDeadline().check();
+		}
+		// Read the letters as they arrive, stopping at the first match, rather than holding the whole list.
+		try (LetterIterator letters = new LetterIterator(configuration,
+				configuration.getConnection().executeStream("letters", "GET"))) {
+			while (letters.hasNext()) {
+				Letter candidate = letters.next();
+				if (key.equals(candidate.creationKey) && ledger.claim(key, candidate.getID())) {
+					adopt(candidate);
+					return true;
+				}
+			}
+			return false;
+		} catch (UncheckedMailFinchException e) {
+			throw e.getCause();
+		}
+	}
+	
+	/**
+	 * Checks whether an ambiguous purchase of this letter took effect.
+	 * If it did, this letter takes on its state from the server.
+	 * @param options The {@link RequestOptions} to look the letter up with.
+	 * @return <c>true</c> if the purchase took effect; otherwise, <c>false</c>.
+	 * @throws MailFinchException If the server could not be checked.
+	 */
+	private boolean reconcilePurchase(RequestOptions options) throws MailFinchException {
+		try {
+			JSONObject json = configuration.getConnection()
+					.execute("letters/" + getID(), "GET", new HashMap<String, Object>(), withStateProjection(options)).getObject();
+			if (json.getJSONObject("letter").isNull("purchased_at")) {
+				return false;
+			}
+			update(json);
+			return true;
+		} catch (JSONException e) {
+			throw new MailFinchException(Resources.INVALID_JSON, e);
+		}
+	}
+	
+	/**
+	 * Determines whether a failed creation or purchase certainly did not take effect. Only a refusal
+	 * from the server, being a client error other than a timeout or rate limit or a reply carrying errors,
+	 * or a request that was never sent, is certain; anything else, including a reply that could not be read
+	 * after the server reported success, may have taken effect. A failure is also only certain if no
+	 * earlier attempt folded into it, such as one that timed out before a retry ran out of time, was ambiguous.
+	 * @param error The exception that the operation failed with.
+	 * @return <c>true</c> if the operation did not take effect; <c>false</c> if it may have.
+	 */
+	private static boolean isDefiniteFailure(Throwable error) {
+		while (error instanceof CompletionException && error.getCause() != null) {
+			error = error.getCause();
+		}
+		boolean refused;
+		if (error instanceof MailFinchHttpException) {
+			int code = ((MailFinchHttpException) error).getStatusCode();
+			refused = (code >= 400 && code < 500 && code != 408 && code != 429);
+		} else {
+			refused = (error instanceof MailFinchRejectedException || error instanceof MailFinchNotSentException);
+		}
+		if (!refused) {
+			return false;
+		}
+		for (Throwable suppressed : error.getSuppressed()) {
+			if (!isDefiniteFailure(suppressed)) {
+				return false;
+			}
+		}
+		return true;
 	}
 	
 	/**
@@ -366,10 +885,38 @@ public class Letter {
 	 * @throws MailFinchException If invalid JSON data has been received from the server.
 	 */
 	public void save() throws MailFinchException {
+		save(null);
+	}
+	
+	/**
+	 * Saves this letter to the MailFinch server within a deadline,
+	 * either by updating an existing letter or creating a new one.
+	 * @param deadline The {@link Deadline} by which the save, including any retries, must finish,
+	 * or null if there is none.
+	 * @throws MailFinchException If invalid JSON data has been received from the server,
+	 * or the deadline passed before the letter could be saved.
+	 */
+	public void save(Deadline deadline) throws MailFinchException {
 		if (isSaved()) {
-			syncWithServer("letters/" + getID(), "PUT");
+			RequestOptions options = new RequestOptions();
+			options.setDeadline(deadline);
+			syncWithServer("letters/" + getID(), "PUT", options);
 		} else {
-			syncWithServer("letters", "POST");
+			syncWithServerOnce("letters", "POST", true, deadline);
+		}
+	}
+	
+	/**
+	 * Asynchronously saves this letter to the MailFinch server,
+	 * either by updating an existing letter or creating a new one.
+	 * @return A {@link CompletableFuture} which completes with this letter once it has been saved,
+	 * or completes exceptionally with a {@link MailFinchException} if it could not be saved.
+	 */
+	public CompletableFuture<Letter> saveAsync() {
+		if (isSaved()) {
+			return syncWithServerAsync("letters/" + getID(), "PUT");
+		} else {
+			return syncWithServerOnceAsync("letters", "POST", true);
 		}
 	}
 	
@@ -379,12 +926,40 @@ public class Letter {
 	 * @throws MailFinchException If this letter has already been purchased.
 	 */
 	public void purchase() throws MailFinchException {
+		purchase(null);
+	}
+	
+	/**
+	 * Purchases this letter from MailFinch within a deadline.
+	 * @param deadline The {@link Deadline} by which the purchase, including any retries, must finish,
+	 * or null if there is none.
+	 * @throws MailFinchException If this letter has not previously been saved.
+	 * @throws MailFinchException If this letter has already been purchased.
+	 * @throws MailFinchException If the deadline passed before the letter could be purchased.
+	 */
+	public void purchase(Deadline deadline) throws MailFinchException {
 		if (!isSaved()) {
 			throw new MailFinchException(Resources.LETTER_NOT_SAVED);
 		} else if (isPurchased()) {
 			throw new MailFinchException(Resources.LETTER_ALREADY_PURCHASED);
 		} else {
-			syncWithServer("letters/" + getID() + "/purchase", "GET");
+			syncWithServerOnce("letters/" + getID() + "/purchase", "GET", false, deadline);
+		}
+	}
+	
+	/**
+	 * Asynchronously purchases this letter from MailFinch.
+	 * @return A {@link CompletableFuture} which completes with this letter once it has been purchased,
+	 * or completes exceptionally with a {@link MailFinchException} if this letter has not previously
+	 * been saved, has already been purchased, or could not be purchased.
+	 */
+	public CompletableFuture<Letter> purchaseAsync() {
+		if (!isSaved()) {
+			return CompletableFuture.failedFuture(new MailFinchException(Resources.LETTER_NOT_SAVED));
+		} else if (isPurchased()) {
+			return CompletableFuture.failedFuture(new MailFinchException(Resources.LETTER_ALREADY_PURCHASED));
+		} else {
+			return syncWithServerOnceAsync("letters/" + getID() + "/purchase", "GET", false);
 		}
 	}
 
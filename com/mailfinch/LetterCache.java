@@ -0,0 +1,221 @@
+package com.mailfinch;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An in-process cache of letters, used by {@link MailFinch#getLetter(int)} to avoid
+ * a round trip to the server for letters that have been fetched recently.
+ * The cache holds a bounded number of letters, evicting the least recently used first,
+ * and each letter expires after a time to live that can depend on its status.
+ * Letters are refreshed automatically whenever {@link Letter#save()} or
+ * {@link Letter#purchase()} receives their latest state from the server.
+ * Copies of the cached letters are handed out, so callers may modify them freely.
+ * @author Richard Taylor <contact@rtaylor.me.uk>
+ */
+public class LetterCache {
+
+	/** The default maximum number of letters held in the cache. */
+	public static final int DEFAULT_MAXIMUM_SIZE = 1000;
+
+	/** The default number of milliseconds that a letter stays in the cache. */
+	public static final long DEFAULT_TIME_TO_LIVE = 60000;
+
+	/** The maximum number of letters held in the cache. */
+	private final int maximumSize;
+
+	/** The number of milliseconds that a letter stays in the cache, unless its status has its own. */
+	private long defaultTimeToLive;
+
+	/** The number of milliseconds that letters with each status stay in the cache. */
+	private final Map<String, Long> timeToLiveByStatus = new HashMap<String, Long>();
+
+	/** The cached letters keyed by ID, in order of least to most recently used. */
+	private final LinkedHashMap<Integer, CachedLetter> entries;
+
+	/** The number of lookups that found a letter in the cache. */
+	private long hitCount;
+
+	/** The number of lookups that did not find a letter in the cache. */
+	private long missCount;
+
+	/** The number of letters removed to keep the cache within its maximum size. */
+	private long evictionCount;
+
+	/** The number of letters removed because their time to live had passed. */
+	private long expirationCount;
+
+	/**
+	 * Initialises a new instance of the {@link LetterCache} class with the default limits.
+	 */
+	public LetterCache() {
+		this(DEFAULT_MAXIMUM_SIZE, DEFAULT_TIME_TO_LIVE);
+	}
+
+	/**
+	 * Initialises a new instance of the {@link LetterCache} class.
+	 * @param maximumSize The maximum number of letters held in the cache.
+	 * @param defaultTimeToLive The number of milliseconds that a letter stays in the cache.
+	 */
+	public LetterCache(int maximumSize, long defaultTimeToLive) {
+		if (maximumSize < 1 || defaultTimeToLive < 0) {
+			throw new IllegalArgumentException(Resources.INVALID_CACHE_LIMITS);
+		}
+		this.maximumSize = maximumSize;
+		this.defaultTimeToLive = defaultTimeToLive;
+		this.entries = new LinkedHashMap<Integer, CachedLetter>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, CachedLetter> eldest) {
+				if (size() > LetterCache.this.maximumSize) {
+					evictionCount++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Sets the number of milliseconds that letters without a status-specific time to live stay in the cache.
+	 * @param timeToLive The time to live in milliseconds. Zero stops such letters from being cached.
+	 */
+	public synchronized void setDefaultTimeToLive(long timeToLive) {
+		if (timeToLive < 0) {
+			throw new IllegalArgumentException(Resources.INVALID_CACHE_LIMITS);
+		}
+		defaultTimeToLive = timeToLive;
+	}
+
+	/**
+	 * Sets the number of milliseconds that letters with the given status stay in the cache.
+	 * For example, letters that have already been sent rarely change and can be kept for longer.
+	 * @param status The letter status, as returned by {@link Letter#getStatus()}.
+	 * @param timeToLive The time to live in milliseconds. Zero stops such letters from being cached.
+	 */
+	public synchronized void setTimeToLive(String status, long timeToLive) {
+		if (timeToLive < 0) {
+			throw new IllegalArgumentException(Resources.INVALID_CACHE_LIMITS);
+		}
+		timeToLiveByStatus.put(status, timeToLive);
+	}
+
+	/**
+	 * Gets a copy of the cached letter with the specified ID.
+	 * @param id The ID of the letter.
+	 * @return A copy of the cached {@link Letter}, or null if it is not cached or has expired.
+	 */
+	public synchronized Letter get(int id) {
+		CachedLetter entry = entries.get(id);
+		if (entry != null && entry.expiry <= System.currentTimeMillis()) {
+			entries.remove(id);
+			expirationCount++;
+			entry = null;
+		}
+		if (entry == null) {
+			missCount++;
+			return null;
+		}
+		hitCount++;
+		return entry.letter.copy();
+	}
+
+	/**
+	 * Adds a copy of a letter to the cache, replacing any older version of it.
+	 * Unsaved letters, and letters whose status has a time to live of zero, are not cached.
+	 * @param letter The {@link Letter} to cache.
+	 */
+	public synchronized void put(Letter letter) {
+		if (!letter.isSaved()) {
+			return;
+		}
+		long timeToLive = getTimeToLive(letter.getStatus());
+		if (timeToLive == 0) {
+			entries.remove(letter.getID());
+			return;
+		}
+		entries.put(letter.getID(), new CachedLetter(letter.copy(), System.currentTimeMillis() + timeToLive));
+	}
+
+	/**
+	 * Removes the letter with the specified ID from the cache.
+	 * @param id The ID of the letter.
+	 */
+	public synchronized void invalidate(int id) {
+		entries.remove(id);
+	}
+
+	/**
+	 * Removes all letters from the cache.
+	 */
+	public synchronized void invalidateAll() {
+		entries.clear();
+	}
+
+	/**
+	 * Removes any letters whose time to live has passed.
+	 * Expired letters are also removed as they are looked up, or evicted as others are added.
+	 * @return The number of letters that were removed.
+	 */
+	public synchronized int cleanUp() {
+		long now = System.currentTimeMillis();
+		int removed = 0;
+		Iterator<CachedLetter> iterator = entries.values().iterator();
+		while (iterator.hasNext()) {
+			if (iterator.next().expiry <= now) {
+				iterator.remove();
+				removed++;
+			}
+		}
+		expirationCount += removed;
+		return removed;
+	}
+
+	/**
+	 * Gets the number of letters currently held in the cache, including any that have expired.
+	 * @return The number of letters currently held in the cache.
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Gets a snapshot of the counters of this cache.
+	 * @return A {@link CacheStatistics} object describing this cache.
+	 */
+	public synchronized CacheStatistics getStatistics() {
+		return new CacheStatistics(entries.size(), hitCount, missCount, evictionCount, expirationCount);
+	}
+
+	/**
+	 * Gets the time to live of letters with the given status.
+	 * @param status The letter status.
+	 * @return The time to live in milliseconds.
+	 */
+	private long getTimeToLive(String status) {
+		Long timeToLive = (status != null) ? timeToLiveByStatus.get(status) : null;
+		return (timeToLive != null) ? timeToLive : defaultTimeToLive;
+	}
+
+	/**
+	 * A letter held in the cache, along with the time at which it expires.
+	 */
+	private static class CachedLetter {
+
+		/** The cached letter, which is never handed out directly. */
+		final Letter letter;
+
+		/** The time at which the letter expires. */
+		final long expiry;
+
+		CachedLetter(Letter letter, long expiry) {
+			this.letter = letter;
+			this.expiry = expiry;
+		}
+
+	}
+
+}
@@ -0,0 +1,213 @@
+package com.mailfinch;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import org.json.JSONException;
+import org.json.JSONReader;
+
+/**
+ * Iterates over a list of letters as it is read from the MailFinch server.
+ * Each {@link Letter} is bound straight from the network stream by a {@link JSONReader} as it is requested,
+ * so memory use stays flat no matter how many letters the account holds.
+ * The iterator must be closed if it is not read to the end.
+ * Errors are thrown as an {@link UncheckedMailFinchException}.
+ * @author Richard Taylor <contact@rtaylor.me.uk>
+ */
+public class LetterIterator implements Iterator<Letter>, Closeable {
+
+	/** The {@link Configuration} object to get settings from. */
+	private final Configuration configuration;
+
+	/** The stream containing the server response. */
+	private final InputStream stream;
+
+	/** The reader reading JSON data from the stream. */
+	private final JSONReader reader;
+
+	/** The next letter to be returned, or null if it has not been read yet. */
+	private Letter next;
+
+	/** Whether or not the end of the list has been reached, or the iterator closed. */
+	private boolean finished;
+
+	/**
+	 * Initialises a new instance of the {@link LetterIterator} class,
+	 * and reads the server response up to the start of the list of letters.
+	 * @param config The {@link Configuration} object to get settings from.
+	 * @param stream The stream containing the server response. It is closed along with this iterator.
+	 * @throws MailFinchException If invalid JSON data has been received from the server.
+	 * @throws MailFinchException If the server responded with an error. See the exception's message in this case.
+	 */
+	public LetterIterator(Configuration config, InputStream stream) throws MailFinchException {
+		this.configuration = config;
+		this.stream = stream;
+		this.reader = new JSONReader(stream);
+		try {
+			seekToLetters();
+		} catch (JSONException e) {
+			close();
+			throw new MailFinchException(Resources.INVALID_JSON, e);
+		} catch (MailFinchException e) {
+			close();
+			throw e;
+		}
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (next == null && !finished) {
+			try {
+				next = readLetter();
+			} catch (JSONException e) {
+				close();
+				throw new UncheckedMailFinchException(new MailFinchException(Resources.INVALID_JSON, e));
+			} catch (MailFinchException e) {
+				close();
+				throw new UncheckedMailFinchException(e);
+			}
+			if (next == null) {
+				finish();
+			}
+		}
+		return (next != null);
+	}
+
+	@Override
+	public Letter next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		Letter letter = next;
+		next = null;
+		return letter;
+	}
+
+	/**
+	 * Gets a sequential {@link Stream} over the remaining letters.
+	 * Closing the stream closes this iterator.
+	 * @return A {@link Stream} over the remaining letters.
+	 */
+	public Stream<Letter> stream() {
+		Spliterator<Letter> spliterator = Spliterators.spliteratorUnknownSize(this,
+				Spliterator.ORDERED | Spliterator.NONNULL);
+		return StreamSupport.stream(spliterator, false).onClose(this::close);
+	}
+
+	/**
+	 * Closes the underlying server response. Any unread letters are discarded.
+	 */
+	@Override
+	public void close() {
+		finished = true;
+		next = null;
+		try {
+			stream.close();
+		} catch (IOException e) {
+			// The response is being discarded anyway.
+		}
+	}
+
+	/**
+	 * Reads the server response up to the opening bracket of the list of letters,
+	 * in the form <code>{"response":{"code":...,"message":...,"object":[</code>.
+	 * @throws JSONException If invalid JSON data has been received from the server.
+	 * @throws MailFinchException If the server responded with an error.
+	 */
+	private void seekToLetters() throws JSONException, MailFinchException {
+		// Find the "response" object within the envelope.
+		reader.beginObject();
+		while (!nextKey().equals("response")) {
+			reader.skipValue();
+		}
+		reader.beginObject();
+
+		// Find the "object" list within the response, checking for errors on the way.
+		for (String key = nextKey(); !key.equals("object"); key = nextKey()) {
+			if (key.equals("errors") && reader.peek() != JSONReader.Token.NULL) {
+				throw new MailFinchRejectedException(reader.nextValue().toString());
+			}
+			reader.skipValue();
+		}
+		reader.beginArray();
+	}
+
+	/**
+	 * Reads the next key of the current object.
+	 * @return The key that was read.
+	 * @throws JSONException If the object ended without the expected key being found.
+	 */
+	private String nextKey() throws JSONException {
+		if (!reader.hasNext()) {
+			throw reader.syntaxError("Expected the response to contain a list of letters");
+		}
+		return reader.nextName();
+	}
+
+	/**
+	 * Reads the next letter from the list.
+	 * @return The next {@link Letter}, or null if the end of the list has been reached.
+	 * @throws JSONException If invalid JSON data has been received from the server.
+	 * @throws MailFinchException If invalid letter data has been received from the server.
+	 */
+	private Letter readLetter() throws JSONException, MailFinchException {
+		if (!reader.hasNext()) {
+			reader.endArray();
+			checkRestOfResponse();
+			return null;
+		}
+		Letter letter = null;
+		reader.beginObject();
+		while (reader.hasNext()) {
+			if (reader.nextName().equals("letter")) {
+				letter = Letter.fromJSON(configuration, reader);
+			} else {
+				reader.skipValue();
+			}
+		}
+		reader.endObject();
+		if (letter == null) {
+			throw reader.syntaxError("Expected each element to contain a letter");
+		}
+		return letter;
+	}
+
+	/**
+	 * Reads the rest of the "response" object once the list has ended,
+	 * checking for errors that the server sent after the list.
+	 * @throws JSONException If invalid JSON data has been received from the server.
+	 * @throws MailFinchException If the server responded with an error.
+	 */
+	private void checkRestOfResponse() throws JSONException, MailFinchException {
+		while (reader.hasNext()) {
+			if (reader.nextName().equals("errors") && reader.peek() != JSONReader.Token.NULL) {
+				throw new MailFinchRejectedException(reader.nextValue().toString());
+			}
+			reader.skipValue();
+		}
+		reader.endObject();
+	}
+
+	/**
+	 * Consumes the rest of the server response once the list has ended,
+	 * so that the connection can be reused, and closes the stream.
+	 */
+	private void finish() {
+		try {
+			byte[] buffer = new byte[512];
+			while (stream.read(buffer) != -1) {
+				// Discard the closing brackets of the envelope.
+			}
+		} catch (IOException e) {
+			// The stream is closed below either way.
+		}
+		close();
+	}
+
+}
@@ -1,10 +1,14 @@
 package com.mailfinch;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 import com.mailfinch.api.AbstractMailFinchConnection;
+import com.mailfinch.api.AsyncMailFinchConnection;
 import com.mailfinch.api.JSONConnection;
 import com.mailfinch.api.MailFinchConnection;
 
@@ -55,9 +59,16 @@ public class MailFinch {
 	
 	/**
 	 * Gets the {@link AbstractMailFinchConnection} object to use for accessing the MailFinch API.
+	 * This is the configured connection if it is one; otherwise, such as when a custom
+	 * {@link MailFinchConnection} has been set, it is a separate plain connection.
+	 * The methods of this class make their requests through {@link Configuration#getConnection()}.
 	 * @return The {@link AbstractMailFinchConnection} object to use for accessing the MailFinch API.
 	 */
 	public AbstractMailFinchConnection getAPI() {
+		MailFinchConnection connection = getConfiguration().getConnection();
+		if (connection instanceof AbstractMailFinchConnection) {
+			return (AbstractMailFinchConnection) connection;
+		}
 		if (api == null) {
 			api = new JSONConnection(getConfiguration());
 		}
@@ -73,14 +84,175 @@ public class MailFinch {
 		return new Letter(getConfiguration());
 	}
 	
+	/**
+	 * Gets the {@link AsyncMailFinchConnection} object to use for accessing the MailFinch API asynchronously.
+	 * @return The {@link AsyncMailFinchConnection} object to use for accessing the MailFinch API asynchronously.
+	 */
+	public AsyncMailFinchConnection getAsyncAPI() {
+		return getConfiguration().getAsyncConnection();
+	}
+	
 	/**
 	 * Gets all MailFinch letters for the current API key.
 	 * @return An {@link ArrayList} containing all the {@link Letter} objects.
 	 * @throws MailFinchException If invalid JSON data has been received from the server.
 	 */
 	public ArrayList<Letter> getAllLetters() throws MailFinchException {
+		// Bind each letter straight from the response stream, rather than building the whole response as JSON first.
+		ArrayList<Letter> letters = new ArrayList<Letter>();
+		try (LetterIterator iterator = letters()) {
+			while (iterator.hasNext()) {
+				letters.add(iterator.next());
+			}
+		} catch (UncheckedMailFinchException e) {
+			throw e.getCause();
+		}
+		return letters;
+	}
+	
+	/**
+	 * Gets all MailFinch letters for the current API key as a stream, decoding each
+	 * {@link Letter} as it arrives from the server rather than holding them all in memory.
+	 * The request passes through interceptors and is recorded in the {@link com.mailfinch.metrics.MetricsRegistry}
+	 * once the iterator is closed, but it is never shared with identical requests in flight.
+	 * The returned iterator must be closed if it is not read to the end:
+	 * <pre>
+	 * try (LetterIterator letters = mail.letters()) {
+	 *     while (letters.hasNext()) { ... }
+	 * }
+	 * </pre>
+	 * @return A {@link LetterIterator} over all the {@link Letter} objects.
+	 * @throws MailFinchException If invalid JSON data has been received from the server.
+	 */
+	public LetterIterator letters() throws MailFinchException {
+		return new LetterIterator(getConfiguration(), getConfiguration().getConnection().executeStream("letters", "GET"));
+	}
+	
+	/**
+	 * Asynchronously gets all MailFinch letters for the current API key.
+	 * @return A {@link CompletableFuture} which completes with an {@link ArrayList} containing
+	 * all the {@link Letter} objects, or completes exceptionally with a {@link MailFinchException}.
+	 */
+	public CompletableFuture<ArrayList<Letter>> getAllLettersAsync() {
+		return getAsyncAPI().executeAsync("letters", "GET").thenApply(response -> {
+			try {
+				return toLetters(response);
+			} catch (MailFinchException e) {
+				throw new CompletionException(e);
+			}
+		});
+	}
+	
+	/**
+	 * Gets the MailFinch letter with the specified ID for the current API key. 
+	 * If a {@link LetterCache} has been configured, a recently fetched copy is returned when available.
+	 * @param id The ID of the letter to retrieve.
+	 * @return The retrieved MailFinch letter as a {@link Letter} object.
+	 * @throws MailFinchException If invalid JSON data has been received from the server.
+	 */
+	public Letter getLetter(int id) throws MailFinchException {
+		LetterCache cache = getConfiguration().getLetterCache();
+		if (cache != null) {
+			Letter cached = cache.get(id);
+			if (cached != null) {
+				return cached;
+			}
+		}
+		Letter letter = toLetter(getConfiguration().getConnection().execute("letters/" + id, "GET"));
+		if (cache != null) {
+			cache.put(letter);
+		}
+		return letter;
+	}
+	
+	/**
+	 * Asynchronously gets the MailFinch letter with the specified ID for the current API key. 
+	 * If a {@link LetterCache} has been configured, a recently fetched copy is returned when available.
+	 * @param id The ID of the letter to retrieve.
+	 * @return A {@link CompletableFuture} which completes with the retrieved MailFinch letter
+	 * as a {@link Letter} object, or completes exceptionally with a {@link MailFinchException}.
+	 */
+	public CompletableFuture<Letter> getLetterAsync(int id) {
+		final LetterCache cache = getConfiguration().getLetterCache();
+		if (cache != null) {
+			Letter cached = cache.get(id);
+			if (cached != null) {
+				return CompletableFuture.completedFuture(cached);
+			}
+		}
+		return getAsyncAPI().executeAsync("letters/" + id, "GET").thenApply(response -> {
+			try {
+				Letter letter = toLetter(response);
+				if (cache != null) {
+					cache.put(letter);
+				}
+				return letter;
+			} catch (MailFinchException e) {
+				throw new CompletionException(e);
+			}
+		});
+	}
+	
+	/**
+	 * Saves every letter in a collection to the MailFinch server, with up to
+	 * {@link Configuration#getBulkConcurrency()} requests in flight at once.
+	 * @param letters The letters to save.
+	 * @return A {@link BulkResult} containing the outcome for each letter.
+	 */
+	public BulkResult saveAll(Collection<Letter> letters) {
+		return saveAll(letters, getConfiguration().getBulkConcurrency());
+	}
+	
+	/**
+	 * Saves every letter in a collection to the MailFinch server.
+	 * A failure to save one letter does not stop the others from being saved.
+	 * @param letters The letters to save.
+	 * @param concurrency The maximum number of requests in flight at once.
+	 * @return A {@link BulkResult} containing the outcome for each letter.
+	 */
+	public BulkResult saveAll(Collection<Letter> letters, int concurrency) {
+		return new BulkOperation() {
+			@Override
+			protected void apply(Letter letter) throws MailFinchException {
+				letter.save();
+			}
+		}.run(letters, concurrency);
+	}
+	
+	/**
+	 * Purchases every letter in a collection from MailFinch, with up to
+	 * {@link Configuration#getBulkConcurrency()} requests in flight at once.
+	 * @param letters The letters to purchase.
+	 * @return A {@link BulkResult} containing the outcome for each letter.
+	 */
+	public BulkResult purchaseAll(Collection<Letter> letters) {
+		return purchaseAll(letters, getConfiguration().getBulkConcurrency());
+	}
+	
+	/**
+	 * Purchases every letter in a collection from MailFinch.
+	 * A failure to purchase one letter does not stop the others from being purchased.
+	 * @param letters The letters to purchase.
+	 * @param concurrency The maximum number of requests in flight at once.
+	 * @return A {@link BulkResult} containing the outcome for each letter.
+	 */
+	public BulkResult purchaseAll(Collection<Letter> letters, int concurrency) {
+		return new BulkOperation() {
+			@Override
+			protected void apply(Letter letter) throws MailFinchException {
+				letter.purchase();
+			}
+		}.run(letters, concurrency);
+	}
+	
+	/**
+	 * Converts a server response containing a list of letters into {@link Letter} objects.
+	 * @param response The {@link MailFinchConnection.Response} containing the letters.
+	 * @return An {@link ArrayList} containing all the {@link Letter} objects.
+	 * @throws MailFinchException If invalid JSON data has been received from the server.
+	 */
+	private ArrayList<Letter> toLetters(MailFinchConnection.Response response) throws MailFinchException {
 		try {
-			MailFinchConnection.Response response = getAPI().execute("letters", "GET");
 			JSONArray array = response.getArray();
 			ArrayList<Letter> letters = new ArrayList<Letter>();
 			for (int i = 0; i < array.length(); i++) {
@@ -94,14 +266,13 @@ public class MailFinch {
 	}
 	
 	/**
-	 * Gets the MailFinch letter with the specified ID for the current API key. 
-	 * @param id The ID of the letter to retrieve.
-	 * @return The retrieved MailFinch letter as a {@link Letter} object.
+	 * Converts a server response containing a single letter into a {@link Letter} object.
+	 * @param response The {@link MailFinchConnection.Response} containing the letter.
+	 * @return The {@link Letter} object.
 	 * @throws MailFinchException If invalid JSON data has been received from the server.
 	 */
-	public Letter getLetter(int id) throws MailFinchException {
+	private Letter toLetter(MailFinchConnection.Response response) throws MailFinchException {
 		try {
-			MailFinchConnection.Response response = getAPI().execute("letters/" + id, "GET");
 			return Letter.fromJSON(getConfiguration(), response.getObject().getJSONObject("letter"));
 		} catch (JSONException e) {
 			throw new MailFinchException(Resources.INVALID_JSON, e);
@@ -0,0 +1,20 @@
+package com.mailfinch;
+
+/**
+ * A {@link MailFinchNotSentException} thrown when a request's deadline passes before it could be sent,
+ * either while it waited to be sent or before it was retried.
+ * @author Richard Taylor <contact@rtaylor.me.uk>
+ */
+public class MailFinchDeadlineException extends MailFinchNotSentException {
+
+	/** The universal version identifier of this class. */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Constructs a new {@link MailFinchDeadlineException}.
+	 */
+	public MailFinchDeadlineException() {
+		super(Resources.DEADLINE_EXCEEDED);
+	}
+
+}
@@ -0,0 +1,78 @@
+package com.mailfinch;
+
+/**
+ * A {@link MailFinchException} thrown when the MailFinch server responds with an HTTP error code.
+ * The status code lets callers tell transient failures, which may succeed if retried,
+ * from permanent ones such as a bad request.
+ * @author Richard Taylor <contact@rtaylor.me.uk>
+ */
+public class MailFinchHttpException extends MailFinchException {
+
+	/** The universal version identifier of this class. */
+	private static final long serialVersionUID = 1L;
+
+	/** The HTTP status code sent by the server. */
+	private final int statusCode;
+
+	/** The number of milliseconds the server asked us to wait before retrying, or -1 if it did not say. */
+	private final long retryAfter;
+
+	/**
+	 * Constructs a new {@link MailFinchHttpException}
+	 * with a description that will be displayed when it is thrown.
+	 * @param message The description of this exception.
+	 * @param statusCode The HTTP status code sent by the server.
+	 */
+	public MailFinchHttpException(String message, int statusCode) {
+		this(message, statusCode, -1);
+	}
+
+	/**
+	 * Constructs a new {@link MailFinchHttpException}
+	 * with a description that will be displayed when it is thrown.
+	 * @param message The description of this exception.
+	 * @param statusCode The HTTP status code sent by the server.
+	 * @param retryAfter The number of milliseconds the server asked us to wait before retrying, or -1 if it did not say.
+	 */
+	public MailFinchHttpException(String message, int statusCode, long retryAfter) {
+		super(message);
+		this.statusCode = statusCode;
+		this.retryAfter = retryAfter;
+	}
+
+	/**
+	 * Gets the HTTP status code sent by the server.
+	 * @return The HTTP status code sent by the server.
+	 */
+	public int getStatusCode() {
+		return statusCode;
+	}
+
+	/**
+	 * Gets the number of milliseconds that the server asked us to wait before retrying,
+	 * taken from its Retry-After header.
+	 * @return The number of milliseconds to wait, or -1 if the server did not say.
+	 */
+	public long getRetryAfter() {
+		return retryAfter;
+	}
+
+	/**
+	 * Determines whether or not the failure is likely to be temporary, so that
+	 * the same request may succeed if it is retried after a short wait.
+	 * @return <c>true</c> if the server is throttling, overloaded or briefly unavailable; otherwise, <c>false</c>.
+	 */
+	public boolean isTransient() {
+		switch (statusCode) {
+			case 429:
+			case 500:
+			case 502:
+			case 503:
+			case 504:
+				return true;
+			default:
+				return false;
+		}
+	}
+
+}
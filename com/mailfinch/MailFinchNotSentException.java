@@ -0,0 +1,32 @@
+package com.mailfinch;
+
+/**
+ * A {@link MailFinchException} thrown when a request is abandoned before it is sent to the MailFinch server,
+ * for example because its deadline passed or the circuit breaker is open, so it certainly had no effect.
+ * @author Richard Taylor <contact@rtaylor.me.uk>
+ */
+public class MailFinchNotSentException extends MailFinchException {
+
+	/** The universal version identifier of this class. */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Constructs a new {@link MailFinchNotSentException}
+	 * with a description that will be displayed when it is thrown.
+	 * @param message The description of this exception.
+	 */
+	public MailFinchNotSentException(String message) {
+		super(message);
+	}
+
+	/**
+	 * Constructs a new {@link MailFinchNotSentException} with a description
+	 * that will be displayed when it is thrown, and the cause of this exception.
+	 * @param message The description of this exception.
+	 * @param cause The cause of this exception.
+	 */
+	public MailFinchNotSentException(String message, Throwable cause) {
+		super(message, cause);
+	}
+
+}
@@ -0,0 +1,22 @@
+package com.mailfinch;
+
+/**
+ * A {@link MailFinchException} thrown when the MailFinch server answers a request with a list of errors,
+ * turning it down without acting on it. The message is the list of errors sent by the server.
+ * @author Richard Taylor <contact@rtaylor.me.uk>
+ */
+public class MailFinchRejectedException extends MailFinchException {
+
+	/** The universal version identifier of this class. */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Constructs a new {@link MailFinchRejectedException}
+	 * with a description that will be displayed when it is thrown.
+	 * @param message The errors sent by the server.
+	 */
+	public MailFinchRejectedException(String message) {
+		super(message);
+	}
+
+}
@@ -60,6 +60,114 @@ public class Resources {
 
 	/** Error message for use when an HTTP 503 error code has been received. */
 	public static final String ERROR_503
-		= "An HTTP error occurred: 403, the service is currently unavailable.";
+		= "An HTTP error occurred: 503, the service is currently unavailable.";
+
+	/** Error message for use when an HTTP 429 error code has been received. */
+	public static final String ERROR_429
+		= "An HTTP error occurred: 429, too many requests have been made.";
+
+	/** Error message for use when an HTTP 504 error code has been received. */
+	public static final String ERROR_504
+		= "An HTTP error occurred: 504, gateway timeout.";
+
+	/** Error message for use when invalid connection pool limits have been given. */
+	public static final String INVALID_POOL_LIMITS
+		= "Connection pool limits must allow at least one connection per host.";
+
+	/** Error message for use when a closed connection pool has been used. */
+	public static final String POOL_CLOSED
+		= "The connection pool has been closed.";
+
+	/** Error message for use when a thread is interrupted while waiting for a pooled connection. */
+	public static final String POOL_INTERRUPTED
+		= "Interrupted while waiting for a connection to the MailFinch server.";
+
+	/** Error message for use when an invalid number of concurrent requests has been given. */
+	public static final String INVALID_CONCURRENCY
+		= "At least one request must be allowed in flight at a time.";
+
+	/** Error message for use when a bulk operation is interrupted before reaching a letter. */
+	public static final String BULK_INTERRUPTED
+		= "The bulk operation was interrupted before this letter could be processed.";
+
+	/** Error message for use when a response is too large to be held in memory. */
+	public static final String RESPONSE_TOO_LARGE
+		= "The response from the MailFinch server is too large to be read into memory.";
+
+	/** Error message for use when a response ends before its declared length. */
+	public static final String RESPONSE_TRUNCATED
+		= "The MailFinch server closed the connection before the response was complete.";
+
+	/** Error message for use when invalid letter cache limits have been given. */
+	public static final String INVALID_CACHE_LIMITS
+		= "Letter cache limits must allow at least one letter and a non-negative time to live.";
+
+	/** Error message for use when an invalid rate limit has been given. */
+	public static final String INVALID_RATE_LIMIT
+		= "Rate limits must allow a positive number of requests per second and a burst of at least one.";
+
+	/** Error message for use when a thread is interrupted while waiting for the rate limiter. */
+	public static final String RATE_LIMIT_INTERRUPTED
+		= "Interrupted while waiting to send a request to the MailFinch server.";
+
+	/** Error message for use when invalid retry policy settings have been given. */
+	public static final String INVALID_RETRY_POLICY
+		= "Retry policy settings must not be negative, and the maximum delay must be at least the base delay.";
+
+	/** Error message for use when a thread is interrupted while waiting to retry a request. */
+	public static final String RETRY_INTERRUPTED
+		= "Interrupted while waiting to retry a request to the MailFinch server.";
+
+	/** Error message for use when an invalid idempotency ledger capacity has been given. */
+	public static final String INVALID_LEDGER_CAPACITY
+		= "The idempotency ledger must be able to remember at least one key.";
+
+	/** Error message for use when invalid circuit breaker settings have been given. */
+	public static final String INVALID_CIRCUIT_BREAKER
+		= "Circuit breaker thresholds must be positive, and rates must not exceed one.";
+
+	/** Error message for use when a request is rejected because the circuit breaker is open. */
+	public static final String CIRCUIT_OPEN
+		= "The MailFinch server is failing, so the request was not sent. Try again later.";
+
+	/** Error message for use when a negative timeout has been given. */
+	public static final String INVALID_TIMEOUT
+		= "Timeouts must not be negative. Use zero for no timeout.";
+
+	/** Error message for use when an operation runs out of time before it can finish. */
+	public static final String DEADLINE_EXCEEDED
+		= "The deadline for the request to the MailFinch server has passed.";
+
+	/** Error message for use when an HTTP proxy will not open a tunnel to the MailFinch server. */
+	public static final String PROXY_TUNNEL_FAILED
+		= "The proxy refused to open a tunnel to the MailFinch server.";
+
+	/** Error message for use when the host name verifier rejects the certificate of the MailFinch server. */
+	public static final String HOST_NOT_VERIFIED
+		= "The certificate of the MailFinch server does not match its host name.";
+
+	/** Error message for use when no pooled connection becomes free within the connect timeout. */
+	public static final String POOL_TIMEOUT
+		= "Timed out waiting for a connection to the MailFinch server.";
+
+	/** Error message for use when a null interceptor is added to a configuration. */
+	public static final String INVALID_INTERCEPTOR
+		= "An interceptor must not be null.";
+
+	/** Error message for use when an empty base URL is configured. */
+	public static final String INVALID_BASE_URL
+		= "The base URL of the MailFinch service must not be empty.";
+
+	/** Error message for use when the emulator is given an invalid latency, error rate or rate limit. */
+	public static final String INVALID_EMULATOR_SETTING
+		= "Emulator latencies and rate limits must not be negative, and error rates must be between 0 and 1.";
+
+	/** Error message for use when a letter is created or purchased while another such operation on it is in progress. */
+	public static final String OPERATION_IN_PROGRESS
+		= "This letter is already being created or purchased.";
+
+	/** Error message for use when an earlier creation or purchase may have taken effect and must be checked first. */
+	public static final String OPERATION_UNRESOLVED
+		= "An earlier attempt to create or purchase this letter may have taken effect. Resolve it with save() or purchase().";
 
 }
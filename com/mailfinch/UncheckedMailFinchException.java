@@ -0,0 +1,30 @@
+package com.mailfinch;
+
+/**
+ * Wraps a {@link MailFinchException} in an unchecked exception, for use where
+ * checked exceptions cannot be thrown, such as from an {@link java.util.Iterator}.
+ * @author Richard Taylor <contact@rtaylor.me.uk>
+ */
+public class UncheckedMailFinchException extends RuntimeException {
+
+	/** The universal version identifier of this class. */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Constructs a new {@link UncheckedMailFinchException} wrapping the given cause.
+	 * @param cause The {@link MailFinchException} being wrapped.
+	 */
+	public UncheckedMailFinchException(MailFinchException cause) {
+		super(cause.getMessage(), cause);
+	}
+
+	/**
+	 * Gets the {@link MailFinchException} wrapped by this exception.
+	 * @return The {@link MailFinchException} wrapped by this exception.
+	 */
+	@Override
+	public MailFinchException getCause() {
+		return (MailFinchException) super.getCause();
+	}
+
+}
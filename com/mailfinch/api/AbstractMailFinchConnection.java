@@ -1,9 +1,28 @@
 package com.mailfinch.api;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 import com.mailfinch.Configuration;
+import com.mailfinch.MailFinchDeadlineException;
 import com.mailfinch.MailFinchException;
+import com.mailfinch.MailFinchHttpException;
+import com.mailfinch.MailFinchNotSentException;
+import com.mailfinch.MailFinchRejectedException;
+import com.mailfinch.Resources;
+import com.mailfinch.metrics.MetricsRegistry;
+import com.mailfinch.util.QueryStringBuilder;
+import org.json.JSONProjection;
 
 /**
  * Controls access to the MailFinch API.
@@ -13,6 +32,16 @@ public abstract class AbstractMailFinchConnection implements MailFinchConnection
 	
 	/** The {@link Configuration} object to get settings from. */
 	private Configuration configuration;
+	
+	/** The read requests currently in flight, keyed by URL, query and projection, for identical requests to share. */
+	private final ConcurrentMap<String, CompletableFuture<MailFinchConnection.Response>> inFlight
+		= new ConcurrentHashMap<String, CompletableFuture<MailFinchConnection.Response>>();
+	
+	/** Whether or not identical concurrent read requests share a single call to the server. */
+	private volatile boolean coalescing = true;
+	
+	/** The number of read requests that have been answered by an identical request already in flight. */
+	private final AtomicLong coalescedCount = new AtomicLong();
 
 	/**
 	 * Initialises a new instance of the {@link AbstractMailFinchConnection} class.
@@ -21,6 +50,14 @@ public abstract class AbstractMailFinchConnection implements MailFinchConnection
 	public AbstractMailFinchConnection(Configuration config) {
 		configuration = config;
 	}
+	
+	/**
+	 * Gets the {@link Configuration} object that this connection gets settings from.
+	 * @return The {@link Configuration} object to get settings from.
+	 */
+	protected Configuration getConfiguration() {
+		return configuration;
+	}
 
 	/**
 	 * Downloads the contents of the specified MailFinch URL,
@@ -35,6 +72,77 @@ public abstract class AbstractMailFinchConnection implements MailFinchConnection
 	 */
 	protected abstract String getContents(String url, String requestMethod, Map<String, Object> parameters) throws MailFinchException;
 
+	/**
+	 * Downloads the contents of the specified MailFinch URL,
+	 * and returns the results as UTF-8 encoded JSON data.
+	 * By default this encodes the results of {@link #getContents};
+	 * subclasses that read bytes from the network should override it to avoid decoding them.
+	 * @param url The MailFinch URL to get the contents of.
+	 * @param requestMethod The request method (GET, PUT, POST, or DELETE).
+	 * @param parameters The parameters for the request.
+	 * @return The results of the content download as UTF-8 encoded JSON data.
+	 * @throws MailFinchException If a networking error has occurred.
+	 */
+	protected byte[] getContentBytes(String url, String requestMethod, Map<String, Object> parameters) throws MailFinchException {
+		return getContents(url, requestMethod, parameters).getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Downloads the contents of the specified MailFinch URL with the given request options,
+	 * and returns the results as UTF-8 encoded JSON data.
+	 * By default the options are ignored; subclasses that can send them to the server should override this.
+	 * @param url The MailFinch URL to get the contents of.
+	 * @param requestMethod The request method (GET, PUT, POST, or DELETE).
+	 * @param parameters The parameters for the request.
+	 * @param options The {@link RequestOptions} for the request, or null to use the defaults.
+	 * @return The results of the content download as UTF-8 encoded JSON data.
+	 * @throws MailFinchException If a networking error has occurred.
+	 */
+	protected byte[] getContentBytes(String url, String requestMethod, Map<String, Object> parameters, RequestOptions options) throws MailFinchException {
+		return getContentBytes(url, requestMethod, parameters);
+	}
+
+	/**
+	 * Sends the request described by an {@link Exchange} on behalf of the {@link Interceptor} chain,
+	 * and returns the results as UTF-8 encoded JSON data. By default this calls
+	 * {@link #getContentBytes(String, String, Map, RequestOptions)}; subclasses that can report
+	 * the response code and byte counts, or send the extra headers, should override it.
+	 * @param exchange The {@link Exchange} to send, whose timings are recorded by the caller.
+	 * @return The results of the content download as UTF-8 encoded JSON data.
+	 * @throws MailFinchException If a networking error has occurred.
+	 */
+	protected byte[] getContentBytes(Exchange exchange) throws MailFinchException {
+		return getContentBytes(exchange.getURL(), exchange.getRequestMethod(), exchange.getParameters(), exchange.getOptions());
+	}
+
+	/**
+	 * Opens a stream over the contents of the specified MailFinch URL, so that large
+	 * responses can be processed as they arrive rather than held in memory all at once.
+	 * By default this downloads the whole response with {@link #getContents};
+	 * subclasses that can read directly from the network should override it.
+	 * @param url The MailFinch URL to get the contents of.
+	 * @param requestMethod The request method (GET, PUT, POST, or DELETE).
+	 * @param parameters The parameters for the request.
+	 * @return A stream of UTF-8 encoded JSON data, which must be closed by the caller.
+	 * @throws MailFinchException If a networking error has occurred.
+	 */
+	protected InputStream openContents(String url, String requestMethod, Map<String, Object> parameters) throws MailFinchException {
+		return new ByteArrayInputStream(getContentBytes(url, requestMethod, parameters));
+	}
+
+	/**
+	 * Opens a stream over the response to the request described by an {@link Exchange},
+	 * on behalf of the {@link Interceptor} chain. By default this calls
+	 * {@link #openContents(String, String, Map)}; subclasses that can report the response code
+	 * and request size, or send the extra headers, should override it.
+	 * @param exchange The {@link Exchange} to send, whose timings are recorded by the caller.
+	 * @return A stream of UTF-8 encoded JSON data, which must be closed by the caller.
+	 * @throws MailFinchException If a networking error has occurred.
+	 */
+	protected InputStream openContents(Exchange exchange) throws MailFinchException {
+		return openContents(exchange.getURL(), exchange.getRequestMethod(), exchange.getParameters());
+	}
+
 	/**
 	 * Makes a request to the specified MailFinch method.
 	 * @param apiMethod The method to execute on the API.
@@ -57,19 +165,569 @@ public abstract class AbstractMailFinchConnection implements MailFinchConnection
 	 * @throws MailFinchException If a networking error has occurred.
 	 */
 	public MailFinchConnection.Response execute(String apiMethod, String requestMethod, Map<String, Object> parameters) throws MailFinchException {
+		return execute(apiMethod, requestMethod, parameters, null);
+	}
+	
+	@Override
+	public MailFinchConnection.Response execute(String apiMethod, String requestMethod, Map<String, Object> parameters, RequestOptions options) throws MailFinchException {
+		MetricsRegistry metrics = configuration.getMetricsRegistry();
+		if (metrics == null) {
+			return executeUnrecorded(apiMethod, requestMethod, parameters, options);
+		}
+		long start = System.nanoTime();
+		try {
+			MailFinchConnection.Response response = executeUnrecorded(apiMethod, requestMethod, parameters, options);
+			metrics.record(apiMethod, requestMethod, MetricsRegistry.Outcome.SUCCESS, System.nanoTime() - start);
+			return response;
+		} catch (MailFinchException e) {
+			metrics.record(apiMethod, requestMethod, MetricsRegistry.Outcome.of(e), System.nanoTime() - start);
+			throw e;
+		}
+	}
+	
+	/**
+	 * Makes a request to the specified MailFinch method, without recording it in the {@link MetricsRegistry}.
+	 * @param apiMethod The method to execute on the API.
+	 * @param requestMethod The request method (GET, PUT, POST, or DELETE).
+	 * @param parameters The parameters for the request.
+	 * @param options The {@link RequestOptions} for the request, or null to use the defaults.
+	 * @return The {@link MailFinchConnection.Response} representing the server response.
+	 * @throws MailFinchException If a networking error has occurred.
+	 */
+	private MailFinchConnection.Response executeUnrecorded(String apiMethod, String requestMethod,
+														   Map<String, Object> parameters, RequestOptions options) throws MailFinchException {
 		String url = buildURL(apiMethod);
 		parameters.put("api_key", configuration.getAPIKey());
-		String response = getContents(url, requestMethod, parameters);
-		return new MailFinchConnection.Response(response);
+		if (isShared(apiMethod, requestMethod, options)) {
+			return executeShared(apiMethod, url, parameters, options);
+		}
+		return executeWithRetries(apiMethod, url, requestMethod, parameters, options);
+	}
+	
+	/**
+	 * Makes a request, retrying it according to the configured {@link RetryPolicy} if it fails.
+	 * @param apiMethod The method to execute on the API.
+	 * @param url The MailFinch URL to get the contents of.
+	 * @param requestMethod The request method (GET, PUT, POST, or DELETE).
+	 * @param parameters The parameters for the request.
+	 * @param options The {@link RequestOptions} for the request, or null to use the defaults.
+	 * @return The {@link MailFinchConnection.Response} representing the server response.
+	 * @throws MailFinchException If the request failed and could not be retried.
+	 */
+	private MailFinchConnection.Response executeWithRetries(String apiMethod, String url, String requestMethod,
+															Map<String, Object> parameters, RequestOptions options) throws MailFinchException {
+		Endpoint endpoint = Endpoint.of(apiMethod, requestMethod);
+		RetryPolicy policy = configuration.getRetryPolicy();
+		if (policy != null) {
+			policy.recordRequest();
+		}
+		Deadline deadline = (options != null) ? options.getDeadline() : null;
+		CircuitBreaker breaker = configuration.getCircuitBreaker();
+		long waited = 0;
+		MailFinchException failure = null;
+		for (int retries = 0; ; retries++) {
+			try {
+				admit(breaker, endpoint, deadline);
+			} catch (MailFinchException e) {
+				// An earlier attempt may still have reached the server, so its failure must not be lost.
+				if (failure != null) {
+					e.addSuppressed(failure);
+				}
+				throw e;
+			}
+			long sent = System.nanoTime();
+			try {
+				MailFinchConnection.Response response;
+				Interceptor[] interceptors = configuration.getInterceptors();
+				if (interceptors.length == 0) {
+					byte[] body = getContentBytes(url, requestMethod, parameters, options);
+					response = new MailFinchConnection.Response(body, (options != null) ? options.getProjection() : null);
+				} else {
+					Exchange exchange = new Exchange(apiMethod, requestMethod, url, parameters, options, retries);
+					response = new InterceptorChain(interceptors, 0, exchange).proceed();
+				}
+				if (breaker != null) {
+					breaker.record(null, sent);
+				}
+				return response;
+			} catch (MailFinchException e) {
+				if (breaker != null) {
+					breaker.record(e, sent);
+				}
+				if (failure != null) {
+					e.addSuppressed(failure);
+				}
+				failure = e;
+				waited += awaitRetry(policy, endpoint, e, retries, waited, deadline);
+			} catch (RuntimeException e) {
+				if (breaker != null) {
+					breaker.abandon();
+				}
+				throw e;
+			}
+		}
+	}
+	
+	/**
+	 * Waits until an attempt at a request may be sent, first checking with the circuit breaker,
+	 * so that requests are turned away at once while it is open, and then with the rate limiter.
+	 * @param breaker The {@link CircuitBreaker} that judges attempts, or null if there is none.
+	 * @param endpoint The {@link Endpoint} that the request is made to.
+	 * @param deadline The {@link Deadline} by which the request must be sent, or null if there is none.
+	 * @throws MailFinchException If the breaker is open, the deadline would pass first, or the thread was interrupted.
+	 */
+	private void admit(CircuitBreaker breaker, Endpoint endpoint, Deadline deadline) throws MailFinchException {
+		if (breaker == null) {
+			throttle(endpoint, deadline);
+			return;
+		}
+		breaker.acquirePermission();
+		try {
+			throttle(endpoint, deadline);
+		} catch (MailFinchException e) {
+			breaker.abandon();
+			throw e;
+		}
+	}
+	
+	/**
+	 * Waits before retrying a failed request, or rethrows its exception if it should not be retried.
+	 * @param policy The {@link RetryPolicy} to consult, or null if requests are never retried.
+	 * @param endpoint The {@link Endpoint} that the request was made to.
+	 * @param error The exception that the request failed with.
+	 * @param retries The number of times the request has already been retried.
+	 * @param waited The number of milliseconds already spent waiting to retry the request.
+	 * @param deadline The {@link Deadline} by which the request must finish, or null if there is none.
+	 * @return The number of milliseconds waited.
+	 * @throws MailFinchException If the request should not be retried, or the thread was interrupted while waiting.
+	 */
+	private long awaitRetry(RetryPolicy policy, Endpoint endpoint, MailFinchException error, int retries,
+							long waited, Deadline deadline) throws MailFinchException {
+		long delay = (policy != null) ? policy.getRetryDelay(endpoint, error, retries, waited) : -1;
+		if (delay < 0 || (deadline != null && delay >= deadline.getRemainingMillis())) {
+			// There is no point waiting to retry if the deadline will pass first.
+			throw error;
+		}
+		try {
+			Thread.sleep(delay);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			MailFinchException interrupted = new MailFinchException(Resources.RETRY_INTERRUPTED, e);
+			interrupted.addSuppressed(error);
+			throw interrupted;
+		}
+		return delay;
+	}
+	
+	/**
+	 * Makes a read request, sharing the call with any identical request already in flight.
+	 * The first caller makes the request; callers arriving before it completes wait for,
+	 * and each receive their own copy of its {@link MailFinchConnection.Response} or exception.
+	 * Requests are only identical if they also parse the response with the same {@link JSONProjection}.
+	 * @param apiMethod The method to execute on the API.
+	 * @param url The MailFinch URL to get the contents of.
+	 * @param parameters The query parameters for the request.
+	 * @param options The {@link RequestOptions} for the request, or null to use the defaults.
+	 * @return The {@link MailFinchConnection.Response} representing the server response.
+	 * @throws MailFinchException If a networking error has occurred.
+	 */
+	private MailFinchConnection.Response executeShared(String apiMethod, String url, Map<String, Object> parameters,
+													   RequestOptions options) throws MailFinchException {
+		String key = keyOf(url, parameters, options);
+		CompletableFuture<MailFinchConnection.Response> future = new CompletableFuture<MailFinchConnection.Response>();
+		CompletableFuture<MailFinchConnection.Response> existing = inFlight.putIfAbsent(key, future);
+		if (existing != null) {
+			coalescedCount.incrementAndGet();
+			MailFinchConnection.Response shared;
+			try {
+				shared = existing.join();
+			} catch (CompletionException e) {
+				// Each caller gets an exception of its own, with its own stack trace.
+				if (e.getCause() instanceof MailFinchException) {
+					throw copyOf((MailFinchException) e.getCause());
+				}
+				throw new CompletionException(e.getCause());
+			}
+			return new MailFinchConnection.Response(shared);
+		}
+		try {
+			MailFinchConnection.Response response = executeWithRetries(apiMethod, url, "GET", parameters, options);
+			future.complete(response);
+			return response;
+		} catch (Throwable e) {
+			future.completeExceptionally(e);
+			throw e;
+		} finally {
+			inFlight.remove(key, future);
+		}
+	}
+	
+	/**
+	 * Makes an asynchronous read request, sharing the call with any identical request already in flight
+	 * through this connection, whether that request is blocking or asynchronous. The first caller makes the request; later callers
+	 * each receive their own copy of its {@link MailFinchConnection.Response} or exception.
+	 * @param url The MailFinch URL to get the contents of.
+	 * @param parameters The query parameters for the request.
+	 * @param options The {@link RequestOptions} for the request, or null to use the defaults.
+	 * @param request Starts the request, if no identical one is already in flight.
+	 * @return A {@link CompletableFuture} which completes with the server response.
+	 */
+	CompletableFuture<MailFinchConnection.Response> executeSharedAsync(String url, Map<String, Object> parameters, RequestOptions options,
+																	   Supplier<CompletableFuture<MailFinchConnection.Response>> request) {
+		final String key = keyOf(url, parameters, options);
+		final CompletableFuture<MailFinchConnection.Response> future = new CompletableFuture<MailFinchConnection.Response>();
+		CompletableFuture<MailFinchConnection.Response> existing = inFlight.putIfAbsent(key, future);
+		if (existing != null) {
+			coalescedCount.incrementAndGet();
+			return existing.handle((shared, error) -> {
+				if (error == null) {
+					try {
+						return new MailFinchConnection.Response(shared);
+					} catch (MailFinchException e) {
+						throw new CompletionException(e);
+					}
+				}
+				// Each caller gets an exception of its own, with its own stack trace.
+				Throwable cause = (error instanceof CompletionException && error.getCause() != null) ? error.getCause() : error;
+				throw new CompletionException((cause instanceof MailFinchException) ? copyOf((MailFinchException) cause) : cause);
+			});
+		}
+		request.get().whenComplete((response, error) -> {
+			inFlight.remove(key, future);
+			if (error == null) {
+				future.complete(response);
+			} else {
+				future.completeExceptionally((error instanceof CompletionException && error.getCause() != null) ? error.getCause() : error);
+			}
+		});
+		return future;
+	}
+	
+	/**
+	 * Determines whether or not a request may share a call with identical requests in flight.
+	 * @param apiMethod The method to execute on the API.
+	 * @param requestMethod The request method (GET, PUT, POST, or DELETE).
+	 * @param options The {@link RequestOptions} for the request, or null to use the defaults.
+	 * @return <c>true</c> if the request may be shared; otherwise, <c>false</c>.
+	 */
+	boolean isShared(String apiMethod, String requestMethod, RequestOptions options) {
+		return coalescing && isShareable(options) && isCoalescable(apiMethod, requestMethod);
+	}
+	
+	/**
+	 * Gets the key that identical requests share a call under. Requests are only identical
+	 * if they also parse the response with the same {@link JSONProjection}.
+	 * @param url The MailFinch URL to get the contents of.
+	 * @param parameters The query parameters for the request.
+	 * @param options The {@link RequestOptions} for the request, or null to use the defaults.
+	 * @return The key of the request.
+	 */
+	private static String keyOf(String url, Map<String, Object> parameters, RequestOptions options) {
+		JSONProjection projection = (options != null) ? options.getProjection() : null;
+		return url + QueryStringBuilder.build(parameters) + ((projection != null) ? " " + projection : "");
+	}
+	
+	/**
+	 * Copies the exception that a shared call failed with, for another of the callers sharing it.
+	 * The copy has the same type, message and cause, so it is classified and retried in the same way.
+	 * @param error The exception that the shared call failed with.
+	 * @return The copy of the exception.
+	 */
+	private static MailFinchException copyOf(MailFinchException error) {
+		MailFinchException copy;
+		if (error instanceof MailFinchHttpException) {
+			MailFinchHttpException http = (MailFinchHttpException) error;
+			copy = new MailFinchHttpException(http.getMessage(), http.getStatusCode(), http.getRetryAfter());
+			copy.initCause(http.getCause());
+		} else if (error instanceof MailFinchDeadlineException) {
+			copy = new MailFinchDeadlineException();
+		} else if (error instanceof MailFinchNotSentException) {
+			copy = new MailFinchNotSentException(error.getMessage(), error.getCause());
+		} else if (error instanceof MailFinchRejectedException) {
+			copy = new MailFinchRejectedException(error.getMessage());
+		} else {
+			copy = new MailFinchException(error.getMessage(), error.getCause());
+		}
+		return copy;
+	}
+	
+	/**
+	 * Waits until the configured {@link RateLimiter}, if any, allows a request to be sent.
+	 * @param endpoint The {@link Endpoint} that the request will be made to.
+	 * @param deadline The {@link Deadline} by which the request must finish, or null if there is none.
+	 * @throws MailFinchException If the deadline would pass while waiting, or the thread is interrupted.
+	 */
+	protected void throttle(Endpoint endpoint, Deadline deadline) throws MailFinchException {
+		if (deadline != null) {
+			deadline.check();
+		}
+		RateLimiter limiter = configuration.getRateLimiter();
+		if (limiter == null) {
+			return;
+		}
+		// Only reserve a wait that fits before the deadline, so an abandoned request leaves the limiter as it was.
+		long delay = (deadline != null)
+				? limiter.tryReserve(endpoint, TimeUnit.MILLISECONDS.toNanos(deadline.getRemainingMillis()))
+				: limiter.reserve(endpoint);
+		if (delay < 0) {
+			throw new MailFinchDeadlineException();
+		}
+		if (delay > 0) {
+			try {
+				TimeUnit.NANOSECONDS.sleep(delay);
+			} catch (InterruptedException e) {
+				limiter.release(endpoint);
+				Thread.currentThread().interrupt();
+				throw new MailFinchNotSentException(Resources.RATE_LIMIT_INTERRUPTED, e);
+			}
+		}
+	}
+	
+	/**
+	 * Determines whether or not a request with the given options may share a call with other requests.
+	 * Only the projection may be set, since a deadline or idempotency key belongs to a single caller.
+	 * @param options The {@link RequestOptions} for the request, or null to use the defaults.
+	 * @return <c>true</c> if the request may be shared; otherwise, <c>false</c>.
+	 */
+	private static boolean isShareable(RequestOptions options) {
+		return (options == null || (options.getIdempotencyKey() == null && options.getDeadline() == null));
+	}
+	
+	/**
+	 * Determines whether or not identical concurrent requests to an API method may share a single call.
+	 * Only reads qualify; purchasing a letter is requested with GET but must never be shared.
+	 * @param apiMethod The method to execute on the API.
+	 * @param requestMethod The request method (GET, PUT, POST, or DELETE).
+	 * @return <c>true</c> if the request may be shared; otherwise, <c>false</c>.
+	 */
+	protected boolean isCoalescable(String apiMethod, String requestMethod) {
+		return (requestMethod == "GET" && !apiMethod.endsWith("/purchase"));
+	}
+	
+	/**
+	 * Sets whether or not identical concurrent read requests share a single call to the server.
+	 * This is enabled by default. Each caller sharing a call receives its own copy of the
+	 * {@link MailFinchConnection.Response}, or of the exception that the call failed with.
+	 * @param enabled <c>true</c> to share identical read requests; otherwise, <c>false</c>.
+	 */
+	public void setCoalescingEnabled(boolean enabled) {
+		coalescing = enabled;
+	}
+	
+	/**
+	 * Gets the number of read requests that have been answered by an identical request already in flight,
+	 * rather than by a call of their own.
+	 * @return The number of read requests that have been coalesced.
+	 */
+	public long getCoalescedCount() {
+		return coalescedCount.get();
+	}
+ 
+	/**
+	 * Makes a request to the specified MailFinch method, and returns the raw response
+	 * as a stream rather than parsing it into a {@link MailFinchConnection.Response}.
+	 * The request passes through the interceptors, which see it once the head of the response
+	 * has arrived, and is recorded in the {@link MetricsRegistry} when the stream is closed.
+	 * Streamed requests are never shared with identical requests in flight.
+	 * @param apiMethod The method to execute on the API.
+	 * @param requestMethod The request method (GET, PUT, POST, or DELETE).
+	 * @return A stream of UTF-8 encoded JSON data, which must be closed by the caller.
+	 * @throws MailFinchException If a networking error has occurred.
+	 */
+	@Override
+	public InputStream executeStream(String apiMethod, String requestMethod) throws MailFinchException {
+		MetricsRegistry metrics = configuration.getMetricsRegistry();
+		if (metrics == null) {
+			return executeStreamUnrecorded(apiMethod, requestMethod);
+		}
+		long start = System.nanoTime();
+		InputStream stream;
+		try {
+			stream = executeStreamUnrecorded(apiMethod, requestMethod);
+		} catch (MailFinchException e) {
+			metrics.record(apiMethod, requestMethod, MetricsRegistry.Outcome.of(e), System.nanoTime() - start);
+			throw e;
+		}
+		return new ResponseStream(stream, bytes -> metrics.record(apiMethod, requestMethod,
+				(bytes >= 0) ? MetricsRegistry.Outcome.SUCCESS : MetricsRegistry.Outcome.NETWORK_ERROR, System.nanoTime() - start));
+	}
+	
+	/**
+	 * Makes a request to the specified MailFinch method and returns the raw response as a stream,
+	 * without recording it in the {@link MetricsRegistry}.
+	 * @param apiMethod The method to execute on the API.
+	 * @param requestMethod The request method (GET, PUT, POST, or DELETE).
+	 * @return A stream of UTF-8 encoded JSON data, which must be closed by the caller.
+	 * @throws MailFinchException If a networking error has occurred.
+	 */
+	private InputStream executeStreamUnrecorded(String apiMethod, String requestMethod) throws MailFinchException {
+		Map<String, Object> parameters = new HashMap<String, Object>();
+		parameters.put("api_key", configuration.getAPIKey());
+		String url = buildURL(apiMethod);
+		Endpoint endpoint = Endpoint.of(apiMethod, requestMethod);
+		RetryPolicy policy = configuration.getRetryPolicy();
+		if (policy != null) {
+			policy.recordRequest();
+		}
+		CircuitBreaker breaker = configuration.getCircuitBreaker();
+		long waited = 0;
+		for (int retries = 0; ; retries++) {
+			admit(breaker, endpoint, null);
+			long sent = System.nanoTime();
+			try {
+				// The attempt is judged once the head of the response has arrived.
+				InputStream stream = stream(new Exchange(apiMethod, requestMethod, url, parameters, null, retries));
+				if (breaker != null) {
+					breaker.record(null, sent);
+				}
+				return stream;
+			} catch (MailFinchException e) {
+				if (breaker != null) {
+					breaker.record(e, sent);
+				}
+				waited += awaitRetry(policy, endpoint, e, retries, waited, null);
+			} catch (RuntimeException e) {
+				if (breaker != null) {
+					breaker.abandon();
+				}
+				throw e;
+			}
+		}
 	}
  
+	/**
+	 * Passes an attempt at a streamed request through the interceptors, ending with the stream being opened.
+	 * The interceptors receive a placeholder {@link MailFinchConnection.Response} without an object,
+	 * since the body is left for the caller to read. If an interceptor returns a response of its own instead,
+	 * that response is written out as a stream.
+	 * @param exchange The {@link Exchange} describing the attempt.
+	 * @return A stream of UTF-8 encoded JSON data, which must be closed by the caller.
+	 * @throws MailFinchException If a networking error has occurred.
+	 */
+	private InputStream stream(final Exchange exchange) throws MailFinchException {
+		final InputStream[] opened = new InputStream[1];
+		final MailFinchConnection.Response streamed = new MailFinchConnection.Response(200, null, null);
+		MailFinchConnection.Response response;
+		try {
+			response = intercept(exchange, new Interceptor.Chain() {
+
+				@Override
+				public Exchange getExchange() {
+					return exchange;
+				}
+
+				@Override
+				public MailFinchConnection.Response proceed() throws MailFinchException {
+					exchange.started();
+					try {
+						opened[0] = new ResponseStream(openContents(exchange), exchange::completed);
+					} catch (MailFinchException e) {
+						exchange.completed(-1);
+						throw e;
+					}
+					return streamed;
+				}
+
+			});
+		} catch (MailFinchException | RuntimeException e) {
+			closeQuietly(opened[0]);
+			throw e;
+		}
+		if (response == streamed) {
+			return opened[0];
+		}
+		closeQuietly(opened[0]);
+		return response.toStream();
+	}
+	
+	/**
+	 * Closes a stream, ignoring any error.
+	 * @param stream The stream to close, or null if there is none.
+	 */
+	private static void closeQuietly(InputStream stream) {
+		if (stream != null) {
+			try {
+				stream.close();
+			} catch (IOException e) {
+				// The stream is being abandoned, so there is nothing to report.
+			}
+		}
+	}
+	
 	/**
 	 * Builds the full URL for a request.
 	 * @param apiMethod The method to execute on the API.
 	 * @return The full URL to be called for the request.
 	 */
-	private String buildURL(String apiMethod) {
+	protected String buildURL(String apiMethod) {
 		return configuration.getBaseURL() + apiMethod + ".json";
 	}
 
+	/**
+	 * Passes an attempt at a request whose response has already arrived through the configured interceptors.
+	 * Connections that send requests asynchronously use this to show each attempt to the interceptors.
+	 * @param exchange The {@link Exchange} describing the attempt, with its response already recorded.
+	 * @param result The end of the chain, which returns the response received or throws the failure.
+	 * @return The {@link MailFinchConnection.Response} returned by the outermost interceptor.
+	 * @throws MailFinchException If the attempt failed, or an interceptor failed it.
+	 */
+	protected MailFinchConnection.Response intercept(Exchange exchange, Interceptor.Chain result) throws MailFinchException {
+		return new InterceptorChain(configuration.getInterceptors(), 0, exchange, result).proceed();
+	}
+
+	/**
+	 * Passes an {@link Exchange} through the remaining interceptors,
+	 * and finally sends it to the server.
+	 */
+	private class InterceptorChain implements Interceptor.Chain {
+
+		/** The interceptors in the order they are applied. */
+		private final Interceptor[] interceptors;
+
+		/** The index of the next interceptor to apply. */
+		private final int index;
+
+		/** The {@link Exchange} being intercepted. */
+		private final Exchange exchange;
+
+		/** The end of the chain if the exchange has already been sent, or null to send it to the server. */
+		private final Interceptor.Chain last;
+
+		InterceptorChain(Interceptor[] interceptors, int index, Exchange exchange) {
+			this(interceptors, index, exchange, null);
+		}
+
+		InterceptorChain(Interceptor[] interceptors, int index, Exchange exchange, Interceptor.Chain last) {
+			this.interceptors = interceptors;
+			this.index = index;
+			this.exchange = exchange;
+			this.last = last;
+		}
+
+		@Override
+		public Exchange getExchange() {
+			return exchange;
+		}
+
+		@Override
+		public MailFinchConnection.Response proceed() throws MailFinchException {
+			if (index < interceptors.length) {
+				return interceptors[index].intercept(new InterceptorChain(interceptors, index + 1, exchange, last));
+			}
+			if (last != null) {
+				return last.proceed();
+			}
+			byte[] response = null;
+			exchange.started();
+			try {
+				response = getContentBytes(exchange);
+			} finally {
+				exchange.completed((response != null) ? response.length : -1);
+			}
+			RequestOptions options = exchange.getOptions();
+			return new MailFinchConnection.Response(response, (options != null) ? options.getProjection() : null);
+		}
+
+	}
+
 }
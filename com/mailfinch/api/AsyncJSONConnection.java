@@ -0,0 +1,400 @@
+package com.mailfinch.api;
+
+import java.net.ProxySelector;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublisher;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import com.mailfinch.Configuration;
+import com.mailfinch.MailFinchDeadlineException;
+import com.mailfinch.MailFinchException;
+import com.mailfinch.MailFinchNotSentException;
+import com.mailfinch.Resources;
+import com.mailfinch.metrics.HttpRequestEvent;
+import com.mailfinch.metrics.MetricsRegistry;
+import com.mailfinch.util.QueryStringBuilder;
+import org.json.JSONProjection;
+
+/**
+ * Performs requests to the MailFinch server using JSON queries, both synchronously
+ * (inherited from {@link JSONConnection}) and asynchronously using a non-blocking {@link HttpClient}.
+ * Asynchronous requests do not hold a thread while they are in flight,
+ * so a single client can keep many hundreds of requests outstanding at once.
+ * <p>
+ * Asynchronous requests are paced, retried, shared with identical reads in flight, judged by the
+ * {@link CircuitBreaker} and recorded in the same way as blocking ones. They differ in two ways.
+ * They are sent over the connections of the {@link HttpClient}, which go through the default
+ * {@link ProxySelector}, so the limits and statistics of the
+ * {@link com.mailfinch.http.ConnectionPool} do not cover them. And they pass through the
+ * interceptors once their response has arrived, so headers that interceptors add are not sent.
+ * @author Richard Taylor <contact@rtaylor.me.uk>
+ */
+public class AsyncJSONConnection extends JSONConnection implements AsyncMailFinchConnection {
+
+	/** The non-blocking {@link HttpClient} used to send asynchronous requests. */
+	private final HttpClient client;
+
+	/**
+	 * Initialises a new instance of the {@link AsyncJSONConnection} class.
+	 * @param config The {@link Configuration} object to get settings from.
+	 */
+	public AsyncJSONConnection(Configuration config) {
+		this(config, newHttpClient(config));
+	}
+
+	/**
+	 * Initialises a new instance of the {@link AsyncJSONConnection} class.
+	 * @param config The {@link Configuration} object to get settings from.
+	 * @param client The {@link HttpClient} used to send asynchronous requests.
+	 */
+	public AsyncJSONConnection(Configuration config, HttpClient client) {
+		super(config);
+		this.client = client;
+	}
+
+	@Override
+	public CompletableFuture<MailFinchConnection.Response> executeAsync(String apiMethod, String requestMethod) {
+		return executeAsync(apiMethod, requestMethod, new HashMap<String, Object>());
+	}
+
+	@Override
+	public CompletableFuture<MailFinchConnection.Response> executeAsync(String apiMethod, String requestMethod, Map<String, Object> parameters) {
+		return executeAsync(apiMethod, requestMethod, parameters, null);
+	}
+
+	@Override
+	public CompletableFuture<MailFinchConnection.Response> executeAsync(String apiMethod, String requestMethod,
+																		Map<String, Object> parameters, RequestOptions options) {
+		MetricsRegistry metrics = getConfiguration().getMetricsRegistry();
+		if (metrics == null) {
+			return executeUnrecordedAsync(apiMethod, requestMethod, parameters, options);
+		}
+		final long start = System.nanoTime();
+		return executeUnrecordedAsync(apiMethod, requestMethod, parameters, options).whenComplete((response, error) -> {
+			if (error == null) {
+				metrics.record(apiMethod, requestMethod, MetricsRegistry.Outcome.SUCCESS, System.nanoTime() - start);
+			} else {
+				Throwable cause = (error instanceof CompletionException && error.getCause() != null) ? error.getCause() : error;
+				metrics.record(apiMethod, requestMethod, (cause instanceof MailFinchException)
+						? MetricsRegistry.Outcome.of((MailFinchException) cause) : MetricsRegistry.Outcome.OTHER_ERROR,
+						System.nanoTime() - start);
+			}
+		});
+	}
+
+	/**
+	 * Makes an asynchronous request to the specified MailFinch method, without recording it in the {@link MetricsRegistry}.
+	 * @param apiMethod The method to execute on the API.
+	 * @param requestMethod The request method (GET, PUT, POST, or DELETE).
+	 * @param parameters The parameters for the request.
+	 * @param options The {@link RequestOptions} for the request, or null to use the defaults.
+	 * @return A {@link CompletableFuture} which completes with the server response.
+	 */
+	private CompletableFuture<MailFinchConnection.Response> executeUnrecordedAsync(String apiMethod, String requestMethod,
+																				  Map<String, Object> parameters, RequestOptions options) {
+		String url = buildURL(apiMethod);
+		parameters.put("api_key", getConfiguration().getAPIKey());
+
+		// Build the query string or JSON data.
+		String target = url;
+		BodyPublisher body;
+		long requestBytes;
+		if (requestMethod == "GET") {
+			target += QueryStringBuilder.build(parameters);
+			body = BodyPublishers.noBody();
+			requestBytes = 0;
+		} else {
+			byte[] data = new JSONRequestBody(parameters).toByteArray();
+			body = BodyPublishers.ofByteArray(data);
+			requestBytes = data.length;
+		}
+
+		HttpRequest.Builder request;
+		try {
+			request = HttpRequest.newBuilder(URI.create(target))
+					.method(requestMethod, body)
+					.header("Content-Type", "application/json")
+					.header("Accept", "application/json");
+			if (options != null && options.getIdempotencyKey() != null) {
+				request.header(RequestOptions.IDEMPOTENCY_KEY_HEADER, options.getIdempotencyKey());
+			}
+		} catch (IllegalArgumentException e) {
+			return CompletableFuture.failedFuture(new MailFinchNotSentException(Resources.MALFORMED_URL, e));
+		}
+
+		final Call call = new Call(apiMethod, requestMethod, url, parameters, options, request, requestBytes);
+		if (isShared(apiMethod, requestMethod, options)) {
+			return executeSharedAsync(url, parameters, options, () -> sendAsync(call));
+		}
+		return sendAsync(call);
+	}
+
+	/**
+	 * Starts sending a request asynchronously, retrying it according to the configured {@link RetryPolicy}.
+	 * @param call The {@link Call} describing the request.
+	 * @return A {@link CompletableFuture} which completes with the server response.
+	 */
+	private CompletableFuture<MailFinchConnection.Response> sendAsync(Call call) {
+		RetryPolicy policy = getConfiguration().getRetryPolicy();
+		if (policy != null) {
+			policy.recordRequest();
+		}
+		return sendAsync(call, policy, 0, 0);
+	}
+
+	/**
+	 * Sends a request asynchronously, pacing it with the configured {@link RateLimiter} and retrying it
+	 * according to the given {@link RetryPolicy}. Waits are scheduled on a timer, so no thread is blocked.
+	 * Each attempt is built afresh when it is sent, so that its timeout never runs past the deadline.
+	 * Once the response to an attempt arrives, the attempt is reported to any flight recording as an
+	 * {@link HttpRequestEvent} and passed through the configured interceptors. As the request has already
+	 * been sent by then, headers that interceptors add to the {@link Exchange} are not sent with it.
+	 * @param call The {@link Call} describing the request.
+	 * @param policy The {@link RetryPolicy} to consult if the request fails, or null to never retry it.
+	 * @param retries The number of times the request has already been retried.
+	 * @param waited The number of milliseconds already spent waiting to retry the request.
+	 * @return A {@link CompletableFuture} which completes with the server response.
+	 */
+	private CompletableFuture<MailFinchConnection.Response> sendAsync(final Call call, final RetryPolicy policy,
+																	 final int retries, final long waited) {
+		final Deadline deadline = call.getDeadline();
+		if (deadline != null && deadline.isExpired()) {
+			return CompletableFuture.failedFuture(new MailFinchDeadlineException());
+		}
+		// The circuit breaker is asked first, so that requests are turned away at once while it is open.
+		final CircuitBreaker breaker = getConfiguration().getCircuitBreaker();
+		if (breaker != null) {
+			try {
+				breaker.acquirePermission();
+			} catch (MailFinchNotSentException e) {
+				return CompletableFuture.failedFuture(e);
+			}
+		}
+		RateLimiter limiter = getConfiguration().getRateLimiter();
+		long delay = 0;
+		if (limiter != null) {
+			// There is no point waiting for the rate limiter if the deadline will pass first,
+			// and a wait that does not fit is not reserved, so it does not hold back later requests.
+			delay = (deadline != null)
+					? limiter.tryReserve(call.endpoint, TimeUnit.MILLISECONDS.toNanos(deadline.getRemainingMillis()))
+					: limiter.reserve(call.endpoint);
+		}
+		if (delay < 0) {
+			if (breaker != null) {
+				breaker.abandon();
+			}
+			return CompletableFuture.failedFuture(new MailFinchDeadlineException());
+		}
+
+		final Exchange exchange = new Exchange(call.apiMethod, call.requestMethod, call.url, call.parameters, call.options, retries);
+		exchange.setRequestBytes(call.requestBytes);
+		final HttpRequestEvent event = new HttpRequestEvent();
+		CompletableFuture<HttpResponse<byte[]>> future;
+		if (delay > 0) {
+			future = CompletableFuture.runAsync(() -> { }, CompletableFuture.delayedExecutor(delay, TimeUnit.NANOSECONDS))
+					.thenCompose(ignored -> send(call, exchange, event));
+		} else {
+			future = send(call, exchange, event);
+		}
+
+		return future.handle((response, error) -> {
+			byte[] body = (response != null) ? response.body() : null;
+			if (response != null) {
+				exchange.responded(response.statusCode());
+			}
+			exchange.completed((body != null) ? body.length : -1);
+			event.end();
+			if (event.shouldCommit()) {
+				event.route = templateOf(call.url, call.requestMethod);
+				event.method = call.requestMethod;
+				event.statusCode = exchange.getStatusCode();
+				event.requestBytes = call.requestBytes;
+				event.responseBytes = (body != null) ? body.length : -1;
+				event.commit();
+			}
+			MailFinchConnection.Response result;
+			try {
+				result = intercept(exchange, new Interceptor.Chain() {
+
+					@Override
+					public Exchange getExchange() {
+						return exchange;
+					}
+
+					@Override
+					public MailFinchConnection.Response proceed() throws MailFinchException {
+						return toResponse(response, error, call.getProjection());
+					}
+
+				});
+			} catch (MailFinchException e) {
+				if (breaker != null) {
+					breaker.record(e, exchange.getSentTime());
+				}
+				long retryDelay = (policy != null) ? policy.getRetryDelay(call.endpoint, e, retries, waited) : -1;
+				if (retryDelay < 0 || (deadline != null && retryDelay >= deadline.getRemainingMillis())) {
+					return CompletableFuture.<MailFinchConnection.Response>failedFuture(e);
+				}
+				Executor delayed = CompletableFuture.delayedExecutor(retryDelay, TimeUnit.MILLISECONDS);
+				return CompletableFuture.runAsync(() -> { }, delayed)
+						.thenCompose(ignored -> sendAsync(call, policy, retries + 1, waited + retryDelay))
+						.whenComplete((retried, failure) -> {
+							if (failure != null) {
+								// This attempt may still have reached the server, so its failure must not be lost.
+								Throwable cause = (failure instanceof CompletionException && failure.getCause() != null)
+										? failure.getCause() : failure;
+								cause.addSuppressed(e);
+							}
+						});
+			} catch (RuntimeException e) {
+				if (breaker != null) {
+					breaker.abandon();
+				}
+				throw e;
+			}
+			if (breaker != null) {
+				breaker.record(null, exchange.getSentTime());
+			}
+			return CompletableFuture.completedFuture(result);
+		}).thenCompose(result -> result);
+	}
+
+	/**
+	 * Starts sending an attempt at a request, timing it in the given exchange and event.
+	 * @param call The {@link Call} describing the request.
+	 * @param exchange The {@link Exchange} describing the attempt.
+	 * @param event The {@link HttpRequestEvent} to time the attempt with.
+	 * @return A {@link CompletableFuture} which completes with the HTTP response.
+	 */
+	private CompletableFuture<HttpResponse<byte[]>> send(Call call, Exchange exchange, HttpRequestEvent event) {
+		HttpRequest attempt = buildAttempt(call.request, call.getDeadline());
+		exchange.started();
+		event.begin();
+		return client.sendAsync(attempt, BodyHandlers.ofByteArray());
+	}
+
+	/**
+	 * Builds an attempt at a request, with a timeout that is the read timeout limited to the time left before the deadline.
+	 * @param request The builder of the HTTP request, which is left unchanged.
+	 * @param deadline The {@link Deadline} by which the request must finish, or null if there is none.
+	 * @return The HTTP request to send.
+	 */
+	private HttpRequest buildAttempt(HttpRequest.Builder request, Deadline deadline) {
+		int timeout = getConfiguration().getReadTimeout();
+		if (deadline != null) {
+			timeout = deadline.limit(timeout);
+		}
+		HttpRequest.Builder attempt = request.copy();
+		if (timeout > 0) {
+			attempt.timeout(Duration.ofMillis(timeout));
+		}
+		return attempt.build();
+	}
+
+	/**
+	 * Creates the default {@link HttpClient}, which uses the connect timeout of the given configuration
+	 * and, like blocking requests, the default {@link ProxySelector}.
+	 * @param config The {@link Configuration} object to get settings from.
+	 * @return The new {@link HttpClient}.
+	 */
+	private static HttpClient newHttpClient(Configuration config) {
+		HttpClient.Builder builder = HttpClient.newBuilder();
+		ProxySelector proxy = ProxySelector.getDefault();
+		if (proxy != null) {
+			builder.proxy(proxy);
+		}
+		if (config.getConnectTimeout() > 0) {
+			builder.connectTimeout(Duration.ofMillis(config.getConnectTimeout()));
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Converts the outcome of an asynchronous HTTP exchange into a MailFinch response.
+	 * @param response The HTTP response received from the server, or null if the exchange failed.
+	 * @param error The error that caused the exchange to fail, or null if it succeeded.
+	 * @param projection The {@link JSONProjection} selecting the parts of the response to parse, or null to parse all of it.
+	 * @return The {@link MailFinchConnection.Response} representing the server response.
+	 * @throws MailFinchException If a networking error has occurred, or the server responded with an error.
+	 */
+	private MailFinchConnection.Response toResponse(HttpResponse<byte[]> response, Throwable error,
+													JSONProjection projection) throws MailFinchException {
+		if (error != null) {
+			Throwable cause = (error instanceof CompletionException && error.getCause() != null) ? error.getCause() : error;
+			throw new MailFinchException(Resources.IO_EXCEPTION, cause);
+		}
+		throwExceptionByCode(response.statusCode(),
+				RetryPolicy.parseRetryAfter(response.headers().firstValue("Retry-After").orElse(null)));
+		return new MailFinchConnection.Response(response.body(), projection);
+	}
+
+	/**
+	 * The parts of an asynchronous request that stay the same across each attempt at it.
+	 */
+	private static class Call {
+
+		/** The method executed on the API. */
+		private final String apiMethod;
+
+		/** The request method (GET, PUT, POST, or DELETE). */
+		private final String requestMethod;
+
+		/** The MailFinch URL of the request, without the query string. */
+		private final String url;
+
+		/** The parameters for the request. */
+		private final Map<String, Object> parameters;
+
+		/** The {@link RequestOptions} for the request, or null if the defaults are used. */
+		private final RequestOptions options;
+
+		/** The builder of the HTTP request to send, without a timeout. */
+		private final HttpRequest.Builder request;
+
+		/** The number of bytes in the request body. */
+		private final long requestBytes;
+
+		/** The {@link Endpoint} that the request is made to. */
+		private final Endpoint endpoint;
+
+		Call(String apiMethod, String requestMethod, String url, Map<String, Object> parameters,
+			 RequestOptions options, HttpRequest.Builder request, long requestBytes) {
+			this.apiMethod = apiMethod;
+			this.requestMethod = requestMethod;
+			this.url = url;
+			this.parameters = parameters;
+			this.options = options;
+			this.request = request;
+			this.requestBytes = requestBytes;
+			this.endpoint = Endpoint.of(apiMethod, requestMethod);
+		}
+
+		/**
+		 * Gets the deadline of the request.
+		 * @return The {@link Deadline} by which the request must finish, or null if there is none.
+		 */
+		Deadline getDeadline() {
+			return (options != null) ? options.getDeadline() : null;
+		}
+
+		/**
+		 * Gets the projection of the request.
+		 * @return The {@link JSONProjection} selecting the parts of the response to parse, or null to parse all of it.
+		 */
+		JSONProjection getProjection() {
+			return (options != null) ? options.getProjection() : null;
+		}
+
+	}
+
+}
@@ -0,0 +1,51 @@
+package com.mailfinch.api;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Defines the interface for classes that can communicate with the MailFinch API
+ * without blocking the calling thread while a request is in flight.
+ * The returned futures complete exceptionally with a {@link com.mailfinch.MailFinchException}
+ * (wrapped in a {@link java.util.concurrent.CompletionException}) if the request fails.
+ * @author Richard Taylor <contact@rtaylor.me.uk>
+ */
+public interface AsyncMailFinchConnection {
+
+	/**
+	 * Makes an asynchronous request to the specified MailFinch method.
+	 * @param apiMethod The method to execute on the API.
+	 * @param requestMethod The request method (GET, PUT, POST, or DELETE).
+	 * @return A {@link CompletableFuture} which completes with the {@link MailFinchConnection.Response}
+	 * representing the server response.
+	 */
+	public CompletableFuture<MailFinchConnection.Response> executeAsync(String apiMethod, String requestMethod);
+
+	/**
+	 * Makes an asynchronous request to the specified MailFinch method with the given parameters.
+	 * @param apiMethod The method to execute on the API.
+	 * @param requestMethod The request method (GET, PUT, POST, or DELETE).
+	 * @param parameters The parameters for the request.
+	 * If making a GET request, this must be a mapping of strings to strings,
+	 * containing the URL query data. Otherwise, this mapping should contain JSON data.
+	 * @return A {@link CompletableFuture} which completes with the {@link MailFinchConnection.Response}
+	 * representing the server response.
+	 */
+	public CompletableFuture<MailFinchConnection.Response> executeAsync(String apiMethod, String requestMethod, Map<String, Object> parameters);
+
+	/**
+	 * Makes an asynchronous request to the specified MailFinch method with the given parameters and request options.
+	 * By default the options are ignored, for connections that have no use for them.
+	 * @param apiMethod The method to execute on the API.
+	 * @param requestMethod The request method (GET, PUT, POST, or DELETE).
+	 * @param parameters The parameters for the request.
+	 * @param options The {@link RequestOptions} for the request, or null to use the defaults.
+	 * @return A {@link CompletableFuture} which completes with the {@link MailFinchConnection.Response}
+	 * representing the server response.
+	 */
+	public default CompletableFuture<MailFinchConnection.Response> executeAsync(String apiMethod, String requestMethod,
+																				Map<String, Object> parameters, RequestOptions options) {
+		return executeAsync(apiMethod, requestMethod, parameters);
+	}
+
+}
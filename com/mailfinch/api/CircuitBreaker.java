@@ -0,0 +1,393 @@
+package com.mailfinch.api;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import com.mailfinch.MailFinchException;
+import com.mailfinch.MailFinchHttpException;
+import com.mailfinch.MailFinchNotSentException;
+import com.mailfinch.Resources;
+
+/**
+ * Stops requests from being sent while the MailFinch server appears to be failing, so that
+ * callers fail fast instead of tying up threads and time on requests that are unlikely to succeed.
+ * A breaker is set on a {@link com.mailfinch.Configuration}, and covers the blocking and
+ * asynchronous requests made with it alike.
+ * <p>
+ * The breaker watches the outcome of recent attempts at requests. Each attempt is judged on its own
+ * and timed from when it is sent, so waiting for the {@link RateLimiter} or between retries does not
+ * make a request slow, and a request retried after a failure counts that failure straight away.
+ * When too many attempts fail, or take longer than the slow call threshold, the breaker opens and
+ * rejects requests immediately. After a while it lets a few probe attempts through; if they all
+ * succeed it closes again, and if any fails it opens for another spell. Only failures that suggest
+ * the server is unwell (I/O errors and transient HTTP errors) count against it; rejected requests
+ * such as a 404 do not.
+ * @author Richard Taylor <contact@rtaylor.me.uk>
+ */
+public class CircuitBreaker {
+
+	/** The default proportion of failed requests at which the breaker opens. */
+	public static final double DEFAULT_FAILURE_RATE_THRESHOLD = 0.5;
+
+	/** The default proportion of slow requests at which the breaker opens. */
+	public static final double DEFAULT_SLOW_CALL_RATE_THRESHOLD = 0.8;
+
+	/** The default number of milliseconds after which a request counts as slow. */
+	public static final long DEFAULT_SLOW_CALL_THRESHOLD = 5000;
+
+	/** The default number of recent attempts whose outcome is considered. */
+	public static final int DEFAULT_WINDOW_SIZE = 50;
+
+	/** The default number of requests that must be seen before the breaker can open. */
+	public static final int DEFAULT_MINIMUM_CALLS = 20;
+
+	/** The default number of milliseconds that the breaker stays open before probing. */
+	public static final long DEFAULT_OPEN_DURATION = 30000;
+
+	/** The default number of probe attempts that must succeed before the breaker closes. */
+	public static final int DEFAULT_HALF_OPEN_PROBES = 3;
+
+	/**
+	 * The states that a circuit breaker can be in.
+	 */
+	public enum State {
+
+		/** Requests are sent as normal, and their outcomes recorded. */
+		CLOSED,
+
+		/** Requests are rejected without being sent. */
+		OPEN,
+
+		/** A limited number of probe attempts are sent to test whether the server has recovered. */
+		HALF_OPEN
+
+	}
+
+	/**
+	 * Receives notification whenever a circuit breaker changes state.
+	 */
+	public interface Listener {
+
+		/**
+		 * Called after a circuit breaker has changed state.
+		 * @param breaker The {@link CircuitBreaker} that changed state.
+		 * @param from The previous {@link State}.
+		 * @param to The new {@link State}.
+		 */
+		void stateChanged(CircuitBreaker breaker, State from, State to);
+
+	}
+
+	/** The listeners notified of state changes. */
+	private final List<Listener> listeners = new CopyOnWriteArrayList<Listener>();
+
+	/** The proportion of failed requests at which the breaker opens. */
+	private double failureRateThreshold = DEFAULT_FAILURE_RATE_THRESHOLD;
+
+	/** The proportion of slow requests at which the breaker opens. */
+	private double slowCallRateThreshold = DEFAULT_SLOW_CALL_RATE_THRESHOLD;
+
+	/** The number of milliseconds after which a request counts as slow. */
+	private long slowCallThreshold = DEFAULT_SLOW_CALL_THRESHOLD;
+
+	/** The number of requests that must be seen before the breaker can open. */
+	private int minimumCalls = DEFAULT_MINIMUM_CALLS;
+
+	/** The number of milliseconds that the breaker stays open before probing. */
+	private long openDuration = DEFAULT_OPEN_DURATION;
+
+	/** The number of probe attempts that must succeed before the breaker closes. */
+	private int halfOpenProbes = DEFAULT_HALF_OPEN_PROBES;
+
+	/** The outcomes of recent attempts, as a ring of flags: 1 for failed and 2 for slow. */
+	private final byte[] window;
+
+	/** The position in the window at which the next outcome will be recorded. */
+	private int position;
+
+	/** The number of outcomes currently recorded in the window. */
+	private int calls;
+
+	/** The number of failed requests currently recorded in the window. */
+	private int failures;
+
+	/** The number of slow requests currently recorded in the window. */
+	private int slowCalls;
+
+	/** The current state of the breaker. */
+	private State state = State.CLOSED;
+
+	/** The time at which the breaker last opened. */
+	private long openedAt;
+
+	/** The number of probe attempts sent since the breaker became half open. */
+	private int probesSent;
+
+	/** The number of probe attempts that have succeeded since the breaker became half open. */
+	private int probesSucceeded;
+
+	/**
+	 * Initialises a new instance of the {@link CircuitBreaker} class with the default window size.
+	 */
+	public CircuitBreaker() {
+		this(DEFAULT_WINDOW_SIZE);
+	}
+
+	/**
+	 * Initialises a new instance of the {@link CircuitBreaker} class.
+	 * @param windowSize The number of recent attempts whose outcome is considered.
+	 */
+	public CircuitBreaker(int windowSize) {
+		if (windowSize < 1) {
+			throw new IllegalArgumentException(Resources.INVALID_CIRCUIT_BREAKER);
+		}
+		this.window = new byte[windowSize];
+	}
+
+	/**
+	 * Sets the proportion of failed requests at which the breaker opens.
+	 * @param threshold The failure rate, between 0 and 1.
+	 */
+	public synchronized void setFailureRateThreshold(double threshold) {
+		checkRate(threshold);
+		failureRateThreshold = threshold;
+	}
+
+	/**
+	 * Sets the proportion of slow requests at which the breaker opens.
+	 * @param threshold The slow call rate, between 0 and 1.
+	 */
+	public synchronized void setSlowCallRateThreshold(double threshold) {
+		checkRate(threshold);
+		slowCallRateThreshold = threshold;
+	}
+
+	/**
+	 * Sets the number of milliseconds after which a request counts as slow.
+	 * @param threshold The slow call threshold in milliseconds.
+	 */
+	public synchronized void setSlowCallThreshold(long threshold) {
+		if (threshold < 1) {
+			throw new IllegalArgumentException(Resources.INVALID_CIRCUIT_BREAKER);
+		}
+		slowCallThreshold = threshold;
+	}
+
+	/**
+	 * Sets the number of requests that must be seen before the breaker can open.
+	 * @param minimum The minimum number of requests, no more than the window size.
+	 */
+	public synchronized void setMinimumCalls(int minimum) {
+		if (minimum < 1 || minimum > window.length) {
+			throw new IllegalArgumentException(Resources.INVALID_CIRCUIT_BREAKER);
+		}
+		minimumCalls = minimum;
+	}
+
+	/**
+	 * Sets the number of milliseconds that the breaker stays open before probing.
+	 * @param duration The open duration in milliseconds.
+	 */
+	public synchronized void setOpenDuration(long duration) {
+		if (duration < 0) {
+			throw new IllegalArgumentException(Resources.INVALID_CIRCUIT_BREAKER);
+		}
+		openDuration = duration;
+	}
+
+	/**
+	 * Sets the number of probe attempts that must succeed before the breaker closes.
+	 * @param probes The number of probe attempts.
+	 */
+	public synchronized void setHalfOpenProbes(int probes) {
+		if (probes < 1) {
+			throw new IllegalArgumentException(Resources.INVALID_CIRCUIT_BREAKER);
+		}
+		halfOpenProbes = probes;
+	}
+
+	/**
+	 * Adds a listener to be notified whenever the breaker changes state.
+	 * Listeners are called on the thread whose request caused the change.
+	 * @param listener The {@link Listener} to add.
+	 */
+	public void addListener(Listener listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * Removes a listener added with {@link #addListener}.
+	 * @param listener The {@link Listener} to remove.
+	 */
+	public void removeListener(Listener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Gets the current state of the breaker.
+	 * @return The current {@link State}.
+	 */
+	public synchronized State getState() {
+		return state;
+	}
+
+	/**
+	 * Gets the proportion of recent attempts that failed.
+	 * @return The failure rate between 0 and 1, or 0 if no requests have been recorded.
+	 */
+	public synchronized double getFailureRate() {
+		return (calls == 0) ? 0 : (double) failures / calls;
+	}
+
+	/**
+	 * Gets the proportion of recent attempts that were slow.
+	 * @return The slow call rate between 0 and 1, or 0 if no requests have been recorded.
+	 */
+	public synchronized double getSlowCallRate() {
+		return (calls == 0) ? 0 : (double) slowCalls / calls;
+	}
+
+	/**
+	 * Determines whether or not an exception suggests that the server is unwell.
+	 * @param error The exception that a request failed with.
+	 * @return <c>true</c> if the exception counts against the breaker; otherwise, <c>false</c>.
+	 */
+	protected boolean isFailure(MailFinchException error) {
+		if (error instanceof MailFinchHttpException) {
+			return ((MailFinchHttpException) error).isTransient();
+		}
+		return (error.getCause() instanceof IOException);
+	}
+
+	/**
+	 * Checks whether an attempt at a request may be sent, moving from open to half open once the open duration has passed.
+	 * Every attempt allowed must be followed by a call to {@link #record} or {@link #abandon}.
+	 * @throws MailFinchNotSentException If the breaker is open, or all probe attempts are already in flight.
+	 */
+	void acquirePermission() throws MailFinchNotSentException {
+		boolean probing = false;
+		synchronized (this) {
+			if (state == State.OPEN) {
+				if (System.currentTimeMillis() - openedAt < openDuration) {
+					throw new MailFinchNotSentException(Resources.CIRCUIT_OPEN);
+				}
+				state = State.HALF_OPEN;
+				probesSent = 0;
+				probesSucceeded = 0;
+				probing = true;
+			}
+			if (state == State.HALF_OPEN) {
+				if (probesSent >= halfOpenProbes) {
+					throw new MailFinchNotSentException(Resources.CIRCUIT_OPEN);
+				}
+				probesSent++;
+			}
+		}
+		if (probing) {
+			fireStateChanged(State.OPEN, State.HALF_OPEN);
+		}
+	}
+
+	/**
+	 * Records the outcome of an attempt at a request, opening or closing the breaker if necessary.
+	 * @param error The exception that the attempt failed with, or null if it succeeded.
+	 * @param start The time at which the attempt was sent, from {@link System#nanoTime()}.
+	 */
+	void record(MailFinchException error, long start) {
+		boolean failed = (error != null && isFailure(error));
+		boolean slow = (System.nanoTime() - start) / 1000000 >= slowCallThreshold;
+		State from;
+		State to;
+		synchronized (this) {
+			from = state;
+			if (state == State.HALF_OPEN) {
+				if (failed || slow) {
+					open();
+				} else if (++probesSucceeded >= halfOpenProbes) {
+					state = State.CLOSED;
+					clearWindow();
+				}
+			} else if (state == State.CLOSED) {
+				addToWindow(failed, slow);
+				if (calls >= minimumCalls && ((double) failures / calls >= failureRateThreshold
+						|| (double) slowCalls / calls >= slowCallRateThreshold)) {
+					open();
+				}
+			}
+			to = state;
+		}
+		if (from != to) {
+			fireStateChanged(from, to);
+		}
+	}
+
+	/**
+	 * Gives back the permission taken by an attempt that ended without an outcome the breaker can judge,
+	 * such as a bug in an interceptor. It counts neither for nor against the server.
+	 */
+	synchronized void abandon() {
+		if (state == State.HALF_OPEN && probesSent > 0) {
+			probesSent--;
+		}
+	}
+
+	/**
+	 * Opens the breaker from the current time. Must be called while holding the lock.
+	 */
+	private void open() {
+		state = State.OPEN;
+		openedAt = System.currentTimeMillis();
+		clearWindow();
+	}
+
+	/**
+	 * Records an outcome in the window, replacing the oldest once it is full. Must be called while holding the lock.
+	 * @param failed Whether or not the request failed.
+	 * @param slow Whether or not the request was slow.
+	 */
+	private void addToWindow(boolean failed, boolean slow) {
+		if (calls == window.length) {
+			byte oldest = window[position];
+			failures -= (oldest & 1);
+			slowCalls -= (oldest >> 1);
+		} else {
+			calls++;
+		}
+		window[position] = (byte) ((failed ? 1 : 0) | (slow ? 2 : 0));
+		failures += failed ? 1 : 0;
+		slowCalls += slow ? 1 : 0;
+		position = (position + 1) % window.length;
+	}
+
+	/**
+	 * Forgets all recorded outcomes. Must be called while holding the lock.
+	 */
+	private void clearWindow() {
+		position = 0;
+		calls = 0;
+		failures = 0;
+		slowCalls = 0;
+	}
+
+	/**
+	 * Notifies the listeners of a change of state.
+	 * @param from The previous {@link State}.
+	 * @param to The new {@link State}.
+	 */
+	private void fireStateChanged(State from, State to) {
+		for (Listener listener : listeners) {
+			listener.stateChanged(this, from, to);
+		}
+	}
+
+	/**
+	 * Checks that a rate threshold lies between 0 and 1.
+	 * @param rate The rate to check.
+	 */
+	private static void checkRate(double rate) {
+		if (!(rate > 0 && rate <= 1)) {
+			throw new IllegalArgumentException(Resources.INVALID_CIRCUIT_BREAKER);
+		}
+	}
+
+}
@@ -0,0 +1,81 @@
+package com.mailfinch.api;
+
+import java.util.concurrent.TimeUnit;
+import com.mailfinch.MailFinchDeadlineException;
+
+/**
+ * A point in time by which an operation must finish, shared by every request, retry and wait
+ * that the operation involves. Passing the same deadline to a sequence of calls, such as
+ * {@link com.mailfinch.Letter#save(Deadline)} followed by {@link com.mailfinch.Letter#purchase(Deadline)},
+ * holds the whole sequence to a single latency budget.
+ * @author Richard Taylor <contact@rtaylor.me.uk>
+ */
+public final class Deadline {
+
+	/** The time at which this deadline passes, from {@link System#nanoTime()}. */
+	private final long expiry;
+
+	/**
+	 * Initialises a new instance of the {@link Deadline} class.
+	 * @param expiry The time at which this deadline passes, from {@link System#nanoTime()}.
+	 */
+	private Deadline(long expiry) {
+		this.expiry = expiry;
+	}
+
+	/**
+	 * Creates a deadline that passes after the given amount of time from now.
+	 * @param timeout The amount of time allowed.
+	 * @param unit The unit of the amount of time.
+	 * @return The new {@link Deadline}.
+	 */
+	public static Deadline after(long timeout, TimeUnit unit) {
+		return new Deadline(System.nanoTime() + unit.toNanos(timeout));
+	}
+
+	/**
+	 * Creates a deadline that passes after the given number of milliseconds from now.
+	 * @param timeout The number of milliseconds allowed.
+	 * @return The new {@link Deadline}.
+	 */
+	public static Deadline afterMillis(long timeout) {
+		return after(timeout, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Gets the amount of time left before this deadline passes.
+	 * @return The number of milliseconds remaining, which is zero or negative once the deadline has passed.
+	 */
+	public long getRemainingMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(expiry - System.nanoTime());
+	}
+
+	/**
+	 * Determines whether or not this deadline has passed.
+	 * @return <c>true</c> if this deadline has passed; otherwise, <c>false</c>.
+	 */
+	public boolean isExpired() {
+		return (expiry - System.nanoTime() <= 0);
+	}
+
+	/**
+	 * Throws an exception if this deadline has passed.
+	 * @throws MailFinchDeadlineException If this deadline has passed.
+	 */
+	public void check() throws MailFinchDeadlineException {
+		if (isExpired()) {
+			throw new MailFinchDeadlineException();
+		}
+	}
+
+	/**
+	 * Limits a timeout so that it does not run past this deadline.
+	 * @param timeout The timeout in milliseconds, or zero for no timeout.
+	 * @return The smaller of the timeout and the time remaining, which is at least one millisecond.
+	 */
+	public int limit(int timeout) {
+		long remaining = Math.max(1, getRemainingMillis());
+		return (int) ((timeout == 0) ? Math.min(remaining, Integer.MAX_VALUE) : Math.min(remaining, timeout));
+	}
+
+}
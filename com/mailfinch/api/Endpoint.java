@@ -0,0 +1,40 @@
+package com.mailfinch.api;
+
+/**
+ * The classes of MailFinch API endpoint, which the server limits separately
+ * and which a {@link RateLimiter} can therefore pace separately.
+ * @author Richard Taylor <contact@rtaylor.me.uk>
+ */
+public enum Endpoint {
+
+	/** Requests that read letters without changing them. */
+	READ,
+
+	/** Requests that create new letters. */
+	CREATE,
+
+	/** Requests that update or delete existing letters. */
+	UPDATE,
+
+	/** Requests that purchase letters. */
+	PURCHASE;
+
+	/**
+	 * Determines the class of endpoint that a request is made to.
+	 * @param apiMethod The method to execute on the API.
+	 * @param requestMethod The request method (GET, PUT, POST, or DELETE).
+	 * @return The {@link Endpoint} that the request is made to.
+	 */
+	public static Endpoint of(String apiMethod, String requestMethod) {
+		if (apiMethod.endsWith("/purchase")) {
+			return PURCHASE;
+		} else if ("GET".equals(requestMethod)) {
+			return READ;
+		} else if ("POST".equals(requestMethod)) {
+			return CREATE;
+		} else {
+			return UPDATE;
+		}
+	}
+
+}
@@ -0,0 +1,220 @@
+package com.mailfinch.api;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A single attempt at a request to the MailFinch server, as seen by an {@link Interceptor}.
+ * The request details are known from the start; the response code, byte counts and timings
+ * are filled in as the request is sent and its response read.
+ * @author Richard Taylor <contact@rtaylor.me.uk>
+ */
+public class Exchange {
+
+	/** The method executed on the API. */
+	private final String apiMethod;
+
+	/** The request method (GET, PUT, POST, or DELETE). */
+	private final String requestMethod;
+
+	/** The full URL requested, without the query string. */
+	private final String url;
+
+	/** The parameters of the request. */
+	private final Map<String, Object> parameters;
+
+	/** The {@link RequestOptions} of the request, or null if there are none. */
+	private final RequestOptions options;
+
+	/** The number of earlier attempts at the same request. */
+	private final int attempt;
+
+	/** The extra HTTP headers to send with the request. */
+	private final Map<String, String> headers = new LinkedHashMap<String, String>();
+
+	/** The HTTP status code of the response, or -1 if none has been received. */
+	private int statusCode = -1;
+
+	/** The number of bytes in the request body, or -1 if not known. */
+	private long requestBytes = -1;
+
+	/** The number of bytes in the response body, or -1 if not known. */
+	private long responseBytes = -1;
+
+	/** The time at which the request was sent, from {@link System#nanoTime()}, or 0 if it has not been. */
+	private long sentAt;
+
+	/** The time at which the head of the response arrived, from {@link System#nanoTime()}, or 0 if it has not. */
+	private long respondedAt;
+
+	/** The time at which the body of the response had been read, from {@link System#nanoTime()}, or 0 if it has not. */
+	private long completedAt;
+
+	/**
+	 * Initialises a new instance of the {@link Exchange} class.
+	 * @param apiMethod The method executed on the API.
+	 * @param requestMethod The request method (GET, PUT, POST, or DELETE).
+	 * @param url The full URL requested, without the query string.
+	 * @param parameters The parameters of the request.
+	 * @param options The {@link RequestOptions} of the request, or null if there are none.
+	 * @param attempt The number of earlier attempts at the same request.
+	 */
+	public Exchange(String apiMethod, String requestMethod, String url, Map<String, Object> parameters,
+					RequestOptions options, int attempt) {
+		this.apiMethod = apiMethod;
+		this.requestMethod = requestMethod;
+		this.url = url;
+		this.parameters = parameters;
+		this.options = options;
+		this.attempt = attempt;
+	}
+
+	/**
+	 * Gets the method executed on the API, such as "letters/123".
+	 * @return The method executed on the API.
+	 */
+	public String getAPIMethod() {
+		return apiMethod;
+	}
+
+	/**
+	 * Gets the request method.
+	 * @return The request method (GET, PUT, POST, or DELETE).
+	 */
+	public String getRequestMethod() {
+		return requestMethod;
+	}
+
+	/**
+	 * Gets the class of endpoint that the request is made to.
+	 * @return The {@link Endpoint} of the request.
+	 */
+	public Endpoint getEndpoint() {
+		return Endpoint.of(apiMethod, requestMethod);
+	}
+
+	/**
+	 * Gets the full URL requested, without the query string.
+	 * @return The URL requested.
+	 */
+	public String getURL() {
+		return url;
+	}
+
+	/**
+	 * Gets the parameters of the request. These include the API key, so take care when logging them.
+	 * @return An unmodifiable view of the parameters.
+	 */
+	public Map<String, Object> getParameters() {
+		return Collections.unmodifiableMap(parameters);
+	}
+
+	/**
+	 * Gets the options of the request.
+	 * @return The {@link RequestOptions}, or null if there are none.
+	 */
+	public RequestOptions getOptions() {
+		return options;
+	}
+
+	/**
+	 * Gets the number of earlier attempts at the same request.
+	 * @return Zero for the first attempt, one for the first retry, and so on.
+	 */
+	public int getAttempt() {
+		return attempt;
+	}
+
+	/**
+	 * Gets the extra HTTP headers to send with the request. Interceptors may add to these,
+	 * for example to tag the request with a trace ID, before proceeding.
+	 * @return The modifiable map of extra headers.
+	 */
+	public Map<String, String> getHeaders() {
+		return headers;
+	}
+
+	/**
+	 * Gets the HTTP status code of the response.
+	 * @return The status code, or -1 if no response has been received.
+	 */
+	public int getStatusCode() {
+		return statusCode;
+	}
+
+	/**
+	 * Gets the number of bytes in the request body.
+	 * @return The number of bytes sent, or -1 if not known.
+	 */
+	public long getRequestBytes() {
+		return requestBytes;
+	}
+
+	/**
+	 * Gets the number of bytes in the response body.
+	 * @return The number of bytes received, or -1 if not known.
+	 */
+	public long getResponseBytes() {
+		return responseBytes;
+	}
+
+	/**
+	 * Gets the time taken for the head of the response to arrive after the request was sent.
+	 * This includes the time spent waiting for a pooled connection.
+	 * @return The time to first byte in nanoseconds, or -1 if no response has been received.
+	 */
+	public long getTimeToFirstByte() {
+		return (sentAt != 0 && respondedAt != 0) ? respondedAt - sentAt : -1;
+	}
+
+	/**
+	 * Gets the total time taken to send the request and read the whole response.
+	 * @return The duration in nanoseconds, or -1 if the exchange has not completed.
+	 */
+	public long getDuration() {
+		return (sentAt != 0 && completedAt != 0) ? completedAt - sentAt : -1;
+	}
+
+	/**
+	 * Gets the time at which the request was sent.
+	 * @return The time from {@link System#nanoTime()}, or 0 if the request has not been sent.
+	 */
+	long getSentTime() {
+		return sentAt;
+	}
+
+	/**
+	 * Records that the request is about to be sent.
+	 */
+	void started() {
+		this.sentAt = System.nanoTime();
+	}
+
+	/**
+	 * Records the size of the request body.
+	 * @param requestBytes The number of bytes in the request body.
+	 */
+	void setRequestBytes(long requestBytes) {
+		this.requestBytes = requestBytes;
+	}
+
+	/**
+	 * Records that the head of the response has arrived.
+	 * @param statusCode The HTTP status code of the response.
+	 */
+	void responded(int statusCode) {
+		this.statusCode = statusCode;
+		this.respondedAt = System.nanoTime();
+	}
+
+	/**
+	 * Records that the body of the response has been read, or that the exchange has failed.
+	 * @param responseBytes The number of bytes in the response body, or -1 if not known.
+	 */
+	void completed(long responseBytes) {
+		this.responseBytes = responseBytes;
+		this.completedAt = System.nanoTime();
+	}
+
+}
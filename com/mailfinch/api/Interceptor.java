@@ -0,0 +1,50 @@
+package com.mailfinch.api;
+
+import com.mailfinch.MailFinchException;
+
+/**
+ * Observes, and may tag or short-circuit, each request made to the MailFinch server.
+ * Interceptors registered with {@link com.mailfinch.Configuration#addInterceptor} form an ordered chain
+ * around every attempt at a request, including each retry: the first interceptor added is the outermost.
+ * An interceptor normally does its work, calls {@link Chain#proceed()} to pass the request on,
+ * and then inspects the {@link Exchange}, whose response code, byte counts and timings are
+ * filled in by the time the call returns.
+ * Asynchronous requests pass through the chain once their response has arrived, so headers
+ * added to their {@link Exchange} are not sent.
+ * For streamed requests, {@link Chain#proceed()} returns once the head of the response has arrived,
+ * with a response that has no object, because the body is left for the caller to read.
+ * Their response size and duration are filled in when the caller closes the stream.
+ * @author Richard Taylor <contact@rtaylor.me.uk>
+ */
+public interface Interceptor {
+
+	/**
+	 * Intercepts an attempt at a request.
+	 * @param chain The {@link Chain} to pass the request on with.
+	 * @return The {@link MailFinchConnection.Response} to return to the caller,
+	 * usually the one returned by {@link Chain#proceed()}.
+	 * @throws MailFinchException If the request failed.
+	 */
+	MailFinchConnection.Response intercept(Chain chain) throws MailFinchException;
+
+	/**
+	 * The rest of the interceptor chain, ending with the request being sent to the server.
+	 */
+	interface Chain {
+
+		/**
+		 * Gets the exchange being intercepted.
+		 * @return The {@link Exchange} describing the request and, once it has been sent, its response.
+		 */
+		Exchange getExchange();
+
+		/**
+		 * Passes the request on to the next interceptor, or to the server if this is the last.
+		 * @return The {@link MailFinchConnection.Response} received from the server.
+		 * @throws MailFinchException If the request failed.
+		 */
+		MailFinchConnection.Response proceed() throws MailFinchException;
+
+	}
+
+}
@@ -1,25 +1,42 @@
 package com.mailfinch.api;
 
-import java.io.BufferedReader;
-import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import javax.net.ssl.HttpsURLConnection;
-import org.json.JSONObject;
 import com.mailfinch.Configuration;
 import com.mailfinch.MailFinchException;
+import com.mailfinch.MailFinchHttpException;
+import com.mailfinch.MailFinchNotSentException;
 import com.mailfinch.Resources;
+import com.mailfinch.http.ConnectionPool;
+import com.mailfinch.http.RawResponse;
+import com.mailfinch.http.RequestBody;
+import com.mailfinch.metrics.HttpRequestEvent;
+import com.mailfinch.metrics.Route;
 import com.mailfinch.util.QueryStringBuilder;
 
 /**
- * Performs requests to the MailFinch server using an
- * {@link HttpsURLConnection} object and JSON queries.
+ * Performs requests to the MailFinch server using persistent
+ * connections from a {@link ConnectionPool} and JSON queries.
  * @author Richard Taylor <contact@rtaylor.me.uk>
  */
 public class JSONConnection extends AbstractMailFinchConnection {
+	
+	/** The HTTP headers sent with every request. */
+	private static final Map<String, String> REQUEST_HEADERS;
+	
+	static {
+		Map<String, String> headers = new LinkedHashMap<String, String>();
+		headers.put("Content-Type", "application/json");
+		headers.put("Accept", "application/json");
+		REQUEST_HEADERS = Collections.unmodifiableMap(headers);
+	}
 
 	/**
 	 * Initialises a new instance of the {@link JSONConnection} class.
@@ -34,89 +51,272 @@ public class JSONConnection extends AbstractMailFinchConnection {
 	 * @param code The HTTP response code from the server.
 	 * @throws MailFinchException If certain HTTP error codes have been detected.
 	 */
-	private void throwExceptionByCode(int code) throws MailFinchException {
+	protected void throwExceptionByCode(int code) throws MailFinchException {
+		throwExceptionByCode(code, -1);
+	}
+	
+	/**
+	 * Checks for HTTP error codes and throws exceptions if necessary.
+	 * @param code The HTTP response code from the server.
+	 * @param retryAfter The number of milliseconds the server asked us to wait before retrying, or -1 if it did not say.
+	 * @throws MailFinchHttpException If certain HTTP error codes have been detected.
+	 */
+	protected void throwExceptionByCode(int code, long retryAfter) throws MailFinchHttpException {
 		switch (code) {
 			case 400:
-				throw new MailFinchException(Resources.ERROR_400);
+				throw new MailFinchHttpException(Resources.ERROR_400, code);
 			case 401:
-				throw new MailFinchException(Resources.ERROR_401);
+				throw new MailFinchHttpException(Resources.ERROR_401, code);
 			case 403:
-				throw new MailFinchException(Resources.ERROR_403);
+				throw new MailFinchHttpException(Resources.ERROR_403, code);
 			case 404:
-				throw new MailFinchException(Resources.ERROR_404);
+				throw new MailFinchHttpException(Resources.ERROR_404, code);
 			case 422:
-				throw new MailFinchException(Resources.ERROR_422);
+				throw new MailFinchHttpException(Resources.ERROR_422, code);
+			case 429:
+				throw new MailFinchHttpException(Resources.ERROR_429, code, retryAfter);
 			case 500:
-				throw new MailFinchException(Resources.ERROR_500);
+				throw new MailFinchHttpException(Resources.ERROR_500, code);
 			case 502:
-				throw new MailFinchException(Resources.ERROR_502);
+				throw new MailFinchHttpException(Resources.ERROR_502, code);
 			case 503:
-				throw new MailFinchException(Resources.ERROR_503);
+				throw new MailFinchHttpException(Resources.ERROR_503, code, retryAfter);
+			case 504:
+				throw new MailFinchHttpException(Resources.ERROR_504, code);
 		}
 	}
 
 	@Override
 	protected String getContents(String url, String requestMethod, Map<String, Object> parameters) throws MailFinchException {
+		return new String(getContentBytes(url, requestMethod, parameters), StandardCharsets.UTF_8);
+	}
+
+	@Override
+	protected byte[] getContentBytes(String url, String requestMethod, Map<String, Object> parameters) throws MailFinchException {
+		return getContentBytes(url, requestMethod, parameters, null);
+	}
+
+	@Override
+	protected byte[] getContentBytes(String url, String requestMethod, Map<String, Object> parameters, RequestOptions options) throws MailFinchException {
+		return fetch(url, requestMethod, parameters, options, null);
+	}
+
+	@Override
+	protected byte[] getContentBytes(Exchange exchange) throws MailFinchException {
+		return fetch(exchange.getURL(), exchange.getRequestMethod(), exchange.getParameters(), exchange.getOptions(), exchange);
+	}
+
+	/**
+	 * Sends a request to the MailFinch server and reads the whole response,
+	 * reporting it to any flight recording as an {@link HttpRequestEvent}.
+	 * @param url The MailFinch URL to get the contents of.
+	 * @param requestMethod The request method (GET, PUT, POST, or DELETE).
+	 * @param parameters The parameters for the request.
+	 * @param options The {@link RequestOptions} for the request, or null to use the defaults.
+	 * @param exchange The {@link Exchange} to send extra headers from and report progress to, or null if there is none.
+	 * @return The body of the response as UTF-8 encoded JSON data.
+	 * @throws MailFinchException If a networking error has occurred, or the server responded with an error code.
+	 */
+	private byte[] fetch(String url, String requestMethod, Map<String, Object> parameters, RequestOptions options,
+						 Exchange exchange) throws MailFinchException {
+		HttpRequestEvent event = new HttpRequestEvent();
+		event.begin();
+		byte[] body = null;
+		try {
+			body = readBody(send(url, requestMethod, parameters, options, exchange, event));
+			return body;
+		} finally {
+			commit(event, url, requestMethod, (body != null) ? body.length : -1);
+		}
+	}
+
+	/**
+	 * Reads the whole body of a response.
+	 * @param response The {@link RawResponse} whose body is to be read.
+	 * @return The body of the response as UTF-8 encoded JSON data.
+	 * @throws MailFinchException If a networking error has occurred.
+	 */
+	private static byte[] readBody(RawResponse response) throws MailFinchException {
+		InputStream body = response.getBody();
+		try {
+			// Read the server response. Reaching the end of the body returns the connection to the pool.
+			try {
+				return readFully(body, response.getContentLength());
+			} finally {
+				body.close();
+			}
+		} catch (IOException e) {
+			throw new MailFinchException(Resources.IO_EXCEPTION, e);
+		}
+	}
+
+	@Override
+	protected InputStream openContents(String url, String requestMethod, Map<String, Object> parameters) throws MailFinchException {
+		return send(url, requestMethod, parameters, null, null, null).getBody();
+	}
+
+	/**
+	 * Opens a stream over the response to the request described by an {@link Exchange},
+	 * reporting it to any flight recording as an {@link HttpRequestEvent} once the stream is closed.
+	 * @param exchange The {@link Exchange} to send extra headers from and report progress to.
+	 * @return A stream of UTF-8 encoded JSON data, which must be closed by the caller.
+	 * @throws MailFinchException If a networking error has occurred, or the server responded with an error code.
+	 */
+	@Override
+	protected InputStream openContents(Exchange exchange) throws MailFinchException {
+		final String url = exchange.getURL();
+		final String requestMethod = exchange.getRequestMethod();
+		final HttpRequestEvent event = new HttpRequestEvent();
+		event.begin();
+		RawResponse response;
+		try {
+			response = send(url, requestMethod, exchange.getParameters(), exchange.getOptions(), exchange, event);
+		} catch (MailFinchException e) {
+			commit(event, url, requestMethod, -1);
+			throw e;
+		}
+		return new ResponseStream(response.getBody(), bytes -> commit(event, url, requestMethod, bytes));
+	}
+
+	/**
+	 * Reports a request to any flight recording.
+	 * @param event The {@link HttpRequestEvent} that was begun when the request was sent.
+	 * @param url The MailFinch URL of the request, without the query string.
+	 * @param requestMethod The request method (GET, PUT, POST, or DELETE).
+	 * @param responseBytes The number of bytes in the response body, or -1 if it was not read.
+	 */
+	private static void commit(HttpRequestEvent event, String url, String requestMethod, long responseBytes) {
+		if (event.shouldCommit()) {
+			event.route = templateOf(url, requestMethod);
+			event.method = requestMethod;
+			event.responseBytes = responseBytes;
+			event.commit();
+		}
+	}
+
+	/**
+	 * Sends a request to the MailFinch server and reads the head of the response.
+	 * @param url The MailFinch URL to get the contents of.
+	 * @param requestMethod The request method (GET, PUT, POST, or DELETE).
+	 * @param parameters The parameters for the request.
+	 * @param options The {@link RequestOptions} for the request, or null to use the defaults.
+	 * @param exchange The {@link Exchange} to send extra headers from and report progress to, or null if there is none.
+	 * @param event The {@link HttpRequestEvent} to report the status and request size to, or null if there is none.
+	 * @return The {@link RawResponse} received from the server, whose body must be read or closed.
+	 * @throws MailFinchException If a networking error has occurred, or the server responded with an error code.
+	 */
+	private RawResponse send(String url, String requestMethod, Map<String, Object> parameters, RequestOptions options,
+							 Exchange exchange, HttpRequestEvent event) throws MailFinchException {
 		// Set up some variables.
-		String query = null;
-		HttpsURLConnection con = null;
+		RequestBody query = null;
+		Map<String, String> headers = REQUEST_HEADERS;
+		
+		// Identify the operation, so that the server can recognise a repeated attempt at it.
+		if (options != null && options.getIdempotencyKey() != null) {
+			headers = new LinkedHashMap<String, String>(REQUEST_HEADERS);
+			headers.put(RequestOptions.IDEMPOTENCY_KEY_HEADER, options.getIdempotencyKey());
+		}
+		
+		// Add any headers that interceptors have tagged the request with.
+		if (exchange != null && !exchange.getHeaders().isEmpty()) {
+			headers = new LinkedHashMap<String, String>(headers);
+			headers.putAll(exchange.getHeaders());
+		}
+		
+		// Purchasing a letter is requested with GET, but must never be sent twice by the pool.
+		boolean replayable = ConnectionPool.isIdempotent(requestMethod)
+				&& !Route.PURCHASE_LETTER.getTemplate().equals(templateOf(url, requestMethod));
 		
-		// Build the query string or JSON data.
+		// Build the query string, or prepare the JSON data to be streamed onto the connection.
 		if (requestMethod == "GET") {
 			url += QueryStringBuilder.build(parameters);
 		} else {
-			query = new JSONObject(parameters).toString();
+			query = new JSONRequestBody(parameters);
 		}
 		
 		try {
-			// Create a new HTTP connection to the MailFinch server.
-			con = (HttpsURLConnection)(new URL(url).openConnection());
-			con.setRequestMethod(requestMethod);
-			con.setRequestProperty("Content-Type", "application/json");
-			
-			// Add POST fields if necessary. 
-			if (requestMethod != "GET") {
-				con.setDoOutput(true);
-				con.setRequestProperty("Content-Length", Integer.toString(query.getBytes().length));
-				DataOutputStream stream = new DataOutputStream(con.getOutputStream());
-				stream.writeBytes(query);
-				stream.flush();
-				stream.close();
+			// Send the request to the MailFinch server over a pooled keep-alive connection.
+			ConnectionPool pool = getConfiguration().getConnectionPool();
+			int connectTimeout = getConfiguration().getConnectTimeout();
+			int readTimeout = getConfiguration().getReadTimeout();
+			Deadline deadline = (options != null) ? options.getDeadline() : null;
+			if (deadline != null) {
+				deadline.check();
+				connectTimeout = deadline.limit(connectTimeout);
+				readTimeout = deadline.limit(readTimeout);
 			}
-			
-			// Connect to the server.
-			con.connect();
-			
-			// Read the server response.
-			BufferedReader rd = new BufferedReader(new InputStreamReader(con.getInputStream()));
-			String line;
-			StringBuilder builder = new StringBuilder();
-			while ((line = rd.readLine()) != null) {
-				builder.append(line);
-				builder.append(System.getProperty("line.separator"));
+			long requestBytes = (query != null) ? query.getContentLength() : 0;
+			if (exchange != null) {
+				exchange.setRequestBytes(requestBytes);
+			}
+			if (event != null) {
+				event.requestBytes = requestBytes;
+			}
+			RawResponse response = pool.send(requestMethod, new URL(url), headers, query, connectTimeout, readTimeout, replayable);
+			if (exchange != null) {
+				exchange.responded(response.getStatusCode());
+			}
+			if (event != null) {
+				event.statusCode = response.getStatusCode();
 			}
-			rd.close();
-			String response = builder.toString();
-			
-			// Check for error codes from the server.
-			throwExceptionByCode(con.getResponseCode());
 			
-			// Disconnect from the server and return the received JSON data.
-			con.disconnect();
+			// Check for error codes from the server before handing over the body.
+			try {
+				throwExceptionByCode(response.getStatusCode(), RetryPolicy.parseRetryAfter(response.getHeader("Retry-After")));
+			} catch (MailFinchException e) {
+				response.getBody().close();
+				throw e;
+			}
 			return response;
 			
 		} catch (MalformedURLException e) {
-			throw new MailFinchException(Resources.MALFORMED_URL, e);
+			throw new MailFinchNotSentException(Resources.MALFORMED_URL, e);
 			
 		} catch (IOException e) {
 			throw new MailFinchException(Resources.IO_EXCEPTION, e);
-			
-		} finally {
-			if (con != null) {
-				con.disconnect();
+		}
+	}
+
+	/**
+	 * Finds the URL template of a request, for reporting it without its letter ID.
+	 * @param url The MailFinch URL of the request, without the query string.
+	 * @param requestMethod The request method (GET, PUT, POST, or DELETE).
+	 * @return The URL template of the request, such as "letters/{id}".
+	 */
+	static String templateOf(String url, String requestMethod) {
+		int start = url.indexOf("/letters");
+		if (start < 0) {
+			return Route.OTHER.getTemplate();
+		}
+		int end = url.endsWith(".json") ? url.length() - 5 : url.length();
+		return Route.of(url.substring(start + 1, end), requestMethod).getTemplate();
+	}
+
+	/**
+	 * Reads a response body into a byte array. When the server declares the length
+	 * of the body, the array is allocated once at exactly that size.
+	 * @param in The stream containing the response body.
+	 * @param length The declared length of the body, or -1 if it is not known.
+	 * @return The bytes of the response body.
+	 * @throws IOException If the body could not be read in full.
+	 */
+	private static byte[] readFully(InputStream in, long length) throws IOException {
+		if (length < 0) {
+			return in.readAllBytes();
+		}
+		if (length > Integer.MAX_VALUE) {
+			throw new IOException(Resources.RESPONSE_TOO_LARGE);
+		}
+		byte[] bytes = new byte[(int) length];
+		int offset = 0;
+		while (offset < bytes.length) {
+			int count = in.read(bytes, offset, bytes.length - offset);
+			if (count == -1) {
+				throw new EOFException(Resources.RESPONSE_TRUNCATED);
 			}
+			offset += count;
 		}
-		
+		return bytes;
 	}
 
 }
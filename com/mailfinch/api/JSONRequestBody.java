@@ -0,0 +1,299 @@
+package com.mailfinch.api;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Array;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Map.Entry;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import com.mailfinch.Resources;
+import com.mailfinch.http.RequestBody;
+import com.mailfinch.util.BufferPool;
+
+/**
+ * A request body that encodes request parameters, such as the structure returned by
+ * {@link com.mailfinch.Letter#getData()}, as UTF-8 JSON straight onto the connection.
+ * No intermediate {@link JSONObject} or {@link String} is built: the exact length
+ * is found by walking the parameters once without writing anything, and they are then
+ * encoded through a pooled buffer.
+ * @author Richard Taylor <contact@rtaylor.me.uk>
+ */
+public class JSONRequestBody implements RequestBody {
+
+	/** The hexadecimal digits, for writing escaped characters. */
+	private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes();
+
+	/** The parameters to encode. */
+	private final Map<String, Object> parameters;
+
+	/** The length of the encoded parameters in bytes, or -1 if it has not been measured yet. */
+	private long length = -1;
+
+	/**
+	 * Initialises a new instance of the {@link JSONRequestBody} class.
+	 * @param parameters The parameters to encode. Values may be strings, numbers, booleans,
+	 * null, or further maps, collections and arrays of these.
+	 */
+	public JSONRequestBody(Map<String, Object> parameters) {
+		this.parameters = parameters;
+	}
+
+	@Override
+	public long getContentLength() {
+		if (length < 0) {
+			try {
+				Encoder counter = new Encoder(null, null);
+				counter.value(parameters);
+				length = counter.count;
+			} catch (IOException e) {
+				// Nothing is written while measuring, so this cannot happen.
+				throw new IllegalStateException(e);
+			}
+		}
+		return length;
+	}
+
+	@Override
+	public void writeTo(OutputStream out) throws IOException {
+		byte[] buffer = BufferPool.acquire();
+		try {
+			Encoder encoder = new Encoder(out, buffer);
+			encoder.value(parameters);
+			encoder.flush();
+		} finally {
+			BufferPool.release(buffer);
+		}
+	}
+
+	/**
+	 * Encodes the parameters into a byte array of exactly the right size.
+	 * @return The UTF-8 encoded JSON data.
+	 */
+	public byte[] toByteArray() {
+		final byte[] bytes = new byte[(int) getContentLength()];
+		try {
+			writeTo(new OutputStream() {
+				private int position;
+
+				@Override
+				public void write(int b) {
+					bytes[position++] = (byte) b;
+				}
+
+				@Override
+				public void write(byte[] source, int offset, int count) {
+					System.arraycopy(source, offset, bytes, position, count);
+					position += count;
+				}
+			});
+		} catch (IOException e) {
+			// Writing to an array cannot fail.
+			throw new IllegalStateException(e);
+		}
+		return bytes;
+	}
+
+	/**
+	 * Walks a structure of parameters, either counting the bytes
+	 * of its UTF-8 JSON encoding or writing them to a stream.
+	 */
+	private static class Encoder {
+
+		/** The stream to write to, or null if only counting. */
+		private final OutputStream out;
+
+		/** The buffer that bytes are gathered in before being written. */
+		private final byte[] buffer;
+
+		/** The number of bytes currently in the buffer. */
+		private int position;
+
+		/** The total number of bytes encoded so far. */
+		long count;
+
+		Encoder(OutputStream out, byte[] buffer) {
+			this.out = out;
+			this.buffer = buffer;
+		}
+
+		@SuppressWarnings("unchecked")
+		void value(Object value) throws IOException {
+			if (value == null || JSONObject.NULL.equals(value)) {
+				ascii("null");
+			} else if (value instanceof String) {
+				string((String) value);
+			} else if (value instanceof Boolean) {
+				ascii(value.toString());
+			} else if (value instanceof Number) {
+				try {
+					ascii(JSONObject.numberToString((Number) value));
+				} catch (JSONException e) {
+					throw new IllegalArgumentException(Resources.INVALID_JSON, e);
+				}
+			} else if (value instanceof Map) {
+				object((Map<Object, Object>) value);
+			} else if (value instanceof Collection) {
+				put('[');
+				boolean first = true;
+				for (Object element : (Collection<Object>) value) {
+					if (!first) {
+						put(',');
+					}
+					value(element);
+					first = false;
+				}
+				put(']');
+			} else if (value.getClass().isArray()) {
+				put('[');
+				for (int i = 0; i < Array.getLength(value); i++) {
+					if (i > 0) {
+						put(',');
+					}
+					value(Array.get(value, i));
+				}
+				put(']');
+			} else if (value instanceof JSONObject || value instanceof JSONArray) {
+				raw(value.toString());
+			} else {
+				string(value.toString());
+			}
+		}
+
+		void object(Map<Object, Object> map) throws IOException {
+			put('{');
+			boolean first = true;
+			for (Entry<Object, Object> entry : map.entrySet()) {
+				if (!first) {
+					put(',');
+				}
+				string(String.valueOf(entry.getKey()));
+				put(':');
+				value(entry.getValue());
+				first = false;
+			}
+			put('}');
+		}
+
+		void string(String s) throws IOException {
+			put('"');
+			char previous = 0;
+			for (int i = 0; i < s.length(); i++) {
+				char c = s.charAt(i);
+				switch (c) {
+				case '"':
+				case '\\':
+					put('\\');
+					put(c);
+					break;
+				case '/':
+					// Escape "</" so that the JSON can be embedded in HTML, as JSONObject.quote does.
+					if (previous == '<') {
+						put('\\');
+					}
+					put(c);
+					break;
+				case '\b':
+					ascii("\\b");
+					break;
+				case '\t':
+					ascii("\\t");
+					break;
+				case '\n':
+					ascii("\\n");
+					break;
+				case '\f':
+					ascii("\\f");
+					break;
+				case '\r':
+					ascii("\\r");
+					break;
+				default:
+					if (c < ' ') {
+						escape(c);
+					} else if (Character.isHighSurrogate(c) && i + 1 < s.length()
+							&& Character.isLowSurrogate(s.charAt(i + 1))) {
+						utf8(Character.toCodePoint(c, s.charAt(++i)));
+					} else if (Character.isSurrogate(c)) {
+						// An unpaired surrogate cannot be encoded as UTF-8.
+						escape(c);
+					} else {
+						utf8(c);
+					}
+				}
+				previous = c;
+			}
+			put('"');
+		}
+
+		/**
+		 * Writes text that is already valid JSON, encoding it as UTF-8.
+		 */
+		void raw(String s) throws IOException {
+			for (int i = 0; i < s.length(); i++) {
+				char c = s.charAt(i);
+				if (Character.isHighSurrogate(c) && i + 1 < s.length()
+						&& Character.isLowSurrogate(s.charAt(i + 1))) {
+					utf8(Character.toCodePoint(c, s.charAt(++i)));
+				} else {
+					utf8(c);
+				}
+			}
+		}
+
+		void ascii(String s) throws IOException {
+			for (int i = 0; i < s.length(); i++) {
+				put(s.charAt(i));
+			}
+		}
+
+		void escape(char c) throws IOException {
+			put('\\');
+			put('u');
+			put(HEX_DIGITS[(c >> 12) & 0xF]);
+			put(HEX_DIGITS[(c >> 8) & 0xF]);
+			put(HEX_DIGITS[(c >> 4) & 0xF]);
+			put(HEX_DIGITS[c & 0xF]);
+		}
+
+		void utf8(int codePoint) throws IOException {
+			if (codePoint < 0x80) {
+				put(codePoint);
+			} else if (codePoint < 0x800) {
+				put(0xC0 | (codePoint >> 6));
+				put(0x80 | (codePoint & 0x3F));
+			} else if (codePoint < 0x10000) {
+				put(0xE0 | (codePoint >> 12));
+				put(0x80 | ((codePoint >> 6) & 0x3F));
+				put(0x80 | (codePoint & 0x3F));
+			} else {
+				put(0xF0 | (codePoint >> 18));
+				put(0x80 | ((codePoint >> 12) & 0x3F));
+				put(0x80 | ((codePoint >> 6) & 0x3F));
+				put(0x80 | (codePoint & 0x3F));
+			}
+		}
+
+		void put(int b) throws IOException {
+			count++;
+			if (out == null) {
+				return;
+			}
+			if (position == buffer.length) {
+				flush();
+			}
+			buffer[position++] = (byte) b;
+		}
+
+		void flush() throws IOException {
+			if (position > 0) {
+				out.write(buffer, 0, position);
+				position = 0;
+			}
+		}
+
+	}
+
+}
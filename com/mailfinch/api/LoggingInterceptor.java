@@ -0,0 +1,81 @@
+package com.mailfinch.api;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import com.mailfinch.MailFinchException;
+
+/**
+ * An {@link Interceptor} that logs each attempt at a request through {@link java.util.logging}.
+ * Completed requests are logged at {@link Level#FINE} and failed ones at {@link Level#WARNING}.
+ * Only the method, status, sizes and timings are logged: never the parameters, which carry the API key
+ * and the contents of letters. Nothing is formatted unless the logger would publish the message.
+ * @author Richard Taylor <contact@rtaylor.me.uk>
+ */
+public class LoggingInterceptor implements Interceptor {
+
+	/** The name of the logger used by default. */
+	public static final String DEFAULT_LOGGER = "com.mailfinch";
+
+	/** The logger to write to. */
+	private final Logger logger;
+
+	/**
+	 * Initialises a new instance of the {@link LoggingInterceptor} class, which logs to the "com.mailfinch" logger.
+	 */
+	public LoggingInterceptor() {
+		this(Logger.getLogger(DEFAULT_LOGGER));
+	}
+
+	/**
+	 * Initialises a new instance of the {@link LoggingInterceptor} class.
+	 * @param logger The logger to write to.
+	 */
+	public LoggingInterceptor(Logger logger) {
+		this.logger = logger;
+	}
+
+	@Override
+	public MailFinchConnection.Response intercept(Chain chain) throws MailFinchException {
+		Exchange exchange = chain.getExchange();
+		try {
+			MailFinchConnection.Response response = chain.proceed();
+			if (logger.isLoggable(Level.FINE)) {
+				logger.fine(describe(exchange));
+			}
+			return response;
+		} catch (MailFinchException e) {
+			if (logger.isLoggable(Level.WARNING)) {
+				logger.warning(describe(exchange) + " failed: " + e.getMessage());
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Describes an exchange in a single line.
+	 * @param exchange The {@link Exchange} to describe.
+	 * @return The description of the exchange.
+	 */
+	private static String describe(Exchange exchange) {
+		StringBuilder line = new StringBuilder(96);
+		line.append(exchange.getRequestMethod()).append(' ').append(exchange.getAPIMethod());
+		if (exchange.getStatusCode() != -1) {
+			line.append(" -> ").append(exchange.getStatusCode());
+		}
+		if (exchange.getRequestBytes() >= 0) {
+			line.append(", sent ").append(exchange.getRequestBytes()).append(" bytes");
+		}
+		if (exchange.getResponseBytes() >= 0) {
+			line.append(", received ").append(exchange.getResponseBytes()).append(" bytes");
+		}
+		if (exchange.getDuration() >= 0) {
+			line.append(", ").append(TimeUnit.NANOSECONDS.toMillis(exchange.getDuration())).append("ms");
+		}
+		if (exchange.getAttempt() > 0) {
+			line.append(" (retry ").append(exchange.getAttempt()).append(')');
+		}
+		return line.toString();
+	}
+
+}
@@ -1,10 +1,17 @@
 package com.mailfinch.api;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
 import java.util.Map;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.json.JSONProjection;
+import org.json.JSONTokener;
 import com.mailfinch.MailFinchException;
+import com.mailfinch.MailFinchRejectedException;
 import com.mailfinch.Resources;
 
 /**
@@ -26,8 +33,39 @@ public interface MailFinchConnection {
 		/** A short user-readable message explaining the API status. */
 		private String message;
 		
-		/** The string containing the JSON values of the new MailFinch object. */
-		private String object;
+		/**
+		 * The value of the new MailFinch object, parsed along with the rest of the response.
+		 * This is normally a {@link JSONObject} or {@link JSONArray}, but the server may also
+		 * send it as a string of JSON, in which case it is parsed on first access and kept.
+		 */
+		private Object object;
+
+		/**
+		 * Initialises a new instance of the {@link Response} class.
+		 * @param response The UTF-8 encoded response received from the server.
+		 * @throws MailFinchException If invalid JSON data has been received from the server.
+		 * @throws MailFinchException If the server responded with an error. See the exception's message in this case.
+		 */
+		public Response(byte[] response) throws MailFinchException {
+			this(response, null);
+		}
+
+		/**
+		 * Initialises a new instance of the {@link Response} class, parsing only the parts of the response
+		 * selected by a projection. The rest is skipped over without being decoded.
+		 * @param response The UTF-8 encoded response received from the server.
+		 * @param projection The {@link JSONProjection} selecting the parts to parse, as built by
+		 * {@link #projection(String...)}, or null to parse the whole response.
+		 * @throws MailFinchException If invalid JSON data has been received from the server.
+		 * @throws MailFinchException If the server responded with an error. See the exception's message in this case.
+		 */
+		public Response(byte[] response, JSONProjection projection) throws MailFinchException {
+			try {
+				read((projection != null) ? JSONObject.parse(response, projection) : JSONObject.parse(response));
+			} catch (JSONException e) {
+				throw new MailFinchException(Resources.INVALID_JSON, e);
+			}
+		}
 
 		/**
 		 * Initialises a new instance of the {@link Response} class.
@@ -37,18 +75,125 @@ public interface MailFinchConnection {
 		 */
 		public Response(String response) throws MailFinchException {
 			try {
-				JSONObject json = new JSONObject(response).getJSONObject("response");
-				if (!json.isNull("errors")) {
-					throw new MailFinchException(json.getString("errors")); 
+				read(new JSONObject(response));
+			} catch (JSONException e) {
+				throw new MailFinchException(Resources.INVALID_JSON, e);
+			}
+		}
+		
+		/**
+		 * Initialises a new instance of the {@link Response} class from values that have already been read.
+		 * @param statusCode The three digit code indicating the API status of the response.
+		 * @param message A short user-readable message explaining the API status.
+		 * @param object The value of the new MailFinch object, or null if there is none.
+		 */
+		Response(int statusCode, String message, Object object) {
+			this.statusCode = statusCode;
+			this.message = message;
+			this.object = object;
+		}
+		
+		/**
+		 * Initialises a new instance of the {@link Response} class as a copy of another,
+		 * for a caller that shares the other's call to the server. The JSON data is copied,
+		 * so that neither caller sees changes that the other makes to it.
+		 * @param response The {@link Response} to copy.
+		 * @throws MailFinchException If invalid JSON data has been received from the server.
+		 */
+		Response(Response response) throws MailFinchException {
+			synchronized (response) {
+				this.statusCode = response.statusCode;
+				this.message = response.message;
+				try {
+					this.object = copyOf(response.object);
+				} catch (JSONException e) {
+					throw new MailFinchException(Resources.INVALID_JSON, e);
 				}
-				this.statusCode = json.getInt("code");
-				this.message = json.getString("message");
-				this.object = json.getString("object");
+			}
+		}
+		
+		/**
+		 * Builds a projection that selects the given fields of the response object, along with the status,
+		 * message and errors that every response is checked for. Build it once and reuse it.
+		 * @param fields The paths of the fields to parse within the response object, such as "letter.status_field".
+		 * Arrays along a path are kept, and the rest of the path applies to each of their elements.
+		 * @return The {@link JSONProjection} selecting the fields.
+		 */
+		public static JSONProjection projection(String... fields) {
+			String[] paths = new String[fields.length + 3];
+			paths[0] = "response.errors";
+			paths[1] = "response.code";
+			paths[2] = "response.message";
+			for (int i = 0; i < fields.length; i++) {
+				paths[i + 3] = "response.object." + fields[i];
+			}
+			return JSONProjection.of(paths);
+		}
+		
+		/**
+		 * Writes this response back out in the envelope that the server sends,
+		 * for callers that expect to read a response as a stream.
+		 * @return A stream of UTF-8 encoded JSON data.
+		 * @throws MailFinchException If the response object is not valid JSON data.
+		 */
+		InputStream toStream() throws MailFinchException {
+			try {
+				JSONObject body = new JSONObject();
+				body.put("code", getStatusCode());
+				body.put("message", getMessage());
+				body.put("errors", JSONObject.NULL);
+				body.put("object", getValue());
+				JSONObject envelope = new JSONObject();
+				envelope.put("response", body);
+				return new ByteArrayInputStream(envelope.toString().getBytes(StandardCharsets.UTF_8));
 			} catch (JSONException e) {
 				throw new MailFinchException(Resources.INVALID_JSON, e);
 			}
 		}
 		
+		/**
+		 * Makes a deep copy of a JSON value. Objects and arrays are copied; anything else is immutable and shared.
+		 * @param value The value to copy.
+		 * @return The copy of the value.
+		 * @throws JSONException If the value cannot be copied.
+		 */
+		private static Object copyOf(Object value) throws JSONException {
+			if (value instanceof JSONObject) {
+				JSONObject json = (JSONObject) value;
+				JSONObject copy = new JSONObject();
+				Iterator keys = json.keys();
+				while (keys.hasNext()) {
+					String key = (String) keys.next();
+					copy.put(key, copyOf(json.opt(key)));
+				}
+				return copy;
+			} else if (value instanceof JSONArray) {
+				JSONArray json = (JSONArray) value;
+				JSONArray copy = new JSONArray();
+				for (int i = 0; i < json.length(); i++) {
+					copy.put(copyOf(json.opt(i)));
+				}
+				return copy;
+			}
+			return value;
+		}
+		
+		/**
+		 * Reads the status, message and object out of a parsed response.
+		 * @param body The whole parsed response.
+		 * @throws JSONException If the response is not in the expected form.
+		 * @throws MailFinchException If the server responded with an error. See the exception's message in this case.
+		 */
+		private void read(JSONObject body) throws JSONException, MailFinchException {
+			JSONObject json = body.getJSONObject("response");
+			if (!json.isNull("errors")) {
+				throw new MailFinchRejectedException(json.getString("errors")); 
+			}
+			this.statusCode = json.getInt("code");
+			this.message = json.getString("message");
+			this.object = json.get("object");
+		}
+		
 		/**
 		 * Gets the three digit code indicating the API status of this response.
 		 * @return The three digit code indicating the API status of this response.
@@ -67,20 +212,43 @@ public interface MailFinchConnection {
 		
 		/**
 		 * Gets the {@link JSONObject} containing the values of the new MailFinch object.
+		 * The same instance is returned on every call, so it should be treated as read-only.
 		 * @return The {@link JSONObject} containing the values of the new MailFinch object.
 		 * @throws JSONException If invalid JSON data has been received from the server.
 		 */
-		public JSONObject getObject() throws JSONException {
-			return new JSONObject(object);
+		public synchronized JSONObject getObject() throws JSONException {
+			if (!(object instanceof JSONObject)) {
+				object = new JSONObject(object.toString());
+			}
+			return (JSONObject) object;
 		}
 		
 		/**
 		 * Gets the {@link JSONArray} containing the values of the new MailFinch object.
+		 * The same instance is returned on every call, so it should be treated as read-only.
 		 * @return The {@link JSONArray} containing the values of the new MailFinch object.
 		 * @throws JSONException If invalid JSON data has been received from the server.
 		 */
-		public JSONArray getArray() throws JSONException {
-			return new JSONArray(object);
+		public synchronized JSONArray getArray() throws JSONException {
+			if (!(object instanceof JSONArray)) {
+				object = new JSONArray(object.toString());
+			}
+			return (JSONArray) object;
+		}
+		
+		/**
+		 * Gets the value of the new MailFinch object, whether it is an object, an array or anything else.
+		 * @return The value of the new MailFinch object, or {@link JSONObject#NULL} if there is none.
+		 * @throws JSONException If invalid JSON data has been received from the server.
+		 */
+		synchronized Object getValue() throws JSONException {
+			if (object == null) {
+				return JSONObject.NULL;
+			}
+			if (object instanceof String) {
+				object = new JSONTokener((String) object).nextValue();
+			}
+			return object;
 		}
 
 	}
@@ -105,5 +273,34 @@ public interface MailFinchConnection {
 	 * @throws MailFinchException If a networking error has occurred.
 	 */
 	public MailFinchConnection.Response execute(String apiMethod, String requestMethod, Map<String, Object> parameters) throws MailFinchException;
+	
+	/**
+	 * Makes a request to the specified MailFinch method with the given parameters and request options.
+	 * By default the options are ignored, for connections that have no use for them.
+	 * @param apiMethod The method to execute on the API.
+	 * @param requestMethod The request method (GET, PUT, POST, or DELETE).
+	 * @param parameters The parameters for the request.
+	 * @param options The {@link RequestOptions} for the request, or null to use the defaults.
+	 * @return The {@link MailFinchConnection.Response} representing the server response.
+	 * @throws MailFinchException If a networking error has occurred.
+	 */
+	public default MailFinchConnection.Response execute(String apiMethod, String requestMethod, Map<String, Object> parameters, RequestOptions options) throws MailFinchException {
+		return execute(apiMethod, requestMethod, parameters);
+	}
+	
+	/**
+	 * Makes a request to the specified MailFinch method, and returns the raw response
+	 * as a stream rather than parsing it into a {@link MailFinchConnection.Response}.
+	 * By default the request is made with {@link #execute(String, String)}, and the response
+	 * is written back out as JSON, for connections that cannot read directly from the network.
+	 * @param apiMethod The method to execute on the API.
+	 * @param requestMethod The request method (GET, PUT, POST, or DELETE).
+	 * @return A stream of UTF-8 encoded JSON data, which must be closed by the caller.
+	 * @throws MailFinchException If a networking error has occurred.
+	 * @throws MailFinchException If the server responded with an error. See the exception's message in this case.
+	 */
+	public default InputStream executeStream(String apiMethod, String requestMethod) throws MailFinchException {
+		return execute(apiMethod, requestMethod).toStream();
+	}
 
 }
@@ -0,0 +1,45 @@
+package com.mailfinch.api;
+
+/**
+ * Paces the requests made to the MailFinch server, so that bulk work
+ * runs at a steady rate rather than being throttled by the server.
+ * @author Richard Taylor <contact@rtaylor.me.uk>
+ */
+public interface RateLimiter {
+
+	/**
+	 * Reserves permission to make a request to an endpoint.
+	 * The reservation is made immediately, so that callers are served in the order that they arrive,
+	 * but the request must not be sent until the returned delay has passed.
+	 * Implementations must be safe for use by many threads at once.
+	 * @param endpoint The {@link Endpoint} that the request will be made to.
+	 * @return The number of nanoseconds to wait before sending the request, or zero to send it at once.
+	 */
+	long reserve(Endpoint endpoint);
+
+	/**
+	 * Reserves permission to make a request to an endpoint, but only if the request could be sent within a time limit.
+	 * When it could not, nothing is reserved, so later requests are not held back by one that is never sent.
+	 * The default implementation reserves, then gives the reservation back with {@link #release} if the wait is too long.
+	 * @param endpoint The {@link Endpoint} that the request will be made to.
+	 * @param maxWait The longest time to wait, in nanoseconds.
+	 * @return The number of nanoseconds to wait before sending the request, or -1 if nothing was reserved.
+	 */
+	default long tryReserve(Endpoint endpoint, long maxWait) {
+		long delay = reserve(endpoint);
+		if (delay > maxWait) {
+			release(endpoint);
+			return -1;
+		}
+		return delay;
+	}
+
+	/**
+	 * Gives back a reservation whose request will never be sent, for example because
+	 * the thread waiting to send it was interrupted. The default implementation does nothing.
+	 * @param endpoint The {@link Endpoint} that the reservation was made for.
+	 */
+	default void release(Endpoint endpoint) {
+	}
+
+}
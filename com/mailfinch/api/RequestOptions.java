@@ -0,0 +1,93 @@
+package com.mailfinch.api;
+
+import org.json.JSONProjection;
+
+/**
+ * Settings that apply to a single request, rather than to every request made with a connection.
+ * @author Richard Taylor <contact@rtaylor.me.uk>
+ */
+public class RequestOptions {
+
+	/** The name of the HTTP header that carries the idempotency key. */
+	public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+	/** The client-generated key identifying the operation that the request performs, or null if there is none. */
+	private String idempotencyKey;
+
+	/** The {@link Deadline} by which the request must finish, or null if there is none. */
+	private Deadline deadline;
+
+	/** The {@link JSONProjection} selecting the parts of the response to parse, or null to parse all of it. */
+	private JSONProjection projection;
+
+	/**
+	 * Initialises a new instance of the {@link RequestOptions} class.
+	 */
+	public RequestOptions() {
+		// Do nothing.
+	}
+
+	/**
+	 * Initialises a new instance of the {@link RequestOptions} class with the same settings as another.
+	 * @param options The {@link RequestOptions} to copy.
+	 */
+	public RequestOptions(RequestOptions options) {
+		this.idempotencyKey = options.idempotencyKey;
+		this.deadline = options.deadline;
+		this.projection = options.projection;
+	}
+
+	/**
+	 * Gets the client-generated key identifying the operation that the request performs.
+	 * @return The idempotency key, or null if there is none.
+	 */
+	public String getIdempotencyKey() {
+		return idempotencyKey;
+	}
+
+	/**
+	 * Sets the client-generated key identifying the operation that the request performs.
+	 * Every attempt at the same operation must carry the same key,
+	 * so that the server can recognise and discard repeats.
+	 * @param key The idempotency key, or null if there is none.
+	 */
+	public void setIdempotencyKey(String key) {
+		idempotencyKey = key;
+	}
+
+	/**
+	 * Gets the deadline by which the request, including any retries, must finish.
+	 * @return The {@link Deadline}, or null if there is none.
+	 */
+	public Deadline getDeadline() {
+		return deadline;
+	}
+
+	/**
+	 * Sets the deadline by which the request, including any retries, must finish.
+	 * Timeouts are shortened, and retries abandoned, so as not to run past it.
+	 * @param deadline The {@link Deadline}, or null if there is none.
+	 */
+	public void setDeadline(Deadline deadline) {
+		this.deadline = deadline;
+	}
+
+	/**
+	 * Gets the projection selecting the parts of the response to parse.
+	 * @return The {@link JSONProjection}, or null if the whole response is parsed.
+	 */
+	public JSONProjection getProjection() {
+		return projection;
+	}
+
+	/**
+	 * Sets the projection selecting the parts of the response to parse. Everything else is skipped over
+	 * as the response is read, so a caller that needs only a few fields does not pay to decode the rest.
+	 * Use {@link MailFinchConnection.Response#projection(String...)} to build one for the response object.
+	 * @param projection The {@link JSONProjection}, or null to parse the whole response.
+	 */
+	public void setProjection(JSONProjection projection) {
+		this.projection = projection;
+	}
+
+}
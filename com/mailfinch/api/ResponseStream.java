@@ -0,0 +1,96 @@
+package com.mailfinch.api;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.LongConsumer;
+
+/**
+ * A stream over the body of a response that counts the bytes read from it,
+ * and reports the count once when it is closed, so that streamed responses
+ * can be recorded like buffered ones once the caller has finished with them.
+ * @author Richard Taylor <contact@rtaylor.me.uk>
+ */
+class ResponseStream extends FilterInputStream {
+
+	/** Called with the number of bytes read when the stream is closed, or -1 if reading it failed. */
+	private final LongConsumer onClose;
+
+	/** The number of bytes read so far. */
+	private long count;
+
+	/** Whether or not reading the stream has failed. */
+	private boolean failed;
+
+	/** Whether or not the stream has been closed. */
+	private boolean closed;
+
+	/**
+	 * Initialises a new instance of the {@link ResponseStream} class.
+	 * @param body The stream over the body of the response.
+	 * @param onClose Called with the number of bytes read when the stream is closed, or -1 if reading it failed.
+	 */
+	ResponseStream(InputStream body, LongConsumer onClose) {
+		super(body);
+		this.onClose = onClose;
+	}
+
+	@Override
+	public int read() throws IOException {
+		try {
+			int b = super.read();
+			if (b >= 0) {
+				count++;
+			}
+			return b;
+		} catch (IOException e) {
+			failed = true;
+			throw e;
+		}
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		try {
+			int n = super.read(b, off, len);
+			if (n > 0) {
+				count += n;
+			}
+			return n;
+		} catch (IOException e) {
+			failed = true;
+			throw e;
+		}
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		try {
+			long skipped = super.skip(n);
+			count += skipped;
+			return skipped;
+		} catch (IOException e) {
+			failed = true;
+			throw e;
+		}
+	}
+
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			super.close();
+		} finally {
+			onClose.accept(failed ? -1 : count);
+		}
+	}
+
+}
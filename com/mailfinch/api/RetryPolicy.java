@@ -0,0 +1,214 @@
+package com.mailfinch.api;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.ThreadLocalRandom;
+import com.mailfinch.MailFinchException;
+import com.mailfinch.MailFinchHttpException;
+import com.mailfinch.Resources;
+
+/**
+ * Decides whether and when a failed request to the MailFinch server should be retried.
+ * Delays grow exponentially with full jitter, so that clients which failed together
+ * do not retry together, and a Retry-After header from the server is always respected.
+ * Each request has a budget of retries and of time spent waiting, and a budget shared by
+ * all requests stops retries from multiplying the load on a server that is already struggling.
+ * <p>
+ * Requests that the server refused outright (429 and 503) are always safe to retry.
+ * Other transient failures may have been processed before they failed, so they are only
+ * retried for endpoints where repeating the request does no harm.
+ * @author Richard Taylor <contact@rtaylor.me.uk>
+ */
+public class RetryPolicy {
+
+	/** The default maximum number of retries for a single request. */
+	public static final int DEFAULT_MAX_RETRIES = 3;
+
+	/** The default delay before the first retry, in milliseconds. */
+	public static final long DEFAULT_BASE_DELAY = 100;
+
+	/** The default maximum delay before any one retry, in milliseconds. */
+	public static final long DEFAULT_MAX_DELAY = 5000;
+
+	/** The default maximum total time that a single request may spend waiting to retry, in milliseconds. */
+	public static final long DEFAULT_MAX_TOTAL_DELAY = 15000;
+
+	/** The default proportion of requests that may be retried once the shared budget has been spent. */
+	public static final double DEFAULT_RETRY_RATIO = 0.2;
+
+	/** The number of retries that the shared budget allows in a burst. */
+	private static final double BUDGET_CAPACITY = 10;
+
+	/** The maximum number of retries for a single request. */
+	private final int maxRetries;
+
+	/** The delay before the first retry, in milliseconds. */
+	private final long baseDelay;
+
+	/** The maximum delay before any one retry, in milliseconds. */
+	private final long maxDelay;
+
+	/** The maximum total time that a single request may spend waiting to retry, in milliseconds. */
+	private final long maxTotalDelay;
+
+	/** The number of retries earned by each request made. */
+	private final double retryRatio;
+
+	/** The number of retries currently available to all requests. */
+	private double budget = BUDGET_CAPACITY;
+
+	/**
+	 * Initialises a new instance of the {@link RetryPolicy} class with the default settings.
+	 */
+	public RetryPolicy() {
+		this(DEFAULT_MAX_RETRIES, DEFAULT_BASE_DELAY, DEFAULT_MAX_DELAY, DEFAULT_MAX_TOTAL_DELAY, DEFAULT_RETRY_RATIO);
+	}
+
+	/**
+	 * Initialises a new instance of the {@link RetryPolicy} class.
+	 * @param maxRetries The maximum number of retries for a single request.
+	 * @param baseDelay The delay before the first retry, in milliseconds, which doubles with each further retry.
+	 * @param maxDelay The maximum delay before any one retry, in milliseconds.
+	 * @param maxTotalDelay The maximum total time that a single request may spend waiting to retry, in milliseconds.
+	 * @param retryRatio The proportion of requests that may be retried once the shared budget has been spent.
+	 */
+	public RetryPolicy(int maxRetries, long baseDelay, long maxDelay, long maxTotalDelay, double retryRatio) {
+		if (maxRetries < 0 || baseDelay < 0 || maxDelay < baseDelay || maxTotalDelay < 0 || retryRatio < 0) {
+			throw new IllegalArgumentException(Resources.INVALID_RETRY_POLICY);
+		}
+		this.maxRetries = maxRetries;
+		this.baseDelay = baseDelay;
+		this.maxDelay = maxDelay;
+		this.maxTotalDelay = maxTotalDelay;
+		this.retryRatio = retryRatio;
+	}
+
+	/**
+	 * Records that a new request is being made, which earns a fraction of a retry for the shared budget.
+	 * This should be called once per request, not once per attempt.
+	 */
+	public synchronized void recordRequest() {
+		budget = Math.min(BUDGET_CAPACITY, budget + retryRatio);
+	}
+
+	/**
+	 * Decides whether a failed request should be retried, and if so how long to wait first.
+	 * A positive answer takes one retry from the shared budget.
+	 * @param endpoint The {@link Endpoint} that the request was made to.
+	 * @param error The exception that the request failed with.
+	 * @param retries The number of times the request has already been retried.
+	 * @param waited The number of milliseconds already spent waiting to retry the request.
+	 * @return The number of milliseconds to wait before retrying, or -1 if the request should not be retried.
+	 */
+	public long getRetryDelay(Endpoint endpoint, MailFinchException error, int retries, long waited) {
+		return getRetryDelay(endpoint, error, retries, waited, false);
+	}
+
+	/**
+	 * Decides whether a failed request should be retried, and if so how long to wait first.
+	 * A positive answer takes one retry from the shared budget.
+	 * @param endpoint The {@link Endpoint} that the request was made to.
+	 * @param error The exception that the request failed with.
+	 * @param retries The number of times the request has already been retried.
+	 * @param waited The number of milliseconds already spent waiting to retry the request.
+	 * @param reconciled <c>true</c> if the caller will check whether an ambiguous failure took effect
+	 * before retrying, making the request safe to repeat whatever its endpoint; otherwise, <c>false</c>.
+	 * @return The number of milliseconds to wait before retrying, or -1 if the request should not be retried.
+	 */
+	public long getRetryDelay(Endpoint endpoint, MailFinchException error, int retries, long waited, boolean reconciled) {
+		if (retries >= maxRetries || !isRetryable(endpoint, error, reconciled)) {
+			return -1;
+		}
+
+		// Full jitter: wait a random time up to the exponential backoff, unless the server asked for longer.
+		long backoff = Math.min(maxDelay, baseDelay << Math.min(retries, 30));
+		long delay = ThreadLocalRandom.current().nextLong(backoff + 1);
+		if (error instanceof MailFinchHttpException) {
+			delay = Math.max(delay, ((MailFinchHttpException) error).getRetryAfter());
+		}
+		if (waited + delay > maxTotalDelay) {
+			return -1;
+		}
+
+		synchronized (this) {
+			if (budget < 1) {
+				return -1;
+			}
+			budget -= 1;
+		}
+		return delay;
+	}
+
+	/**
+	 * Determines whether or not a failure can safely be retried.
+	 * @param endpoint The {@link Endpoint} that the request was made to.
+	 * @param error The exception that the request failed with.
+	 * @param reconciled <c>true</c> if the caller will check whether an ambiguous failure took effect before retrying.
+	 * @return <c>true</c> if the request may be retried; otherwise, <c>false</c>.
+	 */
+	protected boolean isRetryable(Endpoint endpoint, MailFinchException error, boolean reconciled) {
+		boolean repeatable = reconciled || isIdempotent(endpoint);
+		if (error instanceof MailFinchHttpException) {
+			MailFinchHttpException httpError = (MailFinchHttpException) error;
+			int code = httpError.getStatusCode();
+			if (code == 429 || code == 503) {
+				// The server turned the request away without acting on it.
+				return true;
+			}
+			return httpError.isTransient() && repeatable;
+		}
+		return (error.getCause() instanceof IOException) && repeatable;
+	}
+
+	/**
+	 * Determines whether or not a failure leaves it unclear whether the server acted on the request.
+	 * Such failures are I/O errors and transient server errors, other than outright refusals.
+	 * @param error The exception that the request failed with.
+	 * @return <c>true</c> if the request may or may not have taken effect; otherwise, <c>false</c>.
+	 */
+	public static boolean isAmbiguous(MailFinchException error) {
+		if (error instanceof MailFinchHttpException) {
+			MailFinchHttpException httpError = (MailFinchHttpException) error;
+			int code = httpError.getStatusCode();
+			return httpError.isTransient() && code != 429 && code != 503;
+		}
+		return (error.getCause() instanceof IOException);
+	}
+
+	/**
+	 * Determines whether or not repeating a request to an endpoint does no harm
+	 * if the first attempt was in fact processed.
+	 * @param endpoint The {@link Endpoint} that the request was made to.
+	 * @return <c>true</c> if requests to the endpoint are idempotent; otherwise, <c>false</c>.
+	 */
+	protected boolean isIdempotent(Endpoint endpoint) {
+		return (endpoint == Endpoint.READ || endpoint == Endpoint.UPDATE);
+	}
+
+	/**
+	 * Parses the value of a Retry-After header, which gives either a number of seconds or an HTTP date.
+	 * @param value The value of the header, or null if there was none.
+	 * @return The number of milliseconds to wait, or -1 if the header was missing or invalid.
+	 */
+	public static long parseRetryAfter(String value) {
+		if (value == null) {
+			return -1;
+		}
+		value = value.trim();
+		try {
+			return Math.max(0, Long.parseLong(value) * 1000);
+		} catch (NumberFormatException e) {
+			// Not a number of seconds, so try an HTTP date instead.
+		}
+		try {
+			ZonedDateTime time = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME);
+			return Math.max(0, Duration.between(ZonedDateTime.now(time.getZone()), time).toMillis());
+		} catch (DateTimeParseException e) {
+			return -1;
+		}
+	}
+
+}
@@ -0,0 +1,130 @@
+package com.mailfinch.api;
+
+import java.util.EnumMap;
+import java.util.Map;
+import com.mailfinch.Resources;
+
+/**
+ * A {@link RateLimiter} that keeps a separate token bucket for each class of {@link Endpoint}.
+ * Each bucket refills at a steady rate up to a maximum burst size, and each request takes one token.
+ * When a bucket is empty, requests are spaced out evenly at the refill rate rather than rejected.
+ * @author Richard Taylor <contact@rtaylor.me.uk>
+ */
+public class TokenBucketRateLimiter implements RateLimiter {
+
+	/** The default number of requests per second allowed to each class of endpoint. */
+	public static final double DEFAULT_PERMITS_PER_SECOND = 10;
+
+	/** The default number of requests that may be sent at once to each class of endpoint after a quiet spell. */
+	public static final int DEFAULT_BURST = 10;
+
+	/** The token bucket for each class of endpoint. */
+	private final Map<Endpoint, Bucket> buckets = new EnumMap<Endpoint, Bucket>(Endpoint.class);
+
+	/**
+	 * Initialises a new instance of the {@link TokenBucketRateLimiter} class,
+	 * with the default limits for every class of endpoint.
+	 */
+	public TokenBucketRateLimiter() {
+		this(DEFAULT_PERMITS_PER_SECOND, DEFAULT_BURST);
+	}
+
+	/**
+	 * Initialises a new instance of the {@link TokenBucketRateLimiter} class,
+	 * with the same limits for every class of endpoint.
+	 * @param permitsPerSecond The number of requests per second allowed to each class of endpoint.
+	 * @param burst The number of requests that may be sent at once after a quiet spell.
+	 */
+	public TokenBucketRateLimiter(double permitsPerSecond, int burst) {
+		for (Endpoint endpoint : Endpoint.values()) {
+			setLimit(endpoint, permitsPerSecond, burst);
+		}
+	}
+
+	/**
+	 * Sets the limits for one class of endpoint. The bucket starts full.
+	 * @param endpoint The {@link Endpoint} to limit.
+	 * @param permitsPerSecond The number of requests per second allowed to the endpoint.
+	 * @param burst The number of requests that may be sent at once after a quiet spell.
+	 */
+	public void setLimit(Endpoint endpoint, double permitsPerSecond, int burst) {
+		if (!(permitsPerSecond > 0) || burst < 1) {
+			throw new IllegalArgumentException(Resources.INVALID_RATE_LIMIT);
+		}
+		Bucket bucket = new Bucket(permitsPerSecond, burst);
+		synchronized (buckets) {
+			buckets.put(endpoint, bucket);
+		}
+	}
+
+	@Override
+	public long reserve(Endpoint endpoint) {
+		return getBucket(endpoint).reserve(Long.MAX_VALUE);
+	}
+
+	@Override
+	public long tryReserve(Endpoint endpoint, long maxWait) {
+		return getBucket(endpoint).reserve(maxWait);
+	}
+
+	@Override
+	public void release(Endpoint endpoint) {
+		getBucket(endpoint).release();
+	}
+
+	/**
+	 * Gets the token bucket for a class of endpoint.
+	 * @param endpoint The {@link Endpoint} whose bucket is wanted.
+	 * @return The {@link Bucket} for the endpoint.
+	 */
+	private Bucket getBucket(Endpoint endpoint) {
+		synchronized (buckets) {
+			return buckets.get(endpoint);
+		}
+	}
+
+	/**
+	 * A bucket of tokens that refills at a steady rate.
+	 * The token count may go negative, recording requests that have been promised
+	 * a future token, so that waiting requests are released in order and evenly spaced.
+	 */
+	private static class Bucket {
+
+		/** The number of tokens added per nanosecond. */
+		private final double permitsPerNano;
+
+		/** The maximum number of tokens held. */
+		private final double capacity;
+
+		/** The number of tokens currently held, or owed if negative. */
+		private double tokens;
+
+		/** The time at which tokens were last added. */
+		private long lastRefill;
+
+		Bucket(double permitsPerSecond, int burst) {
+			this.permitsPerNano = permitsPerSecond / 1e9;
+			this.capacity = burst;
+			this.tokens = burst;
+			this.lastRefill = System.nanoTime();
+		}
+
+		synchronized long reserve(long maxWait) {
+			long now = System.nanoTime();
+			tokens = Math.min(capacity, tokens + (now - lastRefill) * permitsPerNano);
+			lastRefill = now;
+			long wait = (tokens >= 1) ? 0 : (long) Math.ceil((1 - tokens) / permitsPerNano);
+			if (wait > maxWait) {
+				return -1;
+			}
+			tokens -= 1;
+			return wait;
+		}
+
+		synchronized void release() {
+			tokens = Math.min(capacity, tokens + 1);
+		}
+
+	}
+
+}
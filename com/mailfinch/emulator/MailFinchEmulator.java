@@ -0,0 +1,734 @@
+package com.mailfinch.emulator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.json.JSONException;
+import org.json.JSONObject;
+import com.mailfinch.Configuration;
+import com.mailfinch.Resources;
+import com.mailfinch.api.JSONRequestBody;
+import com.mailfinch.api.RequestOptions;
+import com.mailfinch.util.DateConverter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A stand-in for the MailFinch server, running in-process on the JDK's embedded HTTP server,
+ * for load and latency testing without spending money or tripping the real server's throttling.
+ * It implements the <c>letters</c>, <c>letters/{id}</c> and <c>letters/{id}/purchase</c> endpoints
+ * with the same response envelope as the real server, keeping letters in memory, and honours
+ * idempotency keys on letter creation, reporting each letter's key as <c>idempotency_key</c>. Latency, injected errors and throttling can be configured
+ * while it runs. Delayed responses are scheduled on a timer rather than holding a thread,
+ * so a slow emulator can still keep many requests in flight.
+ * Latency measurements should call {@link #enableNoDelay()} before creating the first emulator;
+ * it is not called automatically, because it changes a setting of the whole JVM.
+ * @author Richard Taylor <contact@rtaylor.me.uk>
+ */
+public class MailFinchEmulator implements AutoCloseable {
+
+	/** The suffix of every API method in a URL. */
+	private static final String FORMAT_SUFFIX = ".json";
+
+	/** The system property that disables Nagle's algorithm in the embedded HTTP server. */
+	private static final String NO_DELAY_PROPERTY = "sun.net.httpserver.nodelay";
+
+	/** The embedded HTTP server. */
+	private final HttpServer server;
+
+	/** The threads that handle requests. */
+	private final ExecutorService handlers;
+
+	/** The timer that sends delayed responses. */
+	private final ScheduledExecutorService timer;
+
+	/** The letters held by the emulator, keyed by ID. */
+	private final ConcurrentMap<Integer, StoredLetter> letters = new ConcurrentHashMap<Integer, StoredLetter>();
+
+	/** The IDs of the letters created with each idempotency key. Creations with a key are synchronised on this map. */
+	private final Map<String, Integer> idempotencyKeys = new HashMap<String, Integer>();
+
+	/** The ID to give the next letter created. */
+	private final AtomicInteger nextID = new AtomicInteger(1);
+
+	/** The number of requests received. */
+	private final AtomicLong requestCount = new AtomicLong();
+
+	/** The number of letters purchased. */
+	private final AtomicLong purchaseCount = new AtomicLong();
+
+	/** The number of requests answered with an injected error. */
+	private final AtomicLong injectedErrorCount = new AtomicLong();
+
+	/** The number of requests answered with 429 because of throttling. */
+	private final AtomicLong throttledCount = new AtomicLong();
+
+	/** The minimum number of milliseconds to wait before responding. */
+	private volatile long minimumLatency;
+
+	/** The maximum number of milliseconds to wait before responding. */
+	private volatile long maximumLatency;
+
+	/** The probability that a request is answered with an injected error. */
+	private volatile double errorRate;
+
+	/** The HTTP status code of injected errors. */
+	private volatile int errorCode = 503;
+
+	/** The number of requests allowed per second, or zero if requests are not throttled. */
+	private double rateLimit;
+
+	/** The number of requests allowed in a burst. */
+	private double burst;
+
+	/** The number of requests currently allowed. */
+	private double tokens;
+
+	/** The time at which tokens were last added, from {@link System#nanoTime()}. */
+	private long refilledAt = System.nanoTime();
+
+	/**
+	 * Initialises a new instance of the {@link MailFinchEmulator} class,
+	 * which listens on a free port of the loopback interface. It must be started before use.
+	 * @throws IOException If the server could not be created.
+	 */
+	public MailFinchEmulator() throws IOException {
+		this(0);
+	}
+
+	/**
+	 * Initialises a new instance of the {@link MailFinchEmulator} class,
+	 * which listens on the loopback interface. It must be started before use.
+	 * @param port The port to listen on, or zero to choose a free port.
+	 * @throws IOException If the server could not be created.
+	 */
+	public MailFinchEmulator(int port) throws IOException {
+		this(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), Runtime.getRuntime().availableProcessors() * 2);
+	}
+
+	/**
+	 * Initialises a new instance of the {@link MailFinchEmulator} class. It must be started before use.
+	 * @param address The address to listen on.
+	 * @param threads The number of threads that handle requests.
+	 * @throws IOException If the server could not be created.
+	 */
+	public MailFinchEmulator(InetSocketAddress address, int threads) throws IOException {
+		this.server = HttpServer.create(address, 1024);
+		this.handlers = Executors.newFixedThreadPool(threads, daemon("mailfinch-emulator"));
+		this.timer = Executors.newSingleThreadScheduledExecutor(daemon("mailfinch-emulator-timer"));
+		server.setExecutor(handlers);
+		server.createContext("/", new Handler());
+	}
+
+	/**
+	 * Disables Nagle's algorithm in the JDK's embedded HTTP server, which otherwise writes the head and body
+	 * of each response separately and so makes every response wait for a delayed acknowledgement.
+	 * <p>
+	 * This sets the JVM-wide <c>sun.net.httpserver.nodelay</c> system property, so it also affects any other
+	 * embedded HTTP server in the process. The server only reads the property when it is first loaded,
+	 * so this must be called before the first emulator is created, and has no effect afterwards.
+	 * A value already set for the property, for example on the command line, is left as it is.
+	 */
+	public static void enableNoDelay() {
+		if (System.getProperty(NO_DELAY_PROPERTY) == null) {
+			System.setProperty(NO_DELAY_PROPERTY, "true");
+		}
+	}
+
+	/**
+	 * Runs an emulator from the command line until the process is stopped.
+	 * @param args The port to listen on, then optionally the minimum and maximum latency in milliseconds,
+	 * the error rate, and the number of requests allowed per second.
+	 * @throws IOException If the server could not be created.
+	 * @throws InterruptedException If the thread is interrupted while the emulator runs.
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		enableNoDelay();
+		MailFinchEmulator emulator = new MailFinchEmulator((args.length > 0) ? Integer.parseInt(args[0]) : 0);
+		if (args.length > 2) {
+			emulator.setLatency(Long.parseLong(args[1]), Long.parseLong(args[2]));
+		}
+		if (args.length > 3) {
+			emulator.setErrorRate(Double.parseDouble(args[3]), 503);
+		}
+		if (args.length > 4) {
+			double permits = Double.parseDouble(args[4]);
+			emulator.setRateLimit(permits, (int) Math.ceil(permits));
+		}
+		emulator.start();
+		System.out.println("MailFinch emulator listening at " + emulator.getBaseURL());
+		Thread.currentThread().join();
+	}
+
+	/**
+	 * Starts accepting requests.
+	 * @return This emulator.
+	 */
+	public MailFinchEmulator start() {
+		server.start();
+		return this;
+	}
+
+	/**
+	 * Stops accepting requests, and shuts down the emulator's threads.
+	 */
+	public void stop() {
+		server.stop(0);
+		timer.shutdownNow();
+		handlers.shutdownNow();
+	}
+
+	@Override
+	public void close() {
+		stop();
+	}
+
+	/**
+	 * Gets the port that the emulator listens on.
+	 * @return The port number.
+	 */
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * Gets the base URL of the emulator, to use in place of that of the real server.
+	 * @return The base URL, ending with a slash.
+	 */
+	public String getBaseURL() {
+		InetSocketAddress address = server.getAddress();
+		return "http://" + address.getAddress().getHostAddress() + ":" + address.getPort() + "/";
+	}
+
+	/**
+	 * Points a configuration at this emulator.
+	 * @param config The {@link Configuration} to change.
+	 * @return The same {@link Configuration}.
+	 */
+	public Configuration configure(Configuration config) {
+		config.setBaseURL(getBaseURL());
+		return config;
+	}
+
+	/**
+	 * Sets how long the emulator waits before responding to each request.
+	 * Each wait is chosen uniformly at random between the minimum and maximum.
+	 * @param minimum The minimum latency in milliseconds.
+	 * @param maximum The maximum latency in milliseconds.
+	 */
+	public void setLatency(long minimum, long maximum) {
+		if (minimum < 0 || maximum < minimum) {
+			throw new IllegalArgumentException(Resources.INVALID_EMULATOR_SETTING);
+		}
+		this.minimumLatency = minimum;
+		this.maximumLatency = maximum;
+	}
+
+	/**
+	 * Sets the proportion of requests that are answered with an error instead of being processed.
+	 * @param rate The probability of an error, between 0 and 1.
+	 * @param code The HTTP status code to answer with, such as 500 or 503.
+	 */
+	public void setErrorRate(double rate, int code) {
+		if (!(rate >= 0 && rate <= 1)) {
+			throw new IllegalArgumentException(Resources.INVALID_EMULATOR_SETTING);
+		}
+		this.errorRate = rate;
+		this.errorCode = code;
+	}
+
+	/**
+	 * Sets how many requests the emulator accepts per second. Requests beyond the limit
+	 * are answered with 429 and a Retry-After header, as the real server does.
+	 * @param permitsPerSecond The number of requests allowed per second, or zero to stop throttling.
+	 * @param burst The number of requests allowed at once after a quiet period.
+	 */
+	public synchronized void setRateLimit(double permitsPerSecond, int burst) {
+		if (!(permitsPerSecond >= 0) || burst < 0) {
+			throw new IllegalArgumentException(Resources.INVALID_EMULATOR_SETTING);
+		}
+		this.rateLimit = permitsPerSecond;
+		this.burst = Math.max(1, burst);
+		this.tokens = this.burst;
+		this.refilledAt = System.nanoTime();
+	}
+
+	/**
+	 * Gets the number of requests received, including those answered with errors.
+	 * @return The number of requests received.
+	 */
+	public long getRequestCount() {
+		return requestCount.get();
+	}
+
+	/**
+	 * Gets the number of letters that have been purchased. Repeated purchases of a letter count once.
+	 * @return The number of letters purchased.
+	 */
+	public long getPurchaseCount() {
+		return purchaseCount.get();
+	}
+
+	/**
+	 * Gets the number of requests answered with an injected error.
+	 * @return The number of injected errors.
+	 */
+	public long getInjectedErrorCount() {
+		return injectedErrorCount.get();
+	}
+
+	/**
+	 * Gets the number of requests answered with 429 because of throttling.
+	 * @return The number of throttled requests.
+	 */
+	public long getThrottledCount() {
+		return throttledCount.get();
+	}
+
+	/**
+	 * Gets the number of letters held by the emulator.
+	 * @return The number of letters.
+	 */
+	public int getLetterCount() {
+		return letters.size();
+	}
+
+	/**
+	 * Removes all letters and resets the counters, keeping the latency, error and throttling settings.
+	 */
+	public void reset() {
+		letters.clear();
+		synchronized (idempotencyKeys) {
+			idempotencyKeys.clear();
+		}
+		nextID.set(1);
+		requestCount.set(0);
+		purchaseCount.set(0);
+		injectedErrorCount.set(0);
+		throttledCount.set(0);
+	}
+
+	/**
+	 * Takes a permit from the rate limit, if there is one.
+	 * @return Zero if the request may proceed; otherwise, the number of milliseconds until it could.
+	 */
+	private synchronized long acquire() {
+		if (rateLimit <= 0) {
+			return 0;
+		}
+		long now = System.nanoTime();
+		tokens = Math.min(burst, tokens + (now - refilledAt) * rateLimit / 1e9);
+		refilledAt = now;
+		if (tokens >= 1) {
+			tokens -= 1;
+			return 0;
+		}
+		return (long) Math.ceil((1 - tokens) * 1000 / rateLimit);
+	}
+
+	/**
+	 * Handles every request, dispatching it to the matching endpoint.
+	 */
+	private class Handler implements HttpHandler {
+
+		@Override
+		public void handle(HttpExchange exchange) throws IOException {
+			requestCount.incrementAndGet();
+			Reply reply;
+			try {
+				reply = process(exchange);
+			} catch (JSONException e) {
+				reply = Reply.error(400, "The request body is not valid JSON.");
+			} catch (RuntimeException e) {
+				reply = Reply.error(500, String.valueOf(e.getMessage()));
+			}
+
+			long latency = minimumLatency;
+			long spread = maximumLatency - latency;
+			if (spread > 0) {
+				latency += ThreadLocalRandom.current().nextLong(spread + 1);
+			}
+			if (latency > 0) {
+				final Reply delayed = reply;
+				timer.schedule(() -> send(exchange, delayed), latency, TimeUnit.MILLISECONDS);
+			} else {
+				send(exchange, reply);
+			}
+		}
+
+		/**
+		 * Processes a request.
+		 * @param exchange The {@link HttpExchange} containing the request.
+		 * @return The {@link Reply} to send.
+		 * @throws IOException If the request body could not be read.
+		 * @throws JSONException If the request body is not valid JSON.
+		 */
+		private Reply process(HttpExchange exchange) throws IOException, JSONException {
+			byte[] body;
+			try (InputStream in = exchange.getRequestBody()) {
+				body = in.readAllBytes();
+			}
+
+			long wait = acquire();
+			if (wait > 0) {
+				throttledCount.incrementAndGet();
+				Reply reply = Reply.error(429, "Too many requests.");
+				reply.retryAfter = Math.max(1, (wait + 999) / 1000);
+				return reply;
+			}
+			if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+				injectedErrorCount.incrementAndGet();
+				return Reply.error(errorCode, "Injected error.");
+			}
+
+			String method = exchange.getRequestMethod();
+			String path = exchange.getRequestURI().getPath();
+			JSONObject json = (body.length > 0) ? JSONObject.parse(body) : null;
+			String key = (json != null && !json.isNull("api_key")) ? json.getString("api_key")
+				: queryParameter(exchange.getRequestURI().getRawQuery(), "api_key");
+			if (key == null || key.isEmpty()) {
+				return Reply.error(401, "An API key is required.");
+			}
+			if (!path.startsWith("/letters") || !path.endsWith(FORMAT_SUFFIX)) {
+				return Reply.error(404, "No such API method.");
+			}
+
+			String[] segments = path.substring(1, path.length() - FORMAT_SUFFIX.length()).split("/");
+			if (segments.length == 1 && segments[0].equals("letters")) {
+				if (method.equals("GET")) {
+					return listLetters();
+				} else if (method.equals("POST")) {
+					return createLetter(json, exchange.getRequestHeaders().getFirst(RequestOptions.IDEMPOTENCY_KEY_HEADER));
+				}
+				return Reply.error(405, "Method not allowed.");
+			}
+
+			StoredLetter letter;
+			try {
+				letter = letters.get(Integer.valueOf(segments[1]));
+			} catch (NumberFormatException e) {
+				letter = null;
+			}
+			if (letter == null || segments.length > 3 || (segments.length == 3 && !segments[2].equals("purchase"))) {
+				return Reply.error(404, "No such letter.");
+			}
+			if (segments.length == 3) {
+				return purchaseLetter(letter);
+			}
+			switch (method) {
+				case "GET":
+					return Reply.letter(letter);
+				case "PUT":
+					return updateLetter(letter, json);
+				case "DELETE":
+					letters.remove(letter.id);
+					return Reply.letter(letter);
+				default:
+					return Reply.error(405, "Method not allowed.");
+			}
+		}
+
+		/**
+		 * Sends a reply, ignoring clients that have gone away.
+		 * @param exchange The {@link HttpExchange} to reply to.
+		 * @param reply The {@link Reply} to send.
+		 */
+		private void send(HttpExchange exchange, Reply reply) {
+			try {
+				byte[] bytes = reply.toByteArray();
+				exchange.getResponseHeaders().set("Content-Type", "application/json");
+				if (reply.retryAfter > 0) {
+					exchange.getResponseHeaders().set("Retry-After", Long.toString(reply.retryAfter));
+				}
+				exchange.sendResponseHeaders(reply.code, bytes.length);
+				try (OutputStream out = exchange.getResponseBody()) {
+					out.write(bytes);
+				}
+			} catch (IOException e) {
+				// The client has closed the connection; there is no one left to tell.
+			} finally {
+				exchange.close();
+			}
+		}
+
+	}
+
+	/**
+	 * Lists every letter.
+	 * @return The {@link Reply} containing the letters.
+	 */
+	private Reply listLetters() {
+		List<Object> list = new ArrayList<Object>();
+		for (StoredLetter letter : letters.values()) {
+			list.add(letter.toData());
+		}
+		return Reply.ok(list);
+	}
+
+	/**
+	 * Creates a letter, or finds the letter already created with the same idempotency key.
+	 * @param json The request body.
+	 * @param idempotencyKey The idempotency key of the request, or null if there is none.
+	 * @return The {@link Reply} containing the letter.
+	 */
+	private Reply createLetter(JSONObject json, String idempotencyKey) {
+		if (json == null || json.isNull("letter")) {
+			return Reply.error(422, "The letter is missing.");
+		}
+		if (idempotencyKey == null) {
+			return Reply.letter(newLetter(json, null));
+		}
+		synchronized (idempotencyKeys) {
+			Integer existing = idempotencyKeys.get(idempotencyKey);
+			StoredLetter letter = (existing != null) ? letters.get(existing) : null;
+			if (letter == null) {
+				letter = newLetter(json, idempotencyKey);
+				idempotencyKeys.put(idempotencyKey, letter.id);
+			}
+			return Reply.letter(letter);
+		}
+	}
+
+	/**
+	 * Stores a new letter.
+	 * @param json The request body.
+	 * @param idempotencyKey The idempotency key the letter is created with, or null if there is none.
+	 * @return The new letter.
+	 */
+	private StoredLetter newLetter(JSONObject json, String idempotencyKey) {
+		StoredLetter letter = new StoredLetter(nextID.getAndIncrement(), idempotencyKey);
+		synchronized (letter) {
+			letter.apply(json);
+		}
+		letters.put(letter.id, letter);
+		return letter;
+	}
+
+	/**
+	 * Updates a letter.
+	 * @param letter The letter to update.
+	 * @param json The request body.
+	 * @return The {@link Reply} containing the letter.
+	 */
+	private Reply updateLetter(StoredLetter letter, JSONObject json) {
+		if (json == null) {
+			return Reply.error(422, "The letter is missing.");
+		}
+		synchronized (letter) {
+			if (letter.purchasedAt != null) {
+				return Reply.error(422, "A purchased letter cannot be changed.");
+			}
+			letter.apply(json);
+		}
+		return Reply.letter(letter);
+	}
+
+	/**
+	 * Purchases a letter. Purchasing a letter again has no further effect.
+	 * @param letter The letter to purchase.
+	 * @return The {@link Reply} containing the letter.
+	 */
+	private Reply purchaseLetter(StoredLetter letter) {
+		synchronized (letter) {
+			if (letter.purchasedAt == null) {
+				letter.purchasedAt = DateConverter.parse(new Date());
+				letter.status = "purchased";
+				purchaseCount.incrementAndGet();
+			}
+		}
+		return Reply.letter(letter);
+	}
+
+	/**
+	 * Finds a parameter in a URL query string.
+	 * @param query The raw query string, or null if there is none.
+	 * @param name The name of the parameter.
+	 * @return The decoded value of the parameter, or null if it is not present.
+	 */
+	private static String queryParameter(String query, String name) {
+		if (query == null) {
+			return null;
+		}
+		for (String pair : query.split("&")) {
+			int equals = pair.indexOf('=');
+			if (equals > 0 && pair.substring(0, equals).equals(name)) {
+				return URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Creates a factory for named daemon threads, so that a forgotten emulator does not keep the JVM alive.
+	 * @param name The name of the threads.
+	 * @return The thread factory.
+	 */
+	private static ThreadFactory daemon(final String name) {
+		final AtomicInteger count = new AtomicInteger();
+		return runnable -> {
+			Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
+	/**
+	 * A letter held by the emulator. Access is synchronised on the letter.
+	 */
+	private static class StoredLetter {
+
+		/** The ID of the letter. */
+		final int id;
+
+		/** The idempotency key the letter was created with, or null if there was none. */
+		final String idempotencyKey;
+
+		/** The status of the letter. */
+		String status = "draft";
+
+		/** The URL of the letter's document. */
+		String documentURL;
+
+		/** The sender's email address. */
+		String email;
+
+		/** The mailing date, in the server's date format. */
+		String mailingDate;
+
+		/** The time the letter was purchased, in the server's date format, or null if it has not been. */
+		String purchasedAt;
+
+		/** The sender's address. */
+		Map<String, Object> sender;
+
+		/** The recipient's address. */
+		Map<String, Object> recipient;
+
+		StoredLetter(int id, String idempotencyKey) {
+			this.id = id;
+			this.idempotencyKey = idempotencyKey;
+		}
+
+		/**
+		 * Applies the fields of a create or update request to this letter.
+		 * @param json The request body.
+		 */
+		void apply(JSONObject json) {
+			JSONObject letter = json.optJSONObject("letter");
+			if (letter != null) {
+				documentURL = letter.optString("pdf_remote_url", documentURL);
+				email = letter.optString("email", email);
+				if (letter.optJSONObject("sender_attributes") != null) {
+					sender = address(letter.optJSONObject("sender_attributes"));
+				}
+				if (letter.optJSONObject("recipient_attributes") != null) {
+					recipient = address(letter.optJSONObject("recipient_attributes"));
+				}
+			}
+			if (!json.isNull("mailing_year") && !json.isNull("mailing_month") && !json.isNull("mailing_day")) {
+				mailingDate = json.optString("mailing_year") + "-" + json.optString("mailing_month") + "-"
+					+ json.optString("mailing_day") + "T00:00:00Z";
+			}
+		}
+
+		/**
+		 * Builds the data of this letter, as the server sends it.
+		 * @return The letter, wrapped in an object under the "letter" key.
+		 */
+		synchronized Map<String, Object> toData() {
+			Map<String, Object> letter = new LinkedHashMap<String, Object>();
+			letter.put("id", id);
+			letter.put("status_field", status);
+			letter.put("pdf_remote_url", documentURL);
+			letter.put("email", email);
+			letter.put("mailing_date", mailingDate);
+			letter.put("sent_at", null);
+			letter.put("purchased_at", purchasedAt);
+			letter.put("sender", sender);
+			letter.put("recipient", recipient);
+			letter.put("idempotency_key", idempotencyKey);
+			Map<String, Object> wrapper = new LinkedHashMap<String, Object>();
+			wrapper.put("letter", letter);
+			return wrapper;
+		}
+
+		/**
+		 * Copies the fields of an address.
+		 * @param json The address as sent by the client.
+		 * @return The address as sent by the server.
+		 */
+		private static Map<String, Object> address(JSONObject json) {
+			Map<String, Object> address = new LinkedHashMap<String, Object>();
+			for (String field : new String[] { "name", "street1", "street2", "city", "state", "zip", "country" }) {
+				address.put(field, json.isNull(field) ? null : json.optString(field));
+			}
+			return address;
+		}
+
+	}
+
+	/**
+	 * A response to be sent by the emulator.
+	 */
+	private static class Reply {
+
+		/** The HTTP status code. */
+		final int code;
+
+		/** The response body, in the server's envelope. */
+		final Map<String, Object> envelope;
+
+		/** The number of seconds to send in a Retry-After header, or zero to send none. */
+		long retryAfter;
+
+		Reply(int code, String errors, String message, Object object) {
+			this.code = code;
+			Map<String, Object> response = new LinkedHashMap<String, Object>();
+			response.put("errors", errors);
+			response.put("code", code);
+			response.put("message", message);
+			response.put("object", object);
+			this.envelope = new LinkedHashMap<String, Object>();
+			envelope.put("response", response);
+		}
+
+		static Reply ok(Object object) {
+			return new Reply(200, null, "OK", object);
+		}
+
+		static Reply letter(StoredLetter letter) {
+			return ok(letter.toData());
+		}
+
+		static Reply error(int code, String message) {
+			return new Reply(code, message, message, null);
+		}
+
+		byte[] toByteArray() {
+			return new JSONRequestBody(envelope).toByteArray();
+		}
+
+	}
+
+}
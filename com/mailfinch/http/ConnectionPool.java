@@ -0,0 +1,606 @@
+package com.mailfinch.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.ProxySelector;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLPeerUnverifiedException;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import com.mailfinch.Resources;
+
+/**
+ * Maintains a pool of persistent HTTP/1.1 connections, so that successive requests
+ * to the same host can reuse an open socket instead of paying for a new TCP and TLS handshake.
+ * The number of connections to each host is capped, idle connections are kept
+ * up to a limit, and connections that have been idle for too long are evicted.
+ * <p>
+ * Like {@link java.net.HttpURLConnection}, connections go through the proxy chosen by the default
+ * {@link ProxySelector}, which follows the http.proxyHost and https.proxyHost system properties,
+ * tunnelling HTTPS through HTTP proxies with CONNECT. Proxies that ask for authentication are not
+ * supported. TLS uses the default socket factory and host name verifier of {@link HttpsURLConnection}.
+ * @author Richard Taylor <contact@rtaylor.me.uk>
+ */
+public class ConnectionPool {
+
+	/** The default maximum number of connections (leased and idle) to a single host. */
+	public static final int DEFAULT_MAX_TOTAL_PER_HOST = 20;
+
+	/** The default maximum number of idle connections kept open to a single host. */
+	public static final int DEFAULT_MAX_IDLE_PER_HOST = 5;
+
+	/** The default number of milliseconds that a connection may sit idle before being evicted. */
+	public static final long DEFAULT_IDLE_TIMEOUT = 30000;
+
+	/** The number of milliseconds of inactivity after which a connection is checked before reuse. */
+	private static final long VALIDATE_AFTER_INACTIVITY = 2000;
+
+	/** The maximum number of connections (leased and idle) to a single host. */
+	private final int maxTotalPerHost;
+
+	/** The maximum number of idle connections kept open to a single host. */
+	private final int maxIdlePerHost;
+
+	/** The number of milliseconds that a connection may sit idle before being evicted. */
+	private final long idleTimeout;
+
+	/** The connections to each route, keyed by scheme, host and port. */
+	private final Map<String, Route> routes = new HashMap<String, Route>();
+
+	/** The total number of connections that have been opened. */
+	private long createdCount;
+
+	/** The total number of times that an idle connection has been reused. */
+	private long reusedCount;
+
+	/** The total number of idle connections that have been evicted as expired or stale. */
+	private long evictedCount;
+
+	/** Whether or not this pool has been closed. */
+	private boolean closed;
+
+	/**
+	 * Initialises a new instance of the {@link ConnectionPool} class with the default limits.
+	 */
+	public ConnectionPool() {
+		this(DEFAULT_MAX_TOTAL_PER_HOST, DEFAULT_MAX_IDLE_PER_HOST, DEFAULT_IDLE_TIMEOUT);
+	}
+
+	/**
+	 * Initialises a new instance of the {@link ConnectionPool} class.
+	 * @param maxTotalPerHost The maximum number of connections (leased and idle) to a single host.
+	 * @param maxIdlePerHost The maximum number of idle connections kept open to a single host.
+	 * @param idleTimeout The number of milliseconds that a connection may sit idle before being evicted.
+	 */
+	public ConnectionPool(int maxTotalPerHost, int maxIdlePerHost, long idleTimeout) {
+		if (maxTotalPerHost < 1 || maxIdlePerHost < 0 || idleTimeout < 0) {
+			throw new IllegalArgumentException(Resources.INVALID_POOL_LIMITS);
+		}
+		this.maxTotalPerHost = maxTotalPerHost;
+		this.maxIdlePerHost = Math.min(maxIdlePerHost, maxTotalPerHost);
+		this.idleTimeout = idleTimeout;
+	}
+
+	/**
+	 * Sends a request over a pooled connection and reads the head of the response, without timeouts.
+	 * @param method The request method (GET, PUT, POST, or DELETE).
+	 * @param url The full URL to request.
+	 * @param headers The request headers to send.
+	 * @param body The {@link RequestBody} to send, or null if there is no body.
+	 * @return The {@link RawResponse} received from the server. Its body must be read or closed.
+	 * @throws IOException If the request could not be completed.
+	 */
+	public RawResponse send(String method, URL url, Map<String, String> headers, RequestBody body) throws IOException {
+		return send(method, url, headers, body, 0, 0);
+	}
+
+	/**
+	 * Sends a request over a pooled connection and reads the head of the response.
+	 * If a reused connection turns out to have been closed by the server before it
+	 * could respond, an idempotent request is retried once on a fresh connection.
+	 * @param method The request method (GET, PUT, POST, or DELETE).
+	 * @param url The full URL to request.
+	 * @param headers The request headers to send.
+	 * @param body The {@link RequestBody} to send, or null if there is no body.
+	 * @param connectTimeout The number of milliseconds to wait for a connection, or zero to wait indefinitely.
+	 * @param readTimeout The number of milliseconds to wait for data from the server, or zero to wait indefinitely.
+	 * This also applies while the body of the response is being read.
+	 * @return The {@link RawResponse} received from the server. Its body must be read or closed.
+	 * @throws IOException If the request could not be completed.
+	 */
+	public RawResponse send(String method, URL url, Map<String, String> headers, RequestBody body,
+							int connectTimeout, int readTimeout) throws IOException {
+		return send(method, url, headers, body, connectTimeout, readTimeout, isIdempotent(method));
+	}
+
+	/**
+	 * Sends a request over a pooled connection and reads the head of the response.
+	 * If a reused connection turns out to have been closed by the server before it
+	 * could respond, a replayable request is retried once on a fresh connection.
+	 * A request is never retried after timing out, since the server may still be working on it.
+	 * @param method The request method (GET, PUT, POST, or DELETE).
+	 * @param url The full URL to request.
+	 * @param headers The request headers to send.
+	 * @param body The {@link RequestBody} to send, or null if there is no body.
+	 * @param connectTimeout The number of milliseconds to wait for a connection, or zero to wait indefinitely.
+	 * @param readTimeout The number of milliseconds to wait for data from the server, or zero to wait indefinitely.
+	 * This also applies while the body of the response is being read.
+	 * @param replayable <c>true</c> if the request can safely be sent twice; <c>false</c> if it has
+	 * side effects that must not be repeated, such as purchasing a letter, even though its method is GET.
+	 * @return The {@link RawResponse} received from the server. Its body must be read or closed.
+	 * @throws IOException If the request could not be completed.
+	 */
+	public RawResponse send(String method, URL url, Map<String, String> headers, RequestBody body,
+							int connectTimeout, int readTimeout, boolean replayable) throws IOException {
+		for (int attempt = 0; ; attempt++) {
+			PooledConnection connection = lease(url, connectTimeout);
+			try {
+				connection.setReadTimeout(readTimeout);
+				connection.writeRequest(method, url, headers, body);
+				return connection.readResponse(method);
+			} catch (IOException e) {
+				release(connection, false);
+				if (attempt > 0 || !replayable || !connection.isReused() || connection.hasResponseStarted()
+						|| e instanceof SocketTimeoutException) {
+					throw e;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Leases a connection to the host of the given URL, waiting indefinitely if necessary.
+	 * @param url The URL to connect to.
+	 * @return A {@link PooledConnection} which must be returned with {@link #release}.
+	 * @throws IOException If a new connection could not be opened.
+	 */
+	public PooledConnection lease(URL url) throws IOException {
+		return lease(url, 0);
+	}
+
+	/**
+	 * Leases a connection to the host of the given URL, reusing an idle one where possible.
+	 * If the host already has the maximum number of connections, this blocks until one is released.
+	 * @param url The URL to connect to.
+	 * @param connectTimeout The number of milliseconds to wait for a free slot, and then to open
+	 * a new connection if one is needed, or zero to wait indefinitely.
+	 * @return A {@link PooledConnection} which must be returned with {@link #release}.
+	 * @throws IOException If a new connection could not be opened in time.
+	 */
+	public PooledConnection lease(URL url, int connectTimeout) throws IOException {
+		String key = routeKey(url);
+		for (;;) {
+			PooledConnection connection = acquire(key, connectTimeout);
+			if (connection == null) {
+				return open(key, url, connectTimeout);
+			}
+
+			// Check that the server hasn't closed a connection that has been idle for a while.
+			if (System.currentTimeMillis() - connection.getLastUsed() < VALIDATE_AFTER_INACTIVITY
+					|| !connection.isStale()) {
+				synchronized (this) {
+					reusedCount++;
+				}
+				return connection;
+			}
+			synchronized (this) {
+				evictedCount++;
+			}
+			release(connection, false);
+		}
+	}
+
+	/**
+	 * Takes an idle connection from a route, or reserves a slot for a new one,
+	 * waiting for a connection to be released if the route is at its limit.
+	 * @param key The route key.
+	 * @param timeout The number of milliseconds to wait, or zero to wait indefinitely.
+	 * @return An idle {@link PooledConnection}, or null if a slot has been reserved for a new connection.
+	 * @throws IOException If the pool is closed, or the thread times out or is interrupted while waiting.
+	 */
+	private PooledConnection acquire(String key, int timeout) throws IOException {
+		List<PooledConnection> discarded = new ArrayList<PooledConnection>();
+		long giveUpAt = System.currentTimeMillis() + timeout;
+		try {
+			synchronized (this) {
+				Route route = getRoute(key);
+				route.pending++;
+				try {
+					for (;;) {
+						if (closed) {
+							throw new IOException(Resources.POOL_CLOSED);
+						}
+						evictExpired(route, System.currentTimeMillis(), discarded);
+						if (!route.idle.isEmpty()) {
+							route.leased++;
+							return route.idle.pollFirst();
+						}
+						if (route.leased < maxTotalPerHost) {
+							route.leased++;
+							return null;
+						}
+						if (timeout == 0) {
+							wait();
+						} else {
+							long remaining = giveUpAt - System.currentTimeMillis();
+							if (remaining <= 0) {
+								throw new SocketTimeoutException(Resources.POOL_TIMEOUT);
+							}
+							wait(remaining);
+						}
+					}
+				} finally {
+					route.pending--;
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException(Resources.POOL_INTERRUPTED);
+		} finally {
+			for (PooledConnection connection : discarded) {
+				connection.close();
+			}
+		}
+	}
+
+	/**
+	 * Opens a new connection in a slot that has already been reserved by {@link #acquire}.
+	 * @param key The route key.
+	 * @param url The URL to connect to.
+	 * @param connectTimeout The number of milliseconds to wait for the connection, or zero to wait indefinitely.
+	 * @return The newly opened {@link PooledConnection}.
+	 * @throws IOException If the connection could not be opened.
+	 */
+	private PooledConnection open(String key, URL url, int connectTimeout) throws IOException {
+		try {
+			Proxy proxy = selectProxy(url);
+			Socket socket = connect(url, proxy, connectTimeout);
+			// Plain requests through an HTTP proxy name the whole URL, so that the proxy knows where to send them.
+			boolean absolute = (proxy.type() == Proxy.Type.HTTP && !isSecure(url));
+			PooledConnection connection = new PooledConnection(this, key, socket, absolute);
+			synchronized (this) {
+				createdCount++;
+			}
+			return connection;
+		} catch (IOException e) {
+			synchronized (this) {
+				getRoute(key).leased--;
+				notifyAll();
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Returns a leased connection to the pool.
+	 * @param connection The {@link PooledConnection} to return.
+	 * @param reusable Whether or not the connection may carry further requests.
+	 * If not, or if the host already has enough idle connections, it is closed.
+	 */
+	public void release(PooledConnection connection, boolean reusable) {
+		boolean keep;
+		synchronized (this) {
+			Route route = getRoute(connection.getRoute());
+			route.leased--;
+			keep = (reusable && !closed && route.idle.size() < maxIdlePerHost);
+			if (keep) {
+				connection.markIdle();
+				route.idle.addFirst(connection);
+			}
+			notifyAll();
+		}
+		if (!keep) {
+			connection.close();
+		}
+	}
+
+	/**
+	 * Closes any idle connections that have outlived the idle timeout.
+	 * This happens automatically whenever a connection is leased,
+	 * but can also be called periodically to free up sockets sooner.
+	 * @return The number of connections that were closed.
+	 */
+	public int evictIdle() {
+		List<PooledConnection> discarded = new ArrayList<PooledConnection>();
+		synchronized (this) {
+			long now = System.currentTimeMillis();
+			for (Route route : routes.values()) {
+				evictExpired(route, now, discarded);
+			}
+		}
+		for (PooledConnection connection : discarded) {
+			connection.close();
+		}
+		return discarded.size();
+	}
+
+	/**
+	 * Gets a snapshot of the current state of this pool.
+	 * @return A {@link PoolStatistics} object describing this pool.
+	 */
+	public synchronized PoolStatistics getStatistics() {
+		int leased = 0;
+		int idle = 0;
+		int pending = 0;
+		for (Route route : routes.values()) {
+			leased += route.leased;
+			idle += route.idle.size();
+			pending += route.pending;
+		}
+		return new PoolStatistics(leased, idle, pending, createdCount, reusedCount, evictedCount,
+				maxTotalPerHost, maxIdlePerHost);
+	}
+
+	/**
+	 * Closes all idle connections and stops any further connections from being leased.
+	 * Connections that are currently leased are closed as they are released.
+	 */
+	public void close() {
+		List<PooledConnection> discarded = new ArrayList<PooledConnection>();
+		synchronized (this) {
+			closed = true;
+			for (Route route : routes.values()) {
+				discarded.addAll(route.idle);
+				route.idle.clear();
+			}
+			notifyAll();
+		}
+		for (PooledConnection connection : discarded) {
+			connection.close();
+		}
+	}
+
+	/**
+	 * Chooses how to reach the host of the given URL, using the default {@link ProxySelector}.
+	 * @param url The URL to connect to.
+	 * @return The first {@link Proxy} offered for the URL, or {@link Proxy#NO_PROXY} to connect directly.
+	 */
+	protected Proxy selectProxy(URL url) {
+		ProxySelector selector = ProxySelector.getDefault();
+		if (selector == null) {
+			return Proxy.NO_PROXY;
+		}
+		try {
+			List<Proxy> proxies = selector.select(new URI(url.getProtocol(), null, hostOf(url), portOf(url), null, null, null));
+			return (proxies == null || proxies.isEmpty()) ? Proxy.NO_PROXY : proxies.get(0);
+		} catch (URISyntaxException e) {
+			return Proxy.NO_PROXY;
+		}
+	}
+
+	/**
+	 * Opens a new socket to the host of the given URL, through a proxy if one is given,
+	 * and negotiates TLS for HTTPS URLs.
+	 * @param url The URL to connect to.
+	 * @param proxy The {@link Proxy} to connect through, or {@link Proxy#NO_PROXY} to connect directly.
+	 * @param timeout The number of milliseconds allowed for connecting and for each read
+	 * during the proxy and TLS handshakes, or zero to wait indefinitely.
+	 * @return The connected socket.
+	 * @throws IOException If the socket could not be connected.
+	 */
+	protected Socket connect(URL url, Proxy proxy, int timeout) throws IOException {
+		String host = hostOf(url);
+		int port = portOf(url);
+		Socket socket = (proxy.type() == Proxy.Type.SOCKS) ? new Socket(proxy) : new Socket();
+		try {
+			socket.setTcpNoDelay(true);
+			socket.setKeepAlive(true);
+			socket.setSoTimeout(timeout);
+			if (proxy.type() == Proxy.Type.HTTP) {
+				InetSocketAddress address = (InetSocketAddress) proxy.address();
+				connectToProxy(socket, url, proxy, new InetSocketAddress(address.getHostString(), address.getPort()), timeout);
+				if (isSecure(url)) {
+					openTunnel(socket, host, port);
+				}
+			} else if (proxy.type() == Proxy.Type.SOCKS) {
+				// Let the proxy look the host up, as it may know names that this machine does not.
+				socket.connect(InetSocketAddress.createUnresolved(host, port), timeout);
+			} else {
+				socket.connect(new InetSocketAddress(host, port), timeout);
+			}
+			if (!isSecure(url)) {
+				return socket;
+			}
+			SSLSocketFactory factory = HttpsURLConnection.getDefaultSSLSocketFactory();
+			SSLSocket secure = (SSLSocket) factory.createSocket(socket, host, port, true);
+			HostnameVerifier verifier = HttpsURLConnection.getDefaultHostnameVerifier();
+			// As HttpsURLConnection does, check the host name during the handshake unless a verifier has been set.
+			boolean customVerifier = !verifier.getClass().getName().equals("javax.net.ssl.HttpsURLConnection$DefaultHostnameVerifier");
+			if (!customVerifier) {
+				SSLParameters parameters = secure.getSSLParameters();
+				parameters.setEndpointIdentificationAlgorithm("HTTPS");
+				secure.setSSLParameters(parameters);
+			}
+			secure.startHandshake();
+			if (customVerifier && !verifier.verify(host, secure.getSession())) {
+				secure.close();
+				throw new SSLPeerUnverifiedException(Resources.HOST_NOT_VERIFIED);
+			}
+			return secure;
+		} catch (IOException e) {
+			socket.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Connects a socket to an HTTP proxy, telling the default {@link ProxySelector} if the proxy cannot be reached.
+	 * @param socket The socket to connect.
+	 * @param url The URL that the proxy was chosen for.
+	 * @param proxy The {@link Proxy} being connected to.
+	 * @param address The address of the proxy.
+	 * @param timeout The number of milliseconds allowed for connecting, or zero to wait indefinitely.
+	 * @throws IOException If the socket could not be connected.
+	 */
+	private void connectToProxy(Socket socket, URL url, Proxy proxy, SocketAddress address, int timeout) throws IOException {
+		try {
+			socket.connect(address, timeout);
+		} catch (IOException e) {
+			ProxySelector selector = ProxySelector.getDefault();
+			if (selector != null) {
+				try {
+					selector.connectFailed(new URI(url.getProtocol(), null, hostOf(url), portOf(url), null, null, null), address, e);
+				} catch (URISyntaxException ignored) {
+					// The proxy was chosen for this URL, so it is valid.
+				}
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Asks an HTTP proxy to open a tunnel to a host, over which TLS can then be negotiated.
+	 * @param socket The socket connected to the proxy.
+	 * @param host The host to open the tunnel to.
+	 * @param port The port to open the tunnel to.
+	 * @throws IOException If the proxy refused, or could not be understood.
+	 */
+	private static void openTunnel(Socket socket, String host, int port) throws IOException {
+		String authority = hostHeader(host) + ":" + port;
+		OutputStream output = socket.getOutputStream();
+		output.write(("CONNECT " + authority + " HTTP/1.1\r\nHost: " + authority + "\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+		output.flush();
+
+		// Read the reply a byte at a time, so that nothing after it is taken from the TLS handshake.
+		InputStream input = socket.getInputStream();
+		String statusLine = RawResponse.readLine(input);
+		if (statusLine == null) {
+			throw new IOException(Resources.PROXY_TUNNEL_FAILED);
+		}
+		int statusCode = RawResponse.parseStatusCode(statusLine);
+		String line;
+		while ((line = RawResponse.readLine(input)) != null && !line.isEmpty()) {
+			// The headers of the reply are not needed.
+		}
+		if (line == null || statusCode < 200 || statusCode >= 300) {
+			throw new IOException(Resources.PROXY_TUNNEL_FAILED);
+		}
+	}
+
+	/**
+	 * Gets the host of a URL as a name or address that a socket can connect to,
+	 * without the brackets that enclose an IPv6 address in a URL.
+	 * @param url The URL to get the host of.
+	 * @return The host of the URL.
+	 */
+	static String hostOf(URL url) {
+		String host = url.getHost();
+		return (host.startsWith("[") && host.endsWith("]")) ? host.substring(1, host.length() - 1) : host;
+	}
+
+	/**
+	 * Gets a host in the form used by the Host header and request targets,
+	 * enclosing an IPv6 address in brackets.
+	 * @param host The host name or address, without brackets.
+	 * @return The host in the form used by HTTP.
+	 */
+	static String hostHeader(String host) {
+		return (host.indexOf(':') >= 0) ? "[" + host + "]" : host;
+	}
+
+	/**
+	 * Gets the port of a URL, or the default port of its scheme if it gives none.
+	 * @param url The URL to get the port of.
+	 * @return The port of the URL.
+	 */
+	private static int portOf(URL url) {
+		return (url.getPort() != -1) ? url.getPort() : url.getDefaultPort();
+	}
+
+	/**
+	 * Determines whether a URL is to be fetched over TLS.
+	 * @param url The URL to check.
+	 * @return <c>true</c> if the URL uses HTTPS; otherwise, <c>false</c>.
+	 */
+	private static boolean isSecure(URL url) {
+		return "https".equalsIgnoreCase(url.getProtocol());
+	}
+
+	/**
+	 * Moves any expired idle connections of a route into the given list to be closed.
+	 * Idle connections are kept most-recently-used first, so the oldest are at the end.
+	 * @param route The route to check.
+	 * @param now The current time.
+	 * @param discarded The list to add expired connections to.
+	 */
+	private void evictExpired(Route route, long now, List<PooledConnection> discarded) {
+		Iterator<PooledConnection> iterator = route.idle.descendingIterator();
+		while (iterator.hasNext()) {
+			PooledConnection connection = iterator.next();
+			if (connection.isExpired(now, idleTimeout)) {
+				iterator.remove();
+				discarded.add(connection);
+				evictedCount++;
+			}
+		}
+	}
+
+	/**
+	 * Gets the state of the given route, creating it if necessary.
+	 * @param key The route key.
+	 * @return The {@link Route} for the key.
+	 */
+	private Route getRoute(String key) {
+		Route route = routes.get(key);
+		if (route == null) {
+			route = new Route();
+			routes.put(key, route);
+		}
+		return route;
+	}
+
+	/**
+	 * Builds the key identifying the route to the host of a URL.
+	 * @param url The URL to build the key for.
+	 * @return The route key, in the form "scheme://host:port".
+	 */
+	private static String routeKey(URL url) {
+		return url.getProtocol().toLowerCase() + "://" + url.getHost().toLowerCase() + ":" + portOf(url);
+	}
+
+	/**
+	 * Determines whether a request method can safely be sent twice.
+	 * @param method The request method.
+	 * @return <c>true</c> if the method is idempotent; otherwise, <c>false</c>.
+	 */
+	public static boolean isIdempotent(String method) {
+		return method.equals("GET") || method.equals("HEAD") || method.equals("PUT") || method.equals("DELETE");
+	}
+
+	/**
+	 * The connections belonging to a single route.
+	 */
+	private static class Route {
+
+		/** The idle connections, most recently used first. */
+		final Deque<PooledConnection> idle = new ArrayDeque<PooledConnection>();
+
+		/** The number of connections currently leased, or being opened. */
+		int leased;
+
+		/** The number of threads currently trying to lease a connection. */
+		int pending;
+
+	}
+
+}
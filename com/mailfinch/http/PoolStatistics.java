@@ -0,0 +1,126 @@
+package com.mailfinch.http;
+
+/**
+ * An immutable snapshot of the state of a {@link ConnectionPool}.
+ * @author Richard Taylor <contact@rtaylor.me.uk>
+ */
+public class PoolStatistics {
+
+	/** The number of connections currently leased to requests. */
+	private final int leased;
+
+	/** The number of connections currently open but idle. */
+	private final int idle;
+
+	/** The number of threads currently waiting to lease a connection. */
+	private final int pending;
+
+	/** The total number of connections that have been opened. */
+	private final long created;
+
+	/** The total number of times that an idle connection has been reused. */
+	private final long reused;
+
+	/** The total number of idle connections that have been evicted as expired or stale. */
+	private final long evicted;
+
+	/** The maximum number of connections (leased and idle) to a single host. */
+	private final int maxTotalPerHost;
+
+	/** The maximum number of idle connections kept open to a single host. */
+	private final int maxIdlePerHost;
+
+	/**
+	 * Initialises a new instance of the {@link PoolStatistics} class.
+	 * @param leased The number of connections currently leased to requests.
+	 * @param idle The number of connections currently open but idle.
+	 * @param pending The number of threads currently waiting to lease a connection.
+	 * @param created The total number of connections that have been opened.
+	 * @param reused The total number of times that an idle connection has been reused.
+	 * @param evicted The total number of idle connections that have been evicted.
+	 * @param maxTotalPerHost The maximum number of connections to a single host.
+	 * @param maxIdlePerHost The maximum number of idle connections kept open to a single host.
+	 */
+	public PoolStatistics(int leased, int idle, int pending, long created, long reused,
+						  long evicted, int maxTotalPerHost, int maxIdlePerHost) {
+		this.leased = leased;
+		this.idle = idle;
+		this.pending = pending;
+		this.created = created;
+		this.reused = reused;
+		this.evicted = evicted;
+		this.maxTotalPerHost = maxTotalPerHost;
+		this.maxIdlePerHost = maxIdlePerHost;
+	}
+
+	/**
+	 * Gets the number of connections currently leased to requests.
+	 * @return The number of connections currently leased to requests.
+	 */
+	public int getLeased() {
+		return leased;
+	}
+
+	/**
+	 * Gets the number of connections currently open but idle.
+	 * @return The number of connections currently open but idle.
+	 */
+	public int getIdle() {
+		return idle;
+	}
+
+	/**
+	 * Gets the number of threads currently waiting to lease a connection.
+	 * @return The number of threads currently waiting to lease a connection.
+	 */
+	public int getPending() {
+		return pending;
+	}
+
+	/**
+	 * Gets the total number of connections that have been opened.
+	 * @return The total number of connections that have been opened.
+	 */
+	public long getCreated() {
+		return created;
+	}
+
+	/**
+	 * Gets the total number of times that an idle connection has been reused.
+	 * @return The total number of times that an idle connection has been reused.
+	 */
+	public long getReused() {
+		return reused;
+	}
+
+	/**
+	 * Gets the total number of idle connections that have been evicted as expired or stale.
+	 * @return The total number of idle connections that have been evicted.
+	 */
+	public long getEvicted() {
+		return evicted;
+	}
+
+	/**
+	 * Gets the maximum number of connections (leased and idle) to a single host.
+	 * @return The maximum number of connections to a single host.
+	 */
+	public int getMaxTotalPerHost() {
+		return maxTotalPerHost;
+	}
+
+	/**
+	 * Gets the maximum number of idle connections kept open to a single host.
+	 * @return The maximum number of idle connections kept open to a single host.
+	 */
+	public int getMaxIdlePerHost() {
+		return maxIdlePerHost;
+	}
+
+	@Override
+	public String toString() {
+		return "PoolStatistics[leased=" + leased + ", idle=" + idle + ", pending=" + pending
+				+ ", created=" + created + ", reused=" + reused + ", evicted=" + evicted + "]";
+	}
+
+}
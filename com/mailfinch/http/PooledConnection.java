@@ -0,0 +1,298 @@
+package com.mailfinch.http;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * A persistent HTTP/1.1 connection to a single host,
+ * which is leased from and returned to a {@link ConnectionPool}.
+ * @author Richard Taylor <contact@rtaylor.me.uk>
+ */
+public class PooledConnection {
+
+	/** The size of the buffers placed around the socket streams. */
+	private static final int BUFFER_SIZE = 8192;
+
+	/** The line terminator used by HTTP. */
+	private static final byte[] CRLF = { '\r', '\n' };
+
+	/** The {@link ConnectionPool} that this connection belongs to. */
+	private final ConnectionPool pool;
+
+	/** The route (scheme, host and port) that this connection is open to. */
+	private final String route;
+
+	/** The underlying socket of this connection. */
+	private final Socket socket;
+
+	/** Whether or not requests name the whole URL, as they must when sent to an HTTP proxy. */
+	private final boolean absolute;
+
+	/** The buffered stream used to read responses from the socket. */
+	private final InputStream input;
+
+	/** The buffered stream used to write requests to the socket. */
+	private final OutputStream output;
+
+	/** The number of requests that have been sent over this connection. */
+	private int requestCount;
+
+	/** The time at which this connection was last returned to the pool. */
+	private long lastUsed;
+
+	/** The number of milliseconds the server has agreed to keep this connection alive, or -1 if unknown. */
+	private long keepAliveTimeout = -1;
+
+	/** Whether or not any part of the current response has been received. */
+	private boolean responseStarted;
+
+	/**
+	 * Initialises a new instance of the {@link PooledConnection} class.
+	 * @param pool The {@link ConnectionPool} that this connection belongs to.
+	 * @param route The route (scheme, host and port) that this connection is open to.
+	 * @param socket The connected socket to communicate over.
+	 * @param absolute Whether or not requests name the whole URL, as they must when sent to an HTTP proxy.
+	 * @throws IOException If the socket streams could not be opened.
+	 */
+	PooledConnection(ConnectionPool pool, String route, Socket socket, boolean absolute) throws IOException {
+		this.pool = pool;
+		this.route = route;
+		this.socket = socket;
+		this.absolute = absolute;
+		this.input = new BufferedInputStream(socket.getInputStream(), BUFFER_SIZE);
+		this.output = new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE);
+		this.lastUsed = System.currentTimeMillis();
+	}
+
+	/**
+	 * Gets the route (scheme, host and port) that this connection is open to.
+	 * @return The route that this connection is open to.
+	 */
+	public String getRoute() {
+		return route;
+	}
+
+	/**
+	 * Determines whether or not this connection has been used for an earlier request.
+	 * @return <c>true</c> if this connection has carried an earlier request; otherwise, <c>false</c>.
+	 */
+	public boolean isReused() {
+		return (requestCount > 1);
+	}
+
+	/**
+	 * Sets how long to wait for data from the server before giving up on the current request.
+	 * @param timeout The read timeout in milliseconds, or zero to wait indefinitely.
+	 * @throws IOException If the timeout could not be set.
+	 */
+	public void setReadTimeout(int timeout) throws IOException {
+		socket.setSoTimeout(timeout);
+	}
+
+	/**
+	 * Writes an HTTP/1.1 request to the server.
+	 * @param method The request method (GET, PUT, POST, or DELETE).
+	 * @param url The full URL being requested.
+	 * @param headers The request headers to send.
+	 * @param body The {@link RequestBody} to send, or null if there is no body.
+	 * @throws IOException If the request could not be written.
+	 */
+	public void writeRequest(String method, URL url, Map<String, String> headers, RequestBody body) throws IOException {
+		responseStarted = false;
+		requestCount++;
+		long length = (body != null) ? body.getContentLength() : -1;
+		String path = url.getFile();
+		StringBuilder authority = new StringBuilder(ConnectionPool.hostHeader(ConnectionPool.hostOf(url)));
+		if (url.getPort() != -1 && url.getPort() != url.getDefaultPort()) {
+			authority.append(':').append(url.getPort());
+		}
+		StringBuilder head = new StringBuilder(256);
+		head.append(method).append(' ');
+		if (absolute) {
+			head.append(url.getProtocol()).append("://").append(authority);
+		}
+		head.append(path.isEmpty() ? "/" : path).append(" HTTP/1.1\r\n");
+		head.append("Host: ").append(authority).append("\r\n");
+		for (Entry<String, String> header : headers.entrySet()) {
+			head.append(header.getKey()).append(": ").append(header.getValue()).append("\r\n");
+		}
+		if (body != null && length >= 0) {
+			head.append("Content-Length: ").append(length).append("\r\n");
+		} else if (body != null) {
+			head.append("Transfer-Encoding: chunked\r\n");
+		}
+		head.append("\r\n");
+		output.write(head.toString().getBytes(StandardCharsets.ISO_8859_1));
+		if (body != null && length >= 0) {
+			body.writeTo(output);
+		} else if (body != null) {
+			ChunkedOutputStream chunked = new ChunkedOutputStream(output);
+			body.writeTo(chunked);
+			chunked.finish();
+		}
+		output.flush();
+	}
+
+	/**
+	 * Reads the status line and headers of the server's response.
+	 * The body of the response remains on this connection until it has been read,
+	 * after which the connection is returned to its pool.
+	 * @param method The request method that the response belongs to.
+	 * @return The {@link RawResponse} received from the server.
+	 * @throws IOException If the response could not be read.
+	 */
+	public RawResponse readResponse(String method) throws IOException {
+		responseStarted = false;
+		input.mark(1);
+		if (input.read() == -1) {
+			throw new EOFException("The server closed the connection without a response.");
+		}
+		input.reset();
+		responseStarted = true;
+		return RawResponse.read(this, input, method);
+	}
+
+	/**
+	 * Determines whether or not any part of the current response has been received.
+	 * If not, a failed request can be assumed never to have been processed by the server.
+	 * @return <c>true</c> if the server has started to respond; otherwise, <c>false</c>.
+	 */
+	public boolean hasResponseStarted() {
+		return responseStarted;
+	}
+
+	/**
+	 * Returns this connection to its pool once a response has been fully consumed.
+	 * @param reusable Whether or not this connection may carry further requests.
+	 */
+	void release(boolean reusable) {
+		pool.release(this, reusable);
+	}
+
+	/**
+	 * Sets the number of milliseconds that the server has agreed to keep this connection alive.
+	 * @param timeout The keep-alive timeout in milliseconds, or -1 if unknown.
+	 */
+	void setKeepAliveTimeout(long timeout) {
+		keepAliveTimeout = timeout;
+	}
+
+	/**
+	 * Gets the time at which this connection was last returned to the pool.
+	 * @return The time at which this connection was last returned to the pool.
+	 */
+	long getLastUsed() {
+		return lastUsed;
+	}
+
+	/**
+	 * Marks this connection as idle from the current time.
+	 */
+	void markIdle() {
+		lastUsed = System.currentTimeMillis();
+	}
+
+	/**
+	 * Determines whether or not this connection has been idle for too long to be reused.
+	 * @param now The current time.
+	 * @param idleTimeout The maximum idle time allowed by the pool.
+	 * @return <c>true</c> if this connection has expired; otherwise, <c>false</c>.
+	 */
+	boolean isExpired(long now, long idleTimeout) {
+		long timeout = (keepAliveTimeout >= 0) ? Math.min(keepAliveTimeout, idleTimeout) : idleTimeout;
+		return (now - lastUsed >= timeout);
+	}
+
+	/**
+	 * Checks whether the server has closed this connection while it was idle,
+	 * by briefly polling the socket for an end of stream.
+	 * @return <c>true</c> if this connection can no longer be used; otherwise, <c>false</c>.
+	 */
+	boolean isStale() {
+		if (socket.isClosed() || socket.isInputShutdown() || socket.isOutputShutdown()) {
+			return true;
+		}
+		try {
+			int timeout = socket.getSoTimeout();
+			socket.setSoTimeout(1);
+			try {
+				// Either the server has closed the connection, or it has sent unsolicited
+				// data that leaves us out of step with it. Neither can be reused.
+				input.read();
+				return true;
+			} catch (SocketTimeoutException e) {
+				return false;
+			} finally {
+				socket.setSoTimeout(timeout);
+			}
+		} catch (IOException e) {
+			return true;
+		}
+	}
+
+	/**
+	 * Closes this connection, ignoring any errors.
+	 */
+	void close() {
+		try {
+			socket.close();
+		} catch (IOException e) {
+			// The connection is being discarded anyway.
+		}
+	}
+
+	/**
+	 * Writes a request body using chunked transfer encoding,
+	 * for bodies whose length is not known in advance.
+	 */
+	private static class ChunkedOutputStream extends FilterOutputStream {
+
+		ChunkedOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] buffer, int offset, int length) throws IOException {
+			if (length == 0) {
+				// An empty chunk would mark the end of the body.
+				return;
+			}
+			out.write((Integer.toHexString(length) + "\r\n").getBytes(StandardCharsets.ISO_8859_1));
+			out.write(buffer, offset, length);
+			out.write(CRLF);
+		}
+
+		@Override
+		public void close() {
+			// The connection stays open for the response.
+		}
+
+		/**
+		 * Writes the final, empty chunk that ends the body.
+		 * @throws IOException If the chunk could not be written.
+		 */
+		void finish() throws IOException {
+			out.write('0');
+			out.write(CRLF);
+			out.write(CRLF);
+		}
+
+	}
+
+}
@@ -0,0 +1,474 @@
+package com.mailfinch.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ProtocolException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Represents an HTTP response read from a {@link PooledConnection}.
+ * The response body must be read to the end or closed, at which point
+ * the underlying connection is returned to its {@link ConnectionPool}.
+ * @author Richard Taylor <contact@rtaylor.me.uk>
+ */
+public class RawResponse {
+
+	/** The HTTP status code of the response. */
+	private final int statusCode;
+
+	/** The HTTP headers of the response, keyed case-insensitively. */
+	private final Map<String, String> headers;
+
+	/** The length of the response body, or -1 if it is not known in advance. */
+	private final long contentLength;
+
+	/** The stream containing the response body. */
+	private final InputStream body;
+
+	/**
+	 * Initialises a new instance of the {@link RawResponse} class.
+	 * @param statusCode The HTTP status code of the response.
+	 * @param headers The HTTP headers of the response.
+	 * @param contentLength The length of the response body, or -1 if it is not known in advance.
+	 * @param body The stream containing the response body.
+	 */
+	private RawResponse(int statusCode, Map<String, String> headers, long contentLength, InputStream body) {
+		this.statusCode = statusCode;
+		this.headers = headers;
+		this.contentLength = contentLength;
+		this.body = body;
+	}
+
+	/**
+	 * Gets the HTTP status code of this response.
+	 * @return The HTTP status code of this response.
+	 */
+	public int getStatusCode() {
+		return statusCode;
+	}
+
+	/**
+	 * Gets the value of the specified response header.
+	 * @param name The case-insensitive name of the header.
+	 * @return The value of the header, or null if it was not sent.
+	 */
+	public String getHeader(String name) {
+		return headers.get(name);
+	}
+
+	/**
+	 * Gets the length of the response body, as declared by the server.
+	 * @return The length of the response body, or -1 if it is not known in advance.
+	 */
+	public long getContentLength() {
+		return contentLength;
+	}
+
+	/**
+	 * Gets the stream containing the response body.
+	 * Closing this stream returns the connection to its pool.
+	 * @return The stream containing the response body.
+	 */
+	public InputStream getBody() {
+		return body;
+	}
+
+	/**
+	 * Reads the status line and headers of a response from a connection.
+	 * @param connection The {@link PooledConnection} that the response arrived on.
+	 * @param in The buffered input stream of the connection.
+	 * @param method The request method that the response belongs to.
+	 * @return The {@link RawResponse} that was read.
+	 * @throws IOException If the response could not be read.
+	 */
+	static RawResponse read(PooledConnection connection, InputStream in, String method) throws IOException {
+		for (;;) {
+			String statusLine = readLine(in);
+			if (statusLine == null) {
+				throw new EOFException("The server closed the connection without a response.");
+			}
+			int statusCode = parseStatusCode(statusLine);
+			Map<String, String> headers = readHeaders(in);
+
+			// Skip informational responses such as 100 Continue.
+			if (statusCode >= 200) {
+				return create(connection, in, method, statusLine, statusCode, headers);
+			}
+		}
+	}
+
+	/**
+	 * Creates a response from a status line and headers that have already been read.
+	 * @param connection The {@link PooledConnection} that the response arrived on.
+	 * @param in The buffered input stream of the connection.
+	 * @param method The request method that the response belongs to.
+	 * @param statusLine The status line of the response.
+	 * @param statusCode The HTTP status code of the response.
+	 * @param headers The HTTP headers of the response.
+	 * @return The created {@link RawResponse}.
+	 * @throws IOException If the response framing is invalid.
+	 */
+	private static RawResponse create(PooledConnection connection, InputStream in, String method,
+			String statusLine, int statusCode, Map<String, String> headers) throws IOException {
+		// Work out whether the server will keep the connection open afterwards.
+		String connectionHeader = headers.get("Connection");
+		boolean keepAlive;
+		if (statusLine.startsWith("HTTP/1.0")) {
+			keepAlive = "keep-alive".equalsIgnoreCase(connectionHeader);
+		} else {
+			keepAlive = !"close".equalsIgnoreCase(connectionHeader);
+		}
+		connection.setKeepAliveTimeout(parseKeepAliveTimeout(headers.get("Keep-Alive")));
+
+		// Work out how the body of the response is framed.
+		long contentLength = -1;
+		InputStream body;
+		if (method.equals("HEAD") || statusCode == 204 || statusCode == 304) {
+			contentLength = 0;
+			body = new FixedLengthInputStream(connection, in, 0, keepAlive);
+		} else if ("chunked".equalsIgnoreCase(headers.get("Transfer-Encoding"))) {
+			body = new ChunkedInputStream(connection, in, keepAlive);
+		} else if (headers.get("Content-Length") != null) {
+			try {
+				contentLength = Long.parseLong(headers.get("Content-Length").trim());
+			} catch (NumberFormatException e) {
+				throw new ProtocolException("Invalid Content-Length: " + headers.get("Content-Length"));
+			}
+			body = new FixedLengthInputStream(connection, in, contentLength, keepAlive);
+		} else {
+			body = new UntilCloseInputStream(connection, in);
+		}
+		return new RawResponse(statusCode, headers, contentLength, body);
+	}
+
+	/**
+	 * Parses the status code from an HTTP status line.
+	 * @param statusLine The status line, e.g. "HTTP/1.1 200 OK".
+	 * @return The status code.
+	 * @throws IOException If the status line is malformed.
+	 */
+	static int parseStatusCode(String statusLine) throws IOException {
+		if (!statusLine.startsWith("HTTP/") || statusLine.length() < 12) {
+			throw new ProtocolException("Unexpected status line: " + statusLine);
+		}
+		try {
+			return Integer.parseInt(statusLine.substring(9, 12));
+		} catch (NumberFormatException e) {
+			throw new ProtocolException("Unexpected status line: " + statusLine);
+		}
+	}
+
+	/**
+	 * Parses the timeout parameter of a Keep-Alive header, e.g. "timeout=5, max=100".
+	 * @param header The value of the Keep-Alive header, or null.
+	 * @return The timeout in milliseconds, or -1 if none was given.
+	 */
+	private static long parseKeepAliveTimeout(String header) {
+		if (header == null) {
+			return -1;
+		}
+		for (String parameter : header.split(",")) {
+			String[] pair = parameter.trim().split("=", 2);
+			if (pair.length == 2 && pair[0].trim().equalsIgnoreCase("timeout")) {
+				try {
+					return Long.parseLong(pair[1].trim()) * 1000;
+				} catch (NumberFormatException e) {
+					return -1;
+				}
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Reads HTTP headers up to and including the blank line that ends them.
+	 * @param in The stream to read from.
+	 * @return The headers that were read, keyed case-insensitively.
+	 * @throws IOException If the headers could not be read.
+	 */
+	private static Map<String, String> readHeaders(InputStream in) throws IOException {
+		Map<String, String> headers = new TreeMap<String, String>(String.CASE_INSENSITIVE_ORDER);
+		String line;
+		while ((line = readLine(in)) != null && !line.isEmpty()) {
+			int colon = line.indexOf(':');
+			if (colon > 0) {
+				String name = line.substring(0, colon).trim();
+				String value = line.substring(colon + 1).trim();
+				String existing = headers.get(name);
+				headers.put(name, (existing == null) ? value : existing + ", " + value);
+			}
+		}
+		if (line == null) {
+			throw new EOFException("The server closed the connection while sending headers.");
+		}
+		return headers;
+	}
+
+	/**
+	 * Reads a single CRLF-terminated line of ISO-8859-1 text.
+	 * @param in The stream to read from.
+	 * @return The line without its terminator, or null if the stream ended before any data.
+	 * @throws IOException If the line could not be read.
+	 */
+	static String readLine(InputStream in) throws IOException {
+		ByteArrayOutputStream line = new ByteArrayOutputStream(64);
+		int b;
+		while ((b = in.read()) != -1) {
+			if (b == '\n') {
+				byte[] bytes = line.toByteArray();
+				int length = (bytes.length > 0 && bytes[bytes.length - 1] == '\r') ? bytes.length - 1 : bytes.length;
+				return new String(bytes, 0, length, StandardCharsets.ISO_8859_1);
+			}
+			line.write(b);
+		}
+		if (line.size() == 0) {
+			return null;
+		}
+		throw new EOFException("The server closed the connection mid-line.");
+	}
+
+	/**
+	 * A response body of a known length. Once it has been read to the end,
+	 * the connection is returned to its pool for reuse.
+	 */
+	private static class FixedLengthInputStream extends FilterInputStream {
+
+		/** The connection that the body is being read from. */
+		private final PooledConnection connection;
+
+		/** Whether or not the server will keep the connection open. */
+		private final boolean keepAlive;
+
+		/** The number of bytes of the body that remain to be read. */
+		private long remaining;
+
+		/** Whether or not the connection has already been released. */
+		private boolean released;
+
+		FixedLengthInputStream(PooledConnection connection, InputStream in, long length, boolean keepAlive) {
+			super(in);
+			this.connection = connection;
+			this.keepAlive = keepAlive;
+			this.remaining = length;
+			if (remaining == 0) {
+				release(keepAlive);
+			}
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (remaining <= 0) {
+				return -1;
+			}
+			int b = checkedRead(in.read());
+			remaining--;
+			if (remaining == 0) {
+				release(keepAlive);
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+			if (remaining <= 0) {
+				return -1;
+			}
+			int count = checkedRead(in.read(buffer, offset, (int) Math.min(length, remaining)));
+			remaining -= count;
+			if (remaining == 0) {
+				release(keepAlive);
+			}
+			return count;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			byte[] scratch = new byte[(int) Math.min(Math.max(n, 0), 4096)];
+			long skipped = 0;
+			while (skipped < n) {
+				int count = read(scratch, 0, (int) Math.min(scratch.length, n - skipped));
+				if (count == -1) {
+					break;
+				}
+				skipped += count;
+			}
+			return skipped;
+		}
+
+		@Override
+		public int available() throws IOException {
+			return (int) Math.min(in.available(), remaining);
+		}
+
+		@Override
+		public boolean markSupported() {
+			return false;
+		}
+
+		@Override
+		public void close() {
+			// An unread remainder leaves the connection out of step, so it cannot be reused.
+			release(remaining == 0 && keepAlive);
+		}
+
+		private int checkedRead(int count) throws IOException {
+			if (count == -1) {
+				release(false);
+				throw new EOFException("The server closed the connection before the body was complete.");
+			}
+			return count;
+		}
+
+		private void release(boolean reusable) {
+			if (!released) {
+				released = true;
+				connection.release(reusable);
+			}
+		}
+
+	}
+
+	/**
+	 * A response body sent using chunked transfer encoding.
+	 * Once the final chunk has been read, the connection is returned to its pool for reuse.
+	 */
+	private static class ChunkedInputStream extends FilterInputStream {
+
+		/** The connection that the body is being read from. */
+		private final PooledConnection connection;
+
+		/** Whether or not the server will keep the connection open. */
+		private final boolean keepAlive;
+
+		/** The number of bytes that remain to be read in the current chunk. */
+		private long chunkRemaining;
+
+		/** Whether or not the final chunk has been read. */
+		private boolean finished;
+
+		/** Whether or not the connection has already been released. */
+		private boolean released;
+
+		ChunkedInputStream(PooledConnection connection, InputStream in, boolean keepAlive) {
+			super(in);
+			this.connection = connection;
+			this.keepAlive = keepAlive;
+		}
+
+		@Override
+		public int read() throws IOException {
+			byte[] single = new byte[1];
+			return (read(single, 0, 1) == -1) ? -1 : (single[0] & 0xFF);
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+			if (finished || !nextChunk()) {
+				return -1;
+			}
+			int count = in.read(buffer, offset, (int) Math.min(length, chunkRemaining));
+			if (count == -1) {
+				release(false);
+				throw new EOFException("The server closed the connection before the body was complete.");
+			}
+			chunkRemaining -= count;
+			if (chunkRemaining == 0) {
+				// Consume the CRLF that follows the chunk data.
+				readLine(in);
+			}
+			return count;
+		}
+
+		@Override
+		public int available() throws IOException {
+			return finished ? 0 : (int) Math.min(in.available(), chunkRemaining);
+		}
+
+		@Override
+		public boolean markSupported() {
+			return false;
+		}
+
+		@Override
+		public void close() {
+			release(finished && keepAlive);
+		}
+
+		/**
+		 * Moves onto the next chunk if the current one has been fully read.
+		 * @return <c>true</c> if there is chunk data to read; <c>false</c> if the body has ended.
+		 * @throws IOException If the chunk header could not be read.
+		 */
+		private boolean nextChunk() throws IOException {
+			if (chunkRemaining > 0) {
+				return true;
+			}
+			String header = readLine(in);
+			if (header == null) {
+				release(false);
+				throw new EOFException("The server closed the connection before the body was complete.");
+			}
+			int extension = header.indexOf(';');
+			try {
+				chunkRemaining = Long.parseLong((extension >= 0 ? header.substring(0, extension) : header).trim(), 16);
+			} catch (NumberFormatException e) {
+				release(false);
+				throw new ProtocolException("Invalid chunk header: " + header);
+			}
+			if (chunkRemaining == 0) {
+				// Skip any trailers, up to the blank line that ends the body.
+				readHeaders(in);
+				finished = true;
+				release(keepAlive);
+				return false;
+			}
+			return true;
+		}
+
+		private void release(boolean reusable) {
+			if (!released) {
+				released = true;
+				connection.release(reusable);
+			}
+		}
+
+	}
+
+	/**
+	 * A response body that is delimited by the server closing the connection.
+	 * The connection can never be reused afterwards.
+	 */
+	private static class UntilCloseInputStream extends FilterInputStream {
+
+		/** The connection that the body is being read from. */
+		private final PooledConnection connection;
+
+		/** Whether or not the connection has already been released. */
+		private boolean released;
+
+		UntilCloseInputStream(PooledConnection connection, InputStream in) {
+			super(in);
+			this.connection = connection;
+		}
+
+		@Override
+		public boolean markSupported() {
+			return false;
+		}
+
+		@Override
+		public void close() {
+			if (!released) {
+				released = true;
+				connection.release(false);
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,27 @@
+package com.mailfinch.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Defines the interface for request bodies that write themselves
+ * directly to a {@link PooledConnection}, without being copied into memory first.
+ * @author Richard Taylor <contact@rtaylor.me.uk>
+ */
+public interface RequestBody {
+
+	/**
+	 * Gets the exact number of bytes that {@link #writeTo} will write.
+	 * @return The length of the body in bytes, or -1 to send it using chunked transfer encoding.
+	 */
+	public long getContentLength();
+
+	/**
+	 * Writes the body to the given stream. This may be called more than once
+	 * if a request has to be resent, and must write the same bytes each time.
+	 * @param out The stream to write to. This must not be closed.
+	 * @throws IOException If the body could not be written.
+	 */
+	public void writeTo(OutputStream out) throws IOException;
+
+}
@@ -0,0 +1,492 @@
+package com.mailfinch.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import com.mailfinch.Resources;
+
+/**
+ * Test class. This file is not formally a member of the MailFinch library.
+ * It is just a casual test tool for the {@link ConnectionPool}, which checks how
+ * bodies are framed and when requests are replayed against a scripted local server.
+ * @author Richard Taylor <contact@rtaylor.me.uk>
+ */
+public class Test {
+
+	/** The number of checks that have failed. */
+	private static int failures;
+
+	/**
+	 * Entry point.
+	 * @param args
+	 */
+	public static void main(String args[]) throws Exception {
+		testFixedLengthBody();
+		testChunkedBody();
+		testBodyUntilClose();
+		testInformationalResponse();
+		testRequestFraming();
+		testReplayIdempotent();
+		testNoReplayAfterSideEffect();
+		testNoReplayAfterTimeout();
+		testHostHeader();
+		testProxy();
+		System.out.println(failures == 0 ? "All checks passed." : failures + " checks failed.");
+		System.exit(failures == 0 ? 0 : 1);
+	}
+
+	/**
+	 * A body with a Content-Length is read exactly, and the connection is reused afterwards.
+	 */
+	private static void testFixedLengthBody() throws Exception {
+		Server server = new Server(new Script() {
+			public void serve(Socket socket, InputStream in, OutputStream out) throws IOException {
+				for (int i = 0; i < 2; i++) {
+					readRequest(in);
+					write(out, "HTTP/1.1 200 OK\r\nContent-Length: 5\r\n\r\nhello");
+				}
+			}
+		});
+		ConnectionPool pool = new ConnectionPool();
+		check("fixed length body", "hello", read(pool.send("GET", server.url("/a"), headers(), null)));
+		check("fixed length reuse", "hello", read(pool.send("GET", server.url("/b"), headers(), null)));
+		check("fixed length connections", 1L, pool.getStatistics().getCreated());
+		pool.close();
+		server.close();
+	}
+
+	/**
+	 * A chunked body is decoded, including its trailers, and the connection is reused afterwards.
+	 */
+	private static void testChunkedBody() throws Exception {
+		Server server = new Server(new Script() {
+			public void serve(Socket socket, InputStream in, OutputStream out) throws IOException {
+				for (int i = 0; i < 2; i++) {
+					readRequest(in);
+					write(out, "HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n"
+							+ "3\r\nabc\r\na;ext=1\r\n0123456789\r\n0\r\nX-Trailer: 1\r\n\r\n");
+				}
+			}
+		});
+		ConnectionPool pool = new ConnectionPool();
+		check("chunked body", "abc0123456789", read(pool.send("GET", server.url("/"), headers(), null)));
+		check("chunked reuse", "abc0123456789", read(pool.send("GET", server.url("/"), headers(), null)));
+		check("chunked connections", 1L, pool.getStatistics().getCreated());
+		pool.close();
+		server.close();
+	}
+
+	/**
+	 * A body with no length runs until the server closes the connection, which is then not reused.
+	 */
+	private static void testBodyUntilClose() throws Exception {
+		Server server = new Server(new Script() {
+			public void serve(Socket socket, InputStream in, OutputStream out) throws IOException {
+				readRequest(in);
+				write(out, "HTTP/1.1 200 OK\r\n\r\nto the end");
+			}
+		});
+		ConnectionPool pool = new ConnectionPool();
+		check("until close body", "to the end", read(pool.send("GET", server.url("/"), headers(), null)));
+		check("until close not kept", 0, pool.getStatistics().getIdle());
+		pool.close();
+		server.close();
+	}
+
+	/**
+	 * Informational responses such as 100 Continue are skipped, as are bodies of HEAD and 204 responses.
+	 */
+	private static void testInformationalResponse() throws Exception {
+		Server server = new Server(new Script() {
+			public void serve(Socket socket, InputStream in, OutputStream out) throws IOException {
+				readRequest(in);
+				write(out, "HTTP/1.1 100 Continue\r\n\r\nHTTP/1.1 200 OK\r\nContent-Length: 2\r\n\r\nok");
+				readRequest(in);
+				write(out, "HTTP/1.1 200 OK\r\nContent-Length: 10\r\n\r\n");
+				readRequest(in);
+				write(out, "HTTP/1.1 204 No Content\r\n\r\n");
+			}
+		});
+		ConnectionPool pool = new ConnectionPool();
+		check("100 continue", "ok", read(pool.send("GET", server.url("/"), headers(), null)));
+		check("head body", "", read(pool.send("HEAD", server.url("/"), headers(), null)));
+		RawResponse response = pool.send("DELETE", server.url("/"), headers(), null);
+		check("204 status", 204, response.getStatusCode());
+		check("204 body", "", read(response));
+		check("informational connections", 1L, pool.getStatistics().getCreated());
+		pool.close();
+		server.close();
+	}
+
+	/**
+	 * Bodies of known length are sent with a Content-Length, and others with chunked transfer encoding.
+	 */
+	private static void testRequestFraming() throws Exception {
+		final List<String> received = new ArrayList<String>();
+		Server server = new Server(new Script() {
+			public void serve(Socket socket, InputStream in, OutputStream out) throws IOException {
+				for (int i = 0; i < 2; i++) {
+					String head = readRequest(in);
+					String body;
+					if (head.contains("Transfer-Encoding: chunked")) {
+						body = readChunked(in);
+					} else {
+						int start = head.indexOf("Content-Length: ") + 16;
+						body = new String(readBytes(in, Integer.parseInt(head.substring(start, head.indexOf('\r', start)))),
+								StandardCharsets.ISO_8859_1);
+					}
+					synchronized (received) {
+						received.add(head.substring(head.indexOf("\r\n") + 2) + body);
+					}
+					write(out, "HTTP/1.1 200 OK\r\nContent-Length: 0\r\n\r\n");
+				}
+			}
+		});
+		ConnectionPool pool = new ConnectionPool();
+		read(pool.send("POST", server.url("/"), headers(), body("{\"a\":1}", true)));
+		read(pool.send("POST", server.url("/"), headers(), body("{\"b\":2}", false)));
+		check("content length framing", true, received.get(0).contains("Content-Length: 7\r\n") && received.get(0).endsWith("{\"a\":1}"));
+		check("chunked framing", true, received.get(1).contains("Transfer-Encoding: chunked\r\n") && received.get(1).endsWith("{\"b\":2}"));
+		pool.close();
+		server.close();
+	}
+
+	/**
+	 * An idempotent request on a reused connection that the server closed without answering is sent again.
+	 */
+	private static void testReplayIdempotent() throws Exception {
+		Server server = new Server(new Script() {
+			public void serve(Socket socket, InputStream in, OutputStream out) throws IOException {
+				readRequest(in);
+				write(out, "HTTP/1.1 200 OK\r\nContent-Length: 1\r\n\r\n1");
+				readRequest(in);
+				// Hang up without answering the second request.
+			}
+		}, new Script() {
+			public void serve(Socket socket, InputStream in, OutputStream out) throws IOException {
+				readRequest(in);
+				write(out, "HTTP/1.1 200 OK\r\nContent-Length: 1\r\n\r\n2");
+			}
+		});
+		ConnectionPool pool = new ConnectionPool();
+		read(pool.send("GET", server.url("/"), headers(), null));
+		check("replay idempotent", "2", read(pool.send("PUT", server.url("/"), headers(), body("x", true))));
+		check("replay connections", 2L, pool.getStatistics().getCreated());
+		pool.close();
+		server.close();
+	}
+
+	/**
+	 * A request that must not be repeated, such as a POST or a purchase, is not sent again on a fresh connection.
+	 */
+	private static void testNoReplayAfterSideEffect() throws Exception {
+		Script hangUp = new Script() {
+			public void serve(Socket socket, InputStream in, OutputStream out) throws IOException {
+				readRequest(in);
+				write(out, "HTTP/1.1 200 OK\r\nContent-Length: 1\r\n\r\n1");
+				readRequest(in);
+			}
+		};
+		Server server = new Server(hangUp, hangUp);
+		ConnectionPool pool = new ConnectionPool();
+		read(pool.send("GET", server.url("/"), headers(), null));
+		check("no replay of POST", "IOException", failureOf(pool, "POST", server.url("/"), ConnectionPool.isIdempotent("POST")));
+		read(pool.send("GET", server.url("/"), headers(), null));
+		check("no replay of purchase", "IOException", failureOf(pool, "GET", server.url("/purchase"), false));
+		check("no replay connections", 2L, pool.getStatistics().getCreated());
+		pool.close();
+		server.close();
+	}
+
+	/**
+	 * A request that times out is not sent again, since the server may still be working on it.
+	 */
+	private static void testNoReplayAfterTimeout() throws Exception {
+		Server server = new Server(new Script() {
+			public void serve(Socket socket, InputStream in, OutputStream out) throws IOException {
+				readRequest(in);
+				write(out, "HTTP/1.1 200 OK\r\nContent-Length: 1\r\n\r\n1");
+				readRequest(in);
+				try {
+					Thread.sleep(500);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+		ConnectionPool pool = new ConnectionPool();
+		read(pool.send("GET", server.url("/"), headers(), null));
+		String failure;
+		try {
+			read(pool.send("GET", server.url("/"), headers(), null, 0, 100));
+			failure = "none";
+		} catch (IOException e) {
+			failure = e.getClass().getSimpleName();
+		}
+		check("no replay after timeout", "SocketTimeoutException", failure);
+		check("timeout connections", 1L, pool.getStatistics().getCreated());
+		pool.close();
+		server.close();
+	}
+
+	/**
+	 * The Host header names the port only when it is not the default, and encloses IPv6 addresses in brackets.
+	 */
+	private static void testHostHeader() throws Exception {
+		final List<String> received = new ArrayList<String>();
+		Script record = new Script() {
+			public void serve(Socket socket, InputStream in, OutputStream out) throws IOException {
+				String head = readRequest(in);
+				synchronized (received) {
+					received.add(head);
+				}
+				write(out, "HTTP/1.1 200 OK\r\nContent-Length: 0\r\n\r\n");
+			}
+		};
+		Server server = new Server(record);
+		ConnectionPool pool = new ConnectionPool();
+		read(pool.send("GET", server.url("/x?y=1"), headers(), null));
+		check("request line", true, received.get(0).startsWith("GET /x?y=1 HTTP/1.1\r\n"));
+		check("host header", true, received.get(0).contains("\r\nHost: 127.0.0.1:" + server.getPort() + "\r\n"));
+		server.close();
+
+		Server ipv6;
+		try {
+			ipv6 = new Server(InetAddress.getByName("::1"), record);
+		} catch (IOException e) {
+			System.out.println("SKIP ipv6 host header: " + e.getMessage());
+			pool.close();
+			return;
+		}
+		read(pool.send("GET", new URL("http", "::1", ipv6.getPort(), "/"), headers(), null));
+		check("ipv6 host header", true, received.get(1).contains("\r\nHost: [::1]:" + ipv6.getPort() + "\r\n"));
+		pool.close();
+		ipv6.close();
+	}
+
+	/**
+	 * Plain requests through an HTTP proxy name the whole URL, and HTTPS requests ask the proxy for a tunnel.
+	 */
+	private static void testProxy() throws Exception {
+		final List<String> received = new ArrayList<String>();
+		Script proxy = new Script() {
+			public void serve(Socket socket, InputStream in, OutputStream out) throws IOException {
+				String head = readRequest(in);
+				synchronized (received) {
+					received.add(head);
+				}
+				if (head.startsWith("CONNECT")) {
+					write(out, "HTTP/1.1 407 Proxy Authentication Required\r\nContent-Length: 0\r\n\r\n");
+				} else {
+					write(out, "HTTP/1.1 200 OK\r\nContent-Length: 2\r\n\r\nok");
+				}
+			}
+		};
+		final Server server = new Server(proxy, proxy);
+		ConnectionPool pool = new ConnectionPool() {
+			@Override
+			protected Proxy selectProxy(URL url) {
+				return new Proxy(Proxy.Type.HTTP, new InetSocketAddress("127.0.0.1", server.getPort()));
+			}
+		};
+		check("proxied body", "ok", read(pool.send("GET", new URL("http://api.example.com/letters.json?a=1"), headers(), null)));
+		check("absolute request line", true, received.get(0).startsWith("GET http://api.example.com/letters.json?a=1 HTTP/1.1\r\n"));
+		check("proxied host header", true, received.get(0).contains("\r\nHost: api.example.com\r\n"));
+		String failure;
+		try {
+			pool.send("GET", new URL("https://api.example.com/letters.json"), headers(), null);
+			failure = "none";
+		} catch (IOException e) {
+			failure = e.getMessage();
+		}
+		check("connect request", true, received.get(1).startsWith("CONNECT api.example.com:443 HTTP/1.1\r\n"));
+		check("refused tunnel", Resources.PROXY_TUNNEL_FAILED, failure);
+		pool.close();
+		server.close();
+	}
+
+	/**
+	 * Sends a request that the scripted server hangs up on, and reports the type of exception it fails with.
+	 */
+	private static String failureOf(ConnectionPool pool, String method, URL url, boolean replayable) {
+		try {
+			read(pool.send(method, url, headers(), body("x", true), 0, 0, replayable));
+			return "none";
+		} catch (IOException e) {
+			return (e instanceof java.io.EOFException || e instanceof java.net.SocketException) ? "IOException" : e.toString();
+		}
+	}
+
+	/**
+	 * Reports the outcome of a check.
+	 */
+	private static void check(String name, Object expected, Object actual) {
+		if (expected.equals(actual)) {
+			System.out.println("PASS " + name);
+		} else {
+			failures++;
+			System.out.println("FAIL " + name + ": expected " + expected + " but was " + actual);
+		}
+	}
+
+	/**
+	 * Creates an empty set of request headers.
+	 */
+	private static Map<String, String> headers() {
+		return new HashMap<String, String>();
+	}
+
+	/**
+	 * Creates a request body, whose length is declared or left to chunked transfer encoding.
+	 */
+	private static RequestBody body(String text, final boolean declareLength) {
+		final byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+		return new RequestBody() {
+			public long getContentLength() {
+				return declareLength ? bytes.length : -1;
+			}
+
+			public void writeTo(OutputStream out) throws IOException {
+				out.write(bytes);
+			}
+		};
+	}
+
+	/**
+	 * Reads the whole body of a response, returning its connection to the pool.
+	 */
+	private static String read(RawResponse response) throws IOException {
+		InputStream body = response.getBody();
+		try {
+			ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+			byte[] chunk = new byte[256];
+			int count;
+			while ((count = body.read(chunk)) != -1) {
+				buffer.write(chunk, 0, count);
+			}
+			return new String(buffer.toByteArray(), StandardCharsets.UTF_8);
+		} finally {
+			body.close();
+		}
+	}
+
+	/**
+	 * Reads the head of a request, up to and including the blank line that ends it.
+	 */
+	private static String readRequest(InputStream in) throws IOException {
+		StringBuilder head = new StringBuilder();
+		String line;
+		while ((line = RawResponse.readLine(in)) != null) {
+			head.append(line).append("\r\n");
+			if (line.isEmpty()) {
+				return head.toString();
+			}
+		}
+		throw new IOException("The client closed the connection.");
+	}
+
+	/**
+	 * Reads a chunked request body.
+	 */
+	private static String readChunked(InputStream in) throws IOException {
+		StringBuilder body = new StringBuilder();
+		for (;;) {
+			int size = Integer.parseInt(RawResponse.readLine(in).trim(), 16);
+			if (size == 0) {
+				RawResponse.readLine(in);
+				return body.toString();
+			}
+			body.append(new String(readBytes(in, size), StandardCharsets.UTF_8));
+			RawResponse.readLine(in);
+		}
+	}
+
+	/**
+	 * Reads an exact number of bytes.
+	 */
+	private static byte[] readBytes(InputStream in, int count) throws IOException {
+		byte[] bytes = new byte[count];
+		int offset = 0;
+		while (offset < count) {
+			int read = in.read(bytes, offset, count - offset);
+			if (read == -1) {
+				throw new IOException("The client closed the connection.");
+			}
+			offset += read;
+		}
+		return bytes;
+	}
+
+	/**
+	 * Writes text to the client.
+	 */
+	private static void write(OutputStream out, String text) throws IOException {
+		out.write(text.getBytes(StandardCharsets.ISO_8859_1));
+		out.flush();
+	}
+
+	/**
+	 * What the scripted server does with one connection.
+	 */
+	private interface Script {
+
+		void serve(Socket socket, InputStream in, OutputStream out) throws IOException;
+
+	}
+
+	/**
+	 * A local server which serves each connection it accepts with the next of its scripts,
+	 * then closes it.
+	 */
+	private static class Server {
+
+		private final ServerSocket socket;
+
+		Server(Script... scripts) throws IOException {
+			this(InetAddress.getByName("127.0.0.1"), scripts);
+		}
+
+		Server(InetAddress address, final Script... scripts) throws IOException {
+			socket = new ServerSocket(0, 50, address);
+			Thread thread = new Thread(new Runnable() {
+				public void run() {
+					for (Script script : scripts) {
+						try (Socket connection = socket.accept()) {
+							script.serve(connection, connection.getInputStream(), connection.getOutputStream());
+						} catch (IOException e) {
+							// The client hung up, or the server was closed.
+						}
+					}
+				}
+			});
+			thread.setDaemon(true);
+			thread.start();
+		}
+
+		int getPort() {
+			return socket.getLocalPort();
+		}
+
+		URL url(String path) throws IOException {
+			return new URL("http://127.0.0.1:" + getPort() + path);
+		}
+
+		void close() throws IOException {
+			socket.close();
+		}
+
+	}
+
+}
@@ -0,0 +1,137 @@
+package com.mailfinch.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An immutable copy of the contents of a {@link LatencyHistogram}.
+ * @author Richard Taylor <contact@rtaylor.me.uk>
+ */
+public class HistogramSnapshot {
+
+	/** The counts of recorded values in each bucket. */
+	private final long[] counts;
+
+	/** The total number of recorded values. */
+	private final long count;
+
+	/** The sum of all recorded values, in nanoseconds. */
+	private final long sum;
+
+	/** The largest recorded value, in nanoseconds. */
+	private final long max;
+
+	/**
+	 * Initialises a new instance of the {@link HistogramSnapshot} class.
+	 * @param counts The counts of recorded values in each bucket, which are not copied.
+	 * @param count The total number of recorded values, which should be the sum of the counts.
+	 * @param sum The sum of all recorded values, in nanoseconds.
+	 * @param max The largest recorded value, in nanoseconds.
+	 */
+	HistogramSnapshot(long[] counts, long count, long sum, long max) {
+		this.counts = counts;
+		this.count = count;
+		this.sum = sum;
+		this.max = max;
+	}
+
+	/**
+	 * Gets the number of recorded latencies.
+	 * @return The number of recorded latencies.
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Gets the sum of all recorded latencies.
+	 * @return The sum of all recorded latencies in nanoseconds.
+	 */
+	public long getSum() {
+		return sum;
+	}
+
+	/**
+	 * Gets the mean of all recorded latencies.
+	 * @return The mean latency in nanoseconds, or zero if nothing has been recorded.
+	 */
+	public double getMean() {
+		return (count == 0) ? 0 : (double) sum / count;
+	}
+
+	/**
+	 * Gets the largest recorded latency.
+	 * @return The largest latency in nanoseconds, or zero if nothing has been recorded.
+	 */
+	public long getMax() {
+		return max;
+	}
+
+	/**
+	 * Gets the latency at or below which the given percentage of recorded latencies fall.
+	 * The answer is the upper end of the bucket containing that latency, and never more than the maximum.
+	 * @param percentile The percentile, between 0 and 100.
+	 * @return The latency in nanoseconds, or zero if nothing has been recorded.
+	 */
+	public long getValueAtPercentile(double percentile) {
+		if (count == 0) {
+			return 0;
+		}
+		long target = Math.max(1, (long) Math.ceil(Math.min(Math.max(percentile, 0), 100) / 100 * count));
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= target) {
+				return Math.min(LatencyHistogram.highestValueIn(i), max);
+			}
+		}
+		return max;
+	}
+
+	/**
+	 * Gets the number of recorded latencies no greater than a given value, as for a cumulative histogram bucket.
+	 * Values sharing a bucket with the given value are counted only if the whole bucket lies at or below it,
+	 * so the answer may be low by up to the width of one bucket.
+	 * @param nanos The value in nanoseconds.
+	 * @return The number of recorded latencies at or below the value.
+	 */
+	public long getCountAtOrBelow(long nanos) {
+		long seen = 0;
+		for (int i = 0; i < counts.length && LatencyHistogram.highestValueIn(i) <= nanos; i++) {
+			seen += counts[i];
+		}
+		return seen;
+	}
+
+	/**
+	 * Gets the count of values recorded in each bucket, together with the upper bound of each bucket.
+	 * Empty buckets are left out.
+	 * @return An array of pairs, each holding the upper bound of a bucket in nanoseconds and its count.
+	 */
+	public long[][] getBuckets() {
+		int used = 0;
+		for (long bucket : counts) {
+			if (bucket != 0) {
+				used++;
+			}
+		}
+		long[][] buckets = new long[used][];
+		int position = 0;
+		for (int i = 0; i < counts.length; i++) {
+			if (counts[i] != 0) {
+				buckets[position++] = new long[] { LatencyHistogram.highestValueIn(i), counts[i] };
+			}
+		}
+		return buckets;
+	}
+
+	@Override
+	public String toString() {
+		return "HistogramSnapshot[count=" + count
+				+ ", mean=" + TimeUnit.NANOSECONDS.toMicros((long) getMean()) + "us"
+				+ ", p50=" + TimeUnit.NANOSECONDS.toMicros(getValueAtPercentile(50)) + "us"
+				+ ", p99=" + TimeUnit.NANOSECONDS.toMicros(getValueAtPercentile(99)) + "us"
+				+ ", p99.9=" + TimeUnit.NANOSECONDS.toMicros(getValueAtPercentile(99.9)) + "us"
+				+ ", max=" + TimeUnit.NANOSECONDS.toMicros(max) + "us]";
+	}
+
+}
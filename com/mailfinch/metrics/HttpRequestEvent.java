@@ -0,0 +1,43 @@
+package com.mailfinch.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Java Flight Recorder event for a single HTTP request to the MailFinch server,
+ * from sending the request to reading the last byte of the response.
+ * Events are only recorded while a recording has them enabled, so they cost next to nothing otherwise.
+ * @author Richard Taylor <contact@rtaylor.me.uk>
+ */
+@Name("com.mailfinch.HttpRequest")
+@Label("MailFinch HTTP Request")
+@Category({"MailFinch", "HTTP"})
+@Description("An HTTP request to the MailFinch server")
+public final class HttpRequestEvent extends jdk.jfr.Event {
+
+	/** The URL template of the request, such as "letters/{id}". */
+	@Label("Route")
+	public String route;
+
+	/** The request method (GET, PUT, POST, or DELETE). */
+	@Label("Method")
+	public String method;
+
+	/** The HTTP status code of the response, or -1 if no response was received. */
+	@Label("Status Code")
+	public int statusCode = -1;
+
+	/** The number of bytes in the request body. */
+	@Label("Request Bytes")
+	@DataAmount(DataAmount.BYTES)
+	public long requestBytes;
+
+	/** The number of bytes in the response body, or -1 if it was not read. */
+	@Label("Response Bytes")
+	@DataAmount(DataAmount.BYTES)
+	public long responseBytes = -1;
+
+}
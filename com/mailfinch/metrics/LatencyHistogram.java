@@ -0,0 +1,164 @@
+package com.mailfinch.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of latencies, in the style of an HDR histogram. Values are counted
+ * in buckets whose width doubles with each power of two, and each power of two is split into
+ * {@value #SUB_BUCKETS} linear sub-buckets, so that percentiles are accurate to within about
+ * 6% across the whole range while recording a value is just a few arithmetic operations
+ * and one atomic increment.
+ * @author Richard Taylor <contact@rtaylor.me.uk>
+ */
+public class LatencyHistogram {
+
+	/** The number of bits used to split each power of two into linear sub-buckets. */
+	private static final int SUB_BUCKET_BITS = 4;
+
+	/** The number of linear sub-buckets within each power of two. */
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	/** The largest value that can be recorded, in nanoseconds (about eighteen minutes). Larger values are clamped. */
+	private static final long MAX_VALUE = (1L << 40) - 1;
+
+	/** The counts of recorded values in each bucket. */
+	private final AtomicLongArray counts = new AtomicLongArray(indexOf(MAX_VALUE) + 1);
+
+	/** The total number of recorded values. */
+	private final LongAdder count = new LongAdder();
+
+	/** The sum of all recorded values, in nanoseconds. */
+	private final LongAdder sum = new LongAdder();
+
+	/** The largest recorded value, in nanoseconds. */
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * Records a latency.
+	 * @param nanos The latency in nanoseconds. Negative values are recorded as zero.
+	 */
+	public void record(long nanos) {
+		long value = Math.min(Math.max(nanos, 0), MAX_VALUE);
+		counts.incrementAndGet(indexOf(value));
+		count.increment();
+		sum.add(value);
+		long current;
+		while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+			// Another thread raised the maximum; check again against its value.
+		}
+	}
+
+	/**
+	 * Gets the number of recorded latencies.
+	 * @return The number of recorded latencies.
+	 */
+	public long getCount() {
+		return count.sum();
+	}
+
+	/**
+	 * Gets the sum of all recorded latencies.
+	 * @return The sum of all recorded latencies in nanoseconds.
+	 */
+	public long getSum() {
+		return sum.sum();
+	}
+
+	/**
+	 * Gets the mean of all recorded latencies.
+	 * @return The mean latency in nanoseconds, or zero if nothing has been recorded.
+	 */
+	public double getMean() {
+		long n = getCount();
+		return (n == 0) ? 0 : (double) getSum() / n;
+	}
+
+	/**
+	 * Gets the largest recorded latency.
+	 * @return The largest latency in nanoseconds, or zero if nothing has been recorded.
+	 */
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * Gets the latency at or below which the given percentage of recorded latencies fall.
+	 * The answer is the upper end of the bucket containing that latency, and never more than the maximum.
+	 * @param percentile The percentile, between 0 and 100.
+	 * @return The latency in nanoseconds, or zero if nothing has been recorded.
+	 */
+	public long getValueAtPercentile(double percentile) {
+		return snapshot().getValueAtPercentile(percentile);
+	}
+
+	/**
+	 * Gets the count of values recorded in each bucket, together with the upper bound of each bucket,
+	 * for exporting the histogram. Empty buckets are left out.
+	 * @return An array of pairs, each holding the upper bound of a bucket in nanoseconds and its count.
+	 */
+	public long[][] getBuckets() {
+		return snapshot().getBuckets();
+	}
+
+	/**
+	 * Takes a copy of the recorded latencies, so that several statistics can be read from one consistent view.
+	 * Values recorded while the copy is being taken may or may not be included.
+	 * @return The {@link HistogramSnapshot} of this histogram.
+	 */
+	public HistogramSnapshot snapshot() {
+		long[] snapshot = new long[counts.length()];
+		long total = 0;
+		for (int i = 0; i < snapshot.length; i++) {
+			snapshot[i] = counts.get(i);
+			total += snapshot[i];
+		}
+		return new HistogramSnapshot(snapshot, total, getSum(), getMax());
+	}
+
+	/**
+	 * Clears all recorded latencies.
+	 * Values recorded while the histogram is being reset may or may not be kept.
+	 */
+	public void reset() {
+		for (int i = 0; i < counts.length(); i++) {
+			counts.set(i, 0);
+		}
+		count.reset();
+		sum.reset();
+		max.set(0);
+	}
+
+	@Override
+	public String toString() {
+		return "LatencyHistogram[count=" + getCount()
+				+ ", mean=" + TimeUnit.NANOSECONDS.toMicros((long) getMean()) + "us"
+				+ ", p50=" + TimeUnit.NANOSECONDS.toMicros(getValueAtPercentile(50)) + "us"
+				+ ", p99=" + TimeUnit.NANOSECONDS.toMicros(getValueAtPercentile(99)) + "us"
+				+ ", max=" + TimeUnit.NANOSECONDS.toMicros(getMax()) + "us]";
+	}
+
+	/**
+	 * Gets the index of the bucket that a value is counted in.
+	 * @param value The value, between zero and {@link #MAX_VALUE}.
+	 * @return The bucket index.
+	 */
+	private static int indexOf(long value) {
+		int shift = Math.max(0, 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS);
+		return (int) (shift * SUB_BUCKETS + (value >> shift));
+	}
+
+	/**
+	 * Gets the largest value that is counted in a bucket.
+	 * @param index The bucket index.
+	 * @return The upper bound of the bucket.
+	 */
+	static long highestValueIn(int index) {
+		int shift = Math.max(0, index / SUB_BUCKETS - 1);
+		long lowest = (long) (index - shift * SUB_BUCKETS) << shift;
+		return lowest + (1L << shift) - 1;
+	}
+
+}
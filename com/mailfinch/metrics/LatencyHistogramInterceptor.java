@@ -0,0 +1,75 @@
+package com.mailfinch.metrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+import com.mailfinch.MailFinchException;
+import com.mailfinch.api.Endpoint;
+import com.mailfinch.api.Exchange;
+import com.mailfinch.api.Interceptor;
+import com.mailfinch.api.MailFinchConnection;
+
+/**
+ * An {@link Interceptor} that records how long each attempt at a request takes,
+ * in a {@link LatencyHistogram} for each kind of {@link Endpoint} and one for all requests.
+ * Failed attempts are recorded too, so that timeouts show up in the tail of the histogram.
+ * @author Richard Taylor <contact@rtaylor.me.uk>
+ */
+public class LatencyHistogramInterceptor implements Interceptor {
+
+	/** The histogram of every request. */
+	private final LatencyHistogram overall = new LatencyHistogram();
+
+	/** The histograms of the requests made to each kind of endpoint. */
+	private final Map<Endpoint, LatencyHistogram> histograms = new EnumMap<Endpoint, LatencyHistogram>(Endpoint.class);
+
+	/**
+	 * Initialises a new instance of the {@link LatencyHistogramInterceptor} class.
+	 */
+	public LatencyHistogramInterceptor() {
+		for (Endpoint endpoint : Endpoint.values()) {
+			histograms.put(endpoint, new LatencyHistogram());
+		}
+	}
+
+	@Override
+	public MailFinchConnection.Response intercept(Chain chain) throws MailFinchException {
+		Exchange exchange = chain.getExchange();
+		try {
+			return chain.proceed();
+		} finally {
+			long duration = exchange.getDuration();
+			if (duration >= 0) {
+				overall.record(duration);
+				histograms.get(exchange.getEndpoint()).record(duration);
+			}
+		}
+	}
+
+	/**
+	 * Gets the histogram of the requests made to one kind of endpoint.
+	 * @param endpoint The {@link Endpoint} to get the histogram of.
+	 * @return The {@link LatencyHistogram} of requests made to the endpoint.
+	 */
+	public LatencyHistogram getHistogram(Endpoint endpoint) {
+		return histograms.get(endpoint);
+	}
+
+	/**
+	 * Gets the histogram of every request.
+	 * @return The {@link LatencyHistogram} of all requests.
+	 */
+	public LatencyHistogram getHistogram() {
+		return overall;
+	}
+
+	/**
+	 * Clears all of the histograms.
+	 */
+	public void reset() {
+		overall.reset();
+		for (LatencyHistogram histogram : histograms.values()) {
+			histogram.reset();
+		}
+	}
+
+}
@@ -0,0 +1,29 @@
+package com.mailfinch.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Java Flight Recorder event for the mapping of JSON data onto a {@link com.mailfinch.Letter}.
+ * Events are only recorded while a recording has them enabled, so they cost next to nothing otherwise.
+ * @author Richard Taylor <contact@rtaylor.me.uk>
+ */
+@Name("com.mailfinch.LetterMapping")
+@Label("MailFinch Letter Mapping")
+@Category({"MailFinch", "JSON"})
+@Description("Mapping of JSON data onto a letter")
+@StackTrace(false)
+public final class LetterMappingEvent extends jdk.jfr.Event {
+
+	/** The ID of the mapped letter, or zero if it has not been saved. */
+	@Label("Letter ID")
+	public int letterID;
+
+	/** The status of the mapped letter. */
+	@Label("Status")
+	public String status;
+
+}
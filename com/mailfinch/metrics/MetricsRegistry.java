@@ -0,0 +1,159 @@
+package com.mailfinch.metrics;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import com.mailfinch.MailFinchDeadlineException;
+import com.mailfinch.MailFinchException;
+import com.mailfinch.MailFinchHttpException;
+
+/**
+ * Collects the latency and throughput of the requests made to the MailFinch API, split by {@link Route}
+ * and {@link Outcome}. Each call to the API is recorded once, however many attempts it took,
+ * so the latencies are those seen by the caller. Recording is lock-free: latencies go into a
+ * {@link LatencyHistogram} per route and counts into striped {@link LongAdder} counters, so
+ * many threads can record at once without contending. Use {@link #snapshot()} to read the metrics,
+ * and a {@link PrometheusExporter} to publish them.
+ * @author Richard Taylor <contact@rtaylor.me.uk>
+ */
+public class MetricsRegistry {
+
+	/**
+	 * The outcomes of a call to the API, which are counted separately.
+	 */
+	public enum Outcome {
+
+		/** The server answered the request successfully. */
+		SUCCESS,
+
+		/** The server rejected the request with a 4xx status code. */
+		CLIENT_ERROR,
+
+		/** The server failed with a 5xx status code. */
+		SERVER_ERROR,
+
+		/** The request or its deadline timed out. */
+		TIMEOUT,
+
+		/** The server could not be reached, or the connection failed. */
+		NETWORK_ERROR,
+
+		/** Any other failure, such as an invalid response. */
+		OTHER_ERROR;
+
+		/**
+		 * Determines the outcome of a failed call.
+		 * @param error The exception that the call failed with.
+		 * @return The {@link Outcome} of the call.
+		 */
+		public static Outcome of(MailFinchException error) {
+			if (error instanceof MailFinchHttpException) {
+				int code = ((MailFinchHttpException) error).getStatusCode();
+				return (code >= 500) ? SERVER_ERROR : CLIENT_ERROR;
+			}
+			Throwable cause = error.getCause();
+			if (error instanceof MailFinchDeadlineException || cause instanceof SocketTimeoutException) {
+				return TIMEOUT;
+			} else if (cause instanceof IOException) {
+				return NETWORK_ERROR;
+			}
+			return OTHER_ERROR;
+		}
+
+	}
+
+	/** The metrics of each route. */
+	private final Map<Route, RouteMetrics> routes = new EnumMap<Route, RouteMetrics>(Route.class);
+
+	/** The time at which recording started, from {@link System#nanoTime()}. */
+	private volatile long startedAt = System.nanoTime();
+
+	/**
+	 * Initialises a new instance of the {@link MetricsRegistry} class.
+	 */
+	public MetricsRegistry() {
+		for (Route route : Route.values()) {
+			routes.put(route, new RouteMetrics());
+		}
+	}
+
+	/**
+	 * Records a call to the API.
+	 * @param apiMethod The method executed on the API.
+	 * @param requestMethod The request method (GET, PUT, POST, or DELETE).
+	 * @param outcome The {@link Outcome} of the call.
+	 * @param nanos The time the call took, in nanoseconds.
+	 */
+	public void record(String apiMethod, String requestMethod, Outcome outcome, long nanos) {
+		record(Route.of(apiMethod, requestMethod), outcome, nanos);
+	}
+
+	/**
+	 * Records a call to the API.
+	 * @param route The {@link Route} that the call was made to.
+	 * @param outcome The {@link Outcome} of the call.
+	 * @param nanos The time the call took, in nanoseconds.
+	 */
+	public void record(Route route, Outcome outcome, long nanos) {
+		RouteMetrics metrics = routes.get(route);
+		metrics.latencies.record(nanos);
+		metrics.outcomes[outcome.ordinal()].increment();
+	}
+
+	/**
+	 * Takes a snapshot of the metrics recorded so far.
+	 * Calls recorded while the snapshot is being taken may or may not be included.
+	 * @return The {@link MetricsSnapshot} of this registry.
+	 */
+	public MetricsSnapshot snapshot() {
+		long period = System.nanoTime() - startedAt;
+		Map<Route, MetricsSnapshot.RouteStatistics> statistics
+			= new EnumMap<Route, MetricsSnapshot.RouteStatistics>(Route.class);
+		for (Map.Entry<Route, RouteMetrics> entry : routes.entrySet()) {
+			RouteMetrics metrics = entry.getValue();
+			long[] outcomes = new long[metrics.outcomes.length];
+			for (int i = 0; i < outcomes.length; i++) {
+				outcomes[i] = metrics.outcomes[i].sum();
+			}
+			statistics.put(entry.getKey(), new MetricsSnapshot.RouteStatistics(entry.getKey(), outcomes,
+					metrics.latencies.snapshot(), period));
+		}
+		return new MetricsSnapshot(statistics, period);
+	}
+
+	/**
+	 * Clears all recorded metrics, and restarts the period that rates are measured over.
+	 * Calls recorded while the registry is being reset may or may not be kept.
+	 */
+	public void reset() {
+		for (RouteMetrics metrics : routes.values()) {
+			metrics.latencies.reset();
+			for (LongAdder counter : metrics.outcomes) {
+				counter.reset();
+			}
+		}
+		startedAt = System.nanoTime();
+	}
+
+	/**
+	 * The live metrics of a single route.
+	 */
+	private static class RouteMetrics {
+
+		/** The latencies of calls to the route. */
+		final LatencyHistogram latencies = new LatencyHistogram();
+
+		/** The number of calls to the route with each outcome, indexed by ordinal. */
+		final LongAdder[] outcomes = new LongAdder[Outcome.values().length];
+
+		RouteMetrics() {
+			for (int i = 0; i < outcomes.length; i++) {
+				outcomes[i] = new LongAdder();
+			}
+		}
+
+	}
+
+}
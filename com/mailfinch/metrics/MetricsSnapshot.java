@@ -0,0 +1,162 @@
+package com.mailfinch.metrics;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import com.mailfinch.metrics.MetricsRegistry.Outcome;
+
+/**
+ * An immutable snapshot of the metrics in a {@link MetricsRegistry}.
+ * @author Richard Taylor <contact@rtaylor.me.uk>
+ */
+public class MetricsSnapshot {
+
+	/**
+	 * The metrics of a single {@link Route}.
+	 * @author Richard Taylor <contact@rtaylor.me.uk>
+	 */
+	public static class RouteStatistics {
+
+		/** The route that these metrics belong to. */
+		private final Route route;
+
+		/** The number of calls with each outcome, indexed by ordinal. */
+		private final long[] outcomes;
+
+		/** The latencies of calls to the route. */
+		private final HistogramSnapshot latencies;
+
+		/** The length of the period the metrics were recorded over, in nanoseconds. */
+		private final long period;
+
+		/**
+		 * Initialises a new instance of the {@link RouteStatistics} class.
+		 * @param route The {@link Route} that these metrics belong to.
+		 * @param outcomes The number of calls with each {@link Outcome}, indexed by ordinal.
+		 * @param latencies The {@link HistogramSnapshot} of the latencies of calls to the route.
+		 * @param period The length of the period the metrics were recorded over, in nanoseconds.
+		 */
+		RouteStatistics(Route route, long[] outcomes, HistogramSnapshot latencies, long period) {
+			this.route = route;
+			this.outcomes = outcomes;
+			this.latencies = latencies;
+			this.period = period;
+		}
+
+		/**
+		 * Gets the route that these metrics belong to.
+		 * @return The {@link Route} of these metrics.
+		 */
+		public Route getRoute() {
+			return route;
+		}
+
+		/**
+		 * Gets the number of calls made to the route.
+		 * @return The total number of calls, whatever their outcome.
+		 */
+		public long getCount() {
+			long count = 0;
+			for (long outcome : outcomes) {
+				count += outcome;
+			}
+			return count;
+		}
+
+		/**
+		 * Gets the number of calls made to the route with a given outcome.
+		 * @param outcome The {@link Outcome} to count.
+		 * @return The number of calls with the outcome.
+		 */
+		public long getCount(Outcome outcome) {
+			return outcomes[outcome.ordinal()];
+		}
+
+		/**
+		 * Gets the average rate of calls to the route over the period the metrics were recorded.
+		 * @return The number of calls per second.
+		 */
+		public double getRate() {
+			return (period <= 0) ? 0 : getCount() * 1e9 / period;
+		}
+
+		/**
+		 * Gets the latencies of calls to the route.
+		 * @return The {@link HistogramSnapshot} of the latencies.
+		 */
+		public HistogramSnapshot getLatencies() {
+			return latencies;
+		}
+
+		@Override
+		public String toString() {
+			return route + "[count=" + getCount()
+					+ ", rate=" + String.format("%.2f", getRate()) + "/s"
+					+ ", errors=" + (getCount() - getCount(Outcome.SUCCESS))
+					+ ", p50=" + TimeUnit.NANOSECONDS.toMicros(latencies.getValueAtPercentile(50)) + "us"
+					+ ", p99=" + TimeUnit.NANOSECONDS.toMicros(latencies.getValueAtPercentile(99)) + "us"
+					+ ", p99.9=" + TimeUnit.NANOSECONDS.toMicros(latencies.getValueAtPercentile(99.9)) + "us]";
+		}
+
+	}
+
+	/** The metrics of each route. */
+	private final Map<Route, RouteStatistics> routes;
+
+	/** The length of the period the metrics were recorded over, in nanoseconds. */
+	private final long period;
+
+	/**
+	 * Initialises a new instance of the {@link MetricsSnapshot} class.
+	 * @param routes The {@link RouteStatistics} of each route.
+	 * @param period The length of the period the metrics were recorded over, in nanoseconds.
+	 */
+	MetricsSnapshot(Map<Route, RouteStatistics> routes, long period) {
+		this.routes = Collections.unmodifiableMap(routes);
+		this.period = period;
+	}
+
+	/**
+	 * Gets the metrics of a single route.
+	 * @param route The {@link Route} to get the metrics of.
+	 * @return The {@link RouteStatistics} of the route.
+	 */
+	public RouteStatistics getRoute(Route route) {
+		return routes.get(route);
+	}
+
+	/**
+	 * Gets the metrics of every route, in the order the routes are declared.
+	 * @return The {@link RouteStatistics} of each route.
+	 */
+	public Collection<RouteStatistics> getRoutes() {
+		return routes.values();
+	}
+
+	/**
+	 * Gets the length of the period the metrics were recorded over.
+	 * @return The period in nanoseconds, since the registry was created or last reset.
+	 */
+	public long getPeriod() {
+		return period;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder text = new StringBuilder("MetricsSnapshot[");
+		boolean first = true;
+		for (RouteStatistics statistics : routes.values()) {
+			if (statistics.getCount() == 0) {
+				continue;
+			}
+			if (!first) {
+				text.append(", ");
+			}
+			text.append(statistics);
+			first = false;
+		}
+		return text.append(']').toString();
+	}
+
+}
@@ -0,0 +1,139 @@
+package com.mailfinch.metrics;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Locale;
+import com.mailfinch.metrics.MetricsRegistry.Outcome;
+import com.mailfinch.metrics.MetricsSnapshot.RouteStatistics;
+
+/**
+ * Writes the metrics of a {@link MetricsRegistry} in the Prometheus text exposition format,
+ * for serving from a scrape endpoint. Each route is labelled with its request method and URL template.
+ * Calls are exported as the counter <c>mailfinch_requests_total</c>, labelled by outcome,
+ * and latencies as the histogram <c>mailfinch_request_duration_seconds</c>.
+ * Routes that have not been called are left out.
+ * @author Richard Taylor <contact@rtaylor.me.uk>
+ */
+public class PrometheusExporter {
+
+	/** The default upper bounds of the exported histogram buckets, in seconds. */
+	public static final double[] DEFAULT_BUCKETS = {
+		0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30
+	};
+
+	/** The registry to export. */
+	private final MetricsRegistry registry;
+
+	/** The upper bounds of the exported histogram buckets, in seconds, in ascending order. */
+	private final double[] buckets;
+
+	/**
+	 * Initialises a new instance of the {@link PrometheusExporter} class, which uses the default buckets.
+	 * @param registry The {@link MetricsRegistry} to export.
+	 */
+	public PrometheusExporter(MetricsRegistry registry) {
+		this(registry, DEFAULT_BUCKETS);
+	}
+
+	/**
+	 * Initialises a new instance of the {@link PrometheusExporter} class.
+	 * @param registry The {@link MetricsRegistry} to export.
+	 * @param buckets The upper bounds of the exported histogram buckets, in seconds.
+	 * Each bucket counts only the latencies recorded wholly below its bound,
+	 * which is accurate to within about 6% of the bound.
+	 */
+	public PrometheusExporter(MetricsRegistry registry, double[] buckets) {
+		this.registry = registry;
+		this.buckets = buckets.clone();
+		Arrays.sort(this.buckets);
+	}
+
+	/**
+	 * Writes a snapshot of the registry in the Prometheus text format.
+	 * @param out The {@link Appendable} to write to.
+	 * @throws IOException If the metrics could not be written.
+	 */
+	public void write(Appendable out) throws IOException {
+		MetricsSnapshot snapshot = registry.snapshot();
+
+		out.append("# HELP mailfinch_requests_total Calls made to the MailFinch API.\n");
+		out.append("# TYPE mailfinch_requests_total counter\n");
+		for (RouteStatistics statistics : snapshot.getRoutes()) {
+			if (statistics.getCount() == 0) {
+				continue;
+			}
+			for (Outcome outcome : Outcome.values()) {
+				long count = statistics.getCount(outcome);
+				if (count != 0) {
+					out.append("mailfinch_requests_total{");
+					labels(out, statistics.getRoute());
+					out.append(",outcome=\"").append(outcome.name().toLowerCase(Locale.ROOT)).append("\"} ");
+					out.append(Long.toString(count)).append('\n');
+				}
+			}
+		}
+
+		out.append("# HELP mailfinch_request_duration_seconds Latency of calls to the MailFinch API, including retries.\n");
+		out.append("# TYPE mailfinch_request_duration_seconds histogram\n");
+		for (RouteStatistics statistics : snapshot.getRoutes()) {
+			HistogramSnapshot latencies = statistics.getLatencies();
+			if (latencies.getCount() == 0) {
+				continue;
+			}
+			for (double bound : buckets) {
+				out.append("mailfinch_request_duration_seconds_bucket{");
+				labels(out, statistics.getRoute());
+				out.append(",le=\"").append(format(bound)).append("\"} ");
+				out.append(Long.toString(latencies.getCountAtOrBelow((long) (bound * 1e9)))).append('\n');
+			}
+			out.append("mailfinch_request_duration_seconds_bucket{");
+			labels(out, statistics.getRoute());
+			out.append(",le=\"+Inf\"} ").append(Long.toString(latencies.getCount())).append('\n');
+			out.append("mailfinch_request_duration_seconds_sum{");
+			labels(out, statistics.getRoute());
+			out.append("} ").append(format(latencies.getSum() / 1e9)).append('\n');
+			out.append("mailfinch_request_duration_seconds_count{");
+			labels(out, statistics.getRoute());
+			out.append("} ").append(Long.toString(latencies.getCount())).append('\n');
+		}
+	}
+
+	/**
+	 * Writes a snapshot of the registry in the Prometheus text format.
+	 * @return The metrics in the Prometheus text format.
+	 */
+	public String export() {
+		StringBuilder out = new StringBuilder(4096);
+		try {
+			write(out);
+		} catch (IOException e) {
+			// Appending to a StringBuilder cannot fail.
+			throw new IllegalStateException(e);
+		}
+		return out.toString();
+	}
+
+	/**
+	 * Writes the labels that identify a route.
+	 * @param out The {@link Appendable} to write to.
+	 * @param route The {@link Route} to identify.
+	 * @throws IOException If the labels could not be written.
+	 */
+	private static void labels(Appendable out, Route route) throws IOException {
+		out.append("method=\"").append(route.getRequestMethod())
+			.append("\",route=\"").append(route.getTemplate()).append('"');
+	}
+
+	/**
+	 * Formats a number as Prometheus expects, without needless trailing zeros.
+	 * @param value The number to format.
+	 * @return The formatted number.
+	 */
+	private static String format(double value) {
+		if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+			return Long.toString((long) value);
+		}
+		return Double.toString(value);
+	}
+
+}
@@ -0,0 +1,107 @@
+package com.mailfinch.metrics;
+
+/**
+ * The routes of the MailFinch API, identified by request method and URL template,
+ * which metrics are recorded for separately. Unlike an {@link com.mailfinch.api.Endpoint},
+ * which groups requests the way the server throttles them, a route tells listing letters
+ * apart from reading a single letter.
+ * @author Richard Taylor <contact@rtaylor.me.uk>
+ */
+public enum Route {
+
+	/** Listing letters: GET letters. */
+	LIST_LETTERS("GET", "letters"),
+
+	/** Reading a letter: GET letters/{id}. */
+	GET_LETTER("GET", "letters/{id}"),
+
+	/** Creating a letter: POST letters. */
+	CREATE_LETTER("POST", "letters"),
+
+	/** Updating a letter: PUT letters/{id}. */
+	UPDATE_LETTER("PUT", "letters/{id}"),
+
+	/** Deleting a letter: DELETE letters/{id}. */
+	DELETE_LETTER("DELETE", "letters/{id}"),
+
+	/** Purchasing a letter: GET letters/{id}/purchase. */
+	PURCHASE_LETTER("GET", "letters/{id}/purchase"),
+
+	/** Any other request. */
+	OTHER("", "other");
+
+	/** The request method of the route. */
+	private final String requestMethod;
+
+	/** The URL template of the route, relative to the base URL and without the format extension. */
+	private final String template;
+
+	/**
+	 * Initialises a new {@link Route}.
+	 * @param requestMethod The request method of the route.
+	 * @param template The URL template of the route.
+	 */
+	Route(String requestMethod, String template) {
+		this.requestMethod = requestMethod;
+		this.template = template;
+	}
+
+	/**
+	 * Gets the request method of this route.
+	 * @return The request method, or an empty string for {@link #OTHER}.
+	 */
+	public String getRequestMethod() {
+		return requestMethod;
+	}
+
+	/**
+	 * Gets the URL template of this route, such as "letters/{id}/purchase".
+	 * @return The URL template of this route.
+	 */
+	public String getTemplate() {
+		return template;
+	}
+
+	/**
+	 * Determines the route that a request is made to, without allocating.
+	 * @param apiMethod The method to execute on the API, such as "letters/123".
+	 * @param requestMethod The request method (GET, PUT, POST, or DELETE).
+	 * @return The {@link Route} of the request.
+	 */
+	public static Route of(String apiMethod, String requestMethod) {
+		if (!apiMethod.startsWith("letters")) {
+			return OTHER;
+		}
+		int length = apiMethod.length();
+		if (length == 7) {
+			if ("GET".equals(requestMethod)) {
+				return LIST_LETTERS;
+			}
+			return "POST".equals(requestMethod) ? CREATE_LETTER : OTHER;
+		}
+		if (apiMethod.charAt(7) != '/') {
+			return OTHER;
+		}
+		int end = 8;
+		while (end < length && Character.isDigit(apiMethod.charAt(end))) {
+			end++;
+		}
+		if (end == 8) {
+			return OTHER;
+		}
+		if (end == length) {
+			switch (requestMethod) {
+				case "GET":
+					return GET_LETTER;
+				case "PUT":
+					return UPDATE_LETTER;
+				case "DELETE":
+					return DELETE_LETTER;
+				default:
+					return OTHER;
+			}
+		}
+		return (apiMethod.startsWith("/purchase", end) && end + 9 == length) ? PURCHASE_LETTER : OTHER;
+	}
+
+}
@@ -0,0 +1,51 @@
+package com.mailfinch.util;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A utility class that recycles fixed-size byte buffers,
+ * so that encoding requests does not allocate a new buffer every time.
+ * @author Richard Taylor <contact@rtaylor.me.uk>
+ */
+public final class BufferPool {
+
+	/** The size of each pooled buffer, in bytes. */
+	public static final int BUFFER_SIZE = 8192;
+
+	/** The maximum number of idle buffers kept in the pool. */
+	private static final int MAX_POOLED = 64;
+
+	/** The idle buffers. */
+	private static final Queue<byte[]> BUFFERS = new ConcurrentLinkedQueue<byte[]>();
+
+	/** The number of idle buffers, tracked separately as the queue's size is not constant-time. */
+	private static final AtomicInteger POOLED = new AtomicInteger();
+
+	/**
+	 * Takes a buffer from the pool, or allocates a new one if the pool is empty.
+	 * @return A buffer of {@link #BUFFER_SIZE} bytes, which should be returned with {@link #release}.
+	 */
+	public static byte[] acquire() {
+		byte[] buffer = BUFFERS.poll();
+		if (buffer == null) {
+			return new byte[BUFFER_SIZE];
+		}
+		POOLED.decrementAndGet();
+		return buffer;
+	}
+
+	/**
+	 * Returns a buffer to the pool. The buffer must not be used afterwards.
+	 * @param buffer The buffer to return, which must have come from {@link #acquire}.
+	 */
+	public static void release(byte[] buffer) {
+		if (buffer.length == BUFFER_SIZE && POOLED.incrementAndGet() <= MAX_POOLED) {
+			BUFFERS.offer(buffer);
+		} else if (buffer.length == BUFFER_SIZE) {
+			POOLED.decrementAndGet();
+		}
+	}
+
+}
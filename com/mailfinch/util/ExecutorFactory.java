@@ -0,0 +1,68 @@
+package com.mailfinch.util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A utility class that provides executors for running many blocking requests at once.
+ * Where the Java runtime supports virtual threads, each task gets its own virtual thread;
+ * otherwise, a fixed pool of daemon platform threads is used.
+ * @author Richard Taylor <contact@rtaylor.me.uk>
+ */
+public final class ExecutorFactory {
+
+	/** The factory method for virtual thread executors, or null if virtual threads are unsupported. */
+	private static final Method VIRTUAL_THREAD_EXECUTOR = findVirtualThreadExecutor();
+
+	/** A counter used to give each platform thread a unique name. */
+	private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+	/**
+	 * Creates an executor suitable for running the given number of blocking tasks at once.
+	 * The caller is responsible for bounding the number of tasks in flight,
+	 * and for shutting the executor down when it is no longer needed.
+	 * @param parallelism The number of tasks that will be run at once.
+	 * @return A new {@link ExecutorService}.
+	 */
+	public static ExecutorService newTaskExecutor(int parallelism) {
+		if (VIRTUAL_THREAD_EXECUTOR != null) {
+			try {
+				return (ExecutorService) VIRTUAL_THREAD_EXECUTOR.invoke(null);
+			} catch (ReflectiveOperationException e) {
+				// Fall back to platform threads.
+			}
+		}
+		return Executors.newFixedThreadPool(parallelism, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable task) {
+				Thread thread = new Thread(task, "mailfinch-worker-" + THREAD_COUNT.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Determines whether or not tasks will be run on virtual threads.
+	 * @return <c>true</c> if virtual threads are supported; otherwise, <c>false</c>.
+	 */
+	public static boolean isUsingVirtualThreads() {
+		return (VIRTUAL_THREAD_EXECUTOR != null);
+	}
+
+	/**
+	 * Looks up {@code Executors.newVirtualThreadPerTaskExecutor()}, which exists from Java 21.
+	 * @return The factory method, or null if it does not exist.
+	 */
+	private static Method findVirtualThreadExecutor() {
+		try {
+			return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
+	}
+
+}
@@ -103,6 +103,16 @@ public class JSONArray {
      */
     public JSONArray(JSONTokener x) throws JSONException {
         this();
+        parse(x);
+    }
+
+
+    /**
+     * Read the elements of a JSONArray from a JSONTokener into this array.
+     * @param x A JSONTokener
+     * @throws JSONException If there is a syntax error.
+     */
+    private void parse(JSONTokener x) throws JSONException {
         char c = x.nextClean();
         char q;
         if (c == '[') {
@@ -154,7 +164,15 @@ public class JSONArray {
      *  @throws JSONException If there is a syntax error.
      */
     public JSONArray(String source) throws JSONException {
-        this(new JSONTokener(source));
+        this();
+        JSONParseEvent event = new JSONParseEvent();
+        event.begin();
+        parse(new JSONTokener(source));
+        if (event.shouldCommit()) {
+            event.type = "array";
+            event.length = source.length();
+            event.commit();
+        }
     }
 
 
@@ -0,0 +1,640 @@
+package org.json;
+
+import java.nio.charset.StandardCharsets;
+
+/*
+Copyright (c) 2002 JSON.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+The Software shall be used for Good, not Evil.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+/**
+ * A JSONByteParser parses UTF-8 encoded JSON text straight from a byte array
+ * into JSONObjects and JSONArrays, accepting the same text as JSONTokener.
+ * The structure is tokenized a byte at a time, since every byte of a
+ * multi-byte UTF-8 sequence is above the ASCII range and so can never be
+ * mistaken for a quote, bracket or separator. Only the strings that become
+ * keys and values are decoded, and plain integers, true, false and null are
+ * read without making a string at all.
+ * <p>
+ * Keys are looked up in a SymbolTable as they are scanned, so a key that is
+ * repeated through the text, as in a listing of letters, is matched against
+ * the bytes and shared rather than decoded again.
+ * <p>
+ * Given a JSONProjection, only the selected members are kept. Other keys are
+ * matched against it without being decoded, and their values are skipped
+ * over by a scan that checks only that brackets balance and strings end.
+ * @author JSON.org
+ */
+final class JSONByteParser {
+
+    /** The characters that end an unquoted value. */
+    private static final String DELIMITERS = ",:]}/\\\"[{;=#";
+
+    private final byte[] 	bytes;
+    private final int 		offset;
+    private final int 		end;
+    private int 			position;
+    private SymbolTable 	symbols;
+
+
+    /**
+     * Construct a JSONByteParser over part of an array of UTF-8 encoded
+     * bytes. The array is read in place, so it must not be changed while it
+     * is being parsed.
+     *
+     * @param bytes     The array containing the source.
+     * @param offset    The index of the first byte of the source.
+     * @param length    The number of bytes in the source.
+     */
+    JSONByteParser(byte[] bytes, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > bytes.length - length) {
+            throw new IndexOutOfBoundsException("offset " + offset +
+                    ", length " + length + ", array length " + bytes.length);
+        }
+        this.bytes = bytes;
+        this.offset = offset;
+        this.end = offset + length;
+        this.position = offset;
+    }
+
+
+    /**
+     * Get the next byte, or 0 if past the end of the source.
+     */
+    private int next() {
+        int p = this.position++;
+        return p < this.end ? this.bytes[p] & 0xFF : 0;
+    }
+
+
+    /**
+     * Back up one byte.
+     */
+    private void back() {
+        this.position -= 1;
+    }
+
+
+    /**
+     * Get the next byte, skipping whitespace.
+     * @return  A byte, or 0 if there are no more bytes.
+     */
+    private int nextClean() {
+        byte[] b = this.bytes;
+        int i = this.position;
+        while (i < this.end) {
+            int c = b[i++] & 0xFF;
+            if (c == 0 || c > ' ') {
+                this.position = i;
+                return c;
+            }
+        }
+        this.position = this.end + 1;
+        return 0;
+    }
+
+
+    /**
+     * Parse a JSONObject, keeping only the members selected by a projection.
+     * @param projection The JSONProjection selecting the members to keep,
+     *  or null to keep them all.
+     * @return A JSONObject.
+     * @throws JSONException If there is a syntax error or a duplicated key.
+     */
+    JSONObject nextObject(JSONProjection projection) throws JSONException {
+        if (nextClean() != '{') {
+            throw syntaxError("A JSONObject text must begin with '{'");
+        }
+        JSONObject object = new JSONObject();
+        for (;;) {
+            String key;
+            int selected = -1;
+            int c = nextClean();
+            switch (c) {
+            case 0:
+                throw syntaxError("A JSONObject text must end with '}'");
+            case '}':
+                return object;
+            case '"':
+            case '\'':
+                if (projection == null) {
+                    key = nextString(c, true);
+                    break;
+                }
+                // Match the key against the projection without decoding it, if it is plain.
+                int start = this.position;
+                if (skipString(c)) {
+                    selected = projection.indexOf(this.bytes, start, this.position - 1 - start);
+                    key = (selected >= 0) ? projection.nameAt(selected) : null;
+                } else {
+                    this.position = start;
+                    key = nextString(c, false);
+                    selected = projection.indexOf(key);
+                }
+                break;
+            default:
+                back();
+                key = nextValue().toString();
+                if (projection != null) {
+                    selected = projection.indexOf(key);
+                }
+            }
+
+            /*
+             * The key is followed by ':'. We will also tolerate '=' or '=>'.
+             */
+
+            c = nextClean();
+            if (c == '=') {
+                if (next() != '>') {
+                    back();
+                }
+            } else if (c != ':') {
+                throw syntaxError("Expected a ':' after a key");
+            }
+            if (projection == null) {
+                object.putOnce(key, nextValue());
+            } else if (selected < 0) {
+                skipValue();
+            } else {
+                object.putOnce(key, nextValue(projection.childAt(selected)));
+            }
+
+            /*
+             * Pairs are separated by ','. We will also tolerate ';'.
+             */
+
+            switch (nextClean()) {
+            case ';':
+            case ',':
+                if (nextClean() == '}') {
+                    return object;
+                }
+                back();
+                break;
+            case '}':
+                return object;
+            default:
+                throw syntaxError("Expected a ',' or '}'");
+            }
+        }
+    }
+
+
+    /**
+     * Parse a JSONArray, applying a projection to each of its elements.
+     * @param projection The JSONProjection selecting the members to keep
+     *  of each element, or null to keep them all.
+     * @return A JSONArray.
+     * @throws JSONException If there is a syntax error.
+     */
+    JSONArray nextArray(JSONProjection projection) throws JSONException {
+        int c = nextClean();
+        int q;
+        if (c == '[') {
+            q = ']';
+        } else if (c == '(') {
+            q = ')';
+        } else {
+            throw syntaxError("A JSONArray text must start with '['");
+        }
+        JSONArray array = new JSONArray();
+        if (nextClean() == ']') {
+            return array;
+        }
+        back();
+        for (;;) {
+            if (nextClean() == ',') {
+                back();
+                array.put((Object) null);
+            } else {
+                back();
+                array.put(nextValue(projection));
+            }
+            c = nextClean();
+            switch (c) {
+            case ';':
+            case ',':
+                if (nextClean() == ']') {
+                    return array;
+                }
+                back();
+                break;
+            case ']':
+            case ')':
+                if (q != c) {
+                    throw syntaxError("Expected a '" + (char) q + "'");
+                }
+                return array;
+            default:
+                throw syntaxError("Expected a ',' or ']'");
+            }
+        }
+    }
+
+
+    /**
+     * Get the next value. The value can be a Boolean, Double, Integer,
+     * JSONArray, JSONObject, Long, or String, or the JSONObject.NULL object.
+     * @throws JSONException If syntax error.
+     *
+     * @return An object.
+     */
+    Object nextValue() throws JSONException {
+        int c = nextClean();
+        switch (c) {
+            case '"':
+            case '\'':
+                return nextString(c, false);
+            case '{':
+                back();
+                return nextObject(null);
+            case '[':
+            case '(':
+                back();
+                return nextArray(null);
+        }
+
+        /*
+         * Handle unquoted text, up to the end of the text or a formatting
+         * character, as JSONTokener does.
+         */
+
+        byte[] b = this.bytes;
+        int start = this.position - 1;
+        int i = start;
+        boolean ascii = true;
+        while (c >= ' ' && DELIMITERS.indexOf(c) < 0) {
+            if (c >= 0x80) {
+                ascii = false;
+            }
+            i += 1;
+            c = i < this.end ? b[i] & 0xFF : 0;
+        }
+        this.position = i;
+        while (start < i && b[start] == ' ') {
+            start += 1;
+        }
+        while (i > start && b[i - 1] == ' ') {
+            i -= 1;
+        }
+        if (start == i) {
+            throw syntaxError("Missing value");
+        }
+        Object value = literal(start, i);
+        return value != null ? value : JSONObject.stringToValue(decode(start, i, ascii));
+    }
+
+
+    /**
+     * Get the next value, keeping only the parts of it selected by a
+     * projection. Values other than objects and arrays are kept whole.
+     * @param projection The JSONProjection selecting the members to keep,
+     *  or null to keep everything.
+     * @return An object.
+     * @throws JSONException If syntax error.
+     */
+    private Object nextValue(JSONProjection projection) throws JSONException {
+        if (projection != null) {
+            int c = nextClean();
+            back();
+            if (c == '{') {
+                return nextObject(projection);
+            } else if (c == '[' || c == '(') {
+                return nextArray(projection);
+            }
+        }
+        return nextValue();
+    }
+
+
+    /**
+     * Skip the next value, with everything nested inside it, without
+     * decoding or allocating anything. Only the balance of brackets and
+     * the ends of strings are checked within it.
+     * @throws JSONException If the value is missing or does not end.
+     */
+    private void skipValue() throws JSONException {
+        int c = nextClean();
+        switch (c) {
+        case '"':
+        case '\'':
+            skipString(c);
+            return;
+        case '{':
+        case '[':
+        case '(':
+            int depth = 1;
+            int previous = c;
+            while (depth > 0) {
+                c = nextClean();
+                switch (c) {
+                case 0:
+                    throw syntaxError("Unterminated object or array");
+                case '"':
+                    skipString(c);
+                    break;
+                case '\'':
+                    // Only a quote where a value or key can begin starts a string.
+                    if (previous == '{' || previous == '[' || previous == '(' || previous == ',' ||
+                            previous == ':' || previous == ';' || previous == '=' || previous == '>') {
+                        skipString(c);
+                    }
+                    break;
+                case '{':
+                case '[':
+                case '(':
+                    depth += 1;
+                    break;
+                case '}':
+                case ']':
+                case ')':
+                    depth -= 1;
+                    break;
+                }
+                previous = c;
+            }
+            return;
+        }
+        int length = 0;
+        while (c >= ' ' && DELIMITERS.indexOf(c) < 0) {
+            length += 1;
+            c = next();
+        }
+        back();
+        if (length == 0) {
+            throw syntaxError("Missing value");
+        }
+    }
+
+
+    /**
+     * Pass over the rest of a string whose opening quote has been consumed.
+     * @param quote The quoting character.
+     * @return Whether the string was plain ASCII without escapes.
+     * @throws JSONException Unterminated string.
+     */
+    private boolean skipString(int quote) throws JSONException {
+        byte[] b = this.bytes;
+        boolean plain = true;
+        for (int i = this.position; i < this.end; i += 1) {
+            int c = b[i];
+            if (c == quote) {
+                this.position = i + 1;
+                return plain;
+            } else if (c == '\\') {
+                plain = false;
+                i += 1;
+            } else if (c == '\n' || c == '\r' || c == 0) {
+                this.position = i + 1;
+                throw syntaxError("Unterminated string");
+            } else if (c < 0) {
+                plain = false;
+            }
+        }
+        this.position = this.end + 1;
+        throw syntaxError("Unterminated string");
+    }
+
+
+    /**
+     * Read the common unquoted values without making a string: true, false,
+     * null, and integers of up to 18 digits.
+     * @param start The index of the first byte of the value.
+     * @param stop  The index after the last byte of the value.
+     * @return The value, or null if it must be left to stringToValue.
+     */
+    private Object literal(int start, int stop) {
+        byte[] b = this.bytes;
+        int length = stop - start;
+        int c = b[start];
+        if (c == 't' && length == 4 && b[start + 1] == 'r' && b[start + 2] == 'u' && b[start + 3] == 'e') {
+            return Boolean.TRUE;
+        }
+        if (c == 'f' && length == 5 && b[start + 1] == 'a' && b[start + 2] == 'l' && b[start + 3] == 's' &&
+                b[start + 4] == 'e') {
+            return Boolean.FALSE;
+        }
+        if (c == 'n' && length == 4 && b[start + 1] == 'u' && b[start + 2] == 'l' && b[start + 3] == 'l') {
+            return JSONObject.NULL;
+        }
+        int i = start;
+        if (c == '-' || c == '+') {
+            i += 1;
+        }
+        if (i == stop || stop - i > 18) {
+            return null;
+        }
+        long n = 0;
+        for (; i < stop; i += 1) {
+            int d = b[i] - '0';
+            if (d < 0 || d > 9) {
+                return null;
+            }
+            n = n * 10 + d;
+        }
+        if (c == '-') {
+            n = -n;
+        }
+        if (n == (int) n) {
+            return Integer.valueOf((int) n);
+        }
+        return Long.valueOf(n);
+    }
+
+
+    /**
+     * Return the characters up to the next close quote character, with
+     * backslash processing, as JSONTokener.nextString does.
+     * @param quote The quoting character.
+     * @param key   Whether the string is a key, and so may be shared.
+     * @return      A String.
+     * @throws JSONException Unterminated string, or illegal escape.
+     */
+    private String nextString(int quote, boolean key) throws JSONException {
+        byte[] b = this.bytes;
+        int start = this.position;
+        int i = start;
+        int hash = 0;
+        boolean ascii = true;
+        StringBuilder sb = null;
+        for (;;) {
+            int c = 0;
+            while (i < this.end) {
+                c = b[i];
+                if (c == quote || c == '\\' || c == '\n' || c == '\r' || c == 0) {
+                    break;
+                }
+                if (c < 0) {
+                    ascii = false;
+                }
+                hash = 31 * hash + c;
+                i += 1;
+            }
+            if (i >= this.end || c != quote && c != '\\') {
+                this.position = i >= this.end ? this.end + 1 : i + 1;
+                throw syntaxError("Unterminated string");
+            }
+            if (c == quote) {
+                this.position = i + 1;
+                if (sb == null) {
+                    if (key && ascii) {
+                        if (this.symbols == null) {
+                            this.symbols = new SymbolTable();
+                        }
+                        return this.symbols.get(b, start, i - start, hash);
+                    }
+                    return decode(start, i, ascii);
+                }
+                return append(sb, start, i, ascii).toString();
+            }
+
+            // Copy the run so far, then decode the escape.
+            if (sb == null) {
+                sb = new StringBuilder(i - start + 16);
+            }
+            append(sb, start, i, ascii);
+            ascii = true;
+            i += 1;
+            c = i < this.end ? b[i] : 0;
+            switch (c) {
+            case 'b':
+                sb.append('\b');
+                break;
+            case 't':
+                sb.append('\t');
+                break;
+            case 'n':
+                sb.append('\n');
+                break;
+            case 'f':
+                sb.append('\f');
+                break;
+            case 'r':
+                sb.append('\r');
+                break;
+            case 'u':
+                if (this.end - i <= 4) {
+                    this.position = this.end + 1;
+                    throw syntaxError("Substring bounds error");
+                }
+                int h1 = JSONTokener.dehexchar((char) b[i + 1]);
+                int h2 = JSONTokener.dehexchar((char) b[i + 2]);
+                int h3 = JSONTokener.dehexchar((char) b[i + 3]);
+                int h4 = JSONTokener.dehexchar((char) b[i + 4]);
+                if ((h1 | h2 | h3 | h4) < 0) {
+                    this.position = i + 5;
+                    throw syntaxError("Illegal escape.");
+                }
+                sb.append((char) (h1 << 12 | h2 << 8 | h3 << 4 | h4));
+                i += 4;
+                break;
+            case '"':
+            case '\'':
+            case '\\':
+            case '/':
+                sb.append((char) c);
+                break;
+            default:
+                this.position = i + 1;
+                throw syntaxError("Illegal escape.");
+            }
+            start = i += 1;
+        }
+    }
+
+
+    /**
+     * Decode a run of bytes.
+     * @param start The index of the first byte.
+     * @param stop  The index after the last byte.
+     * @param ascii Whether the bytes are all ASCII, and so need no decoding.
+     * @return A String.
+     */
+    private String decode(int start, int stop, boolean ascii) {
+        return new String(this.bytes, start, stop - start,
+                ascii ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8);
+    }
+
+
+    /**
+     * Append a decoded run of bytes to a StringBuilder.
+     * @param sb    The StringBuilder.
+     * @param start The index of the first byte.
+     * @param stop  The index after the last byte.
+     * @param ascii Whether the bytes are all ASCII, and so need no decoding.
+     * @return The StringBuilder.
+     */
+    private StringBuilder append(StringBuilder sb, int start, int stop, boolean ascii) {
+        if (!ascii) {
+            return sb.append(decode(start, stop, false));
+        }
+        for (int i = start; i < stop; i += 1) {
+            sb.append((char) this.bytes[i]);
+        }
+        return sb;
+    }
+
+
+    /**
+     * Make a JSONException to signal a syntax error.
+     *
+     * @param message The error message.
+     * @return  A JSONException object, suitable for throwing
+     */
+    private JSONException syntaxError(String message) {
+        return new JSONException(message + toString());
+    }
+
+
+    /**
+     * Make a printable string of this JSONByteParser. Positions are counted
+     * in UTF-16 characters, as they are by JSONTokener, rather than in bytes.
+     *
+     * @return " at {index} [character {character} line {line}]"
+     */
+    public String toString() {
+        int index = 0;
+        int line = 1;
+        int character = 1;
+        int previous = 0;
+        for (int p = this.offset; p < this.position; p += 1) {
+            int c = p < this.end ? this.bytes[p] & 0xFF : 0;
+            if ((c & 0xC0) == 0x80) {
+                continue;
+            }
+            int units = c >= 0xF0 ? 2 : 1;      // A surrogate pair in UTF-16.
+            index += units;
+            if (previous == '\r') {
+                line += 1;
+                character = c == '\n' ? 0 : units;
+            } else if (c == '\n') {
+                line += 1;
+                character = 0;
+            } else {
+                character += units;
+            }
+            previous = c;
+        }
+        return " at " + index + " [character " + character + " line " + line + "]";
+    }
+}
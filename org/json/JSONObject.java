@@ -25,10 +25,12 @@ SOFTWARE.
 */
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Writer;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -177,6 +179,17 @@ public class JSONObject {
      */
     public JSONObject(JSONTokener x) throws JSONException {
         this();
+        parse(x);
+    }
+
+
+    /**
+     * Read the members of a JSONObject from a JSONTokener into this object.
+     * @param x A JSONTokener object containing the source string.
+     * @throws JSONException If there is a syntax error in the source string
+     *  or a duplicated key.
+     */
+    private void parse(JSONTokener x) throws JSONException {
         char c;
         String key;
 
@@ -192,7 +205,7 @@ public class JSONObject {
                 return;
             default:
                 x.back();
-                key = x.nextValue().toString();
+                key = x.nextKey();
             }
 
             /*
@@ -308,7 +321,113 @@ public class JSONObject {
      *  string or a duplicated key.
      */
     public JSONObject(String source) throws JSONException {
-        this(new JSONTokener(source));
+        this();
+        JSONParseEvent event = new JSONParseEvent();
+        event.begin();
+        parse(new JSONTokener(source));
+        if (event.shouldCommit()) {
+            event.type = "object";
+            event.length = source.length();
+            event.commit();
+        }
+    }
+
+
+    /**
+     * Parse a JSONObject from UTF-8 encoded bytes. The bytes are tokenized
+     * directly, without first decoding the whole text into characters, and
+     * only the strings that become keys and values are decoded.
+     * @param source    The UTF-8 encoded source text.
+     * @return A new JSONObject.
+     * @exception JSONException If there is a syntax error in the source
+     *  or a duplicated key.
+     */
+    public static JSONObject parse(byte[] source) throws JSONException {
+        return parse(source, 0, source.length);
+    }
+
+
+    /**
+     * Parse a JSONObject from part of an array of UTF-8 encoded bytes.
+     * @param source    The array containing the UTF-8 encoded source text.
+     * @param offset    The index of the first byte of the source text.
+     * @param length    The number of bytes in the source text.
+     * @return A new JSONObject.
+     * @exception JSONException If there is a syntax error in the source
+     *  or a duplicated key.
+     */
+    public static JSONObject parse(byte[] source, int offset, int length) throws JSONException {
+        return parse(source, offset, length, null);
+    }
+
+
+    /**
+     * Parse only the members of a JSONObject selected by a projection from
+     * UTF-8 encoded bytes. Everything else is skipped over as it is scanned,
+     * without decoding strings or building objects for it.
+     * @param source    The UTF-8 encoded source text.
+     * @param projection The JSONProjection selecting the members to keep.
+     * @return A new JSONObject, holding only the selected members.
+     * @exception JSONException If there is a syntax error in the source
+     *  or a duplicated key.
+     */
+    public static JSONObject parse(byte[] source, JSONProjection projection) throws JSONException {
+        return parse(source, 0, source.length, projection);
+    }
+
+
+    /**
+     * Parse a JSONObject from part of an array of UTF-8 encoded bytes,
+     * reporting it to any flight recording as a JSONParseEvent.
+     */
+    private static JSONObject parse(byte[] source, int offset, int length, JSONProjection projection) throws JSONException {
+        JSONParseEvent event = new JSONParseEvent();
+        event.begin();
+        JSONObject object = new JSONByteParser(source, offset, length).nextObject(projection);
+        if (event.shouldCommit()) {
+            event.type = "object";
+            event.length = length;
+            event.commit();
+        }
+        return object;
+    }
+
+
+    /**
+     * Parse a JSONObject from the remaining UTF-8 encoded bytes of a buffer.
+     * A buffer backed by an array is read in place; any other is copied.
+     * The position of the buffer is not changed.
+     * @param source    The buffer containing the UTF-8 encoded source text.
+     * @return A new JSONObject.
+     * @exception JSONException If there is a syntax error in the source
+     *  or a duplicated key.
+     */
+    public static JSONObject parse(ByteBuffer source) throws JSONException {
+        if (source.hasArray()) {
+            return parse(source.array(), source.arrayOffset() + source.position(), source.remaining());
+        }
+        byte[] bytes = new byte[source.remaining()];
+        source.duplicate().get(bytes);
+        return parse(bytes);
+    }
+
+
+    /**
+     * Parse a JSONObject from a stream of UTF-8 encoded bytes. The stream is
+     * read to its end, but not closed.
+     * @param source    The stream containing the UTF-8 encoded source text.
+     * @return A new JSONObject.
+     * @exception JSONException If the stream could not be read, or there
+     *  is a syntax error in the source or a duplicated key.
+     */
+    public static JSONObject parse(InputStream source) throws JSONException {
+        byte[] bytes;
+        try {
+            bytes = source.readAllBytes();
+        } catch (IOException e) {
+            throw new JSONException(e);
+        }
+        return parse(bytes);
     }
 
 
@@ -0,0 +1,59 @@
+package org.json;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/*
+Copyright (c) 2002 JSON.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+The Software shall be used for Good, not Evil.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+/**
+ * A Java Flight Recorder event for the parsing of a JSON source text into a
+ * JSONObject or JSONArray. Nested objects and arrays are part of the event
+ * for the text that contains them. When the event is not being recorded,
+ * it costs little more than the allocation that escape analysis removes.
+ * @author JSON.org
+ */
+@Name("org.json.Parse")
+@Label("JSON Parse")
+@Category({"MailFinch", "JSON"})
+@Description("Parsing of a JSON text into a JSONObject or JSONArray")
+@StackTrace(false)
+final class JSONParseEvent extends jdk.jfr.Event {
+
+    /**
+     * The kind of value parsed: "object" or "array".
+     */
+    @Label("Type")
+    String type;
+
+    /**
+     * The length of the source text in characters, or in bytes when it
+     * was parsed from UTF-8.
+     */
+    @Label("Length")
+    long length;
+}
@@ -0,0 +1,198 @@
+package org.json;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+Copyright (c) 2002 JSON.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+The Software shall be used for Good, not Evil.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+/**
+ * A JSONProjection is a set of field paths that selects the parts of a JSON
+ * text to keep when it is parsed with JSONObject.parse(byte[], JSONProjection).
+ * Everything else is skipped over as it is scanned, without decoding any
+ * strings or building any objects for it.
+ * <p>
+ * A path names the members to follow from the outermost object, separated
+ * by dots, such as <code>"response.object.letter.id"</code>. The member at
+ * the end of a path is kept whole. Arrays along a path are kept, and the
+ * rest of the path applies to each of their elements. A path that is a
+ * prefix of another selects the whole of its member. Names containing dots
+ * cannot be selected.
+ * <p>
+ * A JSONProjection is immutable, so one can be built once and shared.
+ * @author JSON.org
+ */
+public final class JSONProjection {
+
+    /** The names of the selected members at this level. */
+    private final String[] names;
+
+    /**
+     * The projections of the selected members at this level, or null for
+     * a member that is kept whole.
+     */
+    private final JSONProjection[] children;
+
+
+    /**
+     * Construct a JSONProjection from its members.
+     */
+    private JSONProjection(Map<String, Object> members) {
+        this.names = new String[members.size()];
+        this.children = new JSONProjection[members.size()];
+        int i = 0;
+        for (Map.Entry<String, Object> member : members.entrySet()) {
+            this.names[i] = member.getKey();
+            if (member.getValue() instanceof Map) {
+                @SuppressWarnings("unchecked")
+                Map<String, Object> nested = (Map<String, Object>) member.getValue();
+                this.children[i] = new JSONProjection(nested);
+            }
+            i += 1;
+        }
+    }
+
+
+    /**
+     * Make a JSONProjection that selects the given field paths.
+     * @param paths The paths of the fields to keep, such as
+     *  <code>"response.object.letter.id"</code>.
+     * @return A JSONProjection.
+     * @throws IllegalArgumentException If a path is empty or has an empty
+     *  name in it.
+     */
+    public static JSONProjection of(String... paths) {
+        Map<String, Object> root = new LinkedHashMap<String, Object>();
+        for (String path : paths) {
+            String[] names = path.split("\\.", -1);
+            Map<String, Object> level = root;
+            for (int i = 0; i < names.length && level != null; i += 1) {
+                if (names[i].length() == 0) {
+                    throw new IllegalArgumentException("Empty name in the path \"" + path + "\"");
+                }
+                boolean last = i == names.length - 1;
+                Object existing = level.get(names[i]);
+                if (level.containsKey(names[i]) && existing == null) {
+                    // The member is already kept whole.
+                    level = null;
+                } else if (last) {
+                    level.put(names[i], null);
+                } else {
+                    if (existing == null) {
+                        existing = new LinkedHashMap<String, Object>();
+                        level.put(names[i], existing);
+                    }
+                    @SuppressWarnings("unchecked")
+                    Map<String, Object> nested = (Map<String, Object>) existing;
+                    level = nested;
+                }
+            }
+        }
+        return new JSONProjection(root);
+    }
+
+
+    /**
+     * Find a selected member by the bytes of its name, which must be ASCII.
+     * @param bytes     The array containing the name.
+     * @param start     The index of the first byte of the name.
+     * @param length    The number of bytes in the name.
+     * @return The index of the member, or -1 if it is not selected.
+     */
+    int indexOf(byte[] bytes, int start, int length) {
+        for (int i = 0; i < this.names.length; i += 1) {
+            String name = this.names[i];
+            if (name.length() == length) {
+                int j = 0;
+                while (j < length && name.charAt(j) == bytes[start + j]) {
+                    j += 1;
+                }
+                if (j == length) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+
+    /**
+     * Find a selected member by its name.
+     * @param name  The name of the member.
+     * @return The index of the member, or -1 if it is not selected.
+     */
+    int indexOf(String name) {
+        for (int i = 0; i < this.names.length; i += 1) {
+            if (this.names[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+
+    /**
+     * Get the name of a selected member.
+     * @param index The index of the member.
+     * @return The name.
+     */
+    String nameAt(int index) {
+        return this.names[index];
+    }
+
+
+    /**
+     * Get the projection of a selected member.
+     * @param index The index of the member.
+     * @return The JSONProjection of its contents, or null if it is kept whole.
+     */
+    JSONProjection childAt(int index) {
+        return this.children[index];
+    }
+
+
+    /**
+     * Make a printable string of this JSONProjection.
+     *
+     * @return The selected paths, such as "[response.code, response.object.letter.id]".
+     */
+    public String toString() {
+        List<String> paths = new ArrayList<String>();
+        addPaths("", paths);
+        return paths.toString();
+    }
+
+
+    private void addPaths(String prefix, List<String> paths) {
+        for (int i = 0; i < this.names.length; i += 1) {
+            if (this.children[i] == null) {
+                paths.add(prefix + this.names[i]);
+            } else {
+                this.children[i].addPaths(prefix + this.names[i] + ".", paths);
+            }
+        }
+    }
+}
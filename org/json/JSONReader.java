@@ -0,0 +1,760 @@
+package org.json;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+/*
+Copyright (c) 2002 JSON.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+The Software shall be used for Good, not Evil.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+/**
+ * A JSONReader reads a JSON text one token at a time, so that it can be
+ * bound straight into application objects without first building a tree of
+ * JSONObjects and JSONArrays. Nothing is allocated per token beyond the
+ * names and values that are asked for; values that are not wanted can be
+ * passed over with skipValue(), which allocates nothing at all.
+ * <pre>
+ * reader.beginObject();
+ * while (reader.hasNext()) {
+ *     String name = reader.nextName();
+ *     if (name.equals("id")) {
+ *         id = reader.nextInt();
+ *     } else {
+ *         reader.skipValue();
+ *     }
+ * }
+ * reader.endObject();
+ * </pre>
+ * Unlike JSONTokener, a JSONReader only accepts standard JSON.
+ * @author JSON.org
+ */
+public class JSONReader implements Closeable {
+
+    /**
+     * The kinds of token that a JSON text is made of.
+     */
+    public enum Token {
+        /** The start of an object, consumed by beginObject(). */
+        BEGIN_OBJECT,
+        /** The end of an object, consumed by endObject(). */
+        END_OBJECT,
+        /** The start of an array, consumed by beginArray(). */
+        BEGIN_ARRAY,
+        /** The end of an array, consumed by endArray(). */
+        END_ARRAY,
+        /** The name of a member of an object, consumed by nextName(). */
+        NAME,
+        /** A string value. */
+        STRING,
+        /** A number value. */
+        NUMBER,
+        /** A true or false value. */
+        BOOLEAN,
+        /** A null value, consumed by nextNull(). */
+        NULL,
+        /** The end of the text. */
+        END_DOCUMENT
+    }
+
+    /*
+     * What the reader is in the middle of, kept on a stack for each level
+     * of nesting.
+     */
+    private static final int EMPTY_DOCUMENT = 0;
+    private static final int NONEMPTY_DOCUMENT = 1;
+    private static final int EMPTY_OBJECT = 2;
+    private static final int DANGLING_NAME = 3;
+    private static final int NONEMPTY_OBJECT = 4;
+    private static final int EMPTY_ARRAY = 5;
+    private static final int NONEMPTY_ARRAY = 6;
+    private static final int CLOSED = 7;
+
+    private final Reader 	reader;
+    private char[] 			buffer = new char[8192];
+    private int 			pos;
+    private int 			limit;
+    private long 			discarded;
+    private int[] 			stack = new int[32];
+    private int 			depth;
+    private Token 			peeked;
+    private int 			literalLength;
+    private StringBuilder 	builder;
+    private SymbolTable 	symbols;
+
+
+    /**
+     * Construct a JSONReader over a reader.
+     *
+     * @param reader     A reader.
+     */
+    public JSONReader(Reader reader) {
+        this.reader = reader;
+        this.stack[this.depth++] = EMPTY_DOCUMENT;
+    }
+
+
+    /**
+     * Construct a JSONReader over a stream of UTF-8 encoded bytes.
+     *
+     * @param stream     A stream of UTF-8 encoded bytes.
+     */
+    public JSONReader(InputStream stream) {
+        this(new InputStreamReader(stream, StandardCharsets.UTF_8));
+    }
+
+
+    /**
+     * Get the kind of the next token, without consuming it.
+     * @return The kind of the next token.
+     * @throws JSONException If there is a syntax error, or the source could
+     *  not be read.
+     */
+    public Token peek() throws JSONException {
+        if (this.peeked != null) {
+            return this.peeked;
+        }
+        int c;
+        switch (this.stack[this.depth - 1]) {
+        case EMPTY_ARRAY:
+            this.stack[this.depth - 1] = NONEMPTY_ARRAY;
+            if (nextClean() == ']') {
+                return this.peeked = Token.END_ARRAY;
+            }
+            this.pos -= 1;
+            return this.peeked = peekValue();
+        case NONEMPTY_ARRAY:
+            c = nextClean();
+            if (c == ']') {
+                return this.peeked = Token.END_ARRAY;
+            } else if (c != ',') {
+                throw syntaxError("Expected a ',' or ']'");
+            }
+            return this.peeked = peekValue();
+        case EMPTY_OBJECT:
+        case NONEMPTY_OBJECT:
+            c = nextClean();
+            if (c == '}') {
+                return this.peeked = Token.END_OBJECT;
+            }
+            if (this.stack[this.depth - 1] == NONEMPTY_OBJECT) {
+                if (c != ',') {
+                    throw syntaxError("Expected a ',' or '}'");
+                }
+                c = nextClean();
+            }
+            if (c != '"') {
+                throw syntaxError("Expected a name");
+            }
+            this.stack[this.depth - 1] = DANGLING_NAME;
+            return this.peeked = Token.NAME;
+        case DANGLING_NAME:
+            if (nextClean() != ':') {
+                throw syntaxError("Expected a ':' after a key");
+            }
+            this.stack[this.depth - 1] = NONEMPTY_OBJECT;
+            return this.peeked = peekValue();
+        case EMPTY_DOCUMENT:
+            this.stack[this.depth - 1] = NONEMPTY_DOCUMENT;
+            return this.peeked = peekValue();
+        case NONEMPTY_DOCUMENT:
+            if (nextClean() != -1) {
+                throw syntaxError("Expected the end of the text");
+            }
+            this.pos -= 1;
+            return this.peeked = Token.END_DOCUMENT;
+        default:
+            throw new JSONException("JSONReader is closed");
+        }
+    }
+
+
+    /**
+     * Identify the value that starts at the next non-whitespace character.
+     * The opening quote of a string is consumed; a literal is measured but
+     * left in the buffer until it is consumed.
+     */
+    private Token peekValue() throws JSONException {
+        int c = nextClean();
+        switch (c) {
+        case '{':
+            return Token.BEGIN_OBJECT;
+        case '[':
+            return Token.BEGIN_ARRAY;
+        case '"':
+            return Token.STRING;
+        case -1:
+            throw syntaxError("Missing value");
+        }
+        this.pos -= 1;
+        int length = 0;
+        for (;;) {
+            if (this.pos + length == this.limit && !fill(length + 1)) {
+                break;
+            }
+            c = this.buffer[this.pos + length];
+            if (c <= ' ' || c == ',' || c == ']' || c == '}' || c == ':') {
+                break;
+            }
+            length += 1;
+        }
+        this.literalLength = length;
+        if (literalIs("true") || literalIs("false")) {
+            return Token.BOOLEAN;
+        }
+        if (literalIs("null")) {
+            return Token.NULL;
+        }
+        c = this.buffer[this.pos];
+        if (length > 0 && (c >= '0' && c <= '9' || c == '-')) {
+            return Token.NUMBER;
+        }
+        throw syntaxError("Unexpected character '" + (char) c + "'");
+    }
+
+
+    /**
+     * Determine whether the literal in the buffer is the given word.
+     */
+    private boolean literalIs(String word) {
+        if (this.literalLength != word.length()) {
+            return false;
+        }
+        for (int i = 0; i < this.literalLength; i += 1) {
+            if (this.buffer[this.pos + i] != word.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * Consume the start of an object.
+     * @throws JSONException If the next token is not the start of an object.
+     */
+    public void beginObject() throws JSONException {
+        expect(Token.BEGIN_OBJECT, "Expected '{'");
+        push(EMPTY_OBJECT);
+    }
+
+
+    /**
+     * Consume the end of an object.
+     * @throws JSONException If the next token is not the end of an object.
+     */
+    public void endObject() throws JSONException {
+        expect(Token.END_OBJECT, "Expected '}'");
+        this.depth -= 1;
+    }
+
+
+    /**
+     * Consume the start of an array.
+     * @throws JSONException If the next token is not the start of an array.
+     */
+    public void beginArray() throws JSONException {
+        expect(Token.BEGIN_ARRAY, "Expected '['");
+        push(EMPTY_ARRAY);
+    }
+
+
+    /**
+     * Consume the end of an array.
+     * @throws JSONException If the next token is not the end of an array.
+     */
+    public void endArray() throws JSONException {
+        expect(Token.END_ARRAY, "Expected ']'");
+        this.depth -= 1;
+    }
+
+
+    /**
+     * Determine if the current object or array has another member.
+     * @return true if the next token is not the end of an object, an array
+     *  or the text.
+     * @throws JSONException If there is a syntax error.
+     */
+    public boolean hasNext() throws JSONException {
+        Token token = peek();
+        return token != Token.END_OBJECT && token != Token.END_ARRAY &&
+                token != Token.END_DOCUMENT;
+    }
+
+
+    /**
+     * Consume the name of the next member of an object.
+     * @return The name.
+     * @throws JSONException If the next token is not a name.
+     */
+    public String nextName() throws JSONException {
+        expect(Token.NAME, "Expected a name");
+        return readString(true);
+    }
+
+
+    /**
+     * Consume the next value as a string. Numbers and booleans are returned
+     * as they appear in the text, as JSONObject.getString would.
+     * @return The string.
+     * @throws JSONException If the next token is not a string, number or
+     *  boolean.
+     */
+    public String nextString() throws JSONException {
+        Token token = peek();
+        if (token == Token.STRING) {
+            this.peeked = null;
+            return readString(false);
+        }
+        if (token == Token.NUMBER || token == Token.BOOLEAN) {
+            return consumeLiteral();
+        }
+        throw syntaxError("Expected a string");
+    }
+
+
+    /**
+     * Consume the next value as a boolean. The strings "true" and "false"
+     * are also accepted, in any case, as JSONObject.getBoolean would.
+     * @return The boolean.
+     * @throws JSONException If the next token is not a boolean.
+     */
+    public boolean nextBoolean() throws JSONException {
+        Token token = peek();
+        if (token == Token.BOOLEAN) {
+            boolean value = this.buffer[this.pos] == 't';
+            this.pos += this.literalLength;
+            this.peeked = null;
+            return value;
+        }
+        if (token == Token.STRING) {
+            this.peeked = null;
+            String s = readString(false);
+            if (s.equalsIgnoreCase("true")) {
+                return true;
+            } else if (s.equalsIgnoreCase("false")) {
+                return false;
+            }
+        }
+        throw syntaxError("Expected a boolean");
+    }
+
+
+    /**
+     * Consume a null value.
+     * @throws JSONException If the next token is not null.
+     */
+    public void nextNull() throws JSONException {
+        expect(Token.NULL, "Expected null");
+        this.pos += this.literalLength;
+    }
+
+
+    /**
+     * Consume the next value as a double. Numeric strings are also accepted,
+     * as JSONObject.getDouble would.
+     * @return The double.
+     * @throws JSONException If the next token is not a number.
+     */
+    public double nextDouble() throws JSONException {
+        Token token = peek();
+        String s;
+        if (token == Token.NUMBER) {
+            s = consumeLiteral();
+        } else if (token == Token.STRING) {
+            this.peeked = null;
+            s = readString(false);
+        } else {
+            throw syntaxError("Expected a number");
+        }
+        try {
+            return Double.parseDouble(s);
+        } catch (NumberFormatException e) {
+            throw syntaxError("Expected a number");
+        }
+    }
+
+
+    /**
+     * Consume the next value as a long. Integers are read straight from the
+     * text; anything else is read as a double and truncated, as
+     * JSONObject.getLong would.
+     * @return The long.
+     * @throws JSONException If the next token is not a number.
+     */
+    public long nextLong() throws JSONException {
+        if (peek() == Token.NUMBER && this.literalLength <= 18) {
+            int i = this.pos;
+            int stop = i + this.literalLength;
+            boolean negative = this.buffer[i] == '-';
+            if (negative) {
+                i += 1;
+            }
+            long n = 0;
+            while (i < stop && this.buffer[i] >= '0' && this.buffer[i] <= '9') {
+                n = n * 10 + (this.buffer[i] - '0');
+                i += 1;
+            }
+            if (i == stop && stop > this.pos + (negative ? 1 : 0)) {
+                this.pos = stop;
+                this.peeked = null;
+                return negative ? -n : n;
+            }
+        }
+        return (long) nextDouble();
+    }
+
+
+    /**
+     * Consume the next value as an int, as JSONObject.getInt would.
+     * @return The int.
+     * @throws JSONException If the next token is not a number.
+     */
+    public int nextInt() throws JSONException {
+        long n = nextLong();
+        return (int) n;
+    }
+
+
+    /**
+     * Consume the next value, whatever it is, as a JSONObject, JSONArray,
+     * String, Boolean, number or JSONObject.NULL, for the parts of a text
+     * that are easier to handle as a tree.
+     * @return The value.
+     * @throws JSONException If there is a syntax error or a duplicated key.
+     */
+    public Object nextValue() throws JSONException {
+        switch (peek()) {
+        case BEGIN_OBJECT:
+            JSONObject object = new JSONObject();
+            beginObject();
+            while (hasNext()) {
+                object.putOnce(nextName(), nextValue());
+            }
+            endObject();
+            return object;
+        case BEGIN_ARRAY:
+            JSONArray array = new JSONArray();
+            beginArray();
+            while (hasNext()) {
+                array.put(nextValue());
+            }
+            endArray();
+            return array;
+        case STRING:
+            this.peeked = null;
+            return readString(false);
+        case NUMBER:
+            return JSONObject.stringToValue(consumeLiteral());
+        case BOOLEAN:
+            return nextBoolean() ? Boolean.TRUE : Boolean.FALSE;
+        case NULL:
+            nextNull();
+            return JSONObject.NULL;
+        default:
+            throw syntaxError("Expected a value");
+        }
+    }
+
+
+    /**
+     * Skip the next value, with everything nested inside it, without
+     * allocating anything. If the next token is a name, the name and its
+     * value are both skipped.
+     * @throws JSONException If there is a syntax error, or there is no
+     *  value to skip.
+     */
+    public void skipValue() throws JSONException {
+        Token token = peek();
+        if (token == Token.NAME) {
+            this.peeked = null;
+            skipString();
+            token = peek();
+        }
+        if (token == Token.END_OBJECT || token == Token.END_ARRAY ||
+                token == Token.END_DOCUMENT) {
+            throw syntaxError("Expected a value");
+        }
+        int count = 0;
+        do {
+            token = peek();
+            this.peeked = null;
+            switch (token) {
+            case BEGIN_OBJECT:
+                push(EMPTY_OBJECT);
+                count += 1;
+                break;
+            case BEGIN_ARRAY:
+                push(EMPTY_ARRAY);
+                count += 1;
+                break;
+            case END_OBJECT:
+            case END_ARRAY:
+                this.depth -= 1;
+                count -= 1;
+                break;
+            case NAME:
+            case STRING:
+                skipString();
+                break;
+            case END_DOCUMENT:
+                throw syntaxError("Unexpected end of the text");
+            default:
+                this.pos += this.literalLength;
+            }
+        } while (count > 0);
+    }
+
+
+    /**
+     * Close the reader and the source it reads from.
+     */
+    public void close() throws IOException {
+        this.peeked = null;
+        this.depth = 1;
+        this.stack[0] = CLOSED;
+        this.reader.close();
+    }
+
+
+    /**
+     * Make a JSONException to signal a syntax error.
+     *
+     * @param message The error message.
+     * @return  A JSONException object, suitable for throwing
+     */
+    public JSONException syntaxError(String message) {
+        return new JSONException(message + toString());
+    }
+
+
+    /**
+     * Make a printable string of this JSONReader.
+     *
+     * @return " at {index}"
+     */
+    public String toString() {
+        return " at " + (this.discarded + this.pos);
+    }
+
+
+    private void expect(Token token, String message) throws JSONException {
+        if (peek() != token) {
+            throw syntaxError(message);
+        }
+        this.peeked = null;
+    }
+
+
+    private void push(int scope) {
+        if (this.depth == this.stack.length) {
+            int[] stack = new int[this.depth * 2];
+            System.arraycopy(this.stack, 0, stack, 0, this.depth);
+            this.stack = stack;
+        }
+        this.stack[this.depth++] = scope;
+    }
+
+
+    private String consumeLiteral() {
+        String s = new String(this.buffer, this.pos, this.literalLength);
+        this.pos += this.literalLength;
+        this.peeked = null;
+        return s;
+    }
+
+
+    /**
+     * Consume the next character that is not whitespace.
+     * @return The character, or -1 at the end of the source.
+     */
+    private int nextClean() throws JSONException {
+        for (;;) {
+            if (this.pos == this.limit && !fill(1)) {
+                this.pos += 1;
+                return -1;
+            }
+            char c = this.buffer[this.pos++];
+            if (c > ' ') {
+                return c;
+            }
+        }
+    }
+
+
+    /**
+     * Read the rest of a string whose opening quote has been consumed.
+     * A string that lies within the buffer and has no escapes is copied
+     * straight out of it, or for a name, looked up in the symbol table so
+     * that the names repeated through a listing are shared.
+     * @param name Whether the string is the name of a member.
+     */
+    private String readString(boolean name) throws JSONException {
+        StringBuilder sb = null;
+        for (;;) {
+            int start = this.pos;
+            int hash = 0;
+            while (this.pos < this.limit) {
+                char c = this.buffer[this.pos];
+                if (c == '"') {
+                    this.pos += 1;
+                    if (sb == null) {
+                        if (name) {
+                            if (this.symbols == null) {
+                                this.symbols = new SymbolTable();
+                            }
+                            return this.symbols.get(this.buffer, start, this.pos - 1 - start, hash);
+                        }
+                        return new String(this.buffer, start, this.pos - 1 - start);
+                    }
+                    return sb.append(this.buffer, start, this.pos - 1 - start).toString();
+                }
+                if (c == '\\' || c == '\n' || c == '\r') {
+                    break;
+                }
+                hash = 31 * hash + c;
+                this.pos += 1;
+            }
+            if (sb == null) {
+                if (this.builder == null) {
+                    this.builder = new StringBuilder();
+                }
+                sb = this.builder;
+                sb.setLength(0);
+            }
+            sb.append(this.buffer, start, this.pos - start);
+            if (this.pos == this.limit) {
+                if (!fill(1)) {
+                    throw syntaxError("Unterminated string");
+                }
+            } else if (this.buffer[this.pos] == '\\') {
+                this.pos += 1;
+                sb.append(readEscape());
+            } else {
+                throw syntaxError("Unterminated string");
+            }
+        }
+    }
+
+
+    /**
+     * Pass over the rest of a string whose opening quote has been consumed.
+     */
+    private void skipString() throws JSONException {
+        for (;;) {
+            while (this.pos < this.limit) {
+                char c = this.buffer[this.pos++];
+                if (c == '"') {
+                    return;
+                }
+                if (c == '\\') {
+                    readEscape();
+                } else if (c == '\n' || c == '\r') {
+                    throw syntaxError("Unterminated string");
+                }
+            }
+            if (!fill(1)) {
+                throw syntaxError("Unterminated string");
+            }
+        }
+    }
+
+
+    /**
+     * Decode an escape whose backslash has been consumed.
+     */
+    private char readEscape() throws JSONException {
+        if (this.pos == this.limit && !fill(1)) {
+            throw syntaxError("Unterminated string");
+        }
+        char c = this.buffer[this.pos++];
+        switch (c) {
+        case 'b':
+            return '\b';
+        case 't':
+            return '\t';
+        case 'n':
+            return '\n';
+        case 'f':
+            return '\f';
+        case 'r':
+            return '\r';
+        case 'u':
+            if (this.pos + 4 > this.limit && !fill(4)) {
+                throw syntaxError("Unterminated string");
+            }
+            int value = 0;
+            for (int i = 0; i < 4; i += 1) {
+                int digit = JSONTokener.dehexchar(this.buffer[this.pos++]);
+                if (digit < 0) {
+                    throw syntaxError("Illegal escape.");
+                }
+                value = value << 4 | digit;
+            }
+            return (char) value;
+        case '"':
+        case '\'':
+        case '\\':
+        case '/':
+            return c;
+        default:
+            throw syntaxError("Illegal escape.");
+        }
+    }
+
+
+    /**
+     * Make sure that at least the given number of characters are available
+     * from the current position, moving them to the front of the buffer
+     * and growing it if need be.
+     * @return true if enough characters are available.
+     */
+    private boolean fill(int minimum) throws JSONException {
+        if (this.pos > 0) {
+            this.discarded += this.pos;
+            this.limit -= this.pos;
+            System.arraycopy(this.buffer, this.pos, this.buffer, 0, this.limit);
+            this.pos = 0;
+        }
+        if (minimum > this.buffer.length) {
+            char[] buffer = new char[Math.max(minimum, this.buffer.length * 2)];
+            System.arraycopy(this.buffer, 0, buffer, 0, this.limit);
+            this.buffer = buffer;
+        }
+        try {
+            while (this.limit < minimum) {
+                int count = this.reader.read(this.buffer, this.limit, this.buffer.length - this.limit);
+                if (count == -1) {
+                    return false;
+                }
+                this.limit += count;
+            }
+        } catch (IOException e) {
+            throw new JSONException(e);
+        }
+        return true;
+    }
+}
@@ -3,7 +3,10 @@ package org.json;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.Reader;
-import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 /*
 Copyright (c) 2002 JSON.org
@@ -33,6 +36,14 @@ SOFTWARE.
  * A JSONTokener takes a source string and extracts characters and tokens from
  * it. It is used by the JSONObject and JSONArray constructors to parse
  * JSON source strings.
+ * <p>
+ * A JSONTokener made from a string or an array reads straight out of the
+ * array, without going through a Reader. It can then back up any number of
+ * characters, and it scans strings and whitespace a run at a time. Line and
+ * character positions are only worked out when an error is reported.
+ * <p>
+ * The keys of objects are shared through a SymbolTable, so each distinct key
+ * in the source is only made into a String once.
  * @author JSON.org
  * @version 2010-02-02
  */
@@ -46,6 +57,20 @@ public class JSONTokener {
     private Reader 	reader;
     private boolean usePrevious;
 
+    /** The characters of an in-memory source, or null if reading from a reader. */
+    private char[] 	buffer;
+    /** The offset of the first character of the source in the buffer. */
+    private int 	offset;
+    /** The number of characters in the source. */
+    private int 	length;
+    /** The number of characters consumed from the buffer, including the end. */
+    private int 	position;
+
+    /** The characters of the string being read from a reader, reused from one string to the next. */
+    private char[] 	scratch;
+    /** The keys read so far, shared between the objects parsed from this source. */
+    private SymbolTable symbols;
+
 
     /**
      * Construct a JSONTokener from a reader.
@@ -70,7 +95,61 @@ public class JSONTokener {
      * @param s     A source string.
      */
     public JSONTokener(String s) {
-        this(new StringReader(s));
+        this(s.toCharArray());
+    }
+
+
+    /**
+     * Construct a JSONTokener from an array of characters. The array is
+     * read in place, so it must not be changed while it is being parsed.
+     *
+     * @param chars     The source characters.
+     */
+    public JSONTokener(char[] chars) {
+        this(chars, 0, chars.length);
+    }
+
+
+    /**
+     * Construct a JSONTokener from part of an array of characters. The array
+     * is read in place, so it must not be changed while it is being parsed.
+     *
+     * @param chars     The array containing the source characters.
+     * @param offset    The index of the first source character.
+     * @param length    The number of source characters.
+     */
+    public JSONTokener(char[] chars, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > chars.length - length) {
+            throw new IndexOutOfBoundsException("offset " + offset +
+                    ", length " + length + ", array length " + chars.length);
+        }
+        this.buffer = chars;
+        this.offset = offset;
+        this.length = length;
+        this.position = 0;
+        this.character = 1;
+        this.line = 1;
+    }
+
+
+    /**
+     * Construct a JSONTokener from UTF-8 encoded bytes. They are decoded
+     * into an array in one go, and malformed input is replaced with U+FFFD.
+     *
+     * @param bytes     The UTF-8 encoded source.
+     */
+    public JSONTokener(byte[] bytes) {
+        this(StandardCharsets.UTF_8.decode(ByteBuffer.wrap(bytes)));
+    }
+
+
+    /**
+     * Construct a JSONTokener from the remaining characters of a decoded buffer.
+     *
+     * @param chars     A buffer backed by an accessible array.
+     */
+    private JSONTokener(CharBuffer chars) {
+        this(chars.array(), chars.arrayOffset() + chars.position(), chars.remaining());
     }
 
 
@@ -80,6 +159,14 @@ public class JSONTokener {
      * the next number or identifier.
      */
     public void back() throws JSONException {
+        if (this.buffer != null) {
+            // An in-memory source can back up as far as its start.
+            if (this.position <= 0) {
+                throw new JSONException("Stepping back before the start is not supported");
+            }
+            this.position -= 1;
+            return;
+        }
         if (usePrevious || index <= 0) {
             throw new JSONException("Stepping back two steps is not supported");
         }
@@ -110,6 +197,9 @@ public class JSONTokener {
     }
     
     public boolean end() {
+        if (this.buffer != null) {
+            return this.position > this.length;
+        }
     	return eof && !usePrevious;    	
     }
 
@@ -120,6 +210,9 @@ public class JSONTokener {
      * @return true if not yet at the end of the source.
      */
     public boolean more() throws JSONException {
+        if (this.buffer != null) {
+            return this.position < this.length;
+        }
         next();
         if (end()) {
             return false;
@@ -135,6 +228,10 @@ public class JSONTokener {
      * @return The next character, or 0 if past the end of the source string.
      */
     public char next() throws JSONException {
+        if (this.buffer != null) {
+            int p = this.position++;
+            return p < this.length ? this.buffer[this.offset + p] : 0;
+        }
         int c;
         if (this.usePrevious) {
         	this.usePrevious = false;
@@ -196,6 +293,15 @@ public class JSONTokener {
          if (n == 0) {
              return "";
          }
+         if (this.buffer != null) {
+             if (n > this.length - this.position) {
+                 this.position = this.length + 1;
+                 throw syntaxError("Substring bounds error");
+             }
+             String s = new String(this.buffer, this.offset + this.position, n);
+             this.position += n;
+             return s;
+         }
 
          char[] buffer = new char[n];
          int pos = 0;
@@ -217,6 +323,20 @@ public class JSONTokener {
      * @return  A character, or 0 if there are no more characters.
      */
     public char nextClean() throws JSONException {
+        if (this.buffer != null) {
+            char[] chars = this.buffer;
+            int i = this.offset + this.position;
+            int end = this.offset + this.length;
+            while (i < end) {
+                char c = chars[i++];
+                if (c == 0 || c > ' ') {
+                    this.position = i - this.offset;
+                    return c;
+                }
+            }
+            this.position = this.length + 1;
+            return 0;
+        }
         for (;;) {
             char c = next();
             if (c == 0 || c > ' ') {
@@ -238,8 +358,50 @@ public class JSONTokener {
      * @throws JSONException Unterminated string.
      */
     public String nextString(char quote) throws JSONException {
+        if (this.buffer != null) {
+            return nextBufferedString(quote, false);
+        }
+        return nextReaderString(quote, false);
+    }
+
+
+    /**
+     * Get the next key of an object. A quoted key is looked up in the
+     * symbol table, so a key that is repeated through the source is returned
+     * as the same String rather than copied out again. Any other key is read
+     * as a value and converted to a string.
+     * @return A key.
+     * @throws JSONException If there is a syntax error.
+     */
+    String nextKey() throws JSONException {
+        char c = nextClean();
+        if (c == '"' || c == '\'') {
+            if (this.buffer != null) {
+                return nextBufferedString(c, true);
+            }
+            return nextReaderString(c, true);
+        }
+        back();
+        return nextValue().toString();
+    }
+
+
+    /**
+     * Return the characters up to the next close quote character, reading
+     * them one at a time from the reader into a reusable array.
+     * @param quote The quoting character.
+     * @param key   Whether the string is a key, and so may be shared.
+     * @return      A String.
+     * @throws JSONException Unterminated string, or illegal escape.
+     */
+    private String nextReaderString(char quote, boolean key) throws JSONException {
+        char[] chars = this.scratch;
+        if (chars == null) {
+            chars = this.scratch = new char[64];
+        }
+        int n = 0;
+        int hash = 0;
         char c;
-        StringBuffer sb = new StringBuffer();
         for (;;) {
             c = next();
             switch (c) {
@@ -251,28 +413,35 @@ public class JSONTokener {
                 c = next();
                 switch (c) {
                 case 'b':
-                    sb.append('\b');
+                    c = '\b';
                     break;
                 case 't':
-                    sb.append('\t');
+                    c = '\t';
                     break;
                 case 'n':
-                    sb.append('\n');
+                    c = '\n';
                     break;
                 case 'f':
-                    sb.append('\f');
+                    c = '\f';
                     break;
                 case 'r':
-                    sb.append('\r');
+                    c = '\r';
                     break;
                 case 'u':
-                    sb.append((char)Integer.parseInt(next(4), 16));
+                    int code = 0;
+                    for (int i = 0; i < 4; i += 1) {
+                        int digit = dehexchar(next());
+                        if (digit < 0) {
+                            throw syntaxError("Illegal escape.");
+                        }
+                        code = (code << 4) | digit;
+                    }
+                    c = (char) code;
                     break;
                 case '"':
                 case '\'':
                 case '\\':
                 case '/':
-                	sb.append(c);
                 	break;
                 default:
                     throw syntaxError("Illegal escape.");
@@ -280,14 +449,125 @@ public class JSONTokener {
                 break;
             default:
                 if (c == quote) {
-                    return sb.toString();
+                    return key ? symbols().get(chars, 0, n, hash) : new String(chars, 0, n);
+                }
+            }
+            if (n == chars.length) {
+                chars = this.scratch = Arrays.copyOf(chars, n * 2);
+            }
+            chars[n++] = c;
+            hash = 31 * hash + c;
+        }
+    }
+
+
+    /**
+     * Return the characters up to the next close quote character, scanning
+     * an in-memory source a run at a time. A string without escapes is copied
+     * straight out of the buffer, or for a key, looked up in the symbol table.
+     * @param quote The quoting character.
+     * @param key   Whether the string is a key, and so may be shared.
+     * @return      A String.
+     * @throws JSONException Unterminated string, or illegal escape.
+     */
+    private String nextBufferedString(char quote, boolean key) throws JSONException {
+        char[] chars = this.buffer;
+        int end = this.offset + this.length;
+        int start = this.offset + this.position;
+        int i = start;
+        int hash = 0;
+        StringBuilder sb = null;
+        for (;;) {
+            char c = 0;
+            while (i < end) {
+                c = chars[i];
+                if (c == quote || c == '\\' || c == '\n' || c == '\r' || c == 0) {
+                    break;
+                }
+                hash = 31 * hash + c;
+                i += 1;
+            }
+            if (i >= end || c != quote && c != '\\') {
+                this.position = (i >= end ? end + 1 : i + 1) - this.offset;
+                throw syntaxError("Unterminated string");
+            }
+            if (c == quote) {
+                this.position = i + 1 - this.offset;
+                if (sb == null) {
+                    if (key) {
+                        return symbols().get(chars, start, i - start, hash);
+                    }
+                    return new String(chars, start, i - start);
+                }
+                return sb.append(chars, start, i - start).toString();
+            }
+
+            // Copy the run so far, then decode the escape.
+            if (sb == null) {
+                sb = new StringBuilder(i - start + 16);
+            }
+            sb.append(chars, start, i - start);
+            i += 1;
+            c = i < end ? chars[i] : 0;
+            switch (c) {
+            case 'b':
+                sb.append('\b');
+                break;
+            case 't':
+                sb.append('\t');
+                break;
+            case 'n':
+                sb.append('\n');
+                break;
+            case 'f':
+                sb.append('\f');
+                break;
+            case 'r':
+                sb.append('\r');
+                break;
+            case 'u':
+                if (end - i <= 4) {
+                    this.position = end + 1 - this.offset;
+                    throw syntaxError("Substring bounds error");
+                }
+                int h1 = dehexchar(chars[i + 1]);
+                int h2 = dehexchar(chars[i + 2]);
+                int h3 = dehexchar(chars[i + 3]);
+                int h4 = dehexchar(chars[i + 4]);
+                if ((h1 | h2 | h3 | h4) < 0) {
+                    this.position = i + 5 - this.offset;
+                    throw syntaxError("Illegal escape.");
                 }
+                sb.append((char) (h1 << 12 | h2 << 8 | h3 << 4 | h4));
+                i += 4;
+                break;
+            case '"':
+            case '\'':
+            case '\\':
+            case '/':
                 sb.append(c);
+                break;
+            default:
+                this.position = i + 1 - this.offset;
+                throw syntaxError("Illegal escape.");
             }
+            start = i += 1;
         }
     }
 
 
+    /**
+     * Get the symbol table for the keys of this source, making it when the
+     * first key is read.
+     */
+    private SymbolTable symbols() {
+        if (this.symbols == null) {
+            this.symbols = new SymbolTable();
+        }
+        return this.symbols;
+    }
+
+
     /**
      * Get the text up but not including the specified character or the
      * end of line, whichever comes first.
@@ -365,6 +645,22 @@ public class JSONTokener {
          * formatting character.
          */
 
+        if (this.buffer != null) {
+            int start = this.offset + this.position - 1;
+            int i = start;
+            int end = this.offset + this.length;
+            while (c >= ' ' && ",:]}/\\\"[{;=#".indexOf(c) < 0) {
+                i += 1;
+                c = i < end ? this.buffer[i] : 0;
+            }
+            this.position = i - this.offset;
+            s = new String(this.buffer, start, i - start).trim();
+            if (s.equals("")) {
+                throw syntaxError("Missing value");
+            }
+            return JSONObject.stringToValue(s);
+        }
+
         StringBuffer sb = new StringBuffer();
         while (c >= ' ' && ",:]}/\\\"[{;=#".indexOf(c) < 0) {
             sb.append(c);
@@ -389,6 +685,15 @@ public class JSONTokener {
      */
     public char skipTo(char to) throws JSONException {
         char c;
+        if (this.buffer != null) {
+            for (int i = this.position; i < this.length; i += 1) {
+                if (this.buffer[this.offset + i] == to) {
+                    this.position = i;
+                    return to;
+                }
+            }
+            return 0;
+        }
         try {
             int startIndex = this.index;
             int startCharacter = this.character;
@@ -430,6 +735,36 @@ public class JSONTokener {
      * @return " at {index} [character {character} line {line}]"
      */
     public String toString() {
+        if (this.buffer != null) {
+            locate();
+        }
         return " at " + index + " [character " + this.character + " line " + this.line + "]";
     }
-}
\ No newline at end of file
+
+
+    /**
+     * Work out the index, character and line of the current position in an
+     * in-memory source, counting them the same way as next() does.
+     */
+    private void locate() {
+        int line = 1;
+        int character = 1;
+        char previous = 0;
+        for (int p = 0; p < this.position; p += 1) {
+            char c = p < this.length ? this.buffer[this.offset + p] : 0;
+            if (previous == '\r') {
+                line += 1;
+                character = c == '\n' ? 0 : 1;
+            } else if (c == '\n') {
+                line += 1;
+                character = 0;
+            } else {
+                character += 1;
+            }
+            previous = c;
+        }
+        this.index = this.position;
+        this.character = character;
+        this.line = line;
+    }
+}
@@ -0,0 +1,162 @@
+package org.json;
+
+import java.nio.charset.StandardCharsets;
+
+/*
+Copyright (c) 2002 JSON.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+The Software shall be used for Good, not Evil.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+/**
+ * A SymbolTable canonicalizes the keys of a JSON text as it is parsed. A key
+ * is looked up by the characters or bytes it occupies in the source, so a
+ * key that has been seen before is returned as the same String without
+ * copying it out again. In a listing where every element repeats the same
+ * keys, only the first occurrence of each one is allocated, and since the
+ * shared String caches its hash code, putting it into a JSONObject does not
+ * hash it again.
+ * <p>
+ * Keys are hashed as String.hashCode does, so a stored key can be rejected by
+ * its hash before any characters are compared. The table stops taking new
+ * keys once it holds MAX_SYMBOLS of them, after which unknown keys are simply
+ * allocated, so a text with many distinct keys cannot grow it without bound.
+ * <p>
+ * A SymbolTable belongs to a single parser and is not thread-safe.
+ * @author JSON.org
+ */
+final class SymbolTable {
+
+    /** The length of the longest key that is kept in the table. */
+    static final int MAX_LENGTH = 64;
+
+    /** The number of keys after which the table stops growing. */
+    private static final int MAX_SYMBOLS = 2048;
+
+    /** The initial number of slots, which must be a power of two. */
+    private static final int INITIAL_CAPACITY = 64;
+
+    private String[] 	symbols = new String[INITIAL_CAPACITY];
+    private int 		size;
+
+
+    /**
+     * Get the key held in part of an array of characters.
+     * @param chars     The array containing the key.
+     * @param start     The index of the first character of the key.
+     * @param length    The number of characters in the key.
+     * @param hash      The hash of the key, as String.hashCode would give.
+     * @return The key, shared with any earlier occurrence of it.
+     */
+    String get(char[] chars, int start, int length, int hash) {
+        if (length > MAX_LENGTH) {
+            return new String(chars, start, length);
+        }
+        String[] table = this.symbols;
+        int mask = table.length - 1;
+        for (int i = spread(hash) & mask; ; i = (i + 1) & mask) {
+            String symbol = table[i];
+            if (symbol == null) {
+                return add(i, new String(chars, start, length));
+            }
+            if (symbol.hashCode() == hash && symbol.length() == length) {
+                int j = 0;
+                while (j < length && symbol.charAt(j) == chars[start + j]) {
+                    j += 1;
+                }
+                if (j == length) {
+                    return symbol;
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Get the key held in part of an array of bytes, which must all be ASCII.
+     * @param bytes     The array containing the key.
+     * @param start     The index of the first byte of the key.
+     * @param length    The number of bytes in the key.
+     * @param hash      The hash of the key, as String.hashCode would give.
+     * @return The key, shared with any earlier occurrence of it.
+     */
+    String get(byte[] bytes, int start, int length, int hash) {
+        if (length > MAX_LENGTH) {
+            return new String(bytes, start, length, StandardCharsets.ISO_8859_1);
+        }
+        String[] table = this.symbols;
+        int mask = table.length - 1;
+        for (int i = spread(hash) & mask; ; i = (i + 1) & mask) {
+            String symbol = table[i];
+            if (symbol == null) {
+                return add(i, new String(bytes, start, length, StandardCharsets.ISO_8859_1));
+            }
+            if (symbol.hashCode() == hash && symbol.length() == length) {
+                int j = 0;
+                while (j < length && symbol.charAt(j) == bytes[start + j]) {
+                    j += 1;
+                }
+                if (j == length) {
+                    return symbol;
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Put a new key into an empty slot, unless the table is full, growing
+     * the table if it is more than half full.
+     * @param slot      The empty slot where the key belongs.
+     * @param symbol    The key.
+     * @return The key.
+     */
+    private String add(int slot, String symbol) {
+        if (this.size >= MAX_SYMBOLS) {
+            return symbol;
+        }
+        this.symbols[slot] = symbol;
+        this.size += 1;
+        if (this.size * 2 > this.symbols.length) {
+            String[] table = new String[this.symbols.length * 2];
+            int mask = table.length - 1;
+            for (String s : this.symbols) {
+                if (s != null) {
+                    int i = spread(s.hashCode()) & mask;
+                    while (table[i] != null) {
+                        i = (i + 1) & mask;
+                    }
+                    table[i] = s;
+                }
+            }
+            this.symbols = table;
+        }
+        return symbol;
+    }
+
+
+    /**
+     * Mix the high bits of a hash into the low ones, which pick the slot.
+     */
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}